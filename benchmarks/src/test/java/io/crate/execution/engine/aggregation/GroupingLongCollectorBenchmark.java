@@ -139,7 +139,8 @@ public class GroupingLongCollectorBenchmark {
             Version.CURRENT,
             keyInputs.get(0),
             DataTypes.LONG,
-            Version.CURRENT
+            Version.CURRENT,
+            null
         );
     }
 
@@ -0,0 +1,82 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.breaker;
+
+/**
+ * A RamAccounting which forwards all bytes to a parent RamAccounting, but keeps track of the bytes it added itself.
+ * This allows an operator to stop accounting for its own rows without resetting the accounting of other
+ * operators that share the same parent.
+ * This implementation should be used from a single thread only.
+ */
+public final class ChildRamAccounting implements RamAccounting {
+
+    private final RamAccounting parent;
+    private long usedBytes = 0;
+
+    public ChildRamAccounting(RamAccounting parent) {
+        this.parent = parent;
+    }
+
+    @Override
+    public void addBytes(long bytes) {
+        long parentBytesBefore = parent.totalBytes();
+        try {
+            parent.addBytes(bytes);
+        } catch (RuntimeException e) {
+            // Some implementations keep the bytes accounted even if the breaker trips; those must be released as well
+            long keptBytes = parent.totalBytes() - parentBytesBefore;
+            usedBytes += Math.max(0, Math.min(bytes, keptBytes));
+            throw e;
+        }
+        usedBytes += bytes;
+    }
+
+    @Override
+    public long totalBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Releases only the bytes which have been added through this instance from the parent.
+     */
+    @Override
+    public void release() {
+        if (usedBytes != 0) {
+            parent.addBytes(- usedBytes);
+            usedBytes = 0;
+        }
+    }
+
+    @Override
+    public void close() {
+        release();
+    }
+
+    @Override
+    public String toString() {
+        return "ChildRamAccounting{" +
+               "usedBytes=" + usedBytes +
+               ", parent=" + parent +
+               '}';
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.breaker;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class ChildRamAccountingTest {
+
+    @Test
+    public void test_release_of_child_only_releases_bytes_of_child() {
+        var reservedBytes = new AtomicLong(0L);
+        var parent = new BlockBasedRamAccounting(reservedBytes::addAndGet, 100);
+        var child1 = new ChildRamAccounting(parent);
+        var child2 = new ChildRamAccounting(parent);
+
+        child1.addBytes(40);
+        child2.addBytes(30);
+        assertThat(parent.totalBytes(), is(70L));
+
+        child1.release();
+        assertThat(child1.totalBytes(), is(0L));
+        assertThat(child2.totalBytes(), is(30L));
+        assertThat(parent.totalBytes(), is(30L));
+
+        parent.release();
+        assertThat(reservedBytes.get(), is(0L));
+    }
+
+    @Test
+    public void test_child_does_not_account_bytes_rejected_by_parent() {
+        var parent = new BlockBasedRamAccounting(bytes -> {
+            if (bytes > 0) {
+                throw new IllegalStateException("breaker tripped");
+            }
+        }, 10);
+        var child = new ChildRamAccounting(parent);
+        try {
+            child.addBytes(20);
+        } catch (IllegalStateException ignored) {
+        }
+        assertThat(child.totalBytes(), is(0L));
+        assertThat(parent.totalBytes(), is(0L));
+    }
+
+    @Test
+    public void test_child_releases_bytes_kept_by_parent_after_breaker_tripped() {
+        var parent = new RamAccounting() {
+
+            long usedBytes = 0;
+
+            @Override
+            public void addBytes(long bytes) {
+                usedBytes += bytes;
+                if (usedBytes > 50) {
+                    throw new IllegalStateException("breaker tripped");
+                }
+            }
+
+            @Override
+            public long totalBytes() {
+                return usedBytes;
+            }
+
+            @Override
+            public void release() {
+                usedBytes = 0;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        parent.addBytes(10);
+        var child = new ChildRamAccounting(parent);
+        try {
+            child.addBytes(60);
+        } catch (IllegalStateException ignored) {
+        }
+        assertThat(child.totalBytes(), is(60L));
+
+        child.release();
+        assertThat(parent.totalBytes(), is(10L));
+    }
+}
@@ -26,6 +26,7 @@ import io.crate.analyze.AnalyzedAlterTableAddColumn;
 import io.crate.analyze.AnalyzedAlterTableOpenClose;
 import io.crate.analyze.AnalyzedAlterTableRename;
 import io.crate.analyze.AnalyzedBegin;
+import io.crate.analyze.AnalyzedCloseCursor;
 import io.crate.analyze.AnalyzedCommit;
 import io.crate.analyze.AnalyzedCopyFrom;
 import io.crate.analyze.AnalyzedCopyTo;
@@ -45,7 +46,9 @@ import io.crate.analyze.AnalyzedCreateRepository;
 import io.crate.analyze.AnalyzedCreateUser;
 import io.crate.analyze.CreateViewStmt;
 import io.crate.analyze.AnalyzedDeallocate;
+import io.crate.analyze.AnalyzedDeclareCursor;
 import io.crate.analyze.AnalyzedDropFunction;
+import io.crate.analyze.AnalyzedFetchFromCursor;
 import io.crate.analyze.AnalyzedDropRepository;
 import io.crate.analyze.AnalyzedDropSnapshot;
 import io.crate.analyze.AnalyzedDropUser;
@@ -483,6 +486,23 @@ public final class AccessControlImpl implements AccessControl {
             return null;
         }
 
+        @Override
+        public Void visitDeclareCursor(AnalyzedDeclareCursor analysis, User user) {
+            visitRelation(analysis.query(), user, Privilege.Type.DQL);
+            return null;
+        }
+
+        @Override
+        public Void visitFetchFromCursor(AnalyzedFetchFromCursor analysis, User user) {
+            // cursors are bound to the session, privileges are checked on DECLARE
+            return null;
+        }
+
+        @Override
+        public Void visitCloseCursor(AnalyzedCloseCursor analysis, User user) {
+            return null;
+        }
+
         @Override
         public Void visitShowCreateTableAnalyzedStatement(AnalyzedShowCreateTable analysis, User user) {
             Privileges.ensureUserHasPrivilege(
@@ -24,22 +24,29 @@ import io.crate.testing.UseJdbc;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpOptions;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.http.HttpServerTransport;
 import org.junit.After;
 import org.junit.Test;
 
 import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Base64;
 import java.util.Locale;
 import java.util.Properties;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 
 @UseJdbc(value = 1)
@@ -147,6 +154,34 @@ public class AuthenticationIntegrationTest extends SQLTransportIntegrationTest {
         };
     }
 
+    @Test
+    public void testHttpQueryOfUserWithoutPrivilegesIsRejected() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("user", "crate");
+        try (Connection conn = DriverManager.getConnection(sqlExecutor.jdbcUrl(), properties)) {
+            conn.createStatement().execute("CREATE TABLE doc.t1 (x int)");
+            conn.createStatement().execute("CREATE USER arthur");
+        }
+
+        // A statement without parameters is analyzed unbound and may be served from the plan cache,
+        // run it twice to make sure neither path skips the privilege check.
+        for (int i = 0; i < 2; i++) {
+            HttpServerTransport httpTransport = internalCluster().getInstance(HttpServerTransport.class);
+            InetSocketAddress address = httpTransport.boundAddress().publishAddress().address();
+            HttpPost request = new HttpPost(String.format(
+                Locale.ENGLISH, "http://%s:%s/_sql", address.getHostName(), address.getPort()));
+            request.setHeader(
+                HttpHeaderNames.AUTHORIZATION.toString(),
+                "Basic " + Base64.getEncoder().encodeToString("arthur:".getBytes(StandardCharsets.UTF_8)));
+            request.setEntity(new StringEntity("{\"stmt\": \"select * from doc.t1\"}", ContentType.APPLICATION_JSON));
+            try (CloseableHttpClient httpClient = HttpClients.createDefault();
+                 CloseableHttpResponse resp = httpClient.execute(request)) {
+                assertThat(resp.getStatusLine().getStatusCode(), not(is(200)));
+                assertThat(EntityUtils.toString(resp.getEntity()), containsString("Schema 'doc' unknown"));
+            }
+        }
+    }
+
     @Test
     @SuppressWarnings("EmptyTryBlock")
     public void checkSslConfigOption() throws SQLException {
@@ -185,6 +220,7 @@ public class AuthenticationIntegrationTest extends SQLTransportIntegrationTest {
             conn.createStatement().execute("DROP USER IF EXISTS requiredsslruser");
             conn.createStatement().execute("DROP USER IF EXISTS optionalssluser");
             conn.createStatement().execute("DROP USER IF EXISTS neverssluser");
+            conn.createStatement().execute("DROP TABLE IF EXISTS doc.t1");
         }
     }
 }
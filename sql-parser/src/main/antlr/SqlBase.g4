@@ -70,7 +70,9 @@ statement
     | INSERT INTO table ('(' ident (',' ident)* ')')? insertSource
         onConflict?                                                                  #insert
     | RESTORE SNAPSHOT qname (ALL | TABLE tableWithPartitions) withProperties?       #restore
+    | COPY table ('(' ident (',' ident)* ')')? FROM STDIN withProperties?            #copyFromStdin
     | COPY tableWithPartition FROM path=expr withProperties? (RETURN SUMMARY)?       #copyFrom
+    | COPY '(' query ')' TO STDOUT withProperties?                                   #copyToStdout
     | COPY tableWithPartition columns? where?
         TO DIRECTORY? path=expr withProperties?                                      #copyTo
     | DROP BLOB TABLE (IF EXISTS)? table                                             #dropBlobTable
@@ -92,6 +94,9 @@ statement
     | createStmt                                                                     #create
     | DEALLOCATE (PREPARE)? (ALL | prepStmt=stringLiteralOrIdentifierOrQname)        #deallocate
     | ANALYZE                                                                        #analyze
+    | DECLARE name=ident CURSOR ((WITH | WITHOUT) HOLD)? FOR query                   #declareCursor
+    | FETCH (NEXT | ALL | count=integerLiteral)? (IN | FROM)? name=ident             #fetchFromCursor
+    | CLOSE (name=ident | ALL)                                                       #closeCursor
     ;
 
 query:
@@ -660,7 +665,8 @@ nonReserved
     | ISOLATION | TRANSACTION | CHARACTERISTICS | LEVEL | LANGUAGE | OPEN | CLOSE | RENAME
     | PRIVILEGES | SCHEMA | PREPARE
     | REROUTE | MOVE | SHARD | ALLOCATE | REPLICA | CANCEL | CLUSTER | RETRY | FAILED | FILTER
-    | DO | NOTHING | CONFLICT | TRANSACTION_ISOLATION | RETURN | SUMMARY
+    | DO | NOTHING | CONFLICT | TRANSACTION_ISOLATION | RETURN | SUMMARY | STDIN | STDOUT
+    | DECLARE | CURSOR | HOLD | FETCH | NEXT
     | WORK | SERIALIZABLE | REPEATABLE | COMMITTED | UNCOMMITTED | READ | WRITE | WINDOW | DEFERRABLE
     | STRING_TYPE | IP | DOUBLE | FLOAT | TIMESTAMP | LONG | INT | INTEGER | SHORT | BYTE | BOOLEAN | PRECISION
     | REPLACE | SWAP | GC | DANGLING | ARTIFACTS | DECOMMISSION | LEADING | TRAILING | BOTH | TRIM | CURRENT_SCHEMA
@@ -919,6 +925,13 @@ SCHEMA: 'SCHEMA';
 
 RETURN: 'RETURN';
 SUMMARY: 'SUMMARY';
+STDIN: 'STDIN';
+STDOUT: 'STDOUT';
+DECLARE: 'DECLARE';
+CURSOR: 'CURSOR';
+HOLD: 'HOLD';
+FETCH: 'FETCH';
+NEXT: 'NEXT';
 
 EQ  : '=';
 NEQ : '<>' | '!=';
@@ -27,6 +27,7 @@ import io.crate.sql.tree.AliasedRelation;
 import io.crate.sql.tree.AllColumns;
 import io.crate.sql.tree.Assignment;
 import io.crate.sql.tree.AstVisitor;
+import io.crate.sql.tree.CloseCursor;
 import io.crate.sql.tree.ClusteredBy;
 import io.crate.sql.tree.CollectionColumnType;
 import io.crate.sql.tree.ColumnConstraint;
@@ -34,10 +35,13 @@ import io.crate.sql.tree.ColumnDefinition;
 import io.crate.sql.tree.ColumnStorageDefinition;
 import io.crate.sql.tree.ColumnType;
 import io.crate.sql.tree.CopyFrom;
+import io.crate.sql.tree.CopyFromStdin;
+import io.crate.sql.tree.CopyToStdout;
 import io.crate.sql.tree.CreateFunction;
 import io.crate.sql.tree.CreateSnapshot;
 import io.crate.sql.tree.CreateTable;
 import io.crate.sql.tree.CreateUser;
+import io.crate.sql.tree.DeclareCursor;
 import io.crate.sql.tree.DecommissionNodeStatement;
 import io.crate.sql.tree.DenyPrivilege;
 import io.crate.sql.tree.DropAnalyzer;
@@ -51,6 +55,7 @@ import io.crate.sql.tree.DropView;
 import io.crate.sql.tree.EscapedCharStringLiteral;
 import io.crate.sql.tree.Explain;
 import io.crate.sql.tree.Expression;
+import io.crate.sql.tree.FetchFromCursor;
 import io.crate.sql.tree.FunctionArgument;
 import io.crate.sql.tree.GCDanglingArtifacts;
 import io.crate.sql.tree.GenericProperties;
@@ -188,6 +193,66 @@ public final class SqlFormatter {
             return null;
         }
 
+        @Override
+        public Void visitCopyFromStdin(CopyFromStdin<?> node, Integer indent) {
+            var copyFrom = (CopyFromStdin<Expression>) node;
+
+            append(indent, "COPY ");
+            copyFrom.table().accept(this, indent);
+            if (!copyFrom.columns().isEmpty()) {
+                builder.append(" (");
+                builder.append(copyFrom.columns().stream()
+                    .map(Formatter::quoteIdentifierIfNeeded)
+                    .collect(COMMA_JOINER));
+                builder.append(")");
+            }
+            append(indent, " FROM STDIN");
+            if (!copyFrom.properties().isEmpty()) {
+                append(indent, " ");
+                copyFrom.properties().accept(this, indent);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitCopyToStdout(CopyToStdout<?> node, Integer indent) {
+            var copyTo = (CopyToStdout<Expression>) node;
+
+            append(indent, "COPY (");
+            copyTo.query().accept(this, indent);
+            append(indent, ") TO STDOUT");
+            if (!copyTo.properties().isEmpty()) {
+                append(indent, " ");
+                copyTo.properties().accept(this, indent);
+            }
+            return null;
+        }
+
+        @Override
+        public Void visitDeclareCursor(DeclareCursor node, Integer indent) {
+            append(indent, "DECLARE ");
+            append(indent, quoteIdentifierIfNeeded(node.name()));
+            append(indent, node.hold() ? " CURSOR WITH HOLD FOR " : " CURSOR WITHOUT HOLD FOR ");
+            node.query().accept(this, indent);
+            return null;
+        }
+
+        @Override
+        public Void visitFetchFromCursor(FetchFromCursor node, Integer indent) {
+            append(indent, "FETCH ");
+            append(indent, node.count() == FetchFromCursor.ALL ? "ALL" : Long.toString(node.count()));
+            append(indent, " FROM ");
+            append(indent, quoteIdentifierIfNeeded(node.name()));
+            return null;
+        }
+
+        @Override
+        public Void visitCloseCursor(CloseCursor node, Integer indent) {
+            append(indent, "CLOSE ");
+            append(indent, node.name() == null ? "ALL" : quoteIdentifierIfNeeded(node.name()));
+            return null;
+        }
+
         @Override
         public Void visitRefreshStatement(RefreshStatement node, Integer indent) {
             append(indent, "REFRESH TABLE ");
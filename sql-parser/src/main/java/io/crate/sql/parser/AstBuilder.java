@@ -53,6 +53,7 @@ import io.crate.sql.tree.BetweenPredicate;
 import io.crate.sql.tree.BooleanLiteral;
 import io.crate.sql.tree.Cast;
 import io.crate.sql.tree.CharFilters;
+import io.crate.sql.tree.CloseCursor;
 import io.crate.sql.tree.ClusteredBy;
 import io.crate.sql.tree.CollectionColumnType;
 import io.crate.sql.tree.ColumnConstraint;
@@ -62,7 +63,9 @@ import io.crate.sql.tree.ColumnType;
 import io.crate.sql.tree.CommitStatement;
 import io.crate.sql.tree.ComparisonExpression;
 import io.crate.sql.tree.CopyFrom;
+import io.crate.sql.tree.CopyFromStdin;
 import io.crate.sql.tree.CopyTo;
+import io.crate.sql.tree.CopyToStdout;
 import io.crate.sql.tree.CreateAnalyzer;
 import io.crate.sql.tree.CreateBlobTable;
 import io.crate.sql.tree.CreateFunction;
@@ -73,6 +76,7 @@ import io.crate.sql.tree.CreateUser;
 import io.crate.sql.tree.CreateView;
 import io.crate.sql.tree.CurrentTime;
 import io.crate.sql.tree.DeallocateStatement;
+import io.crate.sql.tree.DeclareCursor;
 import io.crate.sql.tree.DecommissionNodeStatement;
 import io.crate.sql.tree.Delete;
 import io.crate.sql.tree.DenyPrivilege;
@@ -92,6 +96,7 @@ import io.crate.sql.tree.Explain;
 import io.crate.sql.tree.Expression;
 import io.crate.sql.tree.Extract;
 import io.crate.sql.tree.FrameBound;
+import io.crate.sql.tree.FetchFromCursor;
 import io.crate.sql.tree.FunctionArgument;
 import io.crate.sql.tree.FunctionCall;
 import io.crate.sql.tree.GCDanglingArtifacts;
@@ -534,6 +539,21 @@ class AstBuilder extends SqlBaseBaseVisitor<Node> {
             returnSummary);
     }
 
+    @Override
+    public Node visitCopyFromStdin(SqlBaseParser.CopyFromStdinContext context) {
+        return new CopyFromStdin(
+            (Table) visit(context.table()),
+            identsToStrings(context.ident()),
+            extractGenericProperties(context.withProperties()));
+    }
+
+    @Override
+    public Node visitCopyToStdout(SqlBaseParser.CopyToStdoutContext context) {
+        return new CopyToStdout(
+            (Query) visit(context.query()),
+            extractGenericProperties(context.withProperties()));
+    }
+
     @Override
     public Node visitCopyTo(SqlBaseParser.CopyToContext context) {
         return new CopyTo(
@@ -696,6 +716,30 @@ class AstBuilder extends SqlBaseBaseVisitor<Node> {
         return new DeallocateStatement((Expression) visit(context.prepStmt));
     }
 
+    @Override
+    public Node visitDeclareCursor(SqlBaseParser.DeclareCursorContext context) {
+        return new DeclareCursor(
+            getIdentText(context.name),
+            context.HOLD() != null && context.WITH() != null,
+            (Query) visit(context.query()));
+    }
+
+    @Override
+    public Node visitFetchFromCursor(SqlBaseParser.FetchFromCursorContext context) {
+        long count = 1;
+        if (context.ALL() != null) {
+            count = FetchFromCursor.ALL;
+        } else if (context.count != null) {
+            count = ((LongLiteral) visit(context.count)).getValue();
+        }
+        return new FetchFromCursor(getIdentText(context.name), count);
+    }
+
+    @Override
+    public Node visitCloseCursor(SqlBaseParser.CloseCursorContext context) {
+        return new CloseCursor(getIdentText(context.name));
+    }
+
     @Override
     public Node visitExplain(SqlBaseParser.ExplainContext context) {
         return new Explain((Statement) visit(context.statement()), context.ANALYZE() != null);
@@ -0,0 +1,88 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.sql.tree;
+
+import java.util.Objects;
+
+/**
+ * {@code DECLARE name CURSOR [ { WITH | WITHOUT } HOLD ] FOR query}
+ */
+public class DeclareCursor extends Statement {
+
+    private final String name;
+    private final boolean hold;
+    private final Query query;
+
+    public DeclareCursor(String name, boolean hold, Query query) {
+        this.name = name;
+        this.hold = hold;
+        this.query = query;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return true if the cursor can be used after the transaction which created it is committed.
+     */
+    public boolean hold() {
+        return hold;
+    }
+
+    public Query query() {
+        return query;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        DeclareCursor that = (DeclareCursor) o;
+        return hold == that.hold &&
+               Objects.equals(name, that.name) &&
+               Objects.equals(query, that.query);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, hold, query);
+    }
+
+    @Override
+    public String toString() {
+        return "DeclareCursor{" +
+               "name=" + name +
+               ", hold=" + hold +
+               ", query=" + query +
+               '}';
+    }
+
+    @Override
+    public <R, C> R accept(AstVisitor<R, C> visitor, C context) {
+        return visitor.visitDeclareCursor(this, context);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to CRATE Technology GmbH ("Crate") under one or more contributor
+ * license agreements.  See the NOTICE file distributed with this work for
+ * additional information regarding copyright ownership.  Crate licenses
+ * this file to you under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial agreement.
+ */
+
+package io.crate.sql.tree;
+
+import java.util.Objects;
+
+/**
+ * {@code FETCH [ NEXT | ALL | count ] [ { FROM | IN } ] name}
+ */
+public class FetchFromCursor extends Statement {
+
+    /**
+     * Count used for {@code FETCH ALL}
+     */
+    public static final long ALL = Long.MAX_VALUE;
+
+    private final String name;
+    private final long count;
+
+    public FetchFromCursor(String name, long count) {
+        this.name = name;
+        this.count = count;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return the number of rows to fetch; {@link #ALL} to fetch all remaining rows.
+     */
+    public long count() {
+        return count;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        FetchFromCursor that = (FetchFromCursor) o;
+        return count == that.count &&
+               Objects.equals(name, that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, count);
+    }
+
+    @Override
+    public String toString() {
+        return "FetchFromCursor{" +
+               "name=" + name +
+               ", count=" + count +
+               '}';
+    }
+
+    @Override
+    public <R, C> R accept(AstVisitor<R, C> visitor, C context) {
+        return visitor.visitFetchFromCursor(this, context);
+    }
+}
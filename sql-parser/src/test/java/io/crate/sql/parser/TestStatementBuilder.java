@@ -29,12 +29,16 @@ import io.crate.sql.tree.ArrayComparisonExpression;
 import io.crate.sql.tree.ArrayLikePredicate;
 import io.crate.sql.tree.ArrayLiteral;
 import io.crate.sql.tree.Assignment;
+import io.crate.sql.tree.CloseCursor;
 import io.crate.sql.tree.ComparisonExpression;
 import io.crate.sql.tree.CopyFrom;
+import io.crate.sql.tree.CopyFromStdin;
+import io.crate.sql.tree.CopyToStdout;
 import io.crate.sql.tree.CreateFunction;
 import io.crate.sql.tree.CreateTable;
 import io.crate.sql.tree.CreateUser;
 import io.crate.sql.tree.DeallocateStatement;
+import io.crate.sql.tree.DeclareCursor;
 import io.crate.sql.tree.DefaultTraversalVisitor;
 import io.crate.sql.tree.DenyPrivilege;
 import io.crate.sql.tree.DropAnalyzer;
@@ -47,6 +51,7 @@ import io.crate.sql.tree.DropUser;
 import io.crate.sql.tree.DropView;
 import io.crate.sql.tree.EscapedCharStringLiteral;
 import io.crate.sql.tree.Expression;
+import io.crate.sql.tree.FetchFromCursor;
 import io.crate.sql.tree.FunctionCall;
 import io.crate.sql.tree.GCDanglingArtifacts;
 import io.crate.sql.tree.GrantPrivilege;
@@ -75,6 +80,7 @@ import org.junit.rules.ExpectedException;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.google.common.base.Strings.repeat;
@@ -1008,6 +1014,10 @@ public class TestStatementBuilder {
         printStatement("copy schemah.foo from '/folder/file.extension'");
         printStatement("copy schemah.foo from '/folder/file.extension' return summary");
         printStatement("copy schemah.foo from '/folder/file.extension' with (some_property=1) return summary");
+        printStatement("copy foo from stdin");
+        printStatement("copy foo (a, b) from stdin with (format='csv', header=true)");
+        printStatement("copy (select a from foo where b = 1 order by a) to stdout");
+        printStatement("copy (select * from foo) to stdout with (format='csv')");
 
         printStatement("copy foo (nae) to '/folder/file.extension'");
         printStatement("copy foo to '/folder/file.extension'");
@@ -1020,6 +1030,47 @@ public class TestStatementBuilder {
         printStatement("copy foo where a = 'x' to DIRECTORY '/folder'");
     }
 
+    @Test
+    public void testCopyFromStdinWithColumns() {
+        CopyFromStdin<?> copyFrom = (CopyFromStdin<?>) SqlParser.createStatement("copy foo (a, b) from stdin");
+        assertEquals(List.of("a", "b"), copyFrom.columns());
+        assertThat(copyFrom.table().getName().toString(), is("foo"));
+    }
+
+    @Test
+    public void testStdinCanStillBeUsedAsIdentifier() {
+        printStatement("select stdin, stdout from foo");
+    }
+
+    @Test
+    public void testCursorStmtBuilder() {
+        printStatement("declare c1 cursor for select * from t1 order by x");
+        printStatement("declare c1 cursor with hold for select x from t1");
+        printStatement("declare c1 cursor without hold for select x from t1");
+        printStatement("fetch from c1");
+        printStatement("fetch next in c1");
+        printStatement("fetch 10 from c1");
+        printStatement("fetch all from c1");
+        printStatement("close c1");
+        printStatement("close all");
+    }
+
+    @Test
+    public void testFetchFromCursorDefaultsToOneRow() {
+        FetchFromCursor fetch = (FetchFromCursor) SqlParser.createStatement("fetch c1");
+        assertThat(fetch.name(), is("c1"));
+        assertThat(fetch.count(), is(1L));
+        fetch = (FetchFromCursor) SqlParser.createStatement("fetch all c1");
+        assertThat(fetch.count(), is(FetchFromCursor.ALL));
+    }
+
+    @Test
+    public void testDeclareCursorWithoutHoldIsDefault() {
+        DeclareCursor declare = (DeclareCursor) SqlParser.createStatement("declare c1 cursor for select 1");
+        assertThat(declare.hold(), is(false));
+        assertThat(((CloseCursor) SqlParser.createStatement("close all")).name(), nullValue());
+    }
+
     @Test
     public void testInsertStmtBuilder() {
         // insert from values
@@ -1598,6 +1649,11 @@ public class TestStatementBuilder {
         if (statement instanceof Query ||
             statement instanceof CreateTable ||
             statement instanceof CopyFrom ||
+            statement instanceof CopyFromStdin ||
+            statement instanceof CopyToStdout ||
+            statement instanceof DeclareCursor ||
+            statement instanceof FetchFromCursor ||
+            statement instanceof CloseCursor ||
             statement instanceof SwapTable ||
             statement instanceof GCDanglingArtifacts ||
             statement instanceof CreateFunction ||
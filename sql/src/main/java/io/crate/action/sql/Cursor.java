@@ -0,0 +1,276 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.action.sql;
+
+import io.crate.data.Row;
+import io.crate.data.RowConsumer;
+import io.crate.expression.symbol.Field;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * A cursor created with {@code DECLARE name CURSOR FOR query}.
+ *
+ * <p>
+ * The query is started with the first {@link #fetch(long, ResultReceiver)} call. Once {@code count} rows have been
+ * pushed into the {@link ResultReceiver} the execution is suspended, keeping the BatchIterator (and with it the
+ * job and its RAM accounting) alive until the next fetch resumes it or the cursor is closed.
+ * </p>
+ */
+public final class Cursor {
+
+    private final String name;
+    private final UUID jobId;
+    private final String username;
+    private final String stmt;
+    private final boolean hold;
+    private final List<Field> fields;
+    private final Consumer<RowConsumer> execution;
+    private final Consumer<Throwable> onCompletion;
+    private final long created;
+
+    private volatile RowConsumerToResultReceiver consumer;
+    private volatile long lastUsed;
+    private volatile long fetchedRows = 0;
+    private volatile boolean fetching = false;
+    private volatile boolean exhausted = false;
+    private volatile boolean closed = false;
+
+    /**
+     * @param execution starts the execution of the query, pushing the result into the given consumer
+     * @param onCompletion invoked once the execution of the query finished or was closed
+     */
+    public Cursor(String name,
+                  UUID jobId,
+                  String username,
+                  String stmt,
+                  boolean hold,
+                  List<Field> fields,
+                  Consumer<RowConsumer> execution,
+                  Consumer<Throwable> onCompletion) {
+        this.name = name;
+        this.jobId = jobId;
+        this.username = username;
+        this.stmt = stmt;
+        this.hold = hold;
+        this.fields = fields;
+        this.execution = execution;
+        this.onCompletion = onCompletion;
+        this.created = System.currentTimeMillis();
+        this.lastUsed = created;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * @return the id of the job executing the query. Can be used to look up the memory used by the suspended
+     *         execution in {@code sys.operations}.
+     */
+    public UUID jobId() {
+        return jobId;
+    }
+
+    public String username() {
+        return username;
+    }
+
+    public String stmt() {
+        return stmt;
+    }
+
+    public boolean hold() {
+        return hold;
+    }
+
+    public List<Field> fields() {
+        return fields;
+    }
+
+    public long created() {
+        return created;
+    }
+
+    public long lastUsed() {
+        return lastUsed;
+    }
+
+    public long fetchedRows() {
+        return fetchedRows;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Push up to {@code count} rows into the resultReceiver.
+     * The resultReceiver is always finished with {@link ResultReceiver#allFinished(boolean)}, regardless
+     * of whether the cursor has more rows or not.
+     */
+    public synchronized void fetch(long count, ResultReceiver<?> resultReceiver) {
+        if (closed) {
+            throw new IllegalStateException("Cursor `" + name + "` is closed");
+        }
+        if (fetching) {
+            throw new IllegalStateException("Cursor `" + name + "` is already fetching rows");
+        }
+        lastUsed = System.currentTimeMillis();
+        if (count == 0 || exhausted) {
+            resultReceiver.allFinished(false);
+            return;
+        }
+        int maxRows = count >= Integer.MAX_VALUE ? 0 : (int) count;
+        FetchResultReceiver fetchResultReceiver = new FetchResultReceiver(resultReceiver);
+        fetching = true;
+        if (consumer == null) {
+            consumer = new RowConsumerToResultReceiver(fetchResultReceiver, maxRows, onCompletion);
+            try {
+                execution.accept(consumer);
+            } catch (Throwable t) {
+                consumer.accept(null, t);
+            }
+        } else {
+            assert consumer.suspended() : "consumer of a cursor which is not exhausted must be suspended";
+            consumer.replaceResultReceiver(fetchResultReceiver, maxRows);
+            consumer.resume();
+        }
+    }
+
+    /**
+     * Close the cursor, releasing the suspended execution.
+     * If rows are currently being fetched, the execution is released as soon as the fetch finished.
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (consumer != null && !fetching) {
+            consumer.closeAndFinishIfSuspended();
+        }
+    }
+
+    /**
+     * Close the cursor if it hasn't been used for longer than {@code timeoutMillis}
+     *
+     * @return true if the cursor has been closed
+     */
+    public synchronized boolean closeIfIdle(long nowMillis, long timeoutMillis) {
+        if (closed || fetching || nowMillis - lastUsed <= timeoutMillis) {
+            return false;
+        }
+        close();
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "Cursor{" +
+               "name=" + name +
+               ", hold=" + hold +
+               ", fetchedRows=" + fetchedRows +
+               ", exhausted=" + exhausted +
+               ", closed=" + closed +
+               '}';
+    }
+
+    /**
+     * Finishes the delegate once a page has been fetched, so that every FETCH is a complete result for the client.
+     *
+     * <p>
+     * The callbacks may be invoked from a different thread than {@link #fetch(long, ResultReceiver)}, so the
+     * {@code fetching} and {@code closed} transitions are done while holding the monitor of the cursor. This makes
+     * sure that a concurrent {@link #close()} either releases the suspended execution itself or leaves it to
+     * {@link #batchFinished()}, but never both or neither.
+     * </p>
+     */
+    private class FetchResultReceiver implements ResultReceiver<Object> {
+
+        private final ResultReceiver<?> delegate;
+
+        FetchResultReceiver(ResultReceiver<?> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void setNextRow(Row row) {
+            fetchedRows++;
+            delegate.setNextRow(row);
+        }
+
+        @Override
+        public void batchFinished() {
+            boolean closedWhileFetching;
+            synchronized (Cursor.this) {
+                lastUsed = System.currentTimeMillis();
+                fetching = false;
+                closedWhileFetching = closed;
+            }
+            delegate.allFinished(false);
+            if (closedWhileFetching) {
+                consumer.closeAndFinishIfSuspended();
+            }
+        }
+
+        @Override
+        public void allFinished(boolean interrupted) {
+            if (finishFetching()) {
+                delegate.allFinished(interrupted);
+            }
+        }
+
+        @Override
+        public void fail(@Nonnull Throwable t) {
+            if (finishFetching()) {
+                delegate.fail(t);
+            }
+        }
+
+        /**
+         * @return false if the fetch had already been finished, in which case the delegate must not be invoked again
+         */
+        private boolean finishFetching() {
+            synchronized (Cursor.this) {
+                if (!fetching) {
+                    return false;
+                }
+                lastUsed = System.currentTimeMillis();
+                exhausted = true;
+                fetching = false;
+                return true;
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public CompletableFuture<Object> completionFuture() {
+            return (CompletableFuture<Object>) delegate.completionFuture();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.action.sql;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.inject.Singleton;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of all open {@link Cursor}s of the sessions on this node.
+ * Cursors which haven't been used for longer than {@link #IDLE_TIMEOUT_SETTING} are closed periodically.
+ */
+@Singleton
+public class Cursors {
+
+    private static final Logger LOGGER = LogManager.getLogger(Cursors.class);
+
+    public static final Setting<TimeValue> IDLE_TIMEOUT_SETTING = Setting.timeSetting(
+        "node.sql.cursor.idle_timeout",
+        TimeValue.timeValueMinutes(30),
+        TimeValue.timeValueMillis(0),
+        Setting.Property.NodeScope);
+
+    private static final long MAX_CHECK_INTERVAL_MS = TimeValue.timeValueMinutes(1).millis();
+
+    private final Set<Cursor> cursors = ConcurrentHashMap.newKeySet();
+    private final long idleTimeoutMs;
+
+    @Inject
+    public Cursors(Settings settings, ThreadPool threadPool) {
+        this(IDLE_TIMEOUT_SETTING.get(settings));
+        if (idleTimeoutMs > 0) {
+            TimeValue checkInterval = TimeValue.timeValueMillis(Math.min(MAX_CHECK_INTERVAL_MS, idleTimeoutMs));
+            threadPool.scheduleWithFixedDelay(
+                () -> closeIdleCursors(System.currentTimeMillis()), checkInterval, ThreadPool.Names.GENERIC);
+        }
+    }
+
+    /**
+     * Creates a registry without a periodic idle check.
+     */
+    @VisibleForTesting
+    Cursors(TimeValue idleTimeout) {
+        this.idleTimeoutMs = idleTimeout.millis();
+    }
+
+    void add(Cursor cursor) {
+        cursors.add(cursor);
+    }
+
+    void remove(Cursor cursor) {
+        cursors.remove(cursor);
+    }
+
+    public Iterable<Cursor> cursors() {
+        return Collections.unmodifiableSet(cursors);
+    }
+
+    /**
+     * Close all cursors which have been idle for longer than the idle timeout.
+     * A timeout of 0 disables the check.
+     */
+    @VisibleForTesting
+    void closeIdleCursors(long nowMs) {
+        if (idleTimeoutMs <= 0) {
+            return;
+        }
+        Iterator<Cursor> it = cursors.iterator();
+        while (it.hasNext()) {
+            Cursor cursor = it.next();
+            if (cursor.closeIfIdle(nowMs, idleTimeoutMs)) {
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Closed cursor `{}` of user `{}` after being idle for longer than {}ms",
+                        cursor.name(), cursor.username(), idleTimeoutMs);
+                }
+                it.remove();
+            } else if (cursor.isClosed()) {
+                it.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.action.sql;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.crate.analyze.AnalyzedStatement;
+import io.crate.analyze.ParamTypeHints;
+import io.crate.analyze.Relations;
+import io.crate.analyze.relations.AnalyzedRelation;
+import io.crate.expression.symbol.Function;
+import io.crate.expression.symbol.SymbolVisitors;
+import io.crate.metadata.SearchPath;
+import io.crate.planner.Plan;
+import io.crate.statistics.TableStats;
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Settings;
+
+import javax.annotation.Nullable;
+import java.util.Objects;
+
+/**
+ * Node wide cache for the analyzed statement and the plan of SELECT statements.
+ *
+ * The plans are created from the unbound analyzed statement, parameters are only bound once a plan is executed.
+ * This allows to re-use a plan for all executions of the same statement, regardless of the parameter values.
+ *
+ * An entry is only valid for the cluster metadata version, minimum node version and {@link TableStats#version()}
+ * it has been created for. Schema changes, privilege changes or user defined functions all result in a new
+ * metadata version. Updated table statistics (ANALYZE or the periodic collection) can change the join order
+ * or the distribution of a plan and result in a new table stats version.
+ */
+public final class PlanCache {
+
+    public static final Setting<Integer> PLAN_CACHE_SIZE_SETTING = Setting.intSetting(
+        "node.sql.plan_cache.size",
+        1000,
+        0,
+        Setting.Property.NodeScope);
+
+    static final PlanCache DISABLED = new PlanCache(0, new TableStats());
+
+    @Nullable
+    private final Cache<Key, CachedPlan> cache;
+    private final TableStats tableStats;
+
+    public PlanCache(Settings settings, TableStats tableStats) {
+        this(PLAN_CACHE_SIZE_SETTING.get(settings), tableStats);
+    }
+
+    @VisibleForTesting
+    PlanCache(int maxSize, TableStats tableStats) {
+        this.tableStats = tableStats;
+        if (maxSize == 0) {
+            cache = null;
+        } else {
+            cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .build();
+        }
+    }
+
+    static Key key(String statement, ParamTypeHints paramTypes, SessionContext sessionContext) {
+        return new Key(
+            statement,
+            paramTypes,
+            sessionContext.user().name(),
+            sessionContext.searchPath(),
+            sessionContext.isHashJoinEnabled()
+        );
+    }
+
+    @Nullable
+    CachedPlan get(Key key, ClusterState clusterState) {
+        if (cache == null) {
+            return null;
+        }
+        CachedPlan cachedPlan = cache.getIfPresent(key);
+        if (cachedPlan == null) {
+            return null;
+        }
+        if (cachedPlan.isValidFor(clusterState, tableStats.version())) {
+            return cachedPlan;
+        }
+        cache.invalidate(key);
+        return null;
+    }
+
+    void put(Key key, CachedPlan cachedPlan) {
+        if (cache != null) {
+            cache.put(key, cachedPlan);
+        }
+    }
+
+    /**
+     * @return the current {@link TableStats#version()}.
+     *         Must be retrieved before planning, like the clusterState, and passed to {@link #createIfReusable}.
+     */
+    long tableStatsVersion() {
+        return tableStats.version();
+    }
+
+    /**
+     * Create a {@link CachedPlan} if the plan of the statement can be re-used for further executions.
+     *
+     * @param clusterState the clusterState which has been used for the analysis and planning
+     * @param tableStatsVersion the {@link #tableStatsVersion()} retrieved before the planning
+     */
+    @Nullable
+    static CachedPlan createIfReusable(ClusterState clusterState,
+                                       long tableStatsVersion,
+                                       AnalyzedStatement analyzedStatement,
+                                       Plan plan) {
+        if (isCacheable(analyzedStatement)) {
+            return new CachedPlan(
+                analyzedStatement,
+                plan,
+                clusterState.metaData().version(),
+                clusterState.nodes().getMinNodeVersion(),
+                tableStatsVersion
+            );
+        }
+        return null;
+    }
+
+    @VisibleForTesting
+    long size() {
+        return cache == null ? 0 : cache.size();
+    }
+
+    /**
+     * Only read-only statements are cached.
+     * Non-deterministic functions like `current_timestamp` are normalized to a literal during planning,
+     * so statements containing them must be planned for each execution.
+     */
+    private static boolean isCacheable(AnalyzedStatement analyzedStatement) {
+        if (!(analyzedStatement instanceof AnalyzedRelation) || analyzedStatement.isWriteOperation()) {
+            return false;
+        }
+        boolean[] hasNonDeterministicFunction = new boolean[] { false };
+        Relations.traverseDeepSymbols(analyzedStatement, symbol -> {
+            if (hasNonDeterministicFunction[0] == false) {
+                hasNonDeterministicFunction[0] = SymbolVisitors.any(
+                    s -> s instanceof Function && !((Function) s).info().isDeterministic(), symbol);
+            }
+        });
+        return hasNonDeterministicFunction[0] == false;
+    }
+
+    static final class CachedPlan {
+
+        private final AnalyzedStatement analyzedStatement;
+        private final Plan plan;
+        private final long metaDataVersion;
+        private final Version minNodeVersion;
+        private final long tableStatsVersion;
+
+        private CachedPlan(AnalyzedStatement analyzedStatement,
+                           Plan plan,
+                           long metaDataVersion,
+                           Version minNodeVersion,
+                           long tableStatsVersion) {
+            this.analyzedStatement = analyzedStatement;
+            this.plan = plan;
+            this.metaDataVersion = metaDataVersion;
+            this.minNodeVersion = minNodeVersion;
+            this.tableStatsVersion = tableStatsVersion;
+        }
+
+        AnalyzedStatement analyzedStatement() {
+            return analyzedStatement;
+        }
+
+        Plan plan() {
+            return plan;
+        }
+
+        boolean isValidFor(ClusterState clusterState, long tableStatsVersion) {
+            return metaDataVersion == clusterState.metaData().version()
+                   && minNodeVersion.equals(clusterState.nodes().getMinNodeVersion())
+                   && this.tableStatsVersion == tableStatsVersion;
+        }
+    }
+
+    static final class Key {
+
+        private final String statement;
+        private final ParamTypeHints paramTypes;
+        private final String user;
+        private final SearchPath searchPath;
+        private final boolean hashJoinEnabled;
+
+        private Key(String statement,
+                    ParamTypeHints paramTypes,
+                    String user,
+                    SearchPath searchPath,
+                    boolean hashJoinEnabled) {
+            this.statement = statement;
+            this.paramTypes = paramTypes;
+            this.user = user;
+            this.searchPath = searchPath;
+            this.hashJoinEnabled = hashJoinEnabled;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return hashJoinEnabled == key.hashJoinEnabled &&
+                   statement.equals(key.statement) &&
+                   paramTypes.equals(key.paramTypes) &&
+                   user.equals(key.user) &&
+                   searchPath.equals(key.searchPath);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(statement, paramTypes, user, searchPath, hashJoinEnabled);
+        }
+    }
+}
@@ -43,6 +43,10 @@ public class PreparedStmt {
     @Nullable
     private AnalyzedStatement unboundStatement = null;
     private boolean relationInitialized = false;
+    private long unboundStatementMetaDataVersion = -1L;
+
+    @Nullable
+    private PlanCache.CachedPlan genericPlan;
 
     PreparedStmt(Statement parsedStatement, String query, List<DataType> paramTypes) {
         this.parsedStatement = parsedStatement;
@@ -102,5 +106,38 @@ public class PreparedStmt {
     public void unboundStatement(@Nullable AnalyzedStatement unboundStatement) {
         relationInitialized = true;
         this.unboundStatement = unboundStatement;
+        this.unboundStatementMetaDataVersion = -1L;
+        this.genericPlan = null;
+    }
+
+    /**
+     * Like {@link #unboundStatement(AnalyzedStatement)}, but also records the version of the cluster metadata
+     * which was current before the analysis started.
+     */
+    void unboundStatement(@Nullable AnalyzedStatement unboundStatement, long metaDataVersion) {
+        unboundStatement(unboundStatement);
+        this.unboundStatementMetaDataVersion = metaDataVersion;
+    }
+
+    /**
+     * @return the metadata version the unbound statement was analyzed with, or -1 if unknown
+     */
+    long unboundStatementMetaDataVersion() {
+        return unboundStatementMetaDataVersion;
+    }
+
+    /**
+     * The plan created from the {@link #unboundStatement()}, which is re-used for all executions of this
+     * prepared statement as long as it is valid for the current cluster state.
+     * The parameters are bound per execution, so routing decisions like the shard of a primary key lookup
+     * are still based on the actual parameter values.
+     */
+    @Nullable
+    PlanCache.CachedPlan genericPlan() {
+        return genericPlan;
+    }
+
+    void genericPlan(@Nullable PlanCache.CachedPlan genericPlan) {
+        this.genericPlan = genericPlan;
     }
 }
@@ -122,6 +122,8 @@ public class RowConsumerToResultReceiver implements RowConsumer {
     public void replaceResultReceiver(ResultReceiver resultReceiver, int maxRows) {
         this.resultReceiver = resultReceiver;
         this.maxRows = maxRows;
+        // maxRows may differ from the previous one, so the next page must be counted from zero
+        this.rowCount = 0;
     }
 
     public void resume() {
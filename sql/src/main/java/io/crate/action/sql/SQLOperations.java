@@ -28,6 +28,7 @@ import io.crate.auth.user.UserManager;
 import io.crate.execution.engine.collect.stats.JobsLogs;
 import io.crate.planner.DependencyCarrier;
 import io.crate.planner.Planner;
+import io.crate.statistics.TableStats;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.inject.Provider;
@@ -55,6 +56,8 @@ public class SQLOperations {
     private final ClusterService clusterService;
     private final UserManager userManager;
     private final boolean isReadOnly;
+    private final PlanCache planCache;
+    private final Cursors cursors;
     private volatile boolean disabled;
 
     @Inject
@@ -64,7 +67,9 @@ public class SQLOperations {
                          JobsLogs jobsLogs,
                          Settings settings,
                          ClusterService clusterService,
-                         Provider<UserManager> userManagerProvider) {
+                         Provider<UserManager> userManagerProvider,
+                         Cursors cursors,
+                         TableStats tableStats) {
         this.analyzer = analyzer;
         this.planner = planner;
         this.executorProvider = executorProvider;
@@ -72,6 +77,8 @@ public class SQLOperations {
         this.clusterService = clusterService;
         this.userManager = userManagerProvider.get();
         this.isReadOnly = NODE_READ_ONLY_SETTING.get(settings);
+        this.planCache = new PlanCache(settings, tableStats);
+        this.cursors = cursors;
     }
 
     private Session createSession(SessionContext sessionContext) {
@@ -85,7 +92,9 @@ public class SQLOperations {
             isReadOnly,
             executorProvider.get(),
             userManager.getAccessControl(sessionContext),
-            sessionContext);
+            sessionContext,
+            planCache,
+            cursors);
     }
 
     public Session newSystemSession() {
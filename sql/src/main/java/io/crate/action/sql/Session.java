@@ -25,9 +25,13 @@ package io.crate.action.sql;
 import com.google.common.annotations.VisibleForTesting;
 import io.crate.analyze.Analysis;
 import io.crate.analyze.AnalyzedBegin;
+import io.crate.analyze.AnalyzedCloseCursor;
+import io.crate.analyze.AnalyzedCommit;
 import io.crate.analyze.AnalyzedStatement;
 import io.crate.analyze.Analyzer;
 import io.crate.analyze.AnalyzedDeallocate;
+import io.crate.analyze.AnalyzedDeclareCursor;
+import io.crate.analyze.AnalyzedFetchFromCursor;
 import io.crate.analyze.ParamTypeHints;
 import io.crate.analyze.ParameterContext;
 import io.crate.analyze.Relations;
@@ -41,6 +45,9 @@ import io.crate.data.RowN;
 import io.crate.exceptions.ReadOnlyException;
 import io.crate.exceptions.SQLExceptions;
 import io.crate.execution.engine.collect.stats.JobsLogs;
+import io.crate.expression.symbol.Field;
+import io.crate.expression.symbol.ParameterSymbol;
+import io.crate.expression.symbol.SymbolVisitors;
 import io.crate.expression.symbol.Symbols;
 import io.crate.metadata.CoordinatorTxnCtx;
 import io.crate.metadata.RoutingProvider;
@@ -55,12 +62,15 @@ import io.crate.protocols.postgres.JobsLogsUpdateListener;
 import io.crate.protocols.postgres.Portal;
 import io.crate.protocols.postgres.RetryOnFailureResultReceiver;
 import io.crate.sql.parser.SqlParser;
+import io.crate.sql.tree.Query;
 import io.crate.sql.tree.Statement;
 import io.crate.types.DataType;
+import io.crate.types.DataTypes;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.common.Randomness;
+import org.elasticsearch.common.settings.Settings;
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
@@ -121,11 +131,16 @@ public class Session implements AutoCloseable {
     @VisibleForTesting
     final Map<Statement, List<DeferredExecution>> deferredExecutionsByStmt = new HashMap<>();
 
+    @VisibleForTesting
+    final Map<String, Cursor> cursors = new HashMap<>();
+
     private final Analyzer analyzer;
     private final Planner planner;
     private final JobsLogs jobsLogs;
     private final boolean isReadOnly;
     private final ParameterTypeExtractor parameterTypeExtractor;
+    private final PlanCache planCache;
+    private final Cursors cursorRegistry;
 
     private CoordinatorTxnCtx currentTxnCtx;
 
@@ -136,6 +151,30 @@ public class Session implements AutoCloseable {
                    DependencyCarrier executor,
                    AccessControl accessControl,
                    SessionContext sessionContext) {
+        this(analyzer, planner, jobsLogs, isReadOnly, executor, accessControl, sessionContext, PlanCache.DISABLED);
+    }
+
+    public Session(Analyzer analyzer,
+                   Planner planner,
+                   JobsLogs jobsLogs,
+                   boolean isReadOnly,
+                   DependencyCarrier executor,
+                   AccessControl accessControl,
+                   SessionContext sessionContext,
+                   PlanCache planCache) {
+        this(analyzer, planner, jobsLogs, isReadOnly, executor, accessControl, sessionContext, planCache,
+            new Cursors(Cursors.IDLE_TIMEOUT_SETTING.get(Settings.EMPTY)));
+    }
+
+    public Session(Analyzer analyzer,
+                   Planner planner,
+                   JobsLogs jobsLogs,
+                   boolean isReadOnly,
+                   DependencyCarrier executor,
+                   AccessControl accessControl,
+                   SessionContext sessionContext,
+                   PlanCache planCache,
+                   Cursors cursorRegistry) {
         this.analyzer = analyzer;
         this.planner = planner;
         this.jobsLogs = jobsLogs;
@@ -144,6 +183,8 @@ public class Session implements AutoCloseable {
         this.accessControl = accessControl;
         this.sessionContext = sessionContext;
         this.parameterTypeExtractor = new ParameterTypeExtractor();
+        this.planCache = planCache;
+        this.cursorRegistry = cursorRegistry;
     }
 
     /**
@@ -164,13 +205,23 @@ public class Session implements AutoCloseable {
      */
     public void quickExec(String statement, Function<String, Statement> parse, ResultReceiver resultReceiver, Row params) {
         CoordinatorTxnCtx txnCtx = new CoordinatorTxnCtx(sessionContext);
-        Statement parsedStmt = parse.apply(statement);
-        AnalyzedStatement analyzedStatement = analyzer.unboundAnalyze(parsedStmt, sessionContext, ParamTypeHints.EMPTY);
+        // The clusterState must be retrieved before the analysis so that a cached plan is never associated
+        // with a newer metadata version than the one used for the analysis
+        ClusterState clusterState = planner.currentClusterState();
+        long tableStatsVersion = planCache.tableStatsVersion();
+        PlanCache.Key cacheKey = PlanCache.key(statement, ParamTypeHints.EMPTY, sessionContext);
+        PlanCache.CachedPlan cachedPlan = planCache.get(cacheKey, clusterState);
+        AnalyzedStatement analyzedStatement;
+        if (cachedPlan == null) {
+            Statement parsedStmt = parse.apply(statement);
+            analyzedStatement = analyzer.unboundAnalyze(parsedStmt, sessionContext, ParamTypeHints.EMPTY);
+        } else {
+            analyzedStatement = cachedPlan.analyzedStatement();
+        }
         assert analyzedStatement.isUnboundPlanningSupported()
             : "quickExec can only be used with statements supporting unbound planning";
         RoutingProvider routingProvider = new RoutingProvider(Randomness.get().nextInt(), planner.getAwarenessAttributes());
         UUID jobId = UUID.randomUUID();
-        ClusterState clusterState = planner.currentClusterState();
         PlannerContext plannerContext = new PlannerContext(
             clusterState,
             routingProvider,
@@ -181,11 +232,19 @@ public class Session implements AutoCloseable {
             params
         );
         Plan plan;
-        try {
-            plan = planner.plan(analyzedStatement, plannerContext);
-        } catch (Throwable t) {
-            jobsLogs.logPreExecutionFailure(jobId, statement, SQLExceptions.messageOf(t), sessionContext.user());
-            throw t;
+        if (cachedPlan == null) {
+            try {
+                plan = planner.plan(analyzedStatement, plannerContext);
+            } catch (Throwable t) {
+                jobsLogs.logPreExecutionFailure(jobId, statement, SQLExceptions.messageOf(t), sessionContext.user());
+                throw t;
+            }
+            cachedPlan = PlanCache.createIfReusable(clusterState, tableStatsVersion, analyzedStatement, plan);
+            if (cachedPlan != null) {
+                planCache.put(cacheKey, cachedPlan);
+            }
+        } else {
+            plan = cachedPlan.plan();
         }
 
         StatementClassifier.Classification classification = StatementClassifier.classify(plan);
@@ -265,6 +324,20 @@ public class Session implements AutoCloseable {
         preparedStatements.put(statementName, new PreparedStmt(statement, query, paramTypes));
     }
 
+    /**
+     * Like {@link #parse(String, String, List)}, but for a statement which has been parsed already,
+     * e.g. a statement embedded in or derived from another statement.
+     *
+     * @param query the SQL text of the statement the given statement is part of.
+     *              It is shown in {@code sys.jobs} and used as plan cache key, so it must identify the statement.
+     */
+    public void parse(String statementName, Statement statement, String query, List<DataType> paramTypes) {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("method=parse stmtName={} statement={} paramTypes={}", statementName, statement, paramTypes);
+        }
+        preparedStatements.put(statementName, new PreparedStmt(statement, query, paramTypes));
+    }
+
     public void bind(String portalName,
                      String statementName,
                      List<Object> params,
@@ -283,6 +356,13 @@ public class Session implements AutoCloseable {
         currentTxnCtx = new CoordinatorTxnCtx(sessionContext);
 
         var unboundStatement = preparedStmt.unboundStatement();
+        if (unboundStatement == null
+            && preparedStmt.parsedStatement() instanceof Query
+            && hasDeclaredParameterTypes(preparedStmt, params)) {
+            // If the types of all parameters are known, the unbound analysis is equivalent to the bound analysis.
+            // Using it allows to re-use a generic plan for all parameter values.
+            unboundStatement = maybeAnalyzeUnboundQuery(preparedStmt, params.size());
+        }
         final AnalyzedStatement maybeBoundStatement;
         if (unboundStatement == null || !unboundStatement.isUnboundPlanningSupported()) {
             ParameterContext parameterContext = new ParameterContext(new RowN(params.toArray()), List.of());
@@ -292,6 +372,9 @@ public class Session implements AutoCloseable {
                 parameterContext);
             maybeBoundStatement = analysis.analyzedStatement();
         } else {
+            // The bound analysis checks the privileges, the unbound statement may come from the plan cache
+            // or a previous describe and must be checked here.
+            accessControl.ensureMayExecute(unboundStatement);
             maybeBoundStatement = unboundStatement;
         }
         Portal portal = new Portal(portalName, preparedStmt, params, maybeBoundStatement, resultFormatCodes);
@@ -304,6 +387,48 @@ public class Session implements AutoCloseable {
         }
     }
 
+    private static boolean hasDeclaredParameterTypes(PreparedStmt preparedStmt, List<Object> params) {
+        for (int i = 0; i < params.size(); i++) {
+            if (preparedStmt.paramTypes().getType(i).equals(DataTypes.UNDEFINED)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the unbound analyzed statement or null if the statement refers to more than {@code numParams} parameters
+     */
+    @Nullable
+    private AnalyzedStatement maybeAnalyzeUnboundQuery(PreparedStmt preparedStmt, int numParams) {
+        ClusterState clusterState = planner.currentClusterState();
+        PlanCache.CachedPlan cachedPlan = planCache.get(planCacheKey(preparedStmt), clusterState);
+        AnalyzedStatement analyzedStatement;
+        if (cachedPlan == null) {
+            analyzedStatement = analyzer.unboundAnalyze(
+                preparedStmt.parsedStatement(), sessionContext, preparedStmt.paramTypes());
+            boolean[] hasMissingParameters = new boolean[] { false };
+            Relations.traverseDeepSymbols(analyzedStatement, symbol -> {
+                if (hasMissingParameters[0] == false) {
+                    hasMissingParameters[0] = SymbolVisitors.any(
+                        s -> s instanceof ParameterSymbol && ((ParameterSymbol) s).index() >= numParams, symbol);
+                }
+            });
+            if (hasMissingParameters[0]) {
+                // let the bound analysis raise the error about the missing parameters
+                return null;
+            }
+        } else {
+            analyzedStatement = cachedPlan.analyzedStatement();
+        }
+        preparedStmt.unboundStatement(analyzedStatement, clusterState.metaData().version());
+        return analyzedStatement;
+    }
+
+    private PlanCache.Key planCacheKey(PreparedStmt preparedStmt) {
+        return PlanCache.key(preparedStmt.rawStatement(), preparedStmt.paramTypes(), sessionContext);
+    }
+
     public DescribeResult describe(char type, String portalOrStatement) {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("method=describe type={} portalOrStatement={}", type, portalOrStatement);
@@ -311,12 +436,7 @@ public class Session implements AutoCloseable {
         switch (type) {
             case 'P':
                 Portal portal = getSafePortal(portalOrStatement);
-                AnalyzedStatement analyzedStmt = portal.boundOrUnboundStatement();
-                if (analyzedStmt instanceof AnalyzedRelation) {
-                    return new DescribeResult(((AnalyzedRelation) analyzedStmt).fields());
-                } else {
-                    return new DescribeResult(null);
-                }
+                return new DescribeResult(resultFields(portal.boundOrUnboundStatement()));
             case 'S':
                 /*
                  * describe might be called without prior bind call.
@@ -346,8 +466,9 @@ public class Session implements AutoCloseable {
                 if (preparedStmt.isRelationInitialized()) {
                     analyzedStatement = preparedStmt.unboundStatement();
                 } else {
+                    long metaDataVersion = planner.currentClusterState().metaData().version();
                     analyzedStatement = analyzer.unboundAnalyze(statement, sessionContext, preparedStmt.paramTypes());
-                    preparedStmt.unboundStatement(analyzedStatement);
+                    preparedStmt.unboundStatement(analyzedStatement, metaDataVersion);
                 }
                 if (analyzedStatement == null) {
                     // statement without result set -> return null for NoData msg
@@ -358,11 +479,7 @@ public class Session implements AutoCloseable {
                 if (parameterSymbols.length > 0) {
                     preparedStmt.setDescribedParameters(parameterSymbols);
                 }
-                if (analyzedStatement instanceof AnalyzedRelation) {
-                    AnalyzedRelation relation = (AnalyzedRelation) analyzedStatement;
-                    return new DescribeResult(relation.fields(), parameterSymbols);
-                }
-                return new DescribeResult(null, parameterSymbols);
+                return new DescribeResult(resultFields(analyzedStatement), parameterSymbols);
             default:
                 throw new AssertionError("Unsupported type: " + type);
         }
@@ -390,7 +507,16 @@ public class Session implements AutoCloseable {
                 preparedStatements.clear();
             }
             resultReceiver.allFinished(false);
+        } else if (analyzedStmt instanceof AnalyzedDeclareCursor) {
+            declareCursor(portal, (AnalyzedDeclareCursor) analyzedStmt);
+            resultReceiver.allFinished(false);
+        } else if (analyzedStmt instanceof AnalyzedCloseCursor) {
+            closeCursor(((AnalyzedCloseCursor) analyzedStmt).name());
+            resultReceiver.allFinished(false);
         } else {
+            if (analyzedStmt instanceof AnalyzedCommit) {
+                closeCursors(false);
+            }
             /* We defer the execution for any other statements to `sync` messages so that we can efficiently process
              * bulk operations. E.g. If we receive `INSERT INTO (x) VALUES (?)` bindings/execute multiple times
              * We want to create bulk requests internally:                                                          /
@@ -528,6 +654,11 @@ public class Session implements AutoCloseable {
     }
 
     private CompletableFuture<?> singleExec(Portal portal, ResultReceiver<?> resultReceiver, int maxRows) {
+        if (portal.boundOrUnboundStatement() instanceof AnalyzedFetchFromCursor) {
+            var fetch = (AnalyzedFetchFromCursor) portal.boundOrUnboundStatement();
+            getSafeCursor(fetch.name()).fetch(fetch.count(), resultReceiver);
+            return resultReceiver.completionFuture();
+        }
         var activeConsumer = portal.activeConsumer();
         if (activeConsumer != null && activeConsumer.suspended()) {
             activeConsumer.replaceResultReceiver(resultReceiver, maxRows);
@@ -538,6 +669,7 @@ public class Session implements AutoCloseable {
         var jobId = UUID.randomUUID();
         var routingProvider = new RoutingProvider(Randomness.get().nextInt(), planner.getAwarenessAttributes());
         var clusterState = executor.clusterService().state();
+        long tableStatsVersion = planCache.tableStatsVersion();
         var txnCtx = new CoordinatorTxnCtx(sessionContext);
         var params = new RowN(portal.params().toArray());
         var plannerContext = new PlannerContext(
@@ -549,12 +681,41 @@ public class Session implements AutoCloseable {
             jobsLogs.logPreExecutionFailure(jobId, rawStatement, errorMsg, sessionContext.user());
             throw new IllegalStateException(errorMsg);
         }
+        // Only plans of unbound statements can be re-used for other parameter values.
+        // The statement must have been analyzed with the current metadata, otherwise a cached plan
+        // could return different columns than the ones described to the client.
+        // The generic plan of the prepared statement is used first, the node wide plan cache second.
+        PreparedStmt preparedStmt = portal.preparedStmt();
+        boolean isReusable = analyzedStmt == preparedStmt.unboundStatement()
+                             && preparedStmt.unboundStatementMetaDataVersion() == clusterState.metaData().version();
+        PlanCache.Key cacheKey = null;
+        PlanCache.CachedPlan cachedPlan = null;
+        if (isReusable) {
+            cachedPlan = preparedStmt.genericPlan();
+            if (cachedPlan == null || !cachedPlan.isValidFor(clusterState, tableStatsVersion)) {
+                cacheKey = planCacheKey(preparedStmt);
+                cachedPlan = planCache.get(cacheKey, clusterState);
+            }
+        }
         Plan plan;
-        try {
-            plan = planner.plan(analyzedStmt, plannerContext);
-        } catch (Throwable t) {
-            jobsLogs.logPreExecutionFailure(jobId, rawStatement, SQLExceptions.messageOf(t), sessionContext.user());
-            throw t;
+        if (cachedPlan == null) {
+            try {
+                plan = planner.plan(analyzedStmt, plannerContext);
+            } catch (Throwable t) {
+                jobsLogs.logPreExecutionFailure(jobId, rawStatement, SQLExceptions.messageOf(t), sessionContext.user());
+                throw t;
+            }
+            if (isReusable) {
+                cachedPlan = PlanCache.createIfReusable(clusterState, tableStatsVersion, analyzedStmt, plan);
+                if (cachedPlan != null) {
+                    planCache.put(cacheKey, cachedPlan);
+                }
+            }
+        } else {
+            plan = cachedPlan.plan();
+        }
+        if (isReusable) {
+            preparedStmt.genericPlan(cachedPlan);
         }
         if (!analyzedStmt.isWriteOperation()) {
             resultReceiver = new RetryOnFailureResultReceiver(
@@ -586,15 +747,105 @@ public class Session implements AutoCloseable {
         return resultReceiver.completionFuture();
     }
 
+    /**
+     * Plans the query of the cursor. The execution is started with the first FETCH, see {@link Cursor}
+     */
+    private void declareCursor(Portal portal, AnalyzedDeclareCursor declareCursor) {
+        String name = declareCursor.name();
+        Cursor existingCursor = cursors.get(name);
+        if (existingCursor != null && !existingCursor.isClosed()) {
+            throw new IllegalArgumentException("Cursor `" + name + "` already exists");
+        }
+        var jobId = UUID.randomUUID();
+        var routingProvider = new RoutingProvider(Randomness.get().nextInt(), planner.getAwarenessAttributes());
+        var clusterState = executor.clusterService().state();
+        var txnCtx = new CoordinatorTxnCtx(sessionContext);
+        var params = new RowN(portal.params().toArray());
+        var plannerContext = new PlannerContext(
+            clusterState, routingProvider, jobId, executor.functions(), txnCtx, 0, params);
+        String rawStatement = portal.preparedStmt().rawStatement();
+        AnalyzedRelation query = declareCursor.query();
+        Plan plan;
+        try {
+            plan = planner.plan(query, plannerContext);
+        } catch (Throwable t) {
+            jobsLogs.logPreExecutionFailure(jobId, rawStatement, SQLExceptions.messageOf(t), sessionContext.user());
+            throw t;
+        }
+        Cursor cursor = new Cursor(
+            name,
+            jobId,
+            sessionContext.user().name(),
+            rawStatement,
+            declareCursor.hold(),
+            query.fields(),
+            consumer -> {
+                jobsLogs.logExecutionStart(
+                    jobId, rawStatement, sessionContext.user(), StatementClassifier.classify(plan));
+                plan.execute(executor, plannerContext, consumer, params, SubQueryResults.EMPTY);
+            },
+            new JobsLogsUpdateListener(jobId, jobsLogs)
+        );
+        if (existingCursor != null) {
+            cursorRegistry.remove(existingCursor);
+        }
+        cursors.put(name, cursor);
+        cursorRegistry.add(cursor);
+    }
+
+    private void closeCursor(@Nullable String name) {
+        if (name == null) {
+            closeCursors(true);
+            return;
+        }
+        Cursor cursor = cursors.remove(name);
+        if (cursor == null) {
+            throw new IllegalArgumentException("Cursor `" + name + "` does not exist");
+        }
+        cursor.close();
+        cursorRegistry.remove(cursor);
+    }
+
+    /**
+     * @param includeHold if false, cursors declared {@code WITH HOLD} remain open
+     */
+    private void closeCursors(boolean includeHold) {
+        Iterator<Cursor> it = cursors.values().iterator();
+        while (it.hasNext()) {
+            Cursor cursor = it.next();
+            if (includeHold || !cursor.hold()) {
+                cursor.close();
+                cursorRegistry.remove(cursor);
+                it.remove();
+            }
+        }
+    }
+
+    private Cursor getSafeCursor(String name) {
+        Cursor cursor = cursors.get(name);
+        if (cursor == null) {
+            throw new IllegalArgumentException("Cursor `" + name + "` does not exist");
+        }
+        return cursor;
+    }
+
     @Nullable
-    public List<? extends DataType> getOutputTypes(String portalName) {
-        Portal portal = getSafePortal(portalName);
-        AnalyzedStatement analyzedStatement = portal.boundOrUnboundStatement();
+    private List<Field> resultFields(@Nullable AnalyzedStatement analyzedStatement) {
         if (analyzedStatement instanceof AnalyzedRelation) {
-            return Symbols.typeView(((AnalyzedRelation) analyzedStatement).fields());
-        } else {
-            return null;
+            return ((AnalyzedRelation) analyzedStatement).fields();
+        }
+        if (analyzedStatement instanceof AnalyzedFetchFromCursor) {
+            Cursor cursor = cursors.get(((AnalyzedFetchFromCursor) analyzedStatement).name());
+            return cursor == null ? null : cursor.fields();
         }
+        return null;
+    }
+
+    @Nullable
+    public List<? extends DataType> getOutputTypes(String portalName) {
+        Portal portal = getSafePortal(portalName);
+        List<Field> fields = resultFields(portal.boundOrUnboundStatement());
+        return fields == null ? null : Symbols.typeView(fields);
     }
 
     public String getQuery(String portalName) {
@@ -606,6 +857,10 @@ public class Session implements AutoCloseable {
         return stmt.getEffectiveParameterType(idx);
     }
 
+    public Statement getParsedStatement(String statementName) {
+        return getSafeStmt(statementName).parsedStatement();
+    }
+
     private PreparedStmt getSafeStmt(String statementName) {
         PreparedStmt preparedStmt = preparedStatements.get(statementName);
         if (preparedStmt == null) {
@@ -672,6 +927,7 @@ public class Session implements AutoCloseable {
     @Override
     public void close() {
         resetDeferredExecutions();
+        closeCursors(true);
         for (Portal portal : portals.values()) {
             portal.closeActiveConsumer();
         }
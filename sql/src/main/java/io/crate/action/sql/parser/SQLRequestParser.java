@@ -72,8 +72,7 @@ public final class SQLRequestParser {
         XContentParser parser = null;
         try {
             SQLRequestParseContext parseContext = new SQLRequestParseContext();
-            parser = XContentFactory.xContent(XContentType.JSON).createParser(
-                NamedXContentRegistry.EMPTY, DeprecationHandler.THROW_UNSUPPORTED_OPERATION, BytesReference.toBytes(source));
+            parser = createParser(source);
             parse(parseContext, parser);
             validate(parseContext);
             return parseContext;
@@ -92,6 +91,12 @@ public final class SQLRequestParser {
         }
     }
 
+    private static XContentParser createParser(BytesReference source) throws IOException {
+        // Parse from a stream to avoid copying large request bodies into a single array
+        return XContentFactory.xContent(XContentType.JSON).createParser(
+            NamedXContentRegistry.EMPTY, DeprecationHandler.THROW_UNSUPPORTED_OPERATION, source.streamInput());
+    }
+
     public static void parse(SQLRequestParseContext parseContext, XContentParser parser) throws Exception {
         XContentParser.Token token;
         while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
@@ -135,6 +135,18 @@ public class AnalyzedStatementVisitor<C, R> {
         return visitAnalyzedStatement(analysis, context);
     }
 
+    public R visitDeclareCursor(AnalyzedDeclareCursor analysis, C context) {
+        return visitAnalyzedStatement(analysis, context);
+    }
+
+    public R visitFetchFromCursor(AnalyzedFetchFromCursor analysis, C context) {
+        return visitAnalyzedStatement(analysis, context);
+    }
+
+    public R visitCloseCursor(AnalyzedCloseCursor analysis, C context) {
+        return visitAnalyzedStatement(analysis, context);
+    }
+
     public R visitShowCreateTableAnalyzedStatement(AnalyzedShowCreateTable analysis, C context) {
         return visitAnalyzedStatement(analysis, context);
     }
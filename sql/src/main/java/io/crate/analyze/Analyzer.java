@@ -25,6 +25,7 @@ import io.crate.action.sql.SessionContext;
 import io.crate.analyze.relations.AnalyzedRelation;
 import io.crate.analyze.relations.RelationAnalyzer;
 import io.crate.auth.user.UserManager;
+import io.crate.exceptions.UnsupportedFeatureException;
 import io.crate.execution.ddl.RepositoryService;
 import io.crate.metadata.CoordinatorTxnCtx;
 import io.crate.metadata.FulltextAnalyzerResolver;
@@ -41,9 +42,12 @@ import io.crate.sql.tree.AlterUser;
 import io.crate.sql.tree.AnalyzeStatement;
 import io.crate.sql.tree.AstVisitor;
 import io.crate.sql.tree.BeginStatement;
+import io.crate.sql.tree.CloseCursor;
 import io.crate.sql.tree.CommitStatement;
 import io.crate.sql.tree.CopyFrom;
+import io.crate.sql.tree.CopyFromStdin;
 import io.crate.sql.tree.CopyTo;
+import io.crate.sql.tree.CopyToStdout;
 import io.crate.sql.tree.CreateAnalyzer;
 import io.crate.sql.tree.CreateBlobTable;
 import io.crate.sql.tree.CreateFunction;
@@ -53,6 +57,7 @@ import io.crate.sql.tree.CreateTable;
 import io.crate.sql.tree.CreateUser;
 import io.crate.sql.tree.CreateView;
 import io.crate.sql.tree.DeallocateStatement;
+import io.crate.sql.tree.DeclareCursor;
 import io.crate.sql.tree.DecommissionNodeStatement;
 import io.crate.sql.tree.Delete;
 import io.crate.sql.tree.DenyPrivilege;
@@ -66,6 +71,7 @@ import io.crate.sql.tree.DropUser;
 import io.crate.sql.tree.DropView;
 import io.crate.sql.tree.Explain;
 import io.crate.sql.tree.Expression;
+import io.crate.sql.tree.FetchFromCursor;
 import io.crate.sql.tree.GCDanglingArtifacts;
 import io.crate.sql.tree.GrantPrivilege;
 import io.crate.sql.tree.InsertFromSubquery;
@@ -342,6 +348,16 @@ public class Analyzer {
                 context.transactionContext());
         }
 
+        @Override
+        public AnalyzedStatement visitCopyFromStdin(CopyFromStdin<?> node, Analysis context) {
+            throw new UnsupportedFeatureException("COPY FROM STDIN is only supported via the PostgreSQL wire protocol");
+        }
+
+        @Override
+        public AnalyzedStatement visitCopyToStdout(CopyToStdout<?> node, Analysis context) {
+            throw new UnsupportedFeatureException("COPY TO STDOUT is only supported via the PostgreSQL wire protocol");
+        }
+
         @Override
         public AnalyzedStatement visitDropAnalyzer(DropAnalyzer node, Analysis context) {
             return dropAnalyzerStatementAnalyzer.analyze(node.name());
@@ -441,6 +457,25 @@ public class Analyzer {
             return DeallocateAnalyzer.analyze(node);
         }
 
+        @Override
+        public AnalyzedStatement visitDeclareCursor(DeclareCursor node, Analysis context) {
+            AnalyzedRelation query = relationAnalyzer.analyze(
+                node.query(),
+                context.transactionContext(),
+                context.parameterContext());
+            return new AnalyzedDeclareCursor(node.name(), node.hold(), query);
+        }
+
+        @Override
+        public AnalyzedStatement visitFetchFromCursor(FetchFromCursor node, Analysis context) {
+            return new AnalyzedFetchFromCursor(node.name(), node.count());
+        }
+
+        @Override
+        public AnalyzedStatement visitCloseCursor(CloseCursor node, Analysis context) {
+            return new AnalyzedCloseCursor(node.name());
+        }
+
         @Override
         public AnalyzedStatement visitDropRepository(DropRepository node, Analysis context) {
             return dropRepositoryAnalyzer.analyze(node);
@@ -116,6 +116,12 @@ public class Relations {
             return null;
         }
 
+        @Override
+        public Void visitDeclareCursor(AnalyzedDeclareCursor declareCursor, Consumer<? super Symbol> consumer) {
+            TraverseDeepSymbolsRelations.traverse(declareCursor.query(), consumer);
+            return null;
+        }
+
         @Override
         protected Void visitAnalyzedStatement(AnalyzedStatement analyzedStatement, Consumer<? super Symbol> consumer) {
             analyzedStatement.visitSymbols(consumer);
@@ -23,6 +23,7 @@
 package io.crate.analyze;
 
 import io.crate.action.sql.SessionContext;
+import io.crate.analyze.relations.AnalyzedRelation;
 import io.crate.analyze.relations.RelationAnalyzer;
 import io.crate.metadata.CoordinatorTxnCtx;
 import io.crate.sql.tree.AlterBlobTable;
@@ -36,6 +37,7 @@ import io.crate.sql.tree.AlterUser;
 import io.crate.sql.tree.AnalyzeStatement;
 import io.crate.sql.tree.AstVisitor;
 import io.crate.sql.tree.BeginStatement;
+import io.crate.sql.tree.CloseCursor;
 import io.crate.sql.tree.CommitStatement;
 import io.crate.sql.tree.CopyFrom;
 import io.crate.sql.tree.CopyTo;
@@ -48,6 +50,7 @@ import io.crate.sql.tree.CreateTable;
 import io.crate.sql.tree.CreateUser;
 import io.crate.sql.tree.CreateView;
 import io.crate.sql.tree.DeallocateStatement;
+import io.crate.sql.tree.DeclareCursor;
 import io.crate.sql.tree.DecommissionNodeStatement;
 import io.crate.sql.tree.Delete;
 import io.crate.sql.tree.DenyPrivilege;
@@ -61,6 +64,7 @@ import io.crate.sql.tree.DropTable;
 import io.crate.sql.tree.DropView;
 import io.crate.sql.tree.Explain;
 import io.crate.sql.tree.Expression;
+import io.crate.sql.tree.FetchFromCursor;
 import io.crate.sql.tree.GCDanglingArtifacts;
 import io.crate.sql.tree.GrantPrivilege;
 import io.crate.sql.tree.InsertFromSubquery;
@@ -628,6 +632,23 @@ class UnboundAnalyzer {
             return DeallocateAnalyzer.analyze(node);
         }
 
+        @Override
+        public AnalyzedStatement visitDeclareCursor(DeclareCursor node, Analysis context) {
+            AnalyzedRelation query = relationAnalyzer.analyzeUnbound(
+                node.query(), context.transactionContext(), context.paramTypeHints());
+            return new AnalyzedDeclareCursor(node.name(), node.hold(), query);
+        }
+
+        @Override
+        public AnalyzedStatement visitFetchFromCursor(FetchFromCursor node, Analysis context) {
+            return new AnalyzedFetchFromCursor(node.name(), node.count());
+        }
+
+        @Override
+        public AnalyzedStatement visitCloseCursor(CloseCursor node, Analysis context) {
+            return new AnalyzedCloseCursor(node.name());
+        }
+
         public AnalyzedStatement visitSetStatement(SetStatement node, Analysis context) {
             return setStatementAnalyzer.analyze(node, context.paramTypeHints(), context.transactionContext());
         }
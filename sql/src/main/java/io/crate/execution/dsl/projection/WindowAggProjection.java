@@ -47,10 +47,23 @@ public class WindowAggProjection extends Projection {
     private final ArrayList<Symbol> outputs;
     private final ArrayList<WindowFunctionContext> windowFunctionContexts;
     private final ArrayList<WindowFunction> windowFunctions;
+    private final boolean sourceSortedByPartitions;
 
     public WindowAggProjection(WindowDefinition windowDefinition,
                                ArrayList<WindowFunctionContext> windowFunctionContexts,
                                List<Symbol> standaloneWithInputs) {
+        this(windowDefinition, windowFunctionContexts, standaloneWithInputs, false);
+    }
+
+    /**
+     * @param sourceSortedByPartitions true if the rows the projection receives are sorted by the PARTITION BY
+     *                                 values of the window definition.
+     *                                 The window functions are then computed one partition at a time.
+     */
+    public WindowAggProjection(WindowDefinition windowDefinition,
+                               ArrayList<WindowFunctionContext> windowFunctionContexts,
+                               List<Symbol> standaloneWithInputs,
+                               boolean sourceSortedByPartitions) {
         this.windowFunctions = windowFunctionContexts.stream()
             .map(WindowFunctionContext::function)
             .collect(Collectors.toCollection(ArrayList::new));
@@ -61,6 +74,7 @@ public class WindowAggProjection extends Projection {
         this.windowDefinition = windowDefinition;
         this.windowFunctionContexts = windowFunctionContexts;
         this.standaloneWithInputs = standaloneWithInputs;
+        this.sourceSortedByPartitions = sourceSortedByPartitions;
         outputs = new ArrayList<>(standaloneWithInputs);
         outputs.addAll(windowFunctions);
     }
@@ -85,6 +99,11 @@ public class WindowAggProjection extends Projection {
                 new WindowFunctionContext(function, inputs, filter));
             windowFunctions.add(function);
         }
+        if (onOrAfter4_1_0) {
+            sourceSortedByPartitions = in.readBoolean();
+        } else {
+            sourceSortedByPartitions = false;
+        }
         outputs = new ArrayList<>(standaloneWithInputs);
         outputs.addAll(windowFunctions);
     }
@@ -101,6 +120,10 @@ public class WindowAggProjection extends Projection {
         return standaloneWithInputs;
     }
 
+    public boolean sourceSortedByPartitions() {
+        return sourceSortedByPartitions;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -110,13 +133,14 @@ public class WindowAggProjection extends Projection {
             return false;
         }
         WindowAggProjection that = (WindowAggProjection) o;
-        return Objects.equals(windowDefinition, that.windowDefinition) &&
+        return sourceSortedByPartitions == that.sourceSortedByPartitions &&
+               Objects.equals(windowDefinition, that.windowDefinition) &&
                Objects.equals(windowFunctionContexts, that.windowFunctionContexts);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(super.hashCode(), windowDefinition, windowFunctionContexts);
+        return Objects.hash(super.hashCode(), windowDefinition, windowFunctionContexts, sourceSortedByPartitions);
     }
 
     @Override
@@ -153,6 +177,9 @@ public class WindowAggProjection extends Projection {
             }
             Symbols.toStream(windowFunctionContext.inputs(), out);
         }
+        if (onOrAfter4_1_0) {
+            out.writeBoolean(sourceSortedByPartitions);
+        }
     }
 
     @Override
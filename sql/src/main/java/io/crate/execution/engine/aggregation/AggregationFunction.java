@@ -105,6 +105,16 @@ public abstract class AggregationFunction<TPartial, TFinal> implements FunctionI
         return false;
     }
 
+    /**
+     * Indicates if the partial states of this aggregation are immutable values, so that
+     * {@link #reduce(RamAccounting, Object, Object)} never modifies the states it receives.
+     * If so, the function can be evaluated over moving window frames using a segment tree of partial states
+     * (as described in http://www.vldb.org/pvldb/vol8/p1058-leis.pdf) even if it is not removable cumulative.
+     */
+    public boolean hasImmutableState() {
+        return false;
+    }
+
     public TPartial removeFromAggregatedState(RamAccounting ramAccounting,
                                               TPartial previousAggState,
                                               Input[] stateToRemove) {
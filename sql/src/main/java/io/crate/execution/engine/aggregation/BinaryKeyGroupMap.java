@@ -0,0 +1,374 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.aggregation;
+
+import com.carrotsearch.hppc.BitMixer;
+import io.crate.Streamer;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.memory.MemoryManager;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import org.elasticsearch.common.io.stream.InputStreamStreamInput;
+import org.elasticsearch.common.io.stream.OutputStreamStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Open-addressing hash map for GROUP BY operations with multiple keys.
+ * <p>
+ * Instead of holding a {@code List<Object>} with boxed values per group, the key columns are encoded
+ * into a byte sequence using the {@link Streamer} of each key type (See {@link Encoder}) and stored in
+ * pages allocated via the {@link MemoryManager}. Lookups hash and compare the encoded bytes,
+ * so probing the map with the keys of a row doesn't allocate.
+ * <p>
+ * Keys passed to {@link #get(Object)} and {@link #put(Key, Object[])} may be re-used by the caller;
+ * Their bytes are copied into the pages if a new entry is added.
+ * {@link #clear()} keeps the pages and overwrites them with the next entries.
+ * <p>
+ * Supports only {@link #get(Object)}, {@link #put(Key, Object[])}, {@link #size()}, {@link #clear()}
+ * and iteration over {@link #entrySet()}.
+ */
+final class BinaryKeyGroupMap extends AbstractMap<BinaryKeyGroupMap.Key, Object[]> {
+
+    /**
+     * Number of bytes used per entry, excluding the bytes of the key which are accounted by the MemoryManager.
+     * (page, offset, length and hash of the key, the reference to the states and two slots)
+     */
+    static final int BYTES_PER_ENTRY = 4 * Integer.BYTES + 8 + 2 * Integer.BYTES;
+
+    private static final int PAGE_SIZE = 64 * 1024;
+    private static final int INITIAL_CAPACITY = 64;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final MemoryManager memoryManager;
+    private final List<ByteBuf> pages = new ArrayList<>();
+    private int currentPage = -1;
+
+    // Slots contain the entry index + 1; 0 marks an empty slot
+    private int[] slots = new int[INITIAL_CAPACITY];
+    private int mask = INITIAL_CAPACITY - 1;
+    private int resizeAt = (int) (INITIAL_CAPACITY * LOAD_FACTOR);
+
+    private int[] keyPages = new int[INITIAL_CAPACITY];
+    private int[] keyOffsets = new int[INITIAL_CAPACITY];
+    private int[] keyLengths = new int[INITIAL_CAPACITY];
+    private int[] keyHashes = new int[INITIAL_CAPACITY];
+    private Object[][] states = new Object[INITIAL_CAPACITY][];
+    private int size = 0;
+
+    /**
+     * @return true if the values of the given types can be grouped by their encoded bytes.
+     *         That is the case if two values are equal if and only if their encoded bytes are equal.
+     */
+    static boolean supportsTypes(List<? extends DataType> keyTypes) {
+        for (DataType<?> keyType : keyTypes) {
+            if (DataTypes.PRIMITIVE_TYPES.contains(keyType) == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    BinaryKeyGroupMap(MemoryManager memoryManager) {
+        this.memoryManager = memoryManager;
+    }
+
+    @Override
+    public Object[] get(Object key) {
+        int entry = findEntry((Key) key);
+        return entry == -1 ? null : states[entry];
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return findEntry((Key) key) != -1;
+    }
+
+    @Override
+    public Object[] put(Key key, Object[] value) {
+        int slot = slot(key.hash);
+        int entry;
+        while ((entry = slots[slot] - 1) != -1) {
+            if (keyEquals(entry, key)) {
+                Object[] previous = states[entry];
+                states[entry] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        entry = size;
+        if (entry == states.length) {
+            growEntries();
+        }
+        storeKey(entry, key);
+        states[entry] = value;
+        slots[slot] = entry + 1;
+        size++;
+        if (size >= resizeAt) {
+            growSlots();
+        }
+        return null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(slots, 0);
+        Arrays.fill(states, 0, size, null);
+        size = 0;
+        for (ByteBuf page : pages) {
+            page.clear();
+        }
+        currentPage = pages.isEmpty() ? -1 : 0;
+    }
+
+    @Override
+    @Nonnull
+    public Set<Entry<Key, Object[]>> entrySet() {
+        return new AbstractSet<>() {
+
+            @Override
+            @Nonnull
+            public Iterator<Entry<Key, Object[]>> iterator() {
+                return new Iterator<>() {
+
+                    int entry = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return entry < size;
+                    }
+
+                    @Override
+                    public Entry<Key, Object[]> next() {
+                        if (entry >= size) {
+                            throw new NoSuchElementException("Map has no more entries");
+                        }
+                        Key key = new Key(pages.get(keyPages[entry]), keyOffsets[entry], keyLengths[entry], keyHashes[entry]);
+                        Entry<Key, Object[]> result = new SimpleImmutableEntry<>(key, states[entry]);
+                        entry++;
+                        return result;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private int slot(int hash) {
+        return BitMixer.mix32(hash) & mask;
+    }
+
+    private int findEntry(Key key) {
+        int slot = slot(key.hash);
+        int entry;
+        while ((entry = slots[slot] - 1) != -1) {
+            if (keyEquals(entry, key)) {
+                return entry;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private boolean keyEquals(int entry, Key key) {
+        return keyHashes[entry] == key.hash
+               && keyLengths[entry] == key.length
+               && ByteBufUtil.equals(pages.get(keyPages[entry]), keyOffsets[entry], key.buffer, key.offset, key.length);
+    }
+
+    private void storeKey(int entry, Key key) {
+        ByteBuf page = currentPage == -1 ? null : pages.get(currentPage);
+        while (page == null || page.capacity() - page.writerIndex() < key.length) {
+            currentPage++;
+            if (currentPage == pages.size()) {
+                pages.add(memoryManager.allocate(Math.max(PAGE_SIZE, key.length)));
+            }
+            page = pages.get(currentPage);
+        }
+        int offset = page.writerIndex();
+        page.writeBytes(key.buffer, key.offset, key.length);
+        keyPages[entry] = currentPage;
+        keyOffsets[entry] = offset;
+        keyLengths[entry] = key.length;
+        keyHashes[entry] = key.hash;
+    }
+
+    private void growEntries() {
+        int newLength = states.length * 2;
+        keyPages = Arrays.copyOf(keyPages, newLength);
+        keyOffsets = Arrays.copyOf(keyOffsets, newLength);
+        keyLengths = Arrays.copyOf(keyLengths, newLength);
+        keyHashes = Arrays.copyOf(keyHashes, newLength);
+        states = Arrays.copyOf(states, newLength);
+    }
+
+    private void growSlots() {
+        int newCapacity = slots.length * 2;
+        slots = new int[newCapacity];
+        mask = newCapacity - 1;
+        resizeAt = (int) (newCapacity * LOAD_FACTOR);
+        for (int entry = 0; entry < size; entry++) {
+            int slot = slot(keyHashes[entry]);
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = entry + 1;
+        }
+    }
+
+    /**
+     * A view on the bytes of an encoded key.
+     */
+    static final class Key {
+
+        private final ByteBuf buffer;
+        private int offset;
+        private int length;
+        private int hash;
+
+        private Key(ByteBuf buffer, int offset, int length, int hash) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.length = length;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash
+                   && length == other.length
+                   && ByteBufUtil.equals(buffer, offset, other.buffer, other.offset, length);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Encodes the key columns of a row into a re-used {@link Key} and decodes keys back into values.
+     */
+    static final class Encoder {
+
+        private final Streamer<?>[] streamers;
+        private final ByteBuf scratch = Unpooled.buffer(64);
+        private final StreamOutput out = new OutputStreamStreamOutput(new ByteBufOutputStream(scratch));
+        private final Key probe = new Key(scratch, 0, 0, 0);
+
+        Encoder(List<? extends DataType> keyTypes) {
+            streamers = new Streamer[keyTypes.size()];
+            for (int i = 0; i < streamers.length; i++) {
+                streamers[i] = keyTypes.get(i).streamer();
+            }
+        }
+
+        /**
+         * Encodes the current values of the inputs.
+         * The returned key is re-used and overwritten by the next call to one of the {@code encode} methods.
+         */
+        Key encode(List<Input<?>> keyInputs) {
+            scratch.clear();
+            try {
+                for (int i = 0; i < streamers.length; i++) {
+                    //noinspection unchecked
+                    ((Streamer) streamers[i]).writeValueTo(out, keyInputs.get(i).value());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return updateProbe();
+        }
+
+        /**
+         * Encodes the first columns of {@code row}, See {@link #encode(List)}
+         */
+        Key encode(Row row) {
+            scratch.clear();
+            try {
+                for (int i = 0; i < streamers.length; i++) {
+                    //noinspection unchecked
+                    ((Streamer) streamers[i]).writeValueTo(out, row.get(i));
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return updateProbe();
+        }
+
+        private Key updateProbe() {
+            probe.offset = 0;
+            probe.length = scratch.writerIndex();
+            probe.hash = ByteBufUtil.hashCode(scratch);
+            return probe;
+        }
+
+        /**
+         * Decodes the values of {@code key} into the first columns of {@code cells}
+         */
+        void decode(Key key, Object[] cells) {
+            try (StreamInput in = new InputStreamStreamInput(
+                new ByteBufInputStream(key.buffer.slice(key.offset, key.length)))) {
+                for (int i = 0; i < streamers.length; i++) {
+                    cells[i] = streamers[i].readValueFrom(in);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -22,7 +22,10 @@
 
 package io.crate.execution.engine.aggregation;
 
+import com.carrotsearch.hppc.BitMixer;
 import com.google.common.collect.Iterables;
+import io.crate.Streamer;
+import io.crate.breaker.ChildRamAccounting;
 import io.crate.breaker.RamAccounting;
 import io.crate.breaker.SizeEstimator;
 import io.crate.breaker.SizeEstimatorFactory;
@@ -30,18 +33,24 @@ import io.crate.data.Input;
 import io.crate.data.Row;
 import io.crate.data.RowN;
 import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.execution.engine.spill.SpillFile;
+import io.crate.execution.engine.spill.SpillFileFactory;
 import io.crate.expression.InputCondition;
 import io.crate.expression.symbol.AggregateMode;
 import io.crate.memory.MemoryManager;
 import io.crate.types.DataType;
 import org.elasticsearch.Version;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.core.internal.io.IOUtils;
 
 import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.BinaryOperator;
@@ -52,17 +61,35 @@ import java.util.stream.Collector;
 /**
  * Collector implementation which uses {@link AggregateMode}s and {@code keyInputs}
  * to group rows by key and aggregate the grouped values.
+ * <p>
+ * If a {@link SpillFileFactory} is provided and spilling is enabled, the collector reacts to a
+ * {@link CircuitBreakingException} raised while adding a new group by writing all groups with their
+ * partial states into {@link #NUM_SPILL_PARTITIONS} hash partitions on disk and continuing with an empty map.
+ * Once all rows are consumed, the partitions are read back one at a time and the partial states of
+ * each group are merged using {@link AggregationFunction#reduce(RamAccounting, Object, Object)}.
+ * Spill files are deleted on {@link #close()}.
  *
  * @param <K> type of the key
  */
 public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, Iterable<Row>> {
 
+    static final int NUM_SPILL_PARTITIONS = 32;
+    private static final String SPILL_FILE_PREFIX = "group-by";
+
     private final CollectExpression<Row, ?>[] expressions;
     private final AggregationFunction[] aggregations;
     private final AggregateMode mode;
     private final Input[][] inputs;
     private final Input<Boolean>[] filters;
+    /**
+     * Accounts only the groups of this collector; releasing it on spill doesn't affect other operators
+     * that share the same phase-wide RamAccounting.
+     */
     private final RamAccounting ramAccounting;
+    /**
+     * The phase-wide RamAccounting, used to account the buffers of the spill files
+     */
+    private final RamAccounting spillRamAccounting;
     private final MemoryManager memoryManager;
     private final BiConsumer<K, Object[]> applyKeyToCells;
     private final int numKeyColumns;
@@ -72,6 +99,14 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
     private final BiConsumer<Map<K, Object[]>, Row> accumulator;
     private final Supplier<Map<K, Object[]>> supplier;
     private final Version minNodeVersion;
+    private final Function<Row, K> spilledRowToKey;
+    private final Streamer<?>[] spillStreamers;
+
+    @Nullable
+    private final SpillFileFactory spillFileFactory;
+
+    @Nullable
+    private SpillFile[] spillPartitions;
 
     static GroupingCollector<Object> singleKey(CollectExpression<Row, ?>[] expressions,
                                                AggregateMode mode,
@@ -83,59 +118,99 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
                                                Version minNodeVersion,
                                                Input<?> keyInput,
                                                DataType keyType,
-                                               Version indexVersionCreated) {
+                                               Version indexVersionCreated,
+                                               @Nullable SpillFileFactory spillFileFactory) {
+        RamAccounting collectorRamAccounting = new ChildRamAccounting(ramAccounting);
         return new GroupingCollector<>(
             expressions,
             aggregations,
             mode,
             inputs,
             filters,
+            collectorRamAccounting,
             ramAccounting,
             memoryManager,
             minNodeVersion,
             (key, cells) -> cells[0] = key,
             1,
             GroupByMaps.accountForNewEntry(
-                ramAccounting,
+                collectorRamAccounting,
                 SizeEstimatorFactory.create(keyType),
                 keyType
             ),
             row -> keyInput.value(),
             indexVersionCreated,
-            GroupByMaps.mapForType(keyType)
+            GroupByMaps.mapForType(keyType),
+            List.of(keyType),
+            row -> row.get(0),
+            spillFileFactory
         );
     }
 
-    static GroupingCollector<List<Object>> manyKeys(CollectExpression<Row, ?>[] expressions,
-                                                    AggregateMode mode,
-                                                    AggregationFunction[] aggregations,
-                                                    Input[][] inputs,
-                                                    Input<Boolean>[] filters,
-                                                    RamAccounting ramAccountingContext,
-                                                    MemoryManager memoryManager,
-                                                    Version minNodeVersion,
-                                                    List<Input<?>> keyInputs,
-                                                    List<? extends DataType> keyTypes,
-                                                    Version indexVersionCreated) {
-        return new GroupingCollector<>(
+    /**
+     * Creates a collector grouping by multiple keys.
+     * If all key types are supported by {@link BinaryKeyGroupMap}, the keys are stored in their encoded form,
+     * otherwise they're stored as {@code List<Object>} in a {@link HashMap}.
+     */
+    static GroupingCollector<?> manyKeys(CollectExpression<Row, ?>[] expressions,
+                                         AggregateMode mode,
+                                         AggregationFunction[] aggregations,
+                                         Input[][] inputs,
+                                         Input<Boolean>[] filters,
+                                         RamAccounting ramAccountingContext,
+                                         MemoryManager memoryManager,
+                                         Version minNodeVersion,
+                                         List<Input<?>> keyInputs,
+                                         List<? extends DataType> keyTypes,
+                                         Version indexVersionCreated,
+                                         @Nullable SpillFileFactory spillFileFactory) {
+        RamAccounting collectorRamAccounting = new ChildRamAccounting(ramAccountingContext);
+        if (BinaryKeyGroupMap.supportsTypes(keyTypes)) {
+            BinaryKeyGroupMap.Encoder encoder = new BinaryKeyGroupMap.Encoder(keyTypes);
+            return new GroupingCollector<BinaryKeyGroupMap.Key>(
+                expressions,
+                aggregations,
+                mode,
+                inputs,
+                filters,
+                collectorRamAccounting,
+                ramAccountingContext,
+                memoryManager,
+                minNodeVersion,
+                encoder::decode,
+                keyInputs.size(),
+                (map, key) -> collectorRamAccounting.addBytes(BinaryKeyGroupMap.BYTES_PER_ENTRY),
+                row -> encoder.encode(keyInputs),
+                indexVersionCreated,
+                () -> new BinaryKeyGroupMap(memoryManager),
+                keyTypes,
+                encoder::encode,
+                spillFileFactory
+            );
+        }
+        return new GroupingCollector<List<Object>>(
             expressions,
             aggregations,
             mode,
             inputs,
             filters,
+            collectorRamAccounting,
             ramAccountingContext,
             memoryManager,
             minNodeVersion,
             GroupingCollector::applyKeysToCells,
             keyInputs.size(),
             GroupByMaps.accountForNewEntry(
-                ramAccountingContext,
+                collectorRamAccounting,
                 new MultiSizeEstimator(keyTypes),
                 null
             ),
             row -> evalKeyInputs(keyInputs),
             indexVersionCreated,
-            HashMap::new
+            HashMap::new,
+            keyTypes,
+            row -> spilledRowToKeys(row, keyTypes.size()),
+            spillFileFactory
         );
     }
 
@@ -147,6 +222,14 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
         return key;
     }
 
+    private static List<Object> spilledRowToKeys(Row row, int numKeys) {
+        List<Object> key = new ArrayList<>(numKeys);
+        for (int i = 0; i < numKeys; i++) {
+            key.add(row.get(i));
+        }
+        return key;
+    }
+
     private static void applyKeysToCells(List<Object> keys, Object[] cells) {
         for (int i = 0; i < keys.size(); i++) {
             cells[i] = keys.get(i);
@@ -159,6 +242,7 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
                               Input[][] inputs,
                               Input<Boolean>[] filters,
                               RamAccounting ramAccounting,
+                              RamAccounting spillRamAccounting,
                               MemoryManager memoryManager,
                               Version minNodeVersion,
                               BiConsumer<K, Object[]> applyKeyToCells,
@@ -166,13 +250,17 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
                               BiConsumer<Map<K, Object[]>, K> accountForNewEntry,
                               Function<Row, K> keyExtractor,
                               Version indexVersionCreated,
-                              Supplier<Map<K, Object[]>> supplier) {
+                              Supplier<Map<K, Object[]>> supplier,
+                              List<? extends DataType> keyTypes,
+                              Function<Row, K> spilledRowToKey,
+                              @Nullable SpillFileFactory spillFileFactory) {
         this.expressions = expressions;
         this.aggregations = aggregations;
         this.mode = mode;
         this.inputs = inputs;
         this.filters = filters;
         this.ramAccounting = ramAccounting;
+        this.spillRamAccounting = spillRamAccounting;
         this.memoryManager = memoryManager;
         this.applyKeyToCells = applyKeyToCells;
         this.numKeyColumns = numKeyColumns;
@@ -182,6 +270,15 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
         this.accumulator = mode == AggregateMode.PARTIAL_FINAL ? this::reduce : this::iter;
         this.supplier = supplier;
         this.minNodeVersion = minNodeVersion;
+        this.spilledRowToKey = spilledRowToKey;
+        this.spillFileFactory = spillFileFactory;
+        this.spillStreamers = new Streamer[numKeyColumns + aggregations.length];
+        for (int i = 0; i < numKeyColumns; i++) {
+            spillStreamers[i] = keyTypes.get(i).streamer();
+        }
+        for (int i = 0; i < aggregations.length; i++) {
+            spillStreamers[numKeyColumns + i] = aggregations[i].partialType().streamer();
+        }
     }
 
     @Override
@@ -222,7 +319,12 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
             for (int i = 0; i < aggregations.length; i++) {
                 states[i] = inputs[i][0].value();
             }
-            addWithAccounting(statesByKey, key, states);
+            try {
+                addWithAccounting(statesByKey, key, states);
+            } catch (CircuitBreakingException e) {
+                spillOrRethrow(statesByKey, e);
+                addWithAccounting(statesByKey, key, states);
+            }
         } else {
             for (int i = 0; i < aggregations.length; i++) {
                 states[i] = aggregations[i].reduce(ramAccounting, states[i], inputs[i][0].value());
@@ -242,7 +344,12 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
         K key = keyExtractor.apply(row);
         Object[] states = statesByKey.get(key);
         if (states == null) {
-            addNewEntry(statesByKey, key);
+            try {
+                addNewEntry(statesByKey, key);
+            } catch (CircuitBreakingException e) {
+                spillOrRethrow(statesByKey, e);
+                addNewEntry(statesByKey, key);
+            }
         } else {
             for (int i = 0; i < aggregations.length; i++) {
                 if (InputCondition.matches(filters[i])) {
@@ -270,7 +377,100 @@ public class GroupingCollector<K> implements Collector<Row, Map<K, Object[]>, It
         addWithAccounting(statesByKey, key, states);
     }
 
+    private void spillOrRethrow(Map<K, Object[]> statesByKey, CircuitBreakingException e) {
+        boolean canSpill = spillFileFactory != null
+                           && (spillPartitions != null || spillFileFactory.isEnabled())
+                           && statesByKey.isEmpty() == false;
+        if (canSpill == false) {
+            throw e;
+        }
+        spill(statesByKey);
+    }
+
+    /**
+     * Writes all groups with their partial states into the spill partitions and clears the map.
+     */
+    private void spill(Map<K, Object[]> statesByKey) {
+        assert spillFileFactory != null : "spillFileFactory must be available if spilling";
+        // The groups are written out and dropped, release them first
+        // so that the buffers of the spill files can be accounted
+        ramAccounting.release();
+        if (spillPartitions == null) {
+            spillPartitions = new SpillFile[NUM_SPILL_PARTITIONS];
+            for (int i = 0; i < spillPartitions.length; i++) {
+                spillPartitions[i] = spillFileFactory.create(SPILL_FILE_PREFIX, spillStreamers, spillRamAccounting);
+            }
+        }
+        Object[] cells = new Object[numKeyColumns + aggregations.length];
+        RowN row = new RowN(cells);
+        for (Map.Entry<K, Object[]> entry : statesByKey.entrySet()) {
+            K key = entry.getKey();
+            applyKeyToCells.accept(key, cells);
+            System.arraycopy(entry.getValue(), 0, cells, numKeyColumns, aggregations.length);
+            spillPartitions[spillPartitionIdx(key)].add(row);
+        }
+        statesByKey.clear();
+    }
+
+    /**
+     * Uses the high bits of the mixed hash. The maps place the keys by the low bits of the same mixed hash,
+     * which would otherwise be the same for all keys of a partition once it is merged.
+     */
+    static int spillPartitionIdx(@Nullable Object key) {
+        return BitMixer.mix32(Objects.hashCode(key)) >>> Integer.numberOfLeadingZeros(NUM_SPILL_PARTITIONS - 1);
+    }
+
+    /**
+     * Reads a spill partition back into the given map, merging the partial states of groups
+     * which have been spilled multiple times.
+     * The map is re-used for all partitions, so that memory allocated by it (like the key pages of
+     * a {@link BinaryKeyGroupMap}) is only allocated once.
+     */
+    private Map<K, Object[]> mergeSpilledPartition(Map<K, Object[]> statesByKey, SpillFile partition) {
+        // The groups of the previous partition have been emitted already
+        statesByKey.clear();
+        ramAccounting.release();
+        for (Row row : partition) {
+            K key = spilledRowToKey.apply(row);
+            Object[] states = statesByKey.get(key);
+            if (states == null) {
+                states = new Object[aggregations.length];
+                for (int i = 0; i < aggregations.length; i++) {
+                    states[i] = row.get(numKeyColumns + i);
+                }
+                addWithAccounting(statesByKey, key, states);
+            } else {
+                for (int i = 0; i < aggregations.length; i++) {
+                    states[i] = aggregations[i].reduce(ramAccounting, states[i], row.get(numKeyColumns + i));
+                }
+            }
+        }
+        return statesByKey;
+    }
+
+    /**
+     * Deletes the files which have been used to spill groups to disk.
+     */
+    public void close() {
+        if (spillPartitions != null) {
+            IOUtils.closeWhileHandlingException(spillPartitions);
+            spillPartitions = null;
+        }
+    }
+
     private Iterable<Row> mapToRows(Map<K, Object[]> statesByKey) {
+        if (spillPartitions == null) {
+            return statesToRows(statesByKey);
+        }
+        spill(statesByKey);
+        SpillFile[] partitions = spillPartitions;
+        return Iterables.concat(Iterables.transform(
+            Arrays.asList(partitions),
+            partition -> statesToRows(mergeSpilledPartition(statesByKey, partition))
+        ));
+    }
+
+    private Iterable<Row> statesToRows(Map<K, Object[]> statesByKey) {
         return Iterables.transform(statesByKey.entrySet(), new com.google.common.base.Function<>() {
 
             RowN row = new RowN(numKeyColumns + aggregations.length);
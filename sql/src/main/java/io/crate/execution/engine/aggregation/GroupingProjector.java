@@ -24,11 +24,13 @@ package io.crate.execution.engine.aggregation;
 
 import io.crate.breaker.RamAccounting;
 import io.crate.data.BatchIterator;
+import io.crate.data.BatchIterators;
 import io.crate.data.CollectingBatchIterator;
 import io.crate.data.Input;
 import io.crate.data.Projector;
 import io.crate.data.Row;
 import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.execution.engine.spill.SpillFileFactory;
 import io.crate.expression.symbol.AggregateMode;
 import io.crate.expression.symbol.Symbol;
 import io.crate.memory.MemoryManager;
@@ -37,6 +39,7 @@ import io.crate.types.DataType;
 import io.crate.types.DataTypes;
 import org.elasticsearch.Version;
 
+import javax.annotation.Nullable;
 import java.util.List;
 import java.util.stream.Collector;
 
@@ -44,8 +47,7 @@ import static io.crate.expression.symbol.Symbols.typeView;
 
 public class GroupingProjector implements Projector {
 
-    private final Collector<Row, ?, Iterable<Row>> collector;
-
+    private final GroupingCollector<?> collector;
 
     public GroupingProjector(List<? extends Symbol> keys,
                              List<Input<?>> keyInputs,
@@ -55,7 +57,8 @@ public class GroupingProjector implements Projector {
                              RamAccounting ramAccounting,
                              MemoryManager memoryManager,
                              Version minNodeVersion,
-                             Version indexVersionCreated) {
+                             Version indexVersionCreated,
+                             @Nullable SpillFileFactory spillFileFactory) {
         assert keys.size() == keyInputs.size() : "number of key types must match with number of key inputs";
         ensureAllTypesSupported(keys);
 
@@ -81,11 +84,11 @@ public class GroupingProjector implements Projector {
                 minNodeVersion,
                 keyInputs.get(0),
                 key.valueType(),
-                indexVersionCreated
+                indexVersionCreated,
+                spillFileFactory
             );
         } else {
-            //noinspection unchecked
-            collector = (GroupingCollector<Object>) (GroupingCollector) GroupingCollector.manyKeys(
+            collector = GroupingCollector.manyKeys(
                 collectExpressions,
                 mode,
                 functions,
@@ -96,7 +99,8 @@ public class GroupingProjector implements Projector {
                 minNodeVersion,
                 keyInputs,
                 typeView(keys),
-                indexVersionCreated
+                indexVersionCreated,
+                spillFileFactory
             );
         }
     }
@@ -112,7 +116,15 @@ public class GroupingProjector implements Projector {
 
     @Override
     public BatchIterator<Row> apply(BatchIterator<Row> batchIterator) {
-        return CollectingBatchIterator.newInstance(batchIterator, collector);
+        return CollectingBatchIterator.newInstance(
+            () -> {
+                batchIterator.close();
+                collector.close();
+            },
+            batchIterator::kill,
+            () -> BatchIterators.collect(batchIterator, collector),
+            batchIterator.involvesIO()
+        );
     }
 
     public Collector<Row, ?, Iterable<Row>> getCollector() {
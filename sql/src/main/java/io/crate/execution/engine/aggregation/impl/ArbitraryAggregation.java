@@ -61,6 +61,11 @@ public class ArbitraryAggregation extends AggregationFunction<Object, Object> {
         return info;
     }
 
+    @Override
+    public boolean hasImmutableState() {
+        return true;
+    }
+
     @Override
     public DataType partialType() {
         return info.returnType();
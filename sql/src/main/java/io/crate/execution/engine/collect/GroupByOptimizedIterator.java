@@ -23,6 +23,8 @@
 package io.crate.execution.engine.collect;
 
 import io.crate.breaker.RamAccounting;
+import io.crate.breaker.SizeEstimator;
+import io.crate.breaker.SizeEstimatorFactory;
 import io.crate.breaker.StringSizeEstimator;
 import io.crate.data.BatchIterator;
 import io.crate.data.CollectingBatchIterator;
@@ -50,8 +52,16 @@ import io.crate.lucene.LuceneQueryBuilder;
 import io.crate.memory.MemoryManager;
 import io.crate.metadata.Reference;
 import io.crate.metadata.doc.DocSysColumns;
+import io.crate.types.ByteType;
+import io.crate.types.DataType;
 import io.crate.types.DataTypes;
+import io.crate.types.IntegerType;
+import io.crate.types.LongType;
+import io.crate.types.ShortType;
+import io.crate.types.TimestampType;
+import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedNumericDocValues;
 import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.search.DocIdSetIterator;
@@ -75,10 +85,13 @@ import org.elasticsearch.index.shard.ShardId;
 
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
@@ -108,37 +121,76 @@ final class GroupByOptimizedIterator {
     private static final double CARDINALITY_RATIO_THRESHOLD = 0.5;
     private static final long HASH_MAP_ENTRY_OVERHEAD = 32; // see private RamUsageEstimator.shallowSizeOfInstance(HashMap.Node.class)
 
+    /**
+     * Types of keys which are stored as (single) long values in SortedNumericDocValues.
+     * They're supported in combination with other keys; A single numeric key is handled well by the generic group-by.
+     */
+    private static final Set<Integer> NUMERIC_KEY_TYPE_IDS = Set.of(
+        ByteType.ID,
+        ShortType.ID,
+        IntegerType.ID,
+        LongType.ID,
+        TimestampType.ID_WITH_TZ,
+        TimestampType.ID_WITHOUT_TZ
+    );
+
+    /**
+     * Tries to create a BatchIterator which groups on the doc values of the keys.
+     *
+     * <p>
+     * A single string key is grouped by the ordinals of the segment.
+     * Multiple string and numeric keys are grouped by a per segment key composed of the ordinals and numeric values.
+     * In both cases the string values are only looked up once per group and segment.
+     * </p>
+     *
+     * @return the iterator or null if the optimization isn't applicable.
+     */
     @Nullable
-    static BatchIterator<Row> tryOptimizeSingleStringKey(IndexShard indexShard,
-                                                         LuceneQueryBuilder luceneQueryBuilder,
-                                                         FieldTypeLookup fieldTypeLookup,
-                                                         BigArrays bigArrays,
-                                                         InputFactory inputFactory,
-                                                         DocInputFactory docInputFactory,
-                                                         RoutedCollectPhase collectPhase,
-                                                         CollectTask collectTask) {
+    static BatchIterator<Row> tryOptimize(IndexShard indexShard,
+                                          LuceneQueryBuilder luceneQueryBuilder,
+                                          FieldTypeLookup fieldTypeLookup,
+                                          BigArrays bigArrays,
+                                          InputFactory inputFactory,
+                                          DocInputFactory docInputFactory,
+                                          RoutedCollectPhase collectPhase,
+                                          CollectTask collectTask) {
         Collection<? extends Projection> shardProjections = shardProjections(collectPhase.projections());
-        GroupProjection groupProjection = getSingleStringKeyGroupProjection(shardProjections);
+        GroupProjection groupProjection = getGroupProjection(shardProjections);
         if (groupProjection == null) {
             return null;
         }
-        assert groupProjection.keys().size() == 1 : "Must have 1 key if getSingleStringKeyGroupProjection returned a projection";
-        Reference keyRef = getKeyRef(collectPhase.toCollect(), groupProjection.keys().get(0));
-        if (keyRef == null) {
-            return null; // group by on non-reference
-        }
-        MappedFieldType keyFieldType = fieldTypeLookup.get(keyRef.column().fqn());
-        if (keyFieldType == null || !keyFieldType.hasDocValues()) {
+        List<Symbol> keys = groupProjection.keys();
+        if (keys.size() > Long.SIZE) {
             return null;
         }
+        List<Reference> keyRefs = new ArrayList<>(keys.size());
+        List<MappedFieldType> keyFieldTypes = new ArrayList<>(keys.size());
+        for (Symbol key : keys) {
+            if (!isSupportedKeyType(key.valueType(), keys.size())) {
+                return null;
+            }
+            Reference keyRef = getKeyRef(collectPhase.toCollect(), key);
+            if (keyRef == null) {
+                return null; // group by on non-reference
+            }
+            MappedFieldType keyFieldType = fieldTypeLookup.get(keyRef.column().fqn());
+            if (keyFieldType == null || !keyFieldType.hasDocValues()) {
+                return null;
+            }
+            keyRefs.add(keyRef);
+            keyFieldTypes.add(keyFieldType);
+        }
         if (Symbols.containsColumn(collectPhase.toCollect(), DocSysColumns.SCORE)
             || Symbols.containsColumn(collectPhase.where(), DocSysColumns.SCORE)) {
             // We could optimize this, but since it's assumed to be an uncommon case we fallback to generic group-by
             // to keep the optimized implementation a bit simpler
             return null;
         }
-        if (hasHighCardinalityRatio(() -> indexShard.acquireSearcher("group-by-cardinality-check"), keyFieldType.name())) {
-            return null;
+        for (int i = 0; i < keys.size(); i++) {
+            if (keys.get(i).valueType() == DataTypes.STRING
+                && hasHighCardinalityRatio(() -> indexShard.acquireSearcher("group-by-cardinality-check"), keyFieldTypes.get(i).name())) {
+                return null;
+            }
         }
 
         ShardId shardId = indexShard.shardId();
@@ -152,7 +204,6 @@ final class GroupByOptimizedIterator {
 
             InputFactory.Context<? extends LuceneCollectorExpression<?>> docCtx = docInputFactory.getCtx(collectTask.txnCtx());
             docCtx.add(collectPhase.toCollect().stream()::iterator);
-            IndexOrdinalsFieldData keyIndexFieldData = queryShardContext.getForField(keyFieldType);
 
             InputFactory.Context<CollectExpression<Row, ?>> ctxForAggregations = inputFactory.ctxForAggregations(collectTask.txnCtx());
             ctxForAggregations.add(groupProjection.values());
@@ -176,6 +227,35 @@ final class GroupByOptimizedIterator {
                 sharedShardContext.indexService().cache()
             );
 
+            if (keys.size() > 1) {
+                List<KeyColumn> keyColumns = new ArrayList<>(keys.size());
+                for (int i = 0; i < keys.size(); i++) {
+                    Reference keyRef = keyRefs.get(i);
+                    if (keyRef.valueType() == DataTypes.STRING) {
+                        IndexOrdinalsFieldData keyIndexFieldData = queryShardContext.getForField(keyFieldTypes.get(i));
+                        keyColumns.add(new OrdinalsKeyColumn(
+                            keyIndexFieldData.getFieldName(),
+                            leaf -> keyIndexFieldData.load(leaf).getOrdinalsValues()));
+                    } else {
+                        keyColumns.add(new NumericKeyColumn(keyRef.column().fqn(), keyRef.valueType()));
+                    }
+                }
+                return getMultiKeyIterator(
+                    indexSearcher,
+                    keyColumns,
+                    aggregations,
+                    expressions,
+                    aggExpressions,
+                    ramAccounting,
+                    collectTask.memoryManager(),
+                    collectTask.minNodeVersion(),
+                    inputRow,
+                    queryContext.query(),
+                    collectorContext,
+                    groupProjection.mode());
+            }
+
+            IndexOrdinalsFieldData keyIndexFieldData = queryShardContext.getForField(keyFieldTypes.get(0));
             return getIterator(
                 bigArrays,
                 indexSearcher,
@@ -254,6 +334,59 @@ final class GroupByOptimizedIterator {
 
     }
 
+    static BatchIterator<Row> getMultiKeyIterator(IndexSearcher indexSearcher,
+                                                  List<KeyColumn> keyColumns,
+                                                  List<AggregationContext> aggregations,
+                                                  List<? extends LuceneCollectorExpression<?>> expressions,
+                                                  List<CollectExpression<Row, ?>> aggExpressions,
+                                                  RamAccounting ramAccounting,
+                                                  MemoryManager memoryManager,
+                                                  Version minNodeVersion,
+                                                  InputRow inputRow,
+                                                  Query query,
+                                                  CollectorContext collectorContext,
+                                                  AggregateMode aggregateMode) {
+        for (int i = 0, expressionsSize = expressions.size(); i < expressionsSize; i++) {
+            expressions.get(i).startCollect(collectorContext);
+        }
+
+        AtomicReference<Throwable> killed = new AtomicReference<>();
+        AtomicBoolean closed = new AtomicBoolean();
+        return CollectingBatchIterator.newInstance(
+            () -> closed.set(true),
+            killed::set,
+            () -> {
+                try {
+                    return CompletableFuture.completedFuture(
+                        getMultiKeyRows(
+                            applyAggregatesGroupedByKeys(
+                                indexSearcher,
+                                keyColumns,
+                                aggregations,
+                                expressions,
+                                aggExpressions,
+                                ramAccounting,
+                                memoryManager,
+                                minNodeVersion,
+                                inputRow,
+                                query,
+                                killed,
+                                closed
+                            ),
+                            keyColumns.size(),
+                            ramAccounting,
+                            aggregations,
+                            aggregateMode
+                        )
+                    );
+                } catch (Throwable t) {
+                    return CompletableFuture.failedFuture(t);
+                }
+            },
+            true
+        );
+    }
+
     private static Iterable<Row> getRows(Map<BytesRef, Object[]> groupedStates,
                                          RamAccounting ramAccounting,
                                          List<AggregationContext> aggregations,
@@ -278,6 +411,128 @@ final class GroupByOptimizedIterator {
             .iterator();
     }
 
+    private static Iterable<Row> getMultiKeyRows(Map<List<Object>, Object[]> groupedStates,
+                                                 int numKeys,
+                                                 RamAccounting ramAccounting,
+                                                 List<AggregationContext> aggregations,
+                                                 AggregateMode mode) {
+        return () -> groupedStates.entrySet().stream()
+            .map(new Function<Map.Entry<List<Object>, Object[]>, Row>() {
+
+                final Object[] cells = new Object[numKeys + aggregations.size()];
+                final RowN row = new RowN(cells);
+
+                @Override
+                public Row apply(Map.Entry<List<Object>, Object[]> entry) {
+                    List<Object> key = entry.getKey();
+                    for (int i = 0; i < numKeys; i++) {
+                        cells[i] = key.get(i);
+                    }
+                    Object[] states = entry.getValue();
+                    for (int i = 0, c = numKeys; i < states.length; i++, c++) {
+                        //noinspection unchecked
+                        cells[c] = mode.finishCollect(ramAccounting, aggregations.get(i).function(), states[i]);
+                    }
+                    return row;
+                }
+            })
+            .iterator();
+    }
+
+    private static Map<List<Object>, Object[]> applyAggregatesGroupedByKeys(IndexSearcher indexSearcher,
+                                                                            List<KeyColumn> keyColumns,
+                                                                            List<AggregationContext> aggregations,
+                                                                            List<? extends LuceneCollectorExpression<?>> expressions,
+                                                                            List<CollectExpression<Row, ?>> aggExpressions,
+                                                                            RamAccounting ramAccounting,
+                                                                            MemoryManager memoryManager,
+                                                                            Version minNodeVersion,
+                                                                            InputRow inputRow,
+                                                                            Query query,
+                                                                            AtomicReference<Throwable> killed,
+                                                                            AtomicBoolean closed) throws IOException {
+        final int numKeys = keyColumns.size();
+        final Map<List<Object>, Object[]> statesByKey = new HashMap<>();
+        final Weight weight = indexSearcher.createWeight(indexSearcher.rewrite(query), ScoreMode.COMPLETE, 1f);
+        final List<LeafReaderContext> leaves = indexSearcher.getTopReaderContext().leaves();
+        final SegmentKey probe = new SegmentKey(numKeys);
+
+        for (LeafReaderContext leaf: leaves) {
+            raiseIfClosedOrKilled(killed, closed);
+            Scorer scorer = weight.scorer(leaf);
+            if (scorer == null) {
+                continue;
+            }
+            for (int i = 0, expressionsSize = expressions.size(); i < expressionsSize; i++) {
+                expressions.get(i).setNextReader(leaf);
+            }
+            for (int k = 0; k < numKeys; k++) {
+                keyColumns.get(k).setNextReader(leaf);
+            }
+            // Grouping within a segment is done on ordinals/numeric values; strings are only looked up afterwards
+            Map<SegmentKey, Object[]> statesBySegmentKey = new HashMap<>();
+            DocIdSetIterator docs = scorer.iterator();
+            Bits liveDocs = leaf.reader().getLiveDocs();
+            for (int doc = docs.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = docs.nextDoc()) {
+                raiseIfClosedOrKilled(killed, closed);
+                if (docDeleted(liveDocs, doc)) {
+                    continue;
+                }
+                for (int i = 0, expressionsSize = expressions.size(); i < expressionsSize; i++) {
+                    expressions.get(i).setNextDocId(doc);
+                }
+                for (int i = 0, expressionsSize = aggExpressions.size(); i < expressionsSize; i++) {
+                    aggExpressions.get(i).setNextRow(inputRow);
+                }
+                for (int k = 0; k < numKeys; k++) {
+                    KeyColumn keyColumn = keyColumns.get(k);
+                    if (keyColumn.advanceExact(doc)) {
+                        probe.set(k, keyColumn.value());
+                    } else {
+                        probe.setNull(k);
+                    }
+                }
+                Object[] states = statesBySegmentKey.get(probe);
+                if (states == null) {
+                    ramAccounting.addBytes(probe.ramBytesUsed() + HASH_MAP_ENTRY_OVERHEAD);
+                    statesBySegmentKey.put(probe.copy(), initStates(aggregations, ramAccounting, memoryManager, minNodeVersion));
+                } else {
+                    aggregateValues(aggregations, ramAccounting, memoryManager, states);
+                }
+            }
+            for (Map.Entry<SegmentKey, Object[]> entry : statesBySegmentKey.entrySet()) {
+                raiseIfClosedOrKilled(killed, closed);
+                SegmentKey segmentKey = entry.getKey();
+                Object[] keyValues = new Object[numKeys];
+                for (int k = 0; k < numKeys; k++) {
+                    keyValues[k] = segmentKey.isNull(k) ? null : keyColumns.get(k).lookup(segmentKey.get(k));
+                }
+                List<Object> key = Arrays.asList(keyValues);
+                Object[] states = entry.getValue();
+                Object[] prevStates = statesByKey.get(key);
+                if (prevStates == null) {
+                    long keySize = HASH_MAP_ENTRY_OVERHEAD;
+                    for (int k = 0; k < numKeys; k++) {
+                        keySize += keyColumns.get(k).sizeEstimator.estimateSize(keyValues[k]);
+                    }
+                    ramAccounting.addBytes(keySize);
+                    statesByKey.put(key, states);
+                } else {
+                    for (int i = 0; i < aggregations.size(); i++) {
+                        AggregationContext aggregation = aggregations.get(i);
+                        //noinspection unchecked
+                        prevStates[i] = aggregation.function().reduce(
+                            ramAccounting,
+                            prevStates[i],
+                            states[i]
+                        );
+                    }
+                }
+            }
+        }
+        return statesByKey;
+    }
+
     private static Map<BytesRef, Object[]> applyAggregatesGroupedByKey(BigArrays bigArrays,
                                                                        IndexSearcher indexSearcher,
                                                                        Function<LeafReaderContext, SortedSetDocValues> ordinalsFunction,
@@ -449,7 +704,8 @@ final class GroupByOptimizedIterator {
         return null;
     }
 
-    private static GroupProjection getSingleStringKeyGroupProjection(Collection<? extends Projection> shardProjections) {
+    @Nullable
+    private static GroupProjection getGroupProjection(Collection<? extends Projection> shardProjections) {
         if (shardProjections.size() != 1) {
             return null;
         }
@@ -457,11 +713,14 @@ final class GroupByOptimizedIterator {
         if (!(shardProjection instanceof GroupProjection)) {
             return null;
         }
-        GroupProjection groupProjection = (GroupProjection) shardProjection;
-        if (groupProjection.keys().size() != 1 || groupProjection.keys().get(0).valueType() != DataTypes.STRING) {
-            return null;
+        return (GroupProjection) shardProjection;
+    }
+
+    private static boolean isSupportedKeyType(DataType<?> type, int numKeys) {
+        if (type == DataTypes.STRING) {
+            return true;
         }
-        return groupProjection;
+        return numKeys > 1 && NUMERIC_KEY_TYPE_IDS.contains(type.id());
     }
 
     private static void raiseIfClosedOrKilled(AtomicReference<Throwable> killed, AtomicBoolean closed) {
@@ -473,4 +732,164 @@ final class GroupByOptimizedIterator {
             throw new IllegalStateException("BatchIterator is closed");
         }
     }
+
+    /**
+     * A group key column read from doc values.
+     * Within a segment each value is represented as long (an ordinal or the numeric value itself),
+     * {@link #lookup(long)} converts it into the actual value.
+     */
+    abstract static class KeyColumn {
+
+        final String name;
+        final SizeEstimator<Object> sizeEstimator;
+
+        KeyColumn(String name, DataType<?> type) {
+            this.name = name;
+            this.sizeEstimator = SizeEstimatorFactory.create(type);
+        }
+
+        abstract void setNextReader(LeafReaderContext leaf) throws IOException;
+
+        /**
+         * @return false if the document doesn't have a value
+         */
+        abstract boolean advanceExact(int doc) throws IOException;
+
+        /**
+         * @return the value of the current document, must only be called if {@link #advanceExact(int)} returned true
+         */
+        abstract long value() throws IOException;
+
+        abstract Object lookup(long value) throws IOException;
+    }
+
+    static final class OrdinalsKeyColumn extends KeyColumn {
+
+        private final Function<LeafReaderContext, SortedSetDocValues> ordinalsFunction;
+        private SortedSetDocValues values;
+
+        OrdinalsKeyColumn(String name, Function<LeafReaderContext, SortedSetDocValues> ordinalsFunction) {
+            super(name, DataTypes.STRING);
+            this.ordinalsFunction = ordinalsFunction;
+        }
+
+        @Override
+        void setNextReader(LeafReaderContext leaf) {
+            values = ordinalsFunction.apply(leaf);
+        }
+
+        @Override
+        boolean advanceExact(int doc) throws IOException {
+            return values.advanceExact(doc);
+        }
+
+        @Override
+        long value() throws IOException {
+            long ord = values.nextOrd();
+            if (values.nextOrd() != SortedSetDocValues.NO_MORE_ORDS) {
+                throw new GroupByOnArrayUnsupportedException(name);
+            }
+            return ord;
+        }
+
+        @Override
+        Object lookup(long ord) throws IOException {
+            return BytesRefs.toString(values.lookupOrd(ord));
+        }
+    }
+
+    static final class NumericKeyColumn extends KeyColumn {
+
+        private final DataType<?> type;
+        private SortedNumericDocValues values;
+
+        NumericKeyColumn(String name, DataType<?> type) {
+            super(name, type);
+            this.type = type;
+        }
+
+        @Override
+        void setNextReader(LeafReaderContext leaf) throws IOException {
+            values = DocValues.getSortedNumeric(leaf.reader(), name);
+        }
+
+        @Override
+        boolean advanceExact(int doc) throws IOException {
+            return values.advanceExact(doc);
+        }
+
+        @Override
+        long value() throws IOException {
+            if (values.docValueCount() != 1) {
+                throw new GroupByOnArrayUnsupportedException(name);
+            }
+            return values.nextValue();
+        }
+
+        @Override
+        Object lookup(long value) {
+            return type.value(value);
+        }
+    }
+
+    /**
+     * Group key within a segment; Holds the ordinal or numeric value of each key column.
+     */
+    private static final class SegmentKey {
+
+        private final long[] values;
+        private long nullBits = 0L;
+
+        SegmentKey(int numKeys) {
+            this.values = new long[numKeys];
+        }
+
+        private SegmentKey(long[] values, long nullBits) {
+            this.values = values;
+            this.nullBits = nullBits;
+        }
+
+        void set(int idx, long value) {
+            values[idx] = value;
+            nullBits &= ~(1L << idx);
+        }
+
+        void setNull(int idx) {
+            values[idx] = 0L;
+            nullBits |= 1L << idx;
+        }
+
+        long get(int idx) {
+            return values[idx];
+        }
+
+        boolean isNull(int idx) {
+            return (nullBits & (1L << idx)) != 0;
+        }
+
+        SegmentKey copy() {
+            return new SegmentKey(values.clone(), nullBits);
+        }
+
+        long ramBytesUsed() {
+            return 32L + (long) values.length * Long.BYTES;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            SegmentKey that = (SegmentKey) o;
+            return nullBits == that.nullBits && Arrays.equals(values, that.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(values) + Long.hashCode(nullBits);
+        }
+    }
 }
@@ -45,6 +45,7 @@ import io.crate.metadata.Schemas;
 import io.crate.metadata.doc.DocSysColumns;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.lucene.index.LeafReaderContext;
 import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.BigArrays;
@@ -58,6 +59,8 @@ import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -102,6 +105,14 @@ public class LuceneShardCollectorProvider extends ShardCollectorProvider {
     protected BatchIterator<Row> getUnorderedIterator(RoutedCollectPhase collectPhase,
                                                       boolean requiresScroll,
                                                       CollectTask collectTask) {
+        return getUnorderedIterators(collectPhase, requiresScroll, collectTask, 1).get(0);
+    }
+
+    @Override
+    protected List<BatchIterator<Row>> getUnorderedIterators(RoutedCollectPhase collectPhase,
+                                                             boolean requiresScroll,
+                                                             CollectTask collectTask,
+                                                             int maxSlices) {
         ShardId shardId = indexShard.shardId();
         SharedShardContext sharedShardContext = collectTask.sharedShardContexts().getOrCreateContext(shardId);
         Engine.Searcher searcher = sharedShardContext.acquireSearcher(formatSource(collectPhase));
@@ -116,18 +127,29 @@ public class LuceneShardCollectorProvider extends ShardCollectorProvider {
                 sharedShardContext.indexService().cache()
             );
             collectTask.addSearcher(sharedShardContext.readerId(), searcher);
-            InputFactory.Context<? extends LuceneCollectorExpression<?>> docCtx =
-                docInputFactory.extractImplementations(collectTask.txnCtx(), collectPhase);
 
-            return new LuceneBatchIterator(
-                searcher.searcher(),
-                queryContext.query(),
-                queryContext.minScore(),
-                Symbols.containsColumn(collectPhase.toCollect(), DocSysColumns.SCORE),
-                getCollectorContext(sharedShardContext.readerId(), queryShardContext::getForField),
-                docCtx.topLevelInputs(),
-                docCtx.expressions()
-            );
+            List<List<LeafReaderContext>> slices = LuceneBatchIterator.slices(
+                searcher.searcher().getTopReaderContext().leaves(), maxSlices);
+            List<BatchIterator<Row>> iterators = new ArrayList<>(slices.size());
+            for (List<LeafReaderContext> leaves : slices) {
+                // Each slice can be consumed by a different thread, so they must not share expressions or contexts
+                QueryShardContext sliceQueryShardContext = iterators.isEmpty()
+                    ? queryShardContext
+                    : sharedShardContext.indexService().newQueryShardContext();
+                InputFactory.Context<? extends LuceneCollectorExpression<?>> docCtx =
+                    docInputFactory.extractImplementations(collectTask.txnCtx(), collectPhase);
+                iterators.add(new LuceneBatchIterator(
+                    searcher.searcher(),
+                    queryContext.query(),
+                    queryContext.minScore(),
+                    Symbols.containsColumn(collectPhase.toCollect(), DocSysColumns.SCORE),
+                    getCollectorContext(sharedShardContext.readerId(), sliceQueryShardContext::getForField),
+                    docCtx.topLevelInputs(),
+                    docCtx.expressions(),
+                    leaves
+                ));
+            }
+            return iterators;
         } catch (Throwable t) {
             searcher.close();
             throw t;
@@ -137,7 +159,7 @@ public class LuceneShardCollectorProvider extends ShardCollectorProvider {
     @Nullable
     @Override
     protected BatchIterator<Row> getProjectionFusedIterator(RoutedCollectPhase normalizedPhase, CollectTask collectTask) {
-        return GroupByOptimizedIterator.tryOptimizeSingleStringKey(
+        return GroupByOptimizedIterator.tryOptimize(
             indexShard,
             luceneQueryBuilder,
             fieldTypeLookup,
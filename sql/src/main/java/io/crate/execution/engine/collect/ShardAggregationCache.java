@@ -0,0 +1,439 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.crate.Streamer;
+import io.crate.data.BatchIterator;
+import io.crate.data.ForwardingBatchIterator;
+import io.crate.data.InMemoryBatchIterator;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.data.SentinelRow;
+import io.crate.execution.dsl.phases.RoutedCollectPhase;
+import io.crate.execution.dsl.projection.AggregationProjection;
+import io.crate.execution.dsl.projection.EvalProjection;
+import io.crate.execution.dsl.projection.FilterProjection;
+import io.crate.execution.dsl.projection.GroupProjection;
+import io.crate.execution.dsl.projection.Projection;
+import io.crate.execution.dsl.projection.Projections;
+import io.crate.expression.symbol.Function;
+import io.crate.expression.symbol.Symbol;
+import io.crate.expression.symbol.SymbolVisitors;
+import io.crate.expression.symbol.Symbols;
+import org.apache.lucene.index.IndexReader;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.index.shard.ShardId;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Node wide cache for the results of the shard level aggregations (GROUP BY or global aggregates).
+ *
+ * <p>
+ * Entries are keyed by the shard, the point-in-time reader of the shard and the serialized collect phase
+ * (toCollect, where and shard projections). Any refresh which changes the data of a shard results in a new reader,
+ * so stale entries are never returned. Entries of closed readers are removed from the cache.
+ * </p>
+ *
+ * <p>
+ * The results are stored in their serialized form; The weight of an entry is the size of the serialized rows.
+ * </p>
+ */
+public final class ShardAggregationCache {
+
+    public static final Setting<ByteSizeValue> AGGREGATION_CACHE_SIZE_SETTING = Setting.memorySizeSetting(
+        "node.sql.aggregation_cache.size",
+        "1%",
+        Setting.Property.NodeScope);
+
+    @Nullable
+    private final Cache<Key, CachedResult> cache;
+    private final long maxSizeInBytes;
+    private final Set<Object> readersWithCloseListener = ConcurrentHashMap.newKeySet();
+
+    public ShardAggregationCache(Settings settings) {
+        this(AGGREGATION_CACHE_SIZE_SETTING.get(settings).getBytes());
+    }
+
+    @VisibleForTesting
+    ShardAggregationCache(long maxSizeInBytes) {
+        this.maxSizeInBytes = maxSizeInBytes;
+        if (maxSizeInBytes == 0) {
+            cache = null;
+        } else {
+            cache = CacheBuilder.newBuilder()
+                .maximumWeight(maxSizeInBytes)
+                .weigher((Key key, CachedResult result) -> (int) Math.min(Integer.MAX_VALUE, key.size() + result.size()))
+                .recordStats()
+                .build();
+        }
+    }
+
+    /**
+     * @return the key for the results of the collect phase on the current reader of the shard,
+     *         or null if the results can't be cached.
+     */
+    @Nullable
+    public Key key(IndexShard indexShard, RoutedCollectPhase collectPhase, Version minNodeVersion) {
+        if (cache == null || !isCacheable(collectPhase)) {
+            return null;
+        }
+        IndexReader.CacheHelper cacheHelper;
+        try (Engine.Searcher searcher = indexShard.acquireSearcher("aggregation-cache")) {
+            cacheHelper = searcher.getDirectoryReader().getReaderCacheHelper();
+        }
+        if (cacheHelper == null) {
+            return null;
+        }
+        IndexReader.CacheKey readerKey = cacheHelper.getKey();
+        if (readersWithCloseListener.add(readerKey)) {
+            cacheHelper.addClosedListener(this::invalidateReader);
+        }
+        return key(indexShard.shardId(), readerKey, collectPhase, minNodeVersion);
+    }
+
+    @VisibleForTesting
+    static Key key(ShardId shardId, Object readerKey, RoutedCollectPhase collectPhase, Version minNodeVersion) {
+        // The aggregation states depend on the minimum node version
+        BytesStreamOutput out = new BytesStreamOutput();
+        try {
+            Version.writeVersion(minNodeVersion, out);
+            Symbols.toStream(collectPhase.toCollect(), out);
+            Symbols.toStream(collectPhase.where(), out);
+            Collection<? extends Projection> shardProjections = Projections.shardProjections(collectPhase.projections());
+            out.writeVInt(shardProjections.size());
+            for (Projection projection : shardProjections) {
+                Projection.toStream(projection, out);
+            }
+            return new Key(shardId, readerKey, out.bytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return a BatchIterator with the cached results or null if there is no cache entry for the key.
+     */
+    @Nullable
+    public BatchIterator<Row> get(Key key) {
+        if (cache == null) {
+            return null;
+        }
+        CachedResult result = cache.getIfPresent(key);
+        if (result == null) {
+            return null;
+        }
+        return InMemoryBatchIterator.of(result.rows(), SentinelRow.SENTINEL, false);
+    }
+
+    /**
+     * Wraps the iterators which compute the results for the key.
+     * Once all of them are consumed, their results are added to the cache if the reader of the shard didn't change
+     * in the meantime.
+     */
+    public List<BatchIterator<Row>> cacheResults(Key key,
+                                                 IndexShard indexShard,
+                                                 RoutedCollectPhase collectPhase,
+                                                 List<BatchIterator<Row>> iterators) {
+        return cacheResults(key, () -> currentReaderKey(indexShard), collectPhase, iterators);
+    }
+
+    @VisibleForTesting
+    List<BatchIterator<Row>> cacheResults(Key key,
+                                          Supplier<Object> currentReaderKey,
+                                          RoutedCollectPhase collectPhase,
+                                          List<BatchIterator<Row>> iterators) {
+        if (cache == null) {
+            return iterators;
+        }
+        Collection<? extends Projection> shardProjections = Projections.shardProjections(collectPhase.projections());
+        Projection lastProjection = shardProjections.stream().reduce((first, second) -> second).orElseThrow();
+        Streamer<?>[] streamers = Symbols.streamerArray(lastProjection.outputs());
+        PendingResult pendingResult = new PendingResult(key, currentReaderKey, streamers, iterators.size());
+        ArrayList<BatchIterator<Row>> result = new ArrayList<>(iterators.size());
+        for (int i = 0; i < iterators.size(); i++) {
+            result.add(new RecordingBatchIterator(iterators.get(i), pendingResult, i));
+        }
+        return result;
+    }
+
+    private void invalidateReader(IndexReader.CacheKey readerKey) {
+        readersWithCloseListener.remove(readerKey);
+        if (cache != null) {
+            cache.asMap().keySet().removeIf(key -> key.readerKey == readerKey);
+        }
+    }
+
+    @Nullable
+    private static Object currentReaderKey(IndexShard indexShard) {
+        try (Engine.Searcher searcher = indexShard.acquireSearcher("aggregation-cache")) {
+            IndexReader.CacheHelper cacheHelper = searcher.getDirectoryReader().getReaderCacheHelper();
+            return cacheHelper == null ? null : cacheHelper.getKey();
+        }
+    }
+
+    /**
+     * Only the results of aggregations are cached, they're small compared to the data they're computed from.
+     * Filter and eval projections may precede them.
+     * Non-deterministic functions (like random()) would lead to different results on each execution.
+     */
+    @VisibleForTesting
+    static boolean isCacheable(RoutedCollectPhase collectPhase) {
+        if (collectPhase.orderBy() != null) {
+            return false;
+        }
+        boolean isAggregation = false;
+        for (Projection projection : Projections.shardProjections(collectPhase.projections())) {
+            if (projection instanceof GroupProjection || projection instanceof AggregationProjection) {
+                isAggregation = true;
+            } else if (projection instanceof FilterProjection || projection instanceof EvalProjection) {
+                isAggregation = false;
+            } else {
+                return false;
+            }
+        }
+        if (!isAggregation) {
+            return false;
+        }
+        for (Symbol symbol : collectPhase.toCollect()) {
+            if (hasNonDeterministicFunction(symbol)) {
+                return false;
+            }
+        }
+        return !hasNonDeterministicFunction(collectPhase.where());
+    }
+
+    private static boolean hasNonDeterministicFunction(Symbol symbol) {
+        return SymbolVisitors.any(s -> s instanceof Function && !((Function) s).info().isDeterministic(), symbol);
+    }
+
+    public static final class Key {
+
+        private final ShardId shardId;
+        private final Object readerKey;
+        private final BytesReference phase;
+
+        private Key(ShardId shardId, Object readerKey, BytesReference phase) {
+            this.shardId = shardId;
+            this.readerKey = readerKey;
+            this.phase = phase;
+        }
+
+        private long size() {
+            return phase.length();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return readerKey == key.readerKey &&
+                   shardId.equals(key.shardId) &&
+                   phase.equals(key.phase);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(shardId, System.identityHashCode(readerKey), phase);
+        }
+    }
+
+    static final class CachedResult {
+
+        private final Streamer<?>[] streamers;
+        private final BytesReference[] parts;
+
+        private CachedResult(Streamer<?>[] streamers, BytesReference[] parts) {
+            this.streamers = streamers;
+            this.parts = parts;
+        }
+
+        private long size() {
+            long size = 0;
+            for (BytesReference part : parts) {
+                size += part.length();
+            }
+            return size;
+        }
+
+        List<Row> rows() {
+            ArrayList<Row> rows = new ArrayList<>();
+            try {
+                for (BytesReference part : parts) {
+                    StreamInput in = part.streamInput();
+                    while (in.available() > 0) {
+                        Object[] cells = new Object[streamers.length];
+                        for (int i = 0; i < streamers.length; i++) {
+                            cells[i] = streamers[i].readValueFrom(in);
+                        }
+                        rows.add(new RowN(cells));
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return rows;
+        }
+    }
+
+    /**
+     * Collects the results of all iterators of a shard.
+     */
+    private final class PendingResult {
+
+        private final Key key;
+        private final Supplier<Object> currentReaderKey;
+        private final Streamer<?>[] streamers;
+        private final BytesReference[] parts;
+        private int remaining;
+        private boolean abandoned = false;
+
+        PendingResult(Key key, Supplier<Object> currentReaderKey, Streamer<?>[] streamers, int numParts) {
+            this.key = key;
+            this.currentReaderKey = currentReaderKey;
+            this.streamers = streamers;
+            this.parts = new BytesReference[numParts];
+            this.remaining = numParts;
+        }
+
+        synchronized void complete(int idx, BytesReference part) {
+            if (abandoned) {
+                return;
+            }
+            parts[idx] = part;
+            remaining--;
+            // The reader only moves forward; If it is still the same as when the key was created,
+            // the results have been computed from that reader.
+            if (remaining == 0 && currentReaderKey.get() == key.readerKey) {
+                cache.put(key, new CachedResult(streamers, parts));
+            }
+        }
+
+        synchronized void abandon() {
+            abandoned = true;
+        }
+    }
+
+    private final class RecordingBatchIterator extends ForwardingBatchIterator<Row> {
+
+        private final BatchIterator<Row> delegate;
+        private final PendingResult pendingResult;
+        private final int idx;
+
+        @Nullable
+        private BytesStreamOutput out = new BytesStreamOutput();
+
+        RecordingBatchIterator(BatchIterator<Row> delegate, PendingResult pendingResult, int idx) {
+            this.delegate = delegate;
+            this.pendingResult = pendingResult;
+            this.idx = idx;
+        }
+
+        @Override
+        protected BatchIterator<Row> delegate() {
+            return delegate;
+        }
+
+        @Override
+        public boolean moveNext() {
+            if (delegate.moveNext()) {
+                if (out != null) {
+                    record(delegate.currentElement());
+                }
+                return true;
+            }
+            if (out != null && delegate.allLoaded()) {
+                pendingResult.complete(idx, out.bytes());
+                out = null;
+            }
+            return false;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void record(Row row) {
+            Streamer<?>[] streamers = pendingResult.streamers;
+            try {
+                for (int i = 0; i < streamers.length; i++) {
+                    ((Streamer<Object>) streamers[i]).writeValueTo(out, row.get(i));
+                }
+            } catch (IOException e) {
+                abandon();
+                return;
+            }
+            if (out.size() > maxSizeInBytes) {
+                abandon();
+            }
+        }
+
+        private void abandon() {
+            out = null;
+            pendingResult.abandon();
+        }
+
+        @Override
+        public void moveToStart() {
+            abandon();
+            super.moveToStart();
+        }
+
+        @Override
+        public void kill(@Nonnull Throwable throwable) {
+            abandon();
+            super.kill(throwable);
+        }
+
+        @Override
+        public void close() {
+            if (out != null) {
+                abandon();
+            }
+            super.close();
+        }
+    }
+}
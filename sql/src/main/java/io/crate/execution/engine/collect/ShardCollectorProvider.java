@@ -23,6 +23,7 @@
 package io.crate.execution.engine.collect;
 
 import io.crate.analyze.QueryClause;
+import io.crate.common.collections.Lists2;
 import io.crate.data.BatchIterator;
 import io.crate.data.InMemoryBatchIterator;
 import io.crate.data.Row;
@@ -50,6 +51,7 @@ import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import javax.annotation.Nullable;
+import java.util.List;
 
 public abstract class ShardCollectorProvider {
 
@@ -87,7 +89,8 @@ public abstract class ShardCollectorProvider {
             t -> null,
             indexShard.indexSettings().getIndexVersionCreated(),
             bigArrays,
-            indexShard.shardId()
+            indexShard.shardId(),
+            null
         );
     }
 
@@ -98,6 +101,20 @@ public abstract class ShardCollectorProvider {
     public BatchIterator<Row> getIterator(RoutedCollectPhase collectPhase,
                                           boolean requiresScroll,
                                           CollectTask collectTask) throws Exception {
+        List<BatchIterator<Row>> iterators = getIterators(collectPhase, requiresScroll, collectTask, 1);
+        assert iterators.size() == 1 : "There must be exactly one iterator if maxSlices is 1";
+        return iterators.get(0);
+    }
+
+    /**
+     * Like {@link #getIterator(RoutedCollectPhase, boolean, CollectTask)}, but may split the data of the shard
+     * into up to {@code maxSlices} BatchIterators which can be consumed concurrently.
+     * The shard projections are applied to each of them.
+     */
+    public List<BatchIterator<Row>> getIterators(RoutedCollectPhase collectPhase,
+                                                 boolean requiresScroll,
+                                                 CollectTask collectTask,
+                                                 int maxSlices) throws Exception {
         assert collectPhase.orderBy() == null
             : "getDocCollector shouldn't be called if there is an orderBy on the collectPhase";
         assert collectPhase.maxRowGranularity() == RowGranularity.DOC :
@@ -106,15 +123,15 @@ public abstract class ShardCollectorProvider {
         RoutedCollectPhase normalizedCollectNode = collectPhase.normalize(shardNormalizer, null);
         BatchIterator<Row> fusedIterator = getProjectionFusedIterator(normalizedCollectNode, collectTask);
         if (fusedIterator != null) {
-            return fusedIterator;
+            return List.of(fusedIterator);
         }
-        final BatchIterator<Row> iterator;
+        final List<BatchIterator<Row>> iterators;
         if (QueryClause.canMatch(normalizedCollectNode.where())) {
-            iterator = getUnorderedIterator(normalizedCollectNode, requiresScroll, collectTask);
+            iterators = getUnorderedIterators(normalizedCollectNode, requiresScroll, collectTask, maxSlices);
         } else {
-            iterator = InMemoryBatchIterator.empty(SentinelRow.SENTINEL);
+            iterators = List.of(InMemoryBatchIterator.empty(SentinelRow.SENTINEL));
         }
-        return Projectors.wrap(
+        return Lists2.map(iterators, iterator -> Projectors.wrap(
             Projections.shardProjections(collectPhase.projections()),
             collectPhase.jobId(),
             collectTask.txnCtx(),
@@ -122,7 +139,7 @@ public abstract class ShardCollectorProvider {
             collectTask.memoryManager(),
             projectorFactory,
             iterator
-        );
+        ));
     }
 
     /**
@@ -138,6 +155,17 @@ public abstract class ShardCollectorProvider {
                                                                boolean requiresScroll,
                                                                CollectTask collectTask);
 
+    /**
+     * Creates up to {@code maxSlices} unordered BatchIterators which together expose the data of the shard.
+     * Providers which can't split their data return a single iterator.
+     */
+    protected List<BatchIterator<Row>> getUnorderedIterators(RoutedCollectPhase collectPhase,
+                                                             boolean requiresScroll,
+                                                             CollectTask collectTask,
+                                                             int maxSlices) {
+        return List.of(getUnorderedIterator(collectPhase, requiresScroll, collectTask));
+    }
+
 
     public abstract OrderedDocCollector getOrderedCollector(RoutedCollectPhase collectPhase,
                                                             SharedShardContext sharedShardContext,
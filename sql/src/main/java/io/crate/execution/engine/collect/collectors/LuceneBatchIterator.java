@@ -42,7 +42,9 @@ import org.apache.lucene.util.Bits;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
@@ -53,6 +55,9 @@ import java.util.concurrent.CompletionStage;
  * It supports filtering the data using a lucene {@link Query} or via {@code minScore}.
  * <p>
  * Row data depends on {@code inputs} and {@code expressions}. The data is unordered.
+ * <p>
+ * By default all segments of the index are visited. To collect a shard concurrently, the segments can be split
+ * into {@link #slices(List, int)}, each consumed by its own LuceneBatchIterator with its own inputs and expressions.
  */
 public class LuceneBatchIterator implements BatchIterator<Row> {
 
@@ -80,6 +85,29 @@ public class LuceneBatchIterator implements BatchIterator<Row> {
                                CollectorContext collectorContext,
                                List<? extends Input<?>> inputs,
                                Collection<? extends LuceneCollectorExpression<?>> expressions) {
+        this(
+            indexSearcher,
+            query,
+            minScore,
+            doScores,
+            collectorContext,
+            inputs,
+            expressions,
+            indexSearcher.getTopReaderContext().leaves()
+        );
+    }
+
+    /**
+     * @param leaves the segments to visit, a subset of the leaves of the {@code indexSearcher}
+     */
+    public LuceneBatchIterator(IndexSearcher indexSearcher,
+                               Query query,
+                               @Nullable Float minScore,
+                               boolean doScores,
+                               CollectorContext collectorContext,
+                               List<? extends Input<?>> inputs,
+                               Collection<? extends LuceneCollectorExpression<?>> expressions,
+                               List<LeafReaderContext> leaves) {
         this.indexSearcher = indexSearcher;
         this.query = query;
         this.doScores = doScores || minScore != null;
@@ -87,10 +115,39 @@ public class LuceneBatchIterator implements BatchIterator<Row> {
         this.collectorContext = collectorContext;
         this.row = new InputRow(inputs);
         this.expressions = expressions.toArray(new LuceneCollectorExpression[0]);
-        leaves = indexSearcher.getTopReaderContext().leaves();
+        this.leaves = leaves;
         leavesIt = leaves.iterator();
     }
 
+    /**
+     * Splits {@code leaves} into up to {@code maxSlices} groups with a similar number of documents.
+     * Segments aren't split, so the number of slices is also limited by the number of segments.
+     */
+    public static List<List<LeafReaderContext>> slices(List<LeafReaderContext> leaves, int maxSlices) {
+        int numSlices = Math.max(1, Math.min(maxSlices, leaves.size()));
+        if (numSlices == 1) {
+            return List.of(leaves);
+        }
+        List<LeafReaderContext> largestFirst = new ArrayList<>(leaves);
+        largestFirst.sort(Comparator.comparingInt((LeafReaderContext leaf) -> leaf.reader().maxDoc()).reversed());
+        List<List<LeafReaderContext>> slices = new ArrayList<>(numSlices);
+        long[] numDocs = new long[numSlices];
+        for (int i = 0; i < numSlices; i++) {
+            slices.add(new ArrayList<>());
+        }
+        for (LeafReaderContext leaf : largestFirst) {
+            int smallest = 0;
+            for (int i = 1; i < numSlices; i++) {
+                if (numDocs[i] < numDocs[smallest]) {
+                    smallest = i;
+                }
+            }
+            slices.get(smallest).add(leaf);
+            numDocs[smallest] += leaf.reader().maxDoc();
+        }
+        return slices;
+    }
+
     @Override
     public Row currentElement() {
         return row;
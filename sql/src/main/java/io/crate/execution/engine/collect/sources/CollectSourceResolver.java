@@ -101,7 +101,8 @@ public class CollectSourceResolver {
             normalizer,
             systemCollectSource::getRowUpdater,
             systemCollectSource::tableDefinition,
-            bigArrays
+            bigArrays,
+            null
         );
         this.shardCollectSource = shardCollectSource;
         this.fileCollectSource = new ProjectorSetupCollectSource(fileCollectSource, projectorFactory);
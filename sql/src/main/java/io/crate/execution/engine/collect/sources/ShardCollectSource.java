@@ -38,10 +38,16 @@ import io.crate.exceptions.UnhandledServerException;
 import io.crate.execution.TransportActionProvider;
 import io.crate.execution.dsl.phases.CollectPhase;
 import io.crate.execution.dsl.phases.RoutedCollectPhase;
+import io.crate.execution.dsl.projection.AggregationProjection;
+import io.crate.execution.dsl.projection.EvalProjection;
+import io.crate.execution.dsl.projection.FilterProjection;
+import io.crate.execution.dsl.projection.GroupProjection;
+import io.crate.execution.dsl.projection.Projection;
 import io.crate.execution.dsl.projection.Projections;
 import io.crate.execution.engine.collect.CollectTask;
 import io.crate.execution.engine.collect.RemoteCollectorFactory;
 import io.crate.execution.engine.collect.RowsTransformer;
+import io.crate.execution.engine.collect.ShardAggregationCache;
 import io.crate.execution.engine.collect.ShardCollectorProvider;
 import io.crate.execution.engine.collect.collectors.OrderedDocCollector;
 import io.crate.execution.engine.collect.collectors.OrderedLuceneBatchIteratorFactory;
@@ -56,6 +62,7 @@ import io.crate.expression.InputFactory;
 import io.crate.expression.eval.EvaluatingNormalizer;
 import io.crate.expression.reference.StaticTableReferenceResolver;
 import io.crate.expression.reference.sys.shard.ShardRowContext;
+import io.crate.expression.symbol.AggregateMode;
 import io.crate.expression.symbol.Symbols;
 import io.crate.lucene.LuceneQueryBuilder;
 import io.crate.metadata.Functions;
@@ -69,7 +76,9 @@ import io.crate.metadata.shard.unassigned.UnassignedShard;
 import io.crate.metadata.sys.SysShardsTableInfo;
 import io.crate.planner.consumer.OrderByPositionVisitor;
 import io.crate.plugin.IndexEventListenerProxy;
+import io.crate.settings.CrateSetting;
 import io.crate.types.DataType;
+import io.crate.types.DataTypes;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
@@ -79,6 +88,8 @@ import org.elasticsearch.cluster.service.ClusterService;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.inject.Singleton;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.PageCacheRecycler;
@@ -137,12 +148,21 @@ import static io.crate.execution.support.ThreadPools.numIdleThreads;
  * </pre>
  *
  * In other cases multiple shards are simply processed sequentially by concatenating the BatchIterators
+ *
+ * <p>
+ *     If {@link #PARALLEL_SEGMENTS_ENABLED} is set, aggregations also split the segments of each shard into
+ *     slices with one LuceneBatchIterator per slice. Each slice produces its own partial aggregation states,
+ *     which allows to use all idle search threads even if only a few shards are involved.
+ * </p>
  */
 @Singleton
 public class ShardCollectSource implements CollectSource {
 
     private static final Logger LOGGER = LogManager.getLogger(ShardCollectSource.class);
 
+    public static final CrateSetting<Boolean> PARALLEL_SEGMENTS_ENABLED = CrateSetting.of(Setting.boolSetting(
+        "collect.parallel_segments.enabled", false, Setting.Property.NodeScope, Setting.Property.Dynamic), DataTypes.BOOLEAN);
+
     private final IndicesService indicesService;
     private final ClusterService clusterService;
     private final RemoteCollectorFactory remoteCollectorFactory;
@@ -155,9 +175,12 @@ public class ShardCollectSource implements CollectSource {
     private final StaticTableReferenceResolver<UnassignedShard> unassignedShardReferenceResolver;
     private final StaticTableReferenceResolver<ShardRowContext> shardReferenceResolver;
     private final IntSupplier availableThreads;
+    private volatile boolean parallelSegmentsEnabled;
+    private final ShardAggregationCache aggregationCache;
 
     @Inject
     public ShardCollectSource(Settings settings,
+                              ClusterSettings clusterSettings,
                               Schemas schemas,
                               IndicesService indicesService,
                               Functions functions,
@@ -181,7 +204,11 @@ public class ShardCollectSource implements CollectSource {
         ThreadPoolExecutor executor = (ThreadPoolExecutor) threadPool.executor(ThreadPool.Names.SEARCH);
         this.availableThreads = numIdleThreads(executor, EsExecutors.numberOfProcessors(settings));
         this.executor = executor;
+        this.parallelSegmentsEnabled = PARALLEL_SEGMENTS_ENABLED.setting().get(settings);
+        clusterSettings.addSettingsUpdateConsumer(
+            PARALLEL_SEGMENTS_ENABLED.setting(), newValue -> parallelSegmentsEnabled = newValue);
         this.inputFactory = new InputFactory(functions);
+        this.aggregationCache = new ShardAggregationCache(settings);
         BigArrays bigArrays = new BigArrays(pageCacheRecycler, circuitBreakerService, CrateCircuitBreakerService.QUERY, true);
         this.shardCollectorProviderFactory = new ShardCollectorProviderFactory(
             clusterService,
@@ -211,7 +238,8 @@ public class ShardCollectSource implements CollectSource {
             nodeNormalizer,
             systemCollectSource::getRowUpdater,
             systemCollectSource::tableDefinition,
-            bigArrays
+            bigArrays,
+            null
         );
 
         indexEventListenerProxy.addLast(new LifecycleListener());
@@ -402,6 +430,9 @@ public class ShardCollectSource implements CollectSource {
                                                   Map<String, IntIndexedContainer> indexShards) {
 
         MetaData metaData = clusterService.state().metaData();
+        int maxSlicesPerShard = parallelSegmentsEnabled && canCollectShardsInSlices(collectPhase)
+            ? availableThreads.getAsInt()
+            : 1;
         List<BatchIterator<Row>> iterators = new ArrayList<>();
         for (Map.Entry<String, IntIndexedContainer> entry : indexShards.entrySet()) {
             String indexName = entry.getKey();
@@ -413,8 +444,9 @@ public class ShardCollectSource implements CollectSource {
                 throw new IndexNotFoundException(indexName);
             }
             Index index = indexMD.getIndex();
+            IndexService indexService;
             try {
-                indicesService.indexServiceSafe(index);
+                indexService = indicesService.indexServiceSafe(index);
             } catch (IndexNotFoundException e) {
                 if (IndexParts.isPartitioned(indexName)) {
                     continue;
@@ -425,12 +457,29 @@ public class ShardCollectSource implements CollectSource {
                 ShardId shardId = new ShardId(index, shardCursor.value);
                 try {
                     ShardCollectorProvider shardCollectorProvider = getCollectorProviderSafe(shardId);
-                    BatchIterator<Row> iterator = shardCollectorProvider.getIterator(
-                        collectPhase,
-                        requiresScroll,
-                        collectTask
-                    );
-                    iterators.add(iterator);
+                    IndexShard indexShard = indexService.getShard(shardCursor.value);
+                    ShardAggregationCache.Key cacheKey = aggregationCache.key(
+                        indexShard, collectPhase, collectTask.minNodeVersion());
+                    if (cacheKey == null) {
+                        iterators.addAll(shardCollectorProvider.getIterators(
+                            collectPhase,
+                            requiresScroll,
+                            collectTask,
+                            maxSlicesPerShard
+                        ));
+                        continue;
+                    }
+                    BatchIterator<Row> cachedResult = aggregationCache.get(cacheKey);
+                    if (cachedResult == null) {
+                        iterators.addAll(aggregationCache.cacheResults(
+                            cacheKey,
+                            indexShard,
+                            collectPhase,
+                            shardCollectorProvider.getIterators(collectPhase, requiresScroll, collectTask, maxSlicesPerShard)
+                        ));
+                    } else {
+                        iterators.add(cachedResult);
+                    }
                 } catch (ShardNotFoundException | IllegalIndexShardStateException e) {
                     // If toCollect contains a docId it means that this is a QueryThenFetch operation.
                     // In such a case RemoteCollect cannot be used because on that node the FetchTask is missing
@@ -454,6 +503,27 @@ public class ShardCollectSource implements CollectSource {
         return iterators;
     }
 
+    /**
+     * Slices of a shard are consumed concurrently, which only pays off if shard projections do the heavy lifting.
+     * Only aggregations to partial states are sliced, as their results are merged later on anyway.
+     * Filter and eval projections may precede them, as they process rows independently.
+     */
+    private static boolean canCollectShardsInSlices(RoutedCollectPhase collectPhase) {
+        boolean aggregatesToPartialStates = false;
+        for (Projection projection : Projections.shardProjections(collectPhase.projections())) {
+            if (projection instanceof GroupProjection) {
+                aggregatesToPartialStates = ((GroupProjection) projection).mode() == AggregateMode.ITER_PARTIAL;
+            } else if (projection instanceof AggregationProjection) {
+                aggregatesToPartialStates = ((AggregationProjection) projection).mode() == AggregateMode.ITER_PARTIAL;
+            } else if (projection instanceof FilterProjection || projection instanceof EvalProjection) {
+                aggregatesToPartialStates = false;
+            } else {
+                return false;
+            }
+        }
+        return aggregatesToPartialStates;
+    }
+
     private Iterable<Row> getShardsIterator(TransactionContext txnCtx, RoutedCollectPhase collectPhase, String localNodeId) {
         Map<String, Map<String, IntIndexedContainer>> locations = collectPhase.routing().locations();
         List<UnassignedShard> unassignedShards = new ArrayList<>();
@@ -37,7 +37,7 @@ public class BroadcastingBucketBuilder implements MultiBucketBuilder {
 
     public BroadcastingBucketBuilder(Streamer<?>[] streamers, int numBuckets, RamAccounting ramAccounting) {
         this.numBuckets = numBuckets;
-        this.bucketBuilder = new StreamBucket.Builder(streamers, ramAccounting);
+        this.bucketBuilder = new StreamBucket.Builder(streamers, ramAccounting, true);
     }
 
     @Override
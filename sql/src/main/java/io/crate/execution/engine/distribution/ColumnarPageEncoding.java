@@ -0,0 +1,287 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.distribution;
+
+import com.carrotsearch.hppc.ObjectIntHashMap;
+import io.crate.Streamer;
+import io.crate.types.LongType;
+import io.crate.types.StringType;
+import io.crate.types.TimestampType;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+
+/**
+ * Column-major encoding of the rows of a {@link StreamBucket}.
+ *
+ * <p>
+ * The values of each column are written into a separate section of the page, one column after another.
+ * Depending on the type of the column, the values are encoded as follows:
+ * </p>
+ *
+ * <ul>
+ *     <li>strings: dictionary encoded. Each distinct value is written once into a dictionary and
+ *     referenced by its id. Once the dictionary is full, the values are written inline.</li>
+ *     <li>longs and timestamps: the zig-zag encoded delta to the previous non-null value of the column,
+ *     which is small for sorted or clustered values.</li>
+ *     <li>all other types: using the {@link Streamer} of the column.</li>
+ * </ul>
+ */
+final class ColumnarPageEncoding {
+
+    /**
+     * Ids which are written for each value of a string column:
+     * <ul>
+     *     <li>{@link #NULL}: the value is null</li>
+     *     <li>{@link #INLINE}: the value isn't part of the dictionary and follows the id</li>
+     *     <li>{@link #FIRST_DICT_ID} + n: the n-th entry of the dictionary</li>
+     * </ul>
+     */
+    private static final int NULL = 0;
+    private static final int INLINE = 1;
+    private static final int FIRST_DICT_ID = 2;
+
+    /**
+     * Limits the memory used for the lookup of the ids if most values are distinct
+     */
+    private static final int MAX_DICT_SIZE = 4096;
+
+    private ColumnarPageEncoding() {
+    }
+
+    interface ColumnWriter {
+
+        void write(Object value) throws IOException;
+
+        /**
+         * @return the number of bytes written so far
+         */
+        long size();
+
+        void writeTo(StreamOutput out) throws IOException;
+
+        void reset();
+    }
+
+    interface ColumnReader {
+
+        Object read() throws IOException;
+    }
+
+    static ColumnWriter writer(Streamer<?> streamer) {
+        if (streamer instanceof StringType) {
+            return new StringDictionaryWriter();
+        }
+        if (streamer instanceof LongType || streamer instanceof TimestampType) {
+            return new LongDeltaWriter();
+        }
+        return new StreamerWriter(streamer);
+    }
+
+    static ColumnReader reader(Streamer<?> streamer, StreamInput in) throws IOException {
+        if (streamer instanceof StringType) {
+            return new StringDictionaryReader(in);
+        }
+        if (streamer instanceof LongType || streamer instanceof TimestampType) {
+            return new LongDeltaReader(in);
+        }
+        return new StreamerReader(streamer, in);
+    }
+
+    private static class StreamerWriter implements ColumnWriter {
+
+        private final Streamer streamer;
+        private BytesStreamOutput values = new BytesStreamOutput();
+
+        StreamerWriter(Streamer<?> streamer) {
+            this.streamer = streamer;
+        }
+
+        @Override
+        public void write(Object value) throws IOException {
+            //noinspection unchecked
+            streamer.writeValueTo(values, value);
+        }
+
+        @Override
+        public long size() {
+            return values.size();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeBytesReference(values.bytes());
+        }
+
+        @Override
+        public void reset() {
+            values = new BytesStreamOutput(values.size());
+        }
+    }
+
+    private static class StreamerReader implements ColumnReader {
+
+        private final Streamer<?> streamer;
+        private final StreamInput values;
+
+        StreamerReader(Streamer<?> streamer, StreamInput in) throws IOException {
+            this.streamer = streamer;
+            this.values = in.readBytesReference().streamInput();
+        }
+
+        @Override
+        public Object read() throws IOException {
+            return streamer.readValueFrom(values);
+        }
+    }
+
+    private static class StringDictionaryWriter implements ColumnWriter {
+
+        private ObjectIntHashMap<String> ids = new ObjectIntHashMap<>();
+        private BytesStreamOutput dictionary = new BytesStreamOutput();
+        private BytesStreamOutput values = new BytesStreamOutput();
+
+        @Override
+        public void write(Object value) throws IOException {
+            if (value == null) {
+                values.writeVInt(NULL);
+                return;
+            }
+            String str = (String) value;
+            int id = ids.getOrDefault(str, -1);
+            if (id == -1) {
+                if (ids.size() == MAX_DICT_SIZE) {
+                    values.writeVInt(INLINE);
+                    values.writeString(str);
+                    return;
+                }
+                id = FIRST_DICT_ID + ids.size();
+                ids.put(str, id);
+                dictionary.writeString(str);
+            }
+            values.writeVInt(id);
+        }
+
+        @Override
+        public long size() {
+            return dictionary.size() + values.size();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeVInt(ids.size());
+            out.writeBytesReference(dictionary.bytes());
+            out.writeBytesReference(values.bytes());
+        }
+
+        @Override
+        public void reset() {
+            ids = new ObjectIntHashMap<>();
+            dictionary = new BytesStreamOutput();
+            values = new BytesStreamOutput(values.size());
+        }
+    }
+
+    private static class StringDictionaryReader implements ColumnReader {
+
+        private final String[] dictionary;
+        private final StreamInput values;
+
+        StringDictionaryReader(StreamInput in) throws IOException {
+            dictionary = new String[in.readVInt()];
+            StreamInput dictionaryIn = in.readBytesReference().streamInput();
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = dictionaryIn.readString();
+            }
+            values = in.readBytesReference().streamInput();
+        }
+
+        @Override
+        public Object read() throws IOException {
+            int id = values.readVInt();
+            switch (id) {
+                case NULL:
+                    return null;
+
+                case INLINE:
+                    return values.readString();
+
+                default:
+                    return dictionary[id - FIRST_DICT_ID];
+            }
+        }
+    }
+
+    private static class LongDeltaWriter implements ColumnWriter {
+
+        private BytesStreamOutput values = new BytesStreamOutput();
+        private long previous = 0L;
+
+        @Override
+        public void write(Object value) throws IOException {
+            values.writeBoolean(value == null);
+            if (value != null) {
+                long longValue = (Long) value;
+                values.writeZLong(longValue - previous);
+                previous = longValue;
+            }
+        }
+
+        @Override
+        public long size() {
+            return values.size();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            out.writeBytesReference(values.bytes());
+        }
+
+        @Override
+        public void reset() {
+            values = new BytesStreamOutput(values.size());
+            previous = 0L;
+        }
+    }
+
+    private static class LongDeltaReader implements ColumnReader {
+
+        private final StreamInput values;
+        private long previous = 0L;
+
+        LongDeltaReader(StreamInput in) throws IOException {
+            values = in.readBytesReference().streamInput();
+        }
+
+        @Override
+        public Object read() throws IOException {
+            if (values.readBoolean()) {
+                return null;
+            }
+            previous += values.readZLong();
+            return previous;
+        }
+    }
+}
@@ -33,6 +33,8 @@ import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 
 import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -47,11 +49,16 @@ import java.util.concurrent.atomic.AtomicInteger;
  * The rows from the source {@link BatchIterator} are "bucketed" using a {@link MultiBucketBuilder}. So a downstream
  * can either receive a part of the data or all data.
  *
- * Every time requests to the downstreams are made consumption of the source BatchIterator is stopped until a response
- * from all downstreams is received.
+ * Each downstream has a credit of {@link #PAGE_CREDITS_PER_DOWNSTREAM} pages which have been built for it,
+ * but not yet been acknowledged. A downstream receives its pages one at a time, the next page is sent once the
+ * previous one is acknowledged. Consumption of the source BatchIterator only stops if a downstream has no credits
+ * left, so a single slow downstream doesn't prevent the others from receiving data as long as it has credits.
  */
 public class DistributingConsumer implements RowConsumer {
 
+    @VisibleForTesting
+    static final int PAGE_CREDITS_PER_DOWNSTREAM = 2;
+
     private final Logger logger;
     private final Executor responseExecutor;
     private final UUID jobId;
@@ -68,7 +75,25 @@ public class DistributingConsumer implements RowConsumer {
     @VisibleForTesting
     final MultiBucketBuilder multiBucketBuilder;
 
-    private volatile Throwable failure;
+    private final Object lock = new Object();
+
+    @GuardedBy("lock")
+    private Throwable failure;
+
+    /**
+     * Set if the consumption is paused until a downstream acknowledged a page
+     */
+    @GuardedBy("lock")
+    private boolean waitingForCredits = false;
+
+    /**
+     * Set once no more pages are built, either because the source is exhausted or because of a failure
+     */
+    @GuardedBy("lock")
+    private boolean stopped = false;
+
+    @GuardedBy("lock")
+    private boolean finished = false;
 
     public DistributingConsumer(Logger logger,
                                 Executor responseExecutor,
@@ -118,13 +143,14 @@ public class DistributingConsumer implements RowConsumer {
             while (it.moveNext()) {
                 multiBucketBuilder.add(it.currentElement());
                 if (multiBucketBuilder.size() >= pageSize || multiBucketBuilder.ramBytesUsed() >= Paging.MAX_PAGE_BYTES) {
-                    forwardResults(it, false);
-                    return;
+                    if (forwardResults(it, false) == false) {
+                        return;
+                    }
                 }
             }
             allLoaded = it.allLoaded();
         } catch (Throwable t) {
-            forwardFailure(it, t);
+            stopWithFailure(it, t);
             return;
         }
         if (allLoaded) {
@@ -134,12 +160,23 @@ public class DistributingConsumer implements RowConsumer {
                 if (t == null) {
                     consumeIt(it);
                 } else {
-                    forwardFailure(it, t);
+                    stopWithFailure(it, t);
                 }
             });
         }
     }
 
+    private void stopWithFailure(BatchIterator<Row> it, Throwable t) {
+        synchronized (lock) {
+            if (failure == null) {
+                failure = t;
+            }
+            stopped = true;
+            clearPendingRequests();
+        }
+        maybeFinish(it);
+    }
+
     private void forwardFailure(@Nullable final BatchIterator it, final Throwable f) {
         Throwable failure = SQLExceptions.unwrap(f); // make sure it's streamable
         AtomicInteger numActiveRequests = new AtomicInteger(downstreams.size());
@@ -190,86 +227,188 @@ public class DistributingConsumer implements RowConsumer {
         }
     }
 
-    private void forwardResults(BatchIterator<Row> it, boolean isLast) {
+    /**
+     * Builds the buckets of the current page and queues them for sending.
+     *
+     * @return true if the consumption of the source can continue right away
+     */
+    private boolean forwardResults(BatchIterator<Row> it, boolean isLast) {
         multiBucketBuilder.build(buckets);
 
-        AtomicInteger numActiveRequests = new AtomicInteger(downstreams.size());
+        boolean continueConsumption;
+        synchronized (lock) {
+            if (failure == null) {
+                for (int i = 0; i < downstreams.size(); i++) {
+                    Downstream downstream = downstreams.get(i);
+                    if (downstream.needsMoreData) {
+                        downstream.pendingRequests.add(
+                            new DistributedResultRequest(jobId, targetPhaseId, inputId, bucketIdx, buckets[i], isLast));
+                    }
+                }
+            }
+            if (isLast || failure != null || noDownstreamNeedsMoreData()) {
+                stopped = true;
+                continueConsumption = false;
+            } else if (anyDownstreamOutOfCredits()) {
+                waitingForCredits = true;
+                continueConsumption = false;
+            } else {
+                continueConsumption = true;
+            }
+        }
         for (int i = 0; i < downstreams.size(); i++) {
-            Downstream downstream = downstreams.get(i);
-            if (downstream.needsMoreData == false) {
-                countdownAndMaybeContinue(it, numActiveRequests, true);
-                continue;
+            sendNextRequest(downstreams.get(i), it);
+        }
+        maybeFinish(it);
+        return continueConsumption;
+    }
+
+    private void sendNextRequest(Downstream downstream, BatchIterator<Row> it) {
+        DistributedResultRequest request;
+        synchronized (lock) {
+            if (downstream.requestInFlight || downstream.pendingRequests.isEmpty()) {
+                return;
             }
-            if (traceEnabled) {
-                logger.trace("forwardResults targetNode={} jobId={} targetPhase={}/{} bucket={} isLast={}",
-                    downstream.nodeId, jobId, targetPhaseId, inputId, bucketIdx, isLast);
+            request = downstream.pendingRequests.poll();
+            downstream.requestInFlight = true;
+        }
+        if (traceEnabled) {
+            logger.trace("forwardResults targetNode={} jobId={} targetPhase={}/{} bucket={} isLast={}",
+                downstream.nodeId, jobId, targetPhaseId, inputId, bucketIdx, request.isLast());
+        }
+        distributedResultAction.pushResult(
+            downstream.nodeId,
+            request,
+            new ActionListener<>() {
+                @Override
+                public void onResponse(DistributedResultResponse response) {
+                    onRequestCompleted(it, downstream, response.needMore(), null);
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    // continue because it's necessary to send something to downstreams still waiting for data
+                    onRequestCompleted(it, downstream, false, e);
+                }
             }
-            distributedResultAction.pushResult(
-                downstream.nodeId,
-                new DistributedResultRequest(jobId, targetPhaseId, inputId, bucketIdx, buckets[i], isLast),
-                new ActionListener<>() {
-                    @Override
-                    public void onResponse(DistributedResultResponse response) {
-                        downstream.needsMoreData = response.needMore();
-                        countdownAndMaybeContinue(it, numActiveRequests, false);
-                    }
+        );
+    }
 
-                    @Override
-                    public void onFailure(Exception e) {
-                        failure = e;
-                        downstream.needsMoreData = false;
-                        // continue because it's necessary to send something to downstreams still waiting for data
-                        countdownAndMaybeContinue(it, numActiveRequests, false);
-                    }
+    private void onRequestCompleted(BatchIterator<Row> it,
+                                    Downstream downstream,
+                                    boolean needsMoreData,
+                                    @Nullable Exception exception) {
+        boolean resumeConsumption = false;
+        synchronized (lock) {
+            downstream.requestInFlight = false;
+            downstream.needsMoreData = needsMoreData;
+            if (needsMoreData == false) {
+                downstream.pendingRequests.clear();
+            }
+            if (exception != null) {
+                failure = exception;
+                clearPendingRequests();
+            }
+            if (waitingForCredits) {
+                if (failure != null || noDownstreamNeedsMoreData()) {
+                    waitingForCredits = false;
+                    stopped = true;
+                } else if (anyDownstreamOutOfCredits() == false) {
+                    waitingForCredits = false;
+                    resumeConsumption = true;
                 }
-            );
+            }
+        }
+        sendNextRequest(downstream, it);
+        if (resumeConsumption) {
+            // try to dispatch to different executor, if it fails, forward the error in the same thread
+            try {
+                responseExecutor.execute(() -> consumeIt(it));
+            } catch (EsRejectedExecutionException e) {
+                stopWithFailure(it, e);
+            }
+        } else {
+            maybeFinish(it);
         }
     }
 
-    private void countdownAndMaybeContinue(BatchIterator<Row> it, AtomicInteger numActiveRequests, boolean sameExecutor) {
-        if (numActiveRequests.decrementAndGet() == 0) {
-            if (downstreams.stream().anyMatch(Downstream::needsMoreData)) {
-                if (failure == null) {
-                    if (sameExecutor) {
-                        consumeIt(it);
-                    } else {
-                        // try to dispatch to different executor, if it fails, forward the error in the same thread
-                        try {
-                            responseExecutor.execute(() -> consumeIt(it));
-                        } catch (EsRejectedExecutionException e) {
-                            failure = e;
-                            forwardFailure(it, failure);
-                        }
-                    }
-                } else {
-                    forwardFailure(it, failure);
-                }
-            } else {
-                // If we've a failure we either communicated it to the other downstreams already,
-                // or were able to send results to all downstreams. In either case, *this* operation succeeded and the
-                // downstreams need to deal with failures.
+    /**
+     * Forwards a failure or completes the consumer once it is stopped and all requests have been completed.
+     */
+    private void maybeFinish(BatchIterator<Row> it) {
+        Throwable failure;
+        synchronized (lock) {
+            if (stopped == false || finished || anyRequestPending()) {
+                return;
+            }
+            finished = true;
+            failure = this.failure;
+        }
+        if (failure == null) {
+            // If we've a failure we either communicated it to the other downstreams already,
+            // or were able to send results to all downstreams. In either case, *this* operation succeeded and the
+            // downstreams need to deal with failures.
 
-                // The NodeDisconnectJobMonitorService takes care of node disconnects, so we don't have to manage
-                // that scenario.
-                it.close();
-                completionFuture.complete(null);
+            // The NodeDisconnectJobMonitorService takes care of node disconnects, so we don't have to manage
+            // that scenario.
+            it.close();
+            completionFuture.complete(null);
+        } else {
+            forwardFailure(it, failure);
+        }
+    }
+
+    @GuardedBy("lock")
+    private boolean noDownstreamNeedsMoreData() {
+        for (int i = 0; i < downstreams.size(); i++) {
+            if (downstreams.get(i).needsMoreData) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @GuardedBy("lock")
+    private boolean anyDownstreamOutOfCredits() {
+        for (int i = 0; i < downstreams.size(); i++) {
+            Downstream downstream = downstreams.get(i);
+            int unacknowledgedPages = downstream.pendingRequests.size() + (downstream.requestInFlight ? 1 : 0);
+            if (downstream.needsMoreData && unacknowledgedPages >= PAGE_CREDITS_PER_DOWNSTREAM) {
+                return true;
             }
         }
+        return false;
+    }
+
+    @GuardedBy("lock")
+    private boolean anyRequestPending() {
+        for (int i = 0; i < downstreams.size(); i++) {
+            Downstream downstream = downstreams.get(i);
+            if (downstream.requestInFlight || downstream.pendingRequests.isEmpty() == false) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @GuardedBy("lock")
+    private void clearPendingRequests() {
+        for (int i = 0; i < downstreams.size(); i++) {
+            downstreams.get(i).pendingRequests.clear();
+        }
     }
 
     private static class Downstream {
 
         private final String nodeId;
+        private final ArrayDeque<DistributedResultRequest> pendingRequests = new ArrayDeque<>();
+        private boolean requestInFlight = false;
         private boolean needsMoreData = true;
 
         Downstream(String nodeId) {
             this.nodeId = nodeId;
         }
 
-        boolean needsMoreData() {
-            return needsMoreData;
-        }
-
         @Override
         public String toString() {
             return "Downstream{" +
@@ -32,21 +32,27 @@ import java.util.List;
 
 /**
  * builds N buckets where N is passed in the CTOR.
- * The rows that are added via {@link #add(Row)} are assigned to the buckets by modulo calculation.
+ * The rows that are added via {@link #add(Row)} are assigned to the buckets by modulo calculation
+ * of the combined hash of the distributedBy columns.
  */
 public class ModuloBucketBuilder implements MultiBucketBuilder {
 
     private final int numBuckets;
     private final List<StreamBucket.Builder> bucketBuilders;
-    private final int distributedByColumnIdx;
+    private final int[] distributedByColumns;
     private int size = 0;
 
     public ModuloBucketBuilder(Streamer<?>[] streamers, int numBuckets, int distributedByColumnIdx, RamAccounting ramAccounting) {
+        this(streamers, numBuckets, new int[] { distributedByColumnIdx }, ramAccounting);
+    }
+
+    public ModuloBucketBuilder(Streamer<?>[] streamers, int numBuckets, int[] distributedByColumns, RamAccounting ramAccounting) {
+        assert distributedByColumns.length > 0 : "Must have at least one distributedByColumn";
         this.numBuckets = numBuckets;
-        this.distributedByColumnIdx = distributedByColumnIdx;
+        this.distributedByColumns = distributedByColumns;
         this.bucketBuilders = new ArrayList<>(numBuckets);
         for (int i = 0; i < numBuckets; i++) {
-            bucketBuilders.add(new StreamBucket.Builder(streamers, ramAccounting));
+            bucketBuilders.add(new StreamBucket.Builder(streamers, ramAccounting, true));
         }
     }
 
@@ -74,10 +80,16 @@ public class ModuloBucketBuilder implements MultiBucketBuilder {
     }
 
     /**
-     * get bucket number by doing modulo hashcode of the defined row-element
+     * get bucket number by doing modulo hashcode of the defined row-elements.
+     *
+     * With a single distributedBy column the hash is the hashCode of the value, so that the bucket assignment
+     * is the same as on nodes which only support distributing by a single column.
      */
     private int getBucket(Row row) {
-        int hash = hashCode(row.get(distributedByColumnIdx));
+        int hash = hashCode(row.get(distributedByColumns[0]));
+        for (int i = 1; i < distributedByColumns.length; i++) {
+            hash = 31 * hash + hashCode(row.get(distributedByColumns[i]));
+        }
         if (hash == Integer.MIN_VALUE) {
             hash = 0; // Math.abs(Integer.MIN_VALUE) == Integer.MIN_VALUE
         }
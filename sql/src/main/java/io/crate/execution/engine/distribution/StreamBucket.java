@@ -27,7 +27,10 @@ import io.crate.breaker.RamAccounting;
 import io.crate.data.Bucket;
 import io.crate.data.Row;
 import io.crate.data.RowN;
+import io.crate.execution.engine.distribution.ColumnarPageEncoding.ColumnReader;
+import io.crate.execution.engine.distribution.ColumnarPageEncoding.ColumnWriter;
 import org.apache.lucene.util.Accountable;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -48,28 +51,52 @@ public class StreamBucket implements Bucket, Writeable {
     private Streamer<?>[] streamers;
     private int size = -1;
     private BytesReference bytes;
+    private boolean columnar = false;
 
     public static class Builder implements Accountable {
 
         private static final int INITIAL_PAGE_SIZE = 1024;
         private final RamAccounting ramAccounting;
         private final Streamer<?>[] streamers;
+        @Nullable
+        private final ColumnWriter[] columns;
 
         private int size = 0;
         private BytesStreamOutput out;
         private int prevOutSize = 0;
 
         public Builder(Streamer<?>[] streamers, RamAccounting ramAccounting) {
+            this(streamers, ramAccounting, false);
+        }
+
+        /**
+         * @param columnar if true, the rows are encoded column by column, see {@link ColumnarPageEncoding}.
+         *                 This usually results in smaller pages, but a node older than 4.1.0 will receive
+         *                 the rows re-encoded row by row.
+         */
+        public Builder(Streamer<?>[] streamers, RamAccounting ramAccounting, boolean columnar) {
             this.ramAccounting = requireNonNull(ramAccounting, "RamAccounting must not be null");
             assert validStreamers(streamers) : "streamers must not be null and they shouldn't be of undefinedType";
             this.streamers = streamers;
-            out = new BytesStreamOutput(INITIAL_PAGE_SIZE);
+            if (columnar) {
+                columns = new ColumnWriter[streamers.length];
+                for (int i = 0; i < streamers.length; i++) {
+                    columns[i] = ColumnarPageEncoding.writer(streamers[i]);
+                }
+            } else {
+                columns = null;
+                out = new BytesStreamOutput(INITIAL_PAGE_SIZE);
+            }
         }
 
         public void add(Row row) {
             assert streamers.length == row.numColumns() : "number of streamer must match row size";
 
             size++;
+            if (columns != null) {
+                addColumnar(row);
+                return;
+            }
             for (int i = 0; i < row.numColumns(); i++) {
                 try {
                     //noinspection unchecked
@@ -82,15 +109,49 @@ public class StreamBucket implements Bucket, Writeable {
             prevOutSize = out.size();
         }
 
+        private void addColumnar(Row row) {
+            int columnsSize = 0;
+            for (int i = 0; i < columns.length; i++) {
+                ColumnWriter column = columns[i];
+                try {
+                    column.write(row.get(i));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                columnsSize += column.size();
+            }
+            ramAccounting.addBytes(columnsSize - prevOutSize);
+            prevOutSize = columnsSize;
+        }
+
         public StreamBucket build() {
             StreamBucket sb = new StreamBucket(streamers);
             sb.size = size;
-            sb.bytes = out.bytes();
+            if (columns == null) {
+                sb.bytes = out.bytes();
+            } else {
+                BytesStreamOutput page = new BytesStreamOutput(prevOutSize);
+                try {
+                    for (ColumnWriter column : columns) {
+                        column.writeTo(page);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                sb.bytes = page.bytes();
+                sb.columnar = true;
+            }
             return sb;
         }
 
         public void reset() {
-            out = new BytesStreamOutput(size); // next bucket is probably going to have the same size
+            if (columns == null) {
+                out = new BytesStreamOutput(size); // next bucket is probably going to have the same size
+            } else {
+                for (ColumnWriter column : columns) {
+                    column.reset();
+                }
+            }
             size = 0;
         }
 
@@ -171,6 +232,43 @@ public class StreamBucket implements Bucket, Writeable {
         }
     }
 
+    private static class ColumnarRowIterator implements Iterator<Row> {
+
+        private final ColumnReader[] columns;
+        private final int size;
+        private final Object[] current;
+        private final RowN row;
+        private int pos = 0;
+
+        private ColumnarRowIterator(StreamInput streamInput, Streamer<?>[] streamers, int size) throws IOException {
+            this.size = size;
+            columns = new ColumnReader[streamers.length];
+            for (int c = 0; c < streamers.length; c++) {
+                columns[c] = ColumnarPageEncoding.reader(streamers[c], streamInput);
+            }
+            current = new Object[streamers.length];
+            row = new RowN(current);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return pos < size;
+        }
+
+        @Override
+        public Row next() {
+            for (int c = 0; c < columns.length; c++) {
+                try {
+                    current[c] = columns[c].read();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            pos++;
+            return row;
+        }
+    }
+
     @Override
     @Nonnull
     public Iterator<Row> iterator() {
@@ -179,6 +277,9 @@ public class StreamBucket implements Bucket, Writeable {
         }
         assert streamers != null : "streamers must not be null";
         try {
+            if (columnar) {
+                return new ColumnarRowIterator(bytes.streamInput(), streamers, size);
+            }
             return new RowIterator(bytes.streamInput(), streamers, size);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
@@ -201,6 +302,9 @@ public class StreamBucket implements Bucket, Writeable {
     public StreamBucket(StreamInput in) throws IOException {
         size = in.readVInt();
         if (size > 0) {
+            if (in.getVersion().onOrAfter(Version.V_4_1_0)) {
+                columnar = in.readBoolean();
+            }
             bytes = in.readBytesReference();
         }
     }
@@ -217,7 +321,29 @@ public class StreamBucket implements Bucket, Writeable {
         assert size > -1 : "size must be > -1";
         out.writeVInt(size);
         if (size > 0) {
-            out.writeBytesReference(bytes);
+            if (out.getVersion().onOrAfter(Version.V_4_1_0)) {
+                out.writeBoolean(columnar);
+                out.writeBytesReference(bytes);
+            } else if (columnar) {
+                out.writeBytesReference(rowMajorBytes());
+            } else {
+                out.writeBytesReference(bytes);
+            }
+        }
+    }
+
+    /**
+     * Re-encodes the rows of a columnar bucket row by row, the format nodes < 4.1.0 understand.
+     */
+    private BytesReference rowMajorBytes() throws IOException {
+        assert streamers != null : "streamers must not be null to re-encode the rows";
+        BytesStreamOutput rowMajor = new BytesStreamOutput(bytes.length());
+        for (Row row : this) {
+            for (int i = 0; i < streamers.length; i++) {
+                //noinspection unchecked
+                ((Streamer) streamers[i]).writeValueTo(rowMajor, row.get(i));
+            }
         }
+        return rowMajor.bytes();
     }
 }
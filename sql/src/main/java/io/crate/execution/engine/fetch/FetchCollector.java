@@ -73,7 +73,7 @@ class FetchCollector {
     }
 
     public StreamBucket collect(IntContainer docIds) throws IOException {
-        StreamBucket.Builder builder = new StreamBucket.Builder(streamers, ramAccountingContext);
+        StreamBucket.Builder builder = new StreamBucket.Builder(streamers, ramAccountingContext, true);
         for (IntCursor cursor : docIds) {
             int docId = cursor.value;
             int readerIndex = ReaderUtil.subIndex(docId, readerContexts);
@@ -0,0 +1,528 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.join;
+
+import com.carrotsearch.hppc.BitMixer;
+import com.carrotsearch.hppc.IntObjectHashMap;
+import com.carrotsearch.hppc.cursors.IntObjectCursor;
+import io.crate.breaker.ChildRamAccounting;
+import io.crate.breaker.RamAccounting;
+import io.crate.breaker.RowAccounting;
+import io.crate.data.BatchIterator;
+import io.crate.data.Row;
+import io.crate.data.UnsafeArrayRow;
+import io.crate.data.join.CombinedRow;
+import io.crate.data.join.JoinBatchIterator;
+import io.crate.exceptions.Exceptions;
+import io.crate.execution.engine.spill.SpillFile;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * A hybrid/grace hash join.
+ *
+ * <pre>
+ *     Build Phase:
+ *     for (leftRow in left) {
+ *         if (buffer is full) {
+ *             switch to partitioning
+ *         }
+ *         put leftRow into the Buffer (HashMap)
+ *     }
+ *
+ *     If the whole left side fits into the buffer, the right side is probed against the buffer,
+ *     exactly like {@link HashInnerJoinBatchIterator} does it.
+ *
+ *     Partitioning:
+ *     - rows of the buffer and all remaining rows of the left side are written to one of
+ *       {@link #NUM_PARTITIONS} spill files, based on their hash.
+ *     - the hashes of all left rows are added to a {@link JoinKeyBloomFilter}.
+ *     - all rows of the right side which might have a match according to the bloom filter
+ *       are written to the spill file of the matching partition, all others are discarded.
+ *       (The bloom filter only exists while partitioning, it saves writing right rows without a join
+ *       partner to disk. It is accounted for by the {@code ramAccounting} of the join)
+ *
+ *     Join partitions:
+ *     for (partition in partitions) {
+ *         load the left rows of the partition into the buffer
+ *         probe the right rows of the partition against the buffer
+ *     }
+ * </pre>
+ * <p>
+ * Each input is consumed exactly once, independent of the size of the left side.
+ * If a left partition doesn't fit into the buffer it is split again using a different hash mixing,
+ * up to {@link #MAX_PARTITION_DEPTH} times. (A partition which consists of a single key cannot be split,
+ * in that case the circuit breaker decides whether it can be processed)
+ * <p>
+ * Unlike {@link HashInnerJoinBatchIterator} this iterator never switches back to the left side once it
+ * has started to consume the right side, which makes it safe for distributed execution with any block size.
+ */
+public class GraceHashInnerJoinBatchIterator extends JoinBatchIterator<Row, Row, Row> {
+
+    static final int NUM_PARTITIONS = 32;
+    static final int MAX_PARTITION_DEPTH = 3;
+
+    private enum Phase {
+        BUILD,
+        PROBE,
+        PARTITION_LEFT,
+        PARTITION_RIGHT,
+        JOIN_PARTITIONS
+    }
+
+    private final Predicate<Row> joinCondition;
+    private final UnsafeArrayRow leftRow = new UnsafeArrayRow();
+    private final Function<Row, Integer> hashBuilderForLeft;
+    private final Function<Row, Integer> hashBuilderForRight;
+    private final IntSupplier calculateBlockSize;
+    private final RowAccounting<Row> rowAccounting;
+    private final RamAccounting bloomFilterRamAccounting;
+    private final Supplier<SpillFile> leftSpillFiles;
+    private final Supplier<SpillFile> rightSpillFiles;
+    private final IntObjectHashMap<List<Object[]>> buffer;
+    private final ArrayDeque<Partition> pendingPartitions = new ArrayDeque<>();
+
+    private Phase phase = Phase.BUILD;
+    private int blockSize;
+    private int numberOfRowsInBuffer = 0;
+    private Iterator<Object[]> leftMatchingRowsIterator;
+
+    @Nullable
+    private Partition[] partitions;
+
+    @Nullable
+    private JoinKeyBloomFilter leftKeys;
+
+    @Nullable
+    private Partition currentPartition;
+
+    @Nullable
+    private Iterator<Row> currentPartitionRightRows;
+
+    private boolean closed = false;
+    private volatile Throwable killed = null;
+
+    /**
+     * @param rowAccounting used to account the rows of a partition which are loaded into the buffer.
+     *                      This should be the same instance as the one used by the {@code left}
+     *                      {@link RamAccountingBatchIterator}. Releasing it must only release the accounted rows,
+     *                      not the bytes accounted by {@code ramAccounting}.
+     * @param ramAccounting used to account the bloom filter over the left keys which is built while partitioning.
+     */
+    public GraceHashInnerJoinBatchIterator(RamAccountingBatchIterator<Row> left,
+                                           BatchIterator<Row> right,
+                                           CombinedRow combiner,
+                                           Predicate<Row> joinCondition,
+                                           Function<Row, Integer> hashBuilderForLeft,
+                                           Function<Row, Integer> hashBuilderForRight,
+                                           IntSupplier calculateBlockSize,
+                                           RowAccounting<Row> rowAccounting,
+                                           RamAccounting ramAccounting,
+                                           Supplier<SpillFile> leftSpillFiles,
+                                           Supplier<SpillFile> rightSpillFiles) {
+        super(left, right, combiner);
+        this.joinCondition = joinCondition;
+        this.hashBuilderForLeft = hashBuilderForLeft;
+        this.hashBuilderForRight = hashBuilderForRight;
+        this.calculateBlockSize = calculateBlockSize;
+        this.rowAccounting = rowAccounting;
+        this.bloomFilterRamAccounting = new ChildRamAccounting(ramAccounting);
+        this.leftSpillFiles = leftSpillFiles;
+        this.rightSpillFiles = rightSpillFiles;
+        // resized upon block size calculation
+        this.buffer = new IntObjectHashMap<>(0);
+        recreateBuffer();
+    }
+
+    @Override
+    public Row currentElement() {
+        return combiner.currentElement();
+    }
+
+    @Override
+    public void moveToStart() {
+        raiseIfClosedOrKilled();
+        left.moveToStart();
+        right.moveToStart();
+        activeIt = left;
+        phase = Phase.BUILD;
+        closePartitions();
+        recreateBuffer();
+    }
+
+    @Override
+    public boolean moveNext() {
+        raiseIfClosedOrKilled();
+        while (true) {
+            switch (phase) {
+                case BUILD:
+                    if (buildBuffer() == false) {
+                        return false;
+                    }
+                    break;
+
+                case PROBE:
+                    return probeBuffer();
+
+                case PARTITION_LEFT:
+                    if (partitionLeft() == false) {
+                        return false;
+                    }
+                    break;
+
+                case PARTITION_RIGHT:
+                    if (partitionRight() == false) {
+                        return false;
+                    }
+                    break;
+
+                case JOIN_PARTITIONS:
+                    return joinPartitions();
+
+                default:
+                    throw new AssertionError("Unexpected phase: " + phase);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            super.close();
+        } finally {
+            closePartitions();
+            buffer.release();
+        }
+    }
+
+    @Override
+    public void kill(@Nonnull Throwable throwable) {
+        killed = throwable;
+        super.kill(throwable);
+    }
+
+    /**
+     * @return true if the phase changed, false if the left side needs to load the next batch.
+     */
+    private boolean buildBuffer() {
+        while (left.moveNext()) {
+            Row row = left.currentElement();
+            int hash = hashBuilderForLeft.apply(row);
+            if (numberOfRowsInBuffer == blockSize) {
+                spillBuffer();
+                addToPartition(row, hash, true);
+                leftKeys.add(hash);
+                releaseAccountedRows();
+                phase = Phase.PARTITION_LEFT;
+                return true;
+            }
+            addToBuffer(row.materialize(), hash);
+        }
+        if (left.allLoaded()) {
+            activeIt = right;
+            phase = Phase.PROBE;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean probeBuffer() {
+        // In case of multiple matches on the left side (duplicate values or hash collisions)
+        if (leftMatchingRowsIterator != null && findMatchingRows()) {
+            return true;
+        }
+        leftMatchingRowsIterator = null;
+        while (right.moveNext()) {
+            if (tryMatch(right.currentElement())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean partitionLeft() {
+        while (left.moveNext()) {
+            Row row = left.currentElement();
+            int hash = hashBuilderForLeft.apply(row);
+            addToPartition(row, hash, true);
+            leftKeys.add(hash);
+            releaseAccountedRows();
+        }
+        if (left.allLoaded()) {
+            activeIt = right;
+            phase = Phase.PARTITION_RIGHT;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean partitionRight() {
+        while (right.moveNext()) {
+            Row row = right.currentElement();
+            int hash = hashBuilderForRight.apply(row);
+            if (leftKeys.mightContain(hash)) {
+                addToPartition(row, hash, false);
+            }
+        }
+        if (right.allLoaded()) {
+            assert partitions != null : "partitions must exist while partitioning";
+            for (Partition partition : partitions) {
+                pendingPartitions.add(partition);
+            }
+            partitions = null;
+            releaseLeftKeys();
+            phase = Phase.JOIN_PARTITIONS;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean joinPartitions() {
+        while (true) {
+            if (leftMatchingRowsIterator != null && findMatchingRows()) {
+                return true;
+            }
+            leftMatchingRowsIterator = null;
+            if (currentPartitionRightRows != null) {
+                while (currentPartitionRightRows.hasNext()) {
+                    if (tryMatch(currentPartitionRightRows.next())) {
+                        return true;
+                    }
+                }
+            }
+            if (loadNextPartition() == false) {
+                return false;
+            }
+        }
+    }
+
+    private boolean tryMatch(Row rightRow) {
+        List<Object[]> leftMatchingRows = buffer.get(hashBuilderForRight.apply(rightRow));
+        if (leftMatchingRows != null) {
+            leftMatchingRowsIterator = leftMatchingRows.iterator();
+            combiner.setRight(rightRow);
+            return findMatchingRows();
+        }
+        return false;
+    }
+
+    private boolean findMatchingRows() {
+        while (leftMatchingRowsIterator.hasNext()) {
+            leftRow.cells(leftMatchingRowsIterator.next());
+            combiner.setLeft(leftRow);
+            if (joinCondition.test(combiner.currentElement())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Loads the left rows of the next non-empty partition into the buffer.
+     * Partitions which are too large to fit into the buffer are split into sub partitions first.
+     *
+     * @return false if there are no more partitions.
+     */
+    private boolean loadNextPartition() {
+        closeCurrentPartition();
+        Partition partition;
+        while ((partition = pendingPartitions.poll()) != null) {
+            if (partition.left.numRows() == 0 || partition.right.numRows() == 0) {
+                partition.close();
+                continue;
+            }
+            if (partition.left.numRows() > blockSize && partition.depth < MAX_PARTITION_DEPTH) {
+                repartition(partition);
+                continue;
+            }
+            currentPartition = partition;
+            for (Row row : partition.left) {
+                rowAccounting.accountForAndMaybeBreak(row);
+                addToBuffer(row.materialize(), hashBuilderForLeft.apply(row));
+            }
+            currentPartitionRightRows = partition.right.iterator();
+            return true;
+        }
+        return false;
+    }
+
+    private void repartition(Partition partition) {
+        Partition[] subPartitions = newPartitions(partition.depth + 1);
+        try {
+            for (Row row : partition.left) {
+                int hash = hashBuilderForLeft.apply(row);
+                subPartitions[partitionIdx(hash, partition.depth + 1)].left.add(row);
+            }
+            for (Row row : partition.right) {
+                int hash = hashBuilderForRight.apply(row);
+                subPartitions[partitionIdx(hash, partition.depth + 1)].right.add(row);
+            }
+        } finally {
+            partition.close();
+            for (Partition subPartition : subPartitions) {
+                pendingPartitions.addFirst(subPartition);
+            }
+        }
+    }
+
+    private void spillBuffer() {
+        // The buffered rows are written out and dropped, release them first
+        // so that the buffers of the spill files can be accounted
+        releaseAccountedRows();
+        partitions = newPartitions(0);
+        // sized for partitions which can be joined without being split again
+        long expectedNumKeys = (long) blockSize * NUM_PARTITIONS;
+        bloomFilterRamAccounting.addBytes(JoinKeyBloomFilter.ramBytesRequired(expectedNumKeys));
+        leftKeys = new JoinKeyBloomFilter(expectedNumKeys);
+        for (IntObjectCursor<List<Object[]>> cursor : buffer) {
+            leftKeys.add(cursor.key);
+            Partition partition = partitions[partitionIdx(cursor.key, 0)];
+            for (Object[] cells : cursor.value) {
+                leftRow.cells(cells);
+                partition.left.add(leftRow);
+            }
+        }
+        recreateBuffer();
+    }
+
+    private void addToPartition(Row row, int hash, boolean isLeft) {
+        assert partitions != null : "partitions must exist while partitioning";
+        Partition partition = partitions[partitionIdx(hash, 0)];
+        if (isLeft) {
+            partition.left.add(row);
+        } else {
+            partition.right.add(row);
+        }
+    }
+
+    private Partition[] newPartitions(int depth) {
+        Partition[] newPartitions = new Partition[NUM_PARTITIONS];
+        for (int i = 0; i < newPartitions.length; i++) {
+            newPartitions[i] = new Partition(leftSpillFiles.get(), rightSpillFiles.get(), depth);
+        }
+        return newPartitions;
+    }
+
+    /**
+     * The depth is used to vary the mixing of the hash, so that rows of a partition which is split again
+     * are spread over all sub partitions.
+     */
+    static int partitionIdx(int hash, int depth) {
+        return Math.floorMod(BitMixer.mix32(hash + depth), NUM_PARTITIONS);
+    }
+
+    private void addToBuffer(Object[] currentRow, int hash) {
+        List<Object[]> existingRows = buffer.get(hash);
+        if (existingRows == null) {
+            existingRows = new ArrayList<>();
+            buffer.put(hash, existingRows);
+        }
+        existingRows.add(currentRow);
+        numberOfRowsInBuffer++;
+    }
+
+    private void recreateBuffer() {
+        releaseAccountedRows();
+        blockSize = calculateBlockSize.getAsInt();
+        buffer.release();
+        buffer.ensureCapacity(blockSize);
+        numberOfRowsInBuffer = 0;
+        leftMatchingRowsIterator = null;
+    }
+
+    private void releaseAccountedRows() {
+        ((RamAccountingBatchIterator) left).releaseAccountedRows();
+    }
+
+    private void closeCurrentPartition() {
+        currentPartitionRightRows = null;
+        if (currentPartition != null) {
+            currentPartition.close();
+            currentPartition = null;
+            recreateBuffer();
+        }
+    }
+
+    private void closePartitions() {
+        closeCurrentPartition();
+        if (partitions != null) {
+            for (Partition partition : partitions) {
+                partition.close();
+            }
+            partitions = null;
+        }
+        releaseLeftKeys();
+        Partition partition;
+        while ((partition = pendingPartitions.poll()) != null) {
+            partition.close();
+        }
+    }
+
+    private void releaseLeftKeys() {
+        leftKeys = null;
+        bloomFilterRamAccounting.release();
+    }
+
+    private void raiseIfClosedOrKilled() {
+        if (killed != null) {
+            Exceptions.rethrowUnchecked(killed);
+        }
+        if (closed) {
+            throw new IllegalStateException("BatchIterator is closed");
+        }
+    }
+
+    private static class Partition {
+
+        private final SpillFile left;
+        private final SpillFile right;
+        private final int depth;
+
+        Partition(SpillFile left, SpillFile right, int depth) {
+            this.left = left;
+            this.right = right;
+            this.depth = depth;
+        }
+
+        void close() {
+            try {
+                left.close();
+            } finally {
+                right.close();
+            }
+        }
+    }
+}
@@ -22,6 +22,8 @@
 
 package io.crate.execution.engine.join;
 
+import io.crate.Streamer;
+import io.crate.breaker.RamAccounting;
 import io.crate.breaker.RowAccounting;
 import io.crate.concurrent.CompletionListenable;
 import io.crate.data.BatchIterator;
@@ -31,16 +33,24 @@ import io.crate.data.Row;
 import io.crate.data.RowConsumer;
 import io.crate.data.join.CombinedRow;
 import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.execution.engine.spill.SpillFile;
+import io.crate.execution.engine.spill.SpillFileFactory;
 import io.crate.expression.InputFactory;
 import io.crate.expression.symbol.Symbol;
 import io.crate.metadata.TransactionContext;
+import io.crate.planner.node.dql.join.JoinType;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
 import org.elasticsearch.common.breaker.CircuitBreaker;
 
+import javax.annotation.Nullable;
+import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 public class HashJoinOperation implements CompletionListenable {
 
@@ -51,15 +61,20 @@ public class HashJoinOperation implements CompletionListenable {
     public HashJoinOperation(int numLeftCols,
                              int numRightCols,
                              RowConsumer nlResultConsumer,
+                             JoinType joinType,
                              Predicate<Row> joinPredicate,
                              List<Symbol> joinLeftInputs,
                              List<Symbol> joinRightInputs,
                              RowAccounting<Row> rowAccounting,
+                             RamAccounting ramAccounting,
                              TransactionContext txnCtx,
                              InputFactory inputFactory,
                              CircuitBreaker circuitBreaker,
                              long estimatedRowSizeForLeft,
-                             long numberOfRowsForLeft) {
+                             long numberOfRowsForLeft,
+                             Collection<DataType> leftOutputTypes,
+                             @Nullable Collection<DataType> rightOutputTypes,
+                             SpillFileFactory spillFileFactory) {
 
         this.resultConsumer = nlResultConsumer;
         this.leftConsumer = new CapturingRowConsumer(false, nlResultConsumer.completionFuture());
@@ -74,11 +89,16 @@ public class HashJoinOperation implements CompletionListenable {
                             numLeftCols,
                             rightConsumer.capturedBatchIterator().join(),
                             numRightCols,
+                            joinType,
                             joinPredicate,
                             getHashBuilderFromSymbols(txnCtx, inputFactory, joinLeftInputs),
                             getHashBuilderFromSymbols(txnCtx, inputFactory, joinRightInputs),
                             rowAccounting,
-                            new RamBlockSizeCalculator(Paging.PAGE_SIZE, circuitBreaker, estimatedRowSizeForLeft, numberOfRowsForLeft)
+                            ramAccounting,
+                            new RamBlockSizeCalculator(Paging.PAGE_SIZE, circuitBreaker, estimatedRowSizeForLeft, numberOfRowsForLeft),
+                            leftOutputTypes,
+                            rightOutputTypes,
+                            spillFileFactory
                         );
                         nlResultConsumer.accept(joinIterator, null);
                     } catch (Exception e) {
@@ -124,12 +144,58 @@ public class HashJoinOperation implements CompletionListenable {
                                                              int leftNumCols,
                                                              BatchIterator<Row> right,
                                                              int rightNumCols,
+                                                             JoinType joinType,
                                                              Predicate<Row> joinCondition,
                                                              Function<Row, Integer> hashBuilderForLeft,
                                                              Function<Row, Integer> hashBuilderForRight,
                                                              RowAccounting<Row> rowAccounting,
-                                                             RamBlockSizeCalculator blockSizeCalculator) {
+                                                             RamAccounting ramAccounting,
+                                                             RamBlockSizeCalculator blockSizeCalculator,
+                                                             Collection<DataType> leftOutputTypes,
+                                                             @Nullable Collection<DataType> rightOutputTypes,
+                                                             SpillFileFactory spillFileFactory) {
         CombinedRow combiner = new CombinedRow(leftNumCols, rightNumCols);
+        switch (joinType) {
+            case INNER:
+                break;
+
+            case LEFT:
+            case SEMI:
+            case ANTI:
+                return new HashLeftJoinBatchIterator(
+                    new RamAccountingBatchIterator<>(left, rowAccounting),
+                    right,
+                    combiner,
+                    joinType,
+                    joinCondition,
+                    hashBuilderForLeft,
+                    hashBuilderForRight,
+                    blockSizeCalculator);
+
+            default:
+                throw new AssertionError("Invalid joinType for hash join: " + joinType);
+        }
+        // rightOutputTypes are null if the phase was created by a node which doesn't support spilling
+        if (spillFileFactory.isEnabled() && rightOutputTypes != null) {
+            Streamer<?>[] leftStreamers = DataTypes.getStreamers(leftOutputTypes);
+            Streamer<?>[] rightStreamers = DataTypes.getStreamers(rightOutputTypes);
+            Supplier<SpillFile> leftSpillFiles =
+                () -> spillFileFactory.create("hash-join-left", leftStreamers, ramAccounting);
+            Supplier<SpillFile> rightSpillFiles =
+                () -> spillFileFactory.create("hash-join-right", rightStreamers, ramAccounting);
+            return new GraceHashInnerJoinBatchIterator(
+                new RamAccountingBatchIterator<>(left, rowAccounting),
+                right,
+                combiner,
+                joinCondition,
+                hashBuilderForLeft,
+                hashBuilderForRight,
+                blockSizeCalculator,
+                rowAccounting,
+                ramAccounting,
+                leftSpillFiles,
+                rightSpillFiles);
+        }
         return new HashInnerJoinBatchIterator(
             new RamAccountingBatchIterator<>(left, rowAccounting),
             right,
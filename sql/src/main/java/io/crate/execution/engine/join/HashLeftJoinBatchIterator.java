@@ -0,0 +1,337 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.join;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntObjectHashMap;
+import io.crate.data.BatchIterator;
+import io.crate.data.Paging;
+import io.crate.data.Row;
+import io.crate.data.UnsafeArrayRow;
+import io.crate.data.join.CombinedRow;
+import io.crate.data.join.JoinBatchIterator;
+import io.crate.exceptions.Exceptions;
+import io.crate.planner.node.dql.join.JoinType;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Hash join for join types which must know for every row of the left side whether it had a match:
+ * {@link JoinType#LEFT}, {@link JoinType#SEMI} and {@link JoinType#ANTI}.
+ *
+ * <pre>
+ *     for (block of leftRows) {
+ *         put leftRows into Buffer (HashMap)
+ *
+ *         for (rightRow in right) {
+ *             for (leftRow in Buffer with hash(rightRow)) {
+ *                 if (joinCondition matches) {
+ *                     mark leftRow as matched
+ *                     LEFT: emit(leftRow, rightRow)
+ *                 }
+ *             }
+ *         }
+ *
+ *         for (leftRow in Buffer) {
+ *             LEFT, ANTI: emit(leftRow, null) if leftRow isn't marked as matched
+ *             SEMI:       emit(leftRow, null) if leftRow is marked as matched
+ *         }
+ *         right.moveToStart()
+ *     }
+ * </pre>
+ * <p>
+ * The right side is read once per block of the left side, so every left row meets all right rows while its
+ * block is in the buffer and the matched marker is final once the right side is exhausted.
+ * {@link JoinType#RIGHT} joins can use this iterator with switched inputs.
+ * <p>
+ * Like {@link HashInnerJoinBatchIterator}, a block is complete once the number of left batches expected for the
+ * block size has been loaded, even if it contains fewer rows. This prevents the upstreams of both sides from waiting
+ * on each other in a distributed execution.
+ * <p>
+ * Unlike the nested loop variants, the order of the left side is not preserved.
+ */
+public class HashLeftJoinBatchIterator extends JoinBatchIterator<Row, Row, Row> {
+
+    private enum Phase {
+        BUILD,
+        PROBE,
+        EMIT_LEFT
+    }
+
+    private final JoinType joinType;
+    private final Predicate<Row> joinCondition;
+    private final UnsafeArrayRow leftRow = new UnsafeArrayRow();
+    private final Function<Row, Integer> hashBuilderForLeft;
+    private final Function<Row, Integer> hashBuilderForRight;
+    private final IntSupplier calculateBlockSize;
+    private final List<Object[]> blockRows = new ArrayList<>();
+    private final IntObjectHashMap<IntArrayList> buffer = new IntObjectHashMap<>();
+    private final BitSet matchedRows = new BitSet();
+
+    private Phase phase = Phase.BUILD;
+    private int blockSize;
+    private int emitPosition;
+    private boolean leftBatchHasItems = false;
+    private int numberOfLeftBatchesForBlock;
+    private int numberOfLeftBatchesLoadedForBlock;
+
+    @Nullable
+    private IntArrayList leftMatchingRows;
+    private int leftMatchingRowsIdx;
+
+    private boolean closed = false;
+    private volatile Throwable killed = null;
+
+    public HashLeftJoinBatchIterator(RamAccountingBatchIterator<Row> left,
+                                     BatchIterator<Row> right,
+                                     CombinedRow combiner,
+                                     JoinType joinType,
+                                     Predicate<Row> joinCondition,
+                                     Function<Row, Integer> hashBuilderForLeft,
+                                     Function<Row, Integer> hashBuilderForRight,
+                                     IntSupplier calculateBlockSize) {
+        super(left, right, combiner);
+        assert joinType == JoinType.LEFT || joinType == JoinType.SEMI || joinType == JoinType.ANTI
+            : "HashLeftJoinBatchIterator doesn't support joinType=" + joinType;
+        this.joinType = joinType;
+        this.joinCondition = joinCondition;
+        this.hashBuilderForLeft = hashBuilderForLeft;
+        this.hashBuilderForRight = hashBuilderForRight;
+        this.calculateBlockSize = calculateBlockSize;
+        clearBlock();
+        // initially 1 page/batch is loaded
+        numberOfLeftBatchesLoadedForBlock = 1;
+    }
+
+    @Override
+    public Row currentElement() {
+        return combiner.currentElement();
+    }
+
+    @Override
+    public void moveToStart() {
+        raiseIfClosedOrKilled();
+        left.moveToStart();
+        right.moveToStart();
+        activeIt = left;
+        phase = Phase.BUILD;
+        leftBatchHasItems = false;
+        clearBlock();
+        numberOfLeftBatchesLoadedForBlock = 1;
+    }
+
+    @Override
+    public CompletionStage<?> loadNextBatch() {
+        if (activeIt == left) {
+            numberOfLeftBatchesLoadedForBlock++;
+        }
+        return super.loadNextBatch();
+    }
+
+    @Override
+    public boolean moveNext() {
+        raiseIfClosedOrKilled();
+        while (true) {
+            switch (phase) {
+                case BUILD:
+                    if (buildBlock() == false) {
+                        return false;
+                    }
+                    break;
+
+                case PROBE:
+                    if (leftMatchingRows != null && findMatchingRows()) {
+                        return true;
+                    }
+                    if (probeBlock()) {
+                        return true;
+                    }
+                    if (right.allLoaded() == false) {
+                        return false;
+                    }
+                    combiner.nullRight();
+                    emitPosition = 0;
+                    phase = Phase.EMIT_LEFT;
+                    break;
+
+                case EMIT_LEFT:
+                    if (emitLeftRows()) {
+                        return true;
+                    }
+                    right.moveToStart();
+                    activeIt = left;
+                    clearBlock();
+                    phase = Phase.BUILD;
+                    break;
+
+                default:
+                    throw new AssertionError("Unexpected phase: " + phase);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            super.close();
+        } finally {
+            ((RamAccountingBatchIterator) left).releaseAccountedRows();
+            blockRows.clear();
+            buffer.release();
+        }
+    }
+
+    @Override
+    public void kill(@Nonnull Throwable throwable) {
+        killed = throwable;
+        super.kill(throwable);
+    }
+
+    /**
+     * @return true if the block is complete and the right side can be probed against it,
+     *         false if the left side needs to load the next batch or is exhausted.
+     */
+    private boolean buildBlock() {
+        while (blockRows.size() < blockSize && (leftBatchHasItems = left.moveNext())) {
+            Row row = left.currentElement();
+            addToBuffer(row.materialize(), hashBuilderForLeft.apply(row));
+        }
+        if (mustLoadLeftNextBatch()) {
+            return false;
+        }
+        if (blockRows.isEmpty()) {
+            return false;
+        }
+        activeIt = right;
+        phase = Phase.PROBE;
+        return true;
+    }
+
+    private boolean probeBlock() {
+        leftMatchingRows = null;
+        while (right.moveNext()) {
+            Row rightRow = right.currentElement();
+            IntArrayList candidates = buffer.get(hashBuilderForRight.apply(rightRow));
+            if (candidates != null) {
+                leftMatchingRows = candidates;
+                leftMatchingRowsIdx = 0;
+                combiner.setRight(rightRow);
+                if (findMatchingRows()) {
+                    return true;
+                }
+            }
+        }
+        leftMatchingRows = null;
+        return false;
+    }
+
+    /**
+     * Marks the matching rows among the current candidates.
+     *
+     * @return true if a combined row must be emitted, which is only the case for {@link JoinType#LEFT}.
+     */
+    private boolean findMatchingRows() {
+        assert leftMatchingRows != null : "leftMatchingRows must be set if rows are matched";
+        while (leftMatchingRowsIdx < leftMatchingRows.size()) {
+            int position = leftMatchingRows.get(leftMatchingRowsIdx++);
+            if (joinType != JoinType.LEFT && matchedRows.get(position)) {
+                // SEMI and ANTI joins only need to know that there is at least one match
+                continue;
+            }
+            leftRow.cells(blockRows.get(position));
+            combiner.setLeft(leftRow);
+            if (joinCondition.test(combiner.currentElement())) {
+                matchedRows.set(position);
+                if (joinType == JoinType.LEFT) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean emitLeftRows() {
+        boolean emitMatched = joinType == JoinType.SEMI;
+        while (emitPosition < blockRows.size()) {
+            int position = emitPosition++;
+            if (matchedRows.get(position) == emitMatched) {
+                leftRow.cells(blockRows.get(position));
+                combiner.setLeft(leftRow);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addToBuffer(Object[] row, int hash) {
+        IntArrayList positions = buffer.get(hash);
+        if (positions == null) {
+            positions = new IntArrayList(1);
+            buffer.put(hash, positions);
+        }
+        positions.add(blockRows.size());
+        blockRows.add(row);
+    }
+
+    private boolean mustLoadLeftNextBatch() {
+        return leftBatchHasItems == false
+               && left.allLoaded() == false
+               && blockRows.size() < blockSize
+               && numberOfLeftBatchesLoadedForBlock < numberOfLeftBatchesForBlock;
+    }
+
+    private void clearBlock() {
+        ((RamAccountingBatchIterator) left).releaseAccountedRows();
+        blockSize = calculateBlockSize.getAsInt();
+        blockRows.clear();
+        buffer.clear();
+        matchedRows.clear();
+        leftMatchingRows = null;
+
+        // A batch is not guaranteed to deliver PAGE_SIZE number of rows, so the number of batches loaded for
+        // the block is tracked as well, see HashInnerJoinBatchIterator
+        numberOfLeftBatchesForBlock = Math.max(1, (int) Math.ceil((double) blockSize / Paging.PAGE_SIZE));
+        numberOfLeftBatchesLoadedForBlock = leftBatchHasItems ? 1 : 0;
+    }
+
+    private void raiseIfClosedOrKilled() {
+        if (killed != null) {
+            Exceptions.rethrowUnchecked(killed);
+        }
+        if (closed) {
+            throw new IllegalStateException("BatchIterator is closed");
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.join;
+
+import com.carrotsearch.hppc.BitMixer;
+
+/**
+ * A bloom filter over the join key hashes of the build side of a hash join.
+ * <p>
+ * It is used to discard rows of the probe side which cannot have a join partner
+ * before they are written to disk. It is only built once the build side has to be partitioned, a join
+ * whose build side fits into memory probes the hash table directly and doesn't need it.
+ * <p>
+ * The filter has a fixed size. If more keys are added than it was sized for, the
+ * false positive rate increases, but {@link #mightContain(int)} never returns false for a
+ * hash which has been added.
+ */
+final class JoinKeyBloomFilter {
+
+    static final int BITS_PER_KEY = 10;
+    static final int NUM_HASH_FUNCTIONS = 7;
+    static final int MAX_NUM_BITS = 1 << 23;
+    private static final int MIN_NUM_BITS = 1 << 6;
+
+    private final long[] words;
+    private final int mask;
+
+    JoinKeyBloomFilter(long expectedNumKeys) {
+        int numBits = numBits(expectedNumKeys);
+        this.words = new long[numBits >>> 6];
+        this.mask = numBits - 1;
+    }
+
+    /**
+     * Returns the number of bytes a filter for {@code expectedNumKeys} keys uses, so that it can be accounted
+     * before it is allocated.
+     */
+    static long ramBytesRequired(long expectedNumKeys) {
+        return (long) (numBits(expectedNumKeys) >>> 6) * Long.BYTES;
+    }
+
+    private static int numBits(long expectedNumKeys) {
+        long requiredBits = Math.max(expectedNumKeys * BITS_PER_KEY, MIN_NUM_BITS);
+        return (int) Math.min(Long.highestOneBit(requiredBits - 1) << 1, MAX_NUM_BITS);
+    }
+
+    void add(int hash) {
+        int h1 = BitMixer.mix32(hash);
+        int h2 = secondHash(hash);
+        for (int i = 0; i < NUM_HASH_FUNCTIONS; i++) {
+            int bit = (h1 + i * h2) & mask;
+            words[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    boolean mightContain(int hash) {
+        int h1 = BitMixer.mix32(hash);
+        int h2 = secondHash(hash);
+        for (int i = 0; i < NUM_HASH_FUNCTIONS; i++) {
+            int bit = (h1 + i * h2) & mask;
+            if ((words[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long ramBytesUsed() {
+        return (long) words.length * Long.BYTES;
+    }
+
+    /**
+     * Must be odd, so that the probe sequence doesn't collapse onto a few bits.
+     */
+    private static int secondHash(int hash) {
+        return BitMixer.mixPhi(hash) | 1;
+    }
+}
@@ -25,6 +25,7 @@ package io.crate.execution.engine.pipeline;
 import com.google.common.collect.Iterables;
 import io.crate.analyze.NumberOfReplicas;
 import io.crate.analyze.SymbolEvaluator;
+import io.crate.breaker.ChildRamAccounting;
 import io.crate.breaker.RamAccounting;
 import io.crate.breaker.RowAccountingWithEstimators;
 import io.crate.breaker.RowCellsAccountingWithEstimators;
@@ -75,6 +76,7 @@ import io.crate.execution.engine.indexing.UpsertResultContext;
 import io.crate.execution.engine.sort.OrderingByPosition;
 import io.crate.execution.engine.sort.SortingProjector;
 import io.crate.execution.engine.sort.SortingTopNProjector;
+import io.crate.execution.engine.spill.SpillFileFactory;
 import io.crate.execution.engine.window.WindowProjector;
 import io.crate.execution.jobs.NodeJobsCounter;
 import io.crate.execution.support.ThreadPools;
@@ -94,6 +96,7 @@ import io.crate.metadata.RelationName;
 import io.crate.metadata.RowGranularity;
 import io.crate.metadata.TransactionContext;
 import io.crate.planner.operators.SubQueryResults;
+import io.crate.types.DataType;
 import io.crate.types.DataTypes;
 import io.crate.types.StringType;
 import org.elasticsearch.Version;
@@ -149,6 +152,8 @@ public class ProjectionToProjectorVisitor
     private final BigArrays bigArrays;
     @Nullable
     private final ShardId shardId;
+    @Nullable
+    private final SpillFileFactory spillFileFactory;
     private final int numProcessors;
 
     public ProjectionToProjectorVisitor(ClusterService clusterService,
@@ -163,7 +168,8 @@ public class ProjectionToProjectorVisitor
                                         Function<RelationName, StaticTableDefinition<?>> staticTableDefinitionGetter,
                                         Version indexVersionCreated,
                                         BigArrays bigArrays,
-                                        @Nullable ShardId shardId) {
+                                        @Nullable ShardId shardId,
+                                        @Nullable SpillFileFactory spillFileFactory) {
         this.clusterService = clusterService;
         this.nodeJobsCounter = nodeJobsCounter;
         this.functions = functions;
@@ -177,6 +183,7 @@ public class ProjectionToProjectorVisitor
         this.indexVersionCreated = indexVersionCreated;
         this.bigArrays = bigArrays;
         this.shardId = shardId;
+        this.spillFileFactory = spillFileFactory;
         this.numProcessors = EsExecutors.numberOfProcessors(settings);
     }
 
@@ -190,7 +197,8 @@ public class ProjectionToProjectorVisitor
                                         EvaluatingNormalizer normalizer,
                                         Function<RelationName, SysRowUpdater<?>> sysUpdaterGetter,
                                         Function<RelationName, StaticTableDefinition<?>> staticTableDefinitionGetter,
-                                        BigArrays bigArrays) {
+                                        BigArrays bigArrays,
+                                        @Nullable SpillFileFactory spillFileFactory) {
         this(clusterService,
             nodeJobsCounter,
             functions,
@@ -203,7 +211,8 @@ public class ProjectionToProjectorVisitor
             staticTableDefinitionGetter,
             Version.CURRENT,
             bigArrays,
-            null
+            null,
+            spillFileFactory
         );
     }
 
@@ -240,9 +249,12 @@ public class ProjectionToProjectorVisitor
         }
 
         int rowMemoryOverhead = 32; // priority queues implementation are backed by an arrayList
+        List<DataType> rowTypes = Symbols.typeView(Lists2.concat(projection.outputs(), projection.orderBy()));
+        // The external sort releases the accounted rows whenever a run is spilled to disk,
+        // which must not release the bytes of the other projectors of this phase.
         RowCellsAccountingWithEstimators rowAccounting = new RowCellsAccountingWithEstimators(
-            Symbols.typeView(Lists2.concat(projection.outputs(), projection.orderBy())),
-            context.ramAccounting,
+            rowTypes,
+            new ChildRamAccounting(context.ramAccounting),
             rowMemoryOverhead
         );
         if (projection.limit() > TopN.NO_LIMIT) {
@@ -263,7 +275,10 @@ public class ProjectionToProjectorVisitor
             ctx.expressions(),
             numOutputs,
             OrderingByPosition.arrayOrdering(orderByIndices, projection.reverseFlags(), projection.nullsFirst()),
-            projection.offset()
+            projection.offset(),
+            DataTypes.getStreamers(rowTypes),
+            spillFileFactory,
+            context.ramAccounting
         );
     }
 
@@ -305,7 +320,8 @@ public class ProjectionToProjectorVisitor
             context.ramAccounting,
             context.memoryManager,
             clusterService.state().getNodes().getMinNodeVersion(),
-            indexVersionCreated
+            indexVersionCreated,
+            spillFileFactory
         );
     }
 
@@ -645,7 +661,8 @@ public class ProjectionToProjectorVisitor
             clusterService.state().nodes().getMinNodeVersion(),
             indexVersionCreated,
             ThreadPools.numIdleThreads(searchThreadPool, numProcessors),
-            searchThreadPool
+            searchThreadPool,
+            spillFileFactory
         );
     }
 
@@ -0,0 +1,206 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.sort;
+
+import com.google.common.collect.Iterators;
+import io.crate.Streamer;
+import io.crate.breaker.RamAccounting;
+import io.crate.breaker.RowAccounting;
+import io.crate.data.CollectionBucket;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.execution.engine.spill.SpillFile;
+import io.crate.execution.engine.spill.SpillFileFactory;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.core.internal.io.IOUtils;
+
+import javax.annotation.Nonnull;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts rows which may not fit into memory.
+ * <p>
+ * Rows are buffered in memory until the {@link RowAccounting} raises a {@link CircuitBreakingException}.
+ * The buffered rows are then sorted and written as a sorted run into a {@link SpillFile},
+ * the memory is released and buffering starts over.
+ * <p>
+ * {@link #sortedRows(int, int)} merges the runs and the rows which are still in memory lazily,
+ * so at most one row per run is held in memory while the result is consumed.
+ */
+final class ExternalMergeSorter implements Closeable {
+
+    private static final String SPILL_FILE_PREFIX = "sort-run";
+
+    private final Comparator<Object[]> comparator;
+    private final RowAccounting<Object[]> rowAccounting;
+    private final SpillFileFactory spillFileFactory;
+    private final RamAccounting spillRamAccounting;
+    private final Streamer<?>[] streamers;
+    private final List<SpillFile> runs = new ArrayList<>();
+
+    private List<Object[]> rows = new ArrayList<>();
+
+    /**
+     * @param rowAccounting must only account for the rows of this sorter, it is released every time a run is spilled.
+     * @param spillRamAccounting accounts the buffers of the runs while they are written or read.
+     */
+    ExternalMergeSorter(Comparator<Object[]> comparator,
+                        RowAccounting<Object[]> rowAccounting,
+                        SpillFileFactory spillFileFactory,
+                        RamAccounting spillRamAccounting,
+                        Streamer<?>[] streamers) {
+        this.comparator = comparator;
+        this.rowAccounting = rowAccounting;
+        this.spillFileFactory = spillFileFactory;
+        this.spillRamAccounting = spillRamAccounting;
+        this.streamers = streamers;
+    }
+
+    void add(Object[] cells) {
+        try {
+            rowAccounting.accountForAndMaybeBreak(cells);
+        } catch (CircuitBreakingException e) {
+            if (rows.isEmpty() || spillFileFactory.isEnabled() == false) {
+                throw e;
+            }
+            spillRun();
+            rowAccounting.accountForAndMaybeBreak(cells);
+        }
+        rows.add(cells);
+    }
+
+    /**
+     * @return the number of sorted runs which have been written to disk
+     */
+    int numRuns() {
+        return runs.size();
+    }
+
+    /**
+     * Returns the sorted rows. The returned iterable can be iterated multiple times,
+     * the rows remain available until {@link #close()} is called.
+     *
+     * @param offset     number of rows to skip
+     * @param numOutputs number of leading columns of the rows which are exposed
+     */
+    Iterable<Row> sortedRows(int offset, int numOutputs) {
+        rows.sort(comparator);
+        if (runs.isEmpty()) {
+            if (offset >= rows.size()) {
+                return new CollectionBucket(List.of(), numOutputs);
+            }
+            return new CollectionBucket(rows.subList(offset, rows.size()), numOutputs);
+        }
+        return () -> new MergingIterator(offset, numOutputs);
+    }
+
+    private void spillRun() {
+        // The rows are written out and dropped, release them first
+        // so that the buffer of the run can be accounted
+        rowAccounting.release();
+        rows.sort(comparator);
+        SpillFile run = spillFileFactory.create(SPILL_FILE_PREFIX, streamers, spillRamAccounting);
+        runs.add(run);
+        RowN row = new RowN(streamers.length);
+        for (Object[] cells : rows) {
+            row.cells(cells);
+            run.add(row);
+        }
+        rows = new ArrayList<>();
+    }
+
+    @Override
+    public void close() {
+        rows = new ArrayList<>();
+        IOUtils.closeWhileHandlingException(runs);
+        runs.clear();
+    }
+
+    private static class Cursor {
+
+        private final Iterator<Object[]> rows;
+        private Object[] current;
+
+        Cursor(Iterator<Object[]> rows) {
+            this.rows = rows;
+        }
+
+        boolean advance() {
+            if (rows.hasNext()) {
+                current = rows.next();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * k-way merge of the sorted runs and the sorted in-memory rows.
+     */
+    private class MergingIterator implements Iterator<Row> {
+
+        private final PriorityQueue<Cursor> cursors;
+        private final RowN row;
+
+        MergingIterator(int offset, int numOutputs) {
+            this.cursors = new PriorityQueue<>(runs.size() + 1, (c1, c2) -> comparator.compare(c1.current, c2.current));
+            this.row = new RowN(numOutputs);
+            for (SpillFile run : runs) {
+                addIfNotExhausted(new Cursor(Iterators.transform(run.iterator(), Row::materialize)));
+            }
+            addIfNotExhausted(new Cursor(rows.iterator()));
+            for (int i = 0; i < offset && hasNext(); i++) {
+                next();
+            }
+        }
+
+        private void addIfNotExhausted(Cursor cursor) {
+            if (cursor.advance()) {
+                cursors.add(cursor);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursors.isEmpty() == false;
+        }
+
+        @Override
+        @Nonnull
+        public Row next() {
+            Cursor cursor = cursors.poll();
+            if (cursor == null) {
+                throw new NoSuchElementException("All sorted runs are exhausted");
+            }
+            row.cells(cursor.current);
+            addIfNotExhausted(cursor);
+            return row;
+        }
+    }
+}
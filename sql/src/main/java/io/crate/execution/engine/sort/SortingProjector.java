@@ -23,8 +23,11 @@
 package io.crate.execution.engine.sort;
 
 import com.google.common.base.Preconditions;
+import io.crate.Streamer;
+import io.crate.breaker.RamAccounting;
 import io.crate.breaker.RowAccounting;
 import io.crate.data.BatchIterator;
+import io.crate.data.BatchIterators;
 import io.crate.data.Bucket;
 import io.crate.data.CollectingBatchIterator;
 import io.crate.data.CollectionBucket;
@@ -32,7 +35,9 @@ import io.crate.data.Input;
 import io.crate.data.Projector;
 import io.crate.data.Row;
 import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.execution.engine.spill.SpillFileFactory;
 
+import javax.annotation.Nullable;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
@@ -44,6 +49,9 @@ import java.util.stream.Collectors;
  * <p>
  * Compared to {@link SortingTopNProjector} this projector does not support limiting,
  * while the {@link SortingTopNProjector} does not work WITHOUT a limit.
+ * <p>
+ * If spilling is enabled, rows which don't fit into memory are sorted externally,
+ * see {@link ExternalMergeSorter}.
  */
 public class SortingProjector implements Projector {
 
@@ -54,6 +62,11 @@ public class SortingProjector implements Projector {
     private final int offset;
     private final int numOutputs;
     private final RowAccounting<Object[]> rowAccounting;
+    @Nullable
+    private final Streamer<?>[] streamers;
+    @Nullable
+    private final SpillFileFactory spillFileFactory;
+    private final RamAccounting spillRamAccounting;
 
     /**
      * @param rowAccounting               sorting is a pipeline breaker so account for the used memory
@@ -69,6 +82,25 @@ public class SortingProjector implements Projector {
                             int numOutputs,
                             Comparator<Object[]> comparator,
                             int offset) {
+        this(rowAccounting, inputs, collectExpressions, numOutputs, comparator, offset, null, null,
+             RamAccounting.NO_ACCOUNTING);
+    }
+
+    /**
+     * @param streamers        used to write the rows (all {@code inputs}) into spill files
+     * @param spillFileFactory if not null and enabled, rows are spilled to disk once the memory is exhausted
+     * @param spillRamAccounting used to account the buffers of the spill files,
+     *                           must not be released while the projector is in use
+     */
+    public SortingProjector(RowAccounting<Object[]> rowAccounting,
+                            Collection<? extends Input<?>> inputs,
+                            Iterable<? extends CollectExpression<Row, ?>> collectExpressions,
+                            int numOutputs,
+                            Comparator<Object[]> comparator,
+                            int offset,
+                            @Nullable Streamer<?>[] streamers,
+                            @Nullable SpillFileFactory spillFileFactory,
+                            RamAccounting spillRamAccounting) {
         Preconditions.checkArgument(offset >= 0, "invalid offset %s", offset);
         this.rowAccounting = rowAccounting;
         this.numOutputs = numOutputs;
@@ -76,22 +108,60 @@ public class SortingProjector implements Projector {
         this.collectExpressions = collectExpressions;
         this.comparator = comparator;
         this.offset = offset;
+        this.streamers = streamers;
+        this.spillFileFactory = spillFileFactory;
+        this.spillRamAccounting = spillRamAccounting;
     }
 
 
     @Override
     public BatchIterator<Row> apply(BatchIterator<Row> batchIterator) {
+        if (spillFileFactory != null && spillFileFactory.isEnabled()) {
+            return externalSort(batchIterator, spillFileFactory);
+        }
         Collector<Row, ?, Bucket> collector = Collectors.mapping(
-            this::getCells,
+            this::getAccountedCells,
             Collectors.collectingAndThen(Collectors.toList(), this::sortAndCreateBucket));
         return CollectingBatchIterator.newInstance(batchIterator, collector);
     }
 
+    private BatchIterator<Row> externalSort(BatchIterator<Row> batchIterator, SpillFileFactory spillFileFactory) {
+        assert streamers != null : "streamers are required if spilling is possible";
+        ExternalMergeSorter sorter = new ExternalMergeSorter(
+            comparator, rowAccounting, spillFileFactory, spillRamAccounting, streamers);
+        Collector<Row, ?, Iterable<Row>> collector = Collectors.mapping(
+            this::getCells,
+            Collector.of(
+                () -> sorter,
+                ExternalMergeSorter::add,
+                (s1, s2) -> {
+                    throw new UnsupportedOperationException("combine not supported");
+                },
+                s -> s.sortedRows(offset, numOutputs)
+            )
+        );
+        return CollectingBatchIterator.newInstance(
+            () -> {
+                batchIterator.close();
+                sorter.close();
+            },
+            batchIterator::kill,
+            () -> BatchIterators.collect(batchIterator, collector),
+            batchIterator.involvesIO()
+        );
+    }
+
     @Override
     public boolean providesIndependentScroll() {
         return true;
     }
 
+    private Object[] getAccountedCells(Row row) {
+        Object[] cells = getCells(row);
+        rowAccounting.accountForAndMaybeBreak(cells);
+        return cells;
+    }
+
     private Object[] getCells(Row row) {
         for (CollectExpression<Row, ?> collectExpression : collectExpressions) {
             collectExpression.setNextRow(row);
@@ -101,7 +171,6 @@ public class SortingProjector implements Projector {
         for (Input<?> input : inputs) {
             newRow[i++] = input.value();
         }
-        rowAccounting.accountForAndMaybeBreak(newRow);
         return newRow;
     }
 
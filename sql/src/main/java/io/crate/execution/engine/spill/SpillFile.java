@@ -0,0 +1,218 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.spill;
+
+import io.crate.Streamer;
+import io.crate.breaker.ChildRamAccounting;
+import io.crate.breaker.RamAccounting;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import org.elasticsearch.common.io.stream.InputStreamStreamInput;
+import org.elasticsearch.common.io.stream.OutputStreamStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.core.internal.io.IOUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A temporary, append-only file of rows used by operations which have to move data out of the heap
+ * once their memory budget is exhausted.
+ * <p>
+ * Rows are encoded with the same {@link Streamer}s which are used for the
+ * {@link io.crate.execution.engine.distribution.StreamBucket} network format.
+ * The file is created lazily on the first {@link #add(Row)} call, so empty spill files don't touch the disk.
+ * <p>
+ * Rows can be read back any number of times using {@link #iterator()}. {@link #close()} deletes the file.
+ * <p>
+ * The output stream and each open reader use a buffer, which is accounted until the stream is closed.
+ * <p>
+ * Instances are not thread-safe.
+ */
+public final class SpillFile implements Iterable<Row>, Closeable {
+
+    private final Path path;
+    private final Streamer<?>[] streamers;
+    private final RamAccounting ramAccounting;
+    private final int bufferSize;
+    private final List<StreamInput> openReaders = new ArrayList<>();
+
+    @Nullable
+    private StreamOutput out;
+    private int numRows = 0;
+    private boolean closed = false;
+
+    SpillFile(Path path, Streamer<?>[] streamers, RamAccounting ramAccounting, int bufferSize) {
+        this.path = path;
+        this.streamers = streamers;
+        this.ramAccounting = new ChildRamAccounting(ramAccounting);
+        this.bufferSize = bufferSize;
+    }
+
+    public void add(Row row) {
+        assert streamers.length == row.numColumns() : "number of streamers must match row size";
+        if (closed) {
+            throw new IllegalStateException("SpillFile is closed");
+        }
+        try {
+            if (out == null) {
+                ramAccounting.addBytes(bufferSize);
+                out = new OutputStreamStreamOutput(new BufferedOutputStream(
+                    Files.newOutputStream(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), bufferSize));
+            }
+            for (int i = 0; i < streamers.length; i++) {
+                //noinspection unchecked
+                ((Streamer) streamers[i]).writeValueTo(out, row.get(i));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        numRows++;
+    }
+
+    /**
+     * @return the number of rows added to this file
+     */
+    public int numRows() {
+        return numRows;
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    /**
+     * Returns an iterator over the rows that have been added so far.
+     * <p>
+     * The returned {@link Row} instance is re-used between {@link Iterator#next()} calls;
+     * Consumers which buffer rows must {@link Row#materialize()} them.
+     */
+    @Override
+    @Nonnull
+    public Iterator<Row> iterator() {
+        if (closed) {
+            throw new IllegalStateException("SpillFile is closed");
+        }
+        if (numRows == 0) {
+            return Collections.emptyIterator();
+        }
+        try {
+            assert out != null : "There must be an output if rows have been added";
+            out.flush();
+            ramAccounting.addBytes(bufferSize);
+            StreamInput in = new InputStreamStreamInput(
+                new BufferedInputStream(Files.newInputStream(path, StandardOpenOption.READ), bufferSize));
+            openReaders.add(in);
+            return new RowIterator(in, numRows);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        ArrayList<Closeable> closeables = new ArrayList<>(openReaders.size() + 1);
+        closeables.addAll(openReaders);
+        if (out != null) {
+            closeables.add(out);
+        }
+        openReaders.clear();
+        out = null;
+        IOUtils.closeWhileHandlingException(closeables);
+        IOUtils.deleteFilesIgnoringExceptions(path);
+        ramAccounting.release();
+    }
+
+    private void closeReader(StreamInput in) throws IOException {
+        if (openReaders.remove(in)) {
+            in.close();
+            ramAccounting.addBytes(- bufferSize);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "SpillFile{" +
+               "path=" + path +
+               ", numRows=" + numRows +
+               '}';
+    }
+
+    private class RowIterator implements Iterator<Row> {
+
+        private final StreamInput in;
+        private final int size;
+        private final Object[] cells;
+        private final RowN row;
+        private int pos = 0;
+
+        RowIterator(StreamInput in, int size) {
+            this.in = in;
+            this.size = size;
+            this.cells = new Object[streamers.length];
+            this.row = new RowN(cells);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return pos < size;
+        }
+
+        @Override
+        public Row next() {
+            if (pos >= size) {
+                throw new NoSuchElementException("SpillFile has no more rows");
+            }
+            try {
+                for (int i = 0; i < streamers.length; i++) {
+                    cells[i] = streamers[i].readValueFrom(in);
+                }
+                pos++;
+                if (pos == size) {
+                    closeReader(in);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return row;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.spill;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.crate.Streamer;
+import io.crate.breaker.RamAccounting;
+import io.crate.settings.CrateSetting;
+import io.crate.types.DataTypes;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.inject.Singleton;
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.core.internal.io.IOUtils;
+import org.elasticsearch.env.NodeEnvironment;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Creates {@link SpillFile}s within the {@code spill} directory of the first node data path.
+ * <p>
+ * Operations must check {@link #isEnabled()} before they start spilling and are responsible
+ * for closing the files they create. Left-overs of a previous run (e.g. after a crash) are removed on startup.
+ */
+@Singleton
+public final class SpillFileFactory {
+
+    private static final Logger LOGGER = LogManager.getLogger(SpillFileFactory.class);
+    private static final String SPILL_DIRECTORY = "spill";
+
+    public static final CrateSetting<Boolean> SPILL_ENABLED = CrateSetting.of(Setting.boolSetting(
+        "memory.spill.enabled", false, Setting.Property.NodeScope, Setting.Property.Dynamic), DataTypes.BOOLEAN);
+
+    /**
+     * Size of the buffer of each open stream of a spill file.
+     * Operations can have many spill files open at the same time, e.g. one per partition.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path directory;
+    private final int bufferSize;
+    private final AtomicLong fileId = new AtomicLong(0L);
+    private volatile boolean enabled;
+
+    @Inject
+    public SpillFileFactory(Settings settings, ClusterSettings clusterSettings, NodeEnvironment nodeEnvironment) {
+        this(nodeEnvironment.nodeDataPaths()[0].resolve(SPILL_DIRECTORY), SPILL_ENABLED.setting().get(settings));
+        clusterSettings.addSettingsUpdateConsumer(SPILL_ENABLED.setting(), newValue -> enabled = newValue);
+    }
+
+    public SpillFileFactory(Path directory, boolean enabled) {
+        this(directory, enabled, BUFFER_SIZE);
+    }
+
+    @VisibleForTesting
+    public SpillFileFactory(Path directory, boolean enabled, int bufferSize) {
+        this.directory = directory;
+        this.enabled = enabled;
+        this.bufferSize = bufferSize;
+        try {
+            if (Files.exists(directory)) {
+                IOUtils.rm(directory);
+            }
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            LOGGER.warn("Couldn't prepare spill directory " + directory, e);
+        }
+    }
+
+    /**
+     * @return true if operations are allowed to spill to disk once their memory budget is exhausted.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @param name a short name of the operation creating the file, used as prefix of the file name
+     * @param streamers streamers matching the rows which are going to be added to the file
+     * @param ramAccounting used to account the buffers of the open streams of the file.
+     *                      The file releases these bytes itself, so it must not be released by the operation
+     *                      while the file is open.
+     */
+    public SpillFile create(String name, Streamer<?>[] streamers, RamAccounting ramAccounting) {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        String fileName = String.format(Locale.ENGLISH, "%s-%d.spill", name, fileId.incrementAndGet());
+        return new SpillFile(directory.resolve(fileName), streamers, ramAccounting, bufferSize);
+    }
+}
@@ -22,6 +22,7 @@
 
 package io.crate.execution.engine.window;
 
+import io.crate.breaker.ChildRamAccounting;
 import io.crate.breaker.RamAccounting;
 import io.crate.data.ArrayRow;
 import io.crate.data.Input;
@@ -55,6 +56,19 @@ public class AggregateToWindowFunctionAdapter implements WindowFunction {
     private int seenFrameUpperBound = -1;
     private Object resultForCurrentFrame;
 
+    @Nullable
+    private SegmentTree segmentTree;
+    /**
+     * Accounts for the nodes and leaf states of the {@link #segmentTree}, released once the tree is discarded.
+     */
+    private final ChildRamAccounting segmentTreeRamAccounting;
+    /**
+     * Accounts for the states created while reducing tree nodes. The inner nodes only reference the immutable
+     * leaf states and the states of a query are discarded once the result is computed, so this is released
+     * after the tree is built and after every query.
+     */
+    private final ChildRamAccounting reduceRamAccounting;
+
     AggregateToWindowFunctionAdapter(AggregationFunction aggregationFunction,
                                      ExpressionsInput<Row, Boolean> filter,
                                      Version indexVersionCreated,
@@ -67,6 +81,8 @@ public class AggregateToWindowFunctionAdapter implements WindowFunction {
         this.indexVersionCreated = indexVersionCreated;
         this.memoryManager = memoryManager;
         this.minNodeVersion = minNodeVersion;
+        this.segmentTreeRamAccounting = new ChildRamAccounting(ramAccounting);
+        this.reduceRamAccounting = new ChildRamAccounting(ramAccounting);
         this.accumulatedState = this.aggregationFunction.newState(
             this.ramAccounting,
             indexVersionCreated,
@@ -91,7 +107,13 @@ public class AggregateToWindowFunctionAdapter implements WindowFunction {
                           List<? extends CollectExpression<Row, ?>> expressions,
                           Input... args) {
         if (idxInPartition == 0) {
+            if (segmentTree != null) {
+                segmentTree = null;
+                segmentTreeRamAccounting.release();
+            }
             recomputeFunction(frame, expressions, args);
+        } else if (segmentTree != null) {
+            executeAggregateForFrameUsingSegmentTree(frame);
         } else if (isLowerBoundIncreasing(frame, seenFrameLowerBound)) {
             if (aggregationFunction.isRemovableCumulative()) {
                 removeSeenRowsFromAccumulatedState(frame, expressions, args);
@@ -102,6 +124,11 @@ public class AggregateToWindowFunctionAdapter implements WindowFunction {
                 }
                 seenFrameLowerBound = frame.lowerBound();
                 seenFrameUpperBound = frame.upperBoundExclusive();
+            } else if (aggregationFunction.hasImmutableState()) {
+                // The frame is moving, use a segment tree for the rest of the partition instead of
+                // aggregating all rows of the frame again for every row.
+                segmentTree = buildSegmentTree(frame, expressions, args);
+                executeAggregateForFrameUsingSegmentTree(frame);
             } else {
                 recomputeFunction(frame, expressions, args);
             }
@@ -132,6 +159,50 @@ public class AggregateToWindowFunctionAdapter implements WindowFunction {
         }
     }
 
+    private SegmentTree buildSegmentTree(WindowFrameState frame,
+                                         List<? extends CollectExpression<Row, ?>> expressions,
+                                         Input[] args) {
+        int partitionSize = frame.partitionSize();
+        segmentTreeRamAccounting.addBytes(SegmentTree.estimateSize(partitionSize));
+        Object[] rowStates = new Object[partitionSize];
+        var row = new ArrayRow();
+        for (int i = 0; i < partitionSize; i++) {
+            row.cells(frame.getRowInPartitionAtIndexOrNull(i));
+            for (int j = 0, expressionsSize = expressions.size(); j < expressionsSize; j++) {
+                expressions.get(j).setNextRow(row);
+            }
+            Object state = newState(segmentTreeRamAccounting);
+            if (filter.value(row)) {
+                //noinspection unchecked
+                state = aggregationFunction.iterate(segmentTreeRamAccounting, memoryManager, state, args);
+            }
+            rowStates[i] = state;
+        }
+        //noinspection unchecked
+        var tree = new SegmentTree(
+            rowStates,
+            (s1, s2) -> aggregationFunction.reduce(reduceRamAccounting, s1, s2),
+            newState(segmentTreeRamAccounting)
+        );
+        reduceRamAccounting.release();
+        return tree;
+    }
+
+    private void executeAggregateForFrameUsingSegmentTree(WindowFrameState frame) {
+        if (frame.lowerBound() != seenFrameLowerBound || frame.upperBoundExclusive() != seenFrameUpperBound) {
+            Object state = segmentTree.query(frame.lowerBound(), frame.upperBoundExclusive());
+            //noinspection unchecked
+            resultForCurrentFrame = aggregationFunction.terminatePartial(ramAccounting, state);
+            reduceRamAccounting.release();
+            seenFrameLowerBound = frame.lowerBound();
+            seenFrameUpperBound = frame.upperBoundExclusive();
+        }
+    }
+
+    private Object newState(RamAccounting ramAccounting) {
+        return aggregationFunction.newState(ramAccounting, indexVersionCreated, minNodeVersion, memoryManager);
+    }
+
     private void recomputeFunction(WindowFrameState frame,
                                    List<? extends CollectExpression<Row, ?>> expressions,
                                    Input[] args) {
@@ -0,0 +1,97 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.window;
+
+import org.apache.lucene.util.RamUsageEstimator;
+
+import java.util.function.BinaryOperator;
+
+/**
+ * A segment tree over the partial aggregation states of the rows of a partition, as described in
+ * http://www.vldb.org/pvldb/vol8/p1058-leis.pdf
+ *
+ * <p>
+ * Each inner node holds the reduced state of its two children, so the state of any range of rows
+ * can be computed by reducing O(log n) nodes. This allows to evaluate aggregations which can't remove
+ * rows from their state over moving frames without having to re-aggregate the whole frame for every row.
+ * </p>
+ *
+ * The states must not be modified by {@code reduce} as they're shared between the nodes of the tree.
+ */
+final class SegmentTree {
+
+    private static final Object NONE = new Object();
+
+    private final Object[] nodes;
+    private final int numLeaves;
+    private final BinaryOperator<Object> reduce;
+    private final Object emptyState;
+
+    /**
+     * @param leafStates the states of the individual rows of the partition; they're used as leafs of the tree.
+     * @param emptyState the state returned for an empty range.
+     */
+    SegmentTree(Object[] leafStates, BinaryOperator<Object> reduce, Object emptyState) {
+        this.numLeaves = leafStates.length;
+        this.reduce = reduce;
+        this.emptyState = emptyState;
+        this.nodes = new Object[numLeaves * 2];
+        System.arraycopy(leafStates, 0, nodes, numLeaves, numLeaves);
+        for (int i = numLeaves - 1; i > 0; i--) {
+            nodes[i] = reduce.apply(nodes[2 * i], nodes[2 * i + 1]);
+        }
+    }
+
+    /**
+     * Returns the reduced state of the rows in the range [from, toExclusive).
+     */
+    Object query(int from, int toExclusive) {
+        Object left = NONE;
+        Object right = NONE;
+        for (int lo = from + numLeaves, hi = toExclusive + numLeaves; lo < hi; lo >>= 1, hi >>= 1) {
+            if ((lo & 1) == 1) {
+                left = combine(left, nodes[lo++]);
+            }
+            if ((hi & 1) == 1) {
+                right = combine(nodes[--hi], right);
+            }
+        }
+        Object result = combine(left, right);
+        return result == NONE ? emptyState : result;
+    }
+
+    private Object combine(Object state1, Object state2) {
+        if (state1 == NONE) {
+            return state2;
+        }
+        if (state2 == NONE) {
+            return state1;
+        }
+        return reduce.apply(state1, state2);
+    }
+
+    static long estimateSize(int numLeaves) {
+        return RamUsageEstimator.alignObjectSize(
+            RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + 2L * numLeaves * RamUsageEstimator.NUM_BYTES_OBJECT_REF);
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.window;
+
+import io.crate.breaker.RowAccounting;
+import io.crate.data.BatchIterator;
+import io.crate.data.Buckets;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.execution.engine.collect.CollectExpression;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+import static io.crate.execution.engine.window.WindowFunctionBatchIterator.computeWindowFunctions;
+import static io.crate.execution.engine.window.WindowFunctionBatchIterator.materializeWithSpare;
+
+/**
+ * BatchIterator which computes window functions one partition at a time.
+ *
+ * <p>
+ * The source must emit the rows grouped by the PARTITION BY values, e.g. because it is sorted by them.
+ * Rows are buffered until the first row of the next partition is encountered, the buffered partition is then
+ * sorted by the ORDER BY of the window definition and the window functions are computed over it.
+ * Once all rows of a partition have been emitted, the memory accounted for them is released.
+ * </p>
+ *
+ * So in contrast to {@link WindowFunctionBatchIterator}, which has to keep all rows in memory,
+ * only the rows of the current partition are kept in memory.
+ */
+final class StreamingWindowFunctionBatchIterator implements BatchIterator<Row> {
+
+    private final BatchIterator<Row> source;
+    private final RowAccounting<Row> rowAccounting;
+    private final ComputeFrameBoundary<Object[]> computeFrameStart;
+    private final ComputeFrameBoundary<Object[]> computeFrameEnd;
+    private final Comparator<Object[]> cmpPartitionBy;
+    @Nullable
+    private final Comparator<Object[]> cmpOrderBy;
+    private final int numCellsInSourceRow;
+    private final List<WindowFunction> windowFunctions;
+    private final List<? extends CollectExpression<Row, ?>> argsExpressions;
+    private final Input[][] args;
+    private final Function<Object[], Row> arrayToRow = Buckets.arrayToSharedRow();
+
+    private List<Object[]> partition = new ArrayList<>();
+    @Nullable
+    private Object[] firstRowOfNextPartition;
+    @Nullable
+    private Iterator<Object[]> results;
+    private boolean sourceExhausted = false;
+    private Row current;
+
+    /**
+     * @param rowAccounting must only account for the rows of the partition buffer, it is released after each partition.
+     */
+    StreamingWindowFunctionBatchIterator(BatchIterator<Row> source,
+                                         RowAccounting<Row> rowAccounting,
+                                         ComputeFrameBoundary<Object[]> computeFrameStart,
+                                         ComputeFrameBoundary<Object[]> computeFrameEnd,
+                                         Comparator<Object[]> cmpPartitionBy,
+                                         @Nullable Comparator<Object[]> cmpOrderBy,
+                                         int numCellsInSourceRow,
+                                         List<WindowFunction> windowFunctions,
+                                         List<? extends CollectExpression<Row, ?>> argsExpressions,
+                                         Input[]... args) {
+        this.source = source;
+        this.rowAccounting = rowAccounting;
+        this.computeFrameStart = computeFrameStart;
+        this.computeFrameEnd = computeFrameEnd;
+        this.cmpPartitionBy = cmpPartitionBy;
+        this.cmpOrderBy = cmpOrderBy;
+        this.numCellsInSourceRow = numCellsInSourceRow;
+        this.windowFunctions = windowFunctions;
+        this.argsExpressions = argsExpressions;
+        this.args = args;
+    }
+
+    @Override
+    public Row currentElement() {
+        return current;
+    }
+
+    @Override
+    public void moveToStart() {
+        source.moveToStart();
+        resetPartition();
+        firstRowOfNextPartition = null;
+        sourceExhausted = false;
+        current = null;
+    }
+
+    @Override
+    public boolean moveNext() {
+        while (true) {
+            if (results != null) {
+                if (results.hasNext()) {
+                    current = arrayToRow.apply(results.next());
+                    return true;
+                }
+                startNextPartition();
+            }
+            if (sourceExhausted) {
+                if (partition.isEmpty()) {
+                    current = null;
+                    return false;
+                }
+                results = computePartition();
+            } else if (source.moveNext()) {
+                Row row = source.currentElement();
+                rowAccounting.accountForAndMaybeBreak(row);
+                Object[] cells = materializeWithSpare(row, windowFunctions.size());
+                if (partition.isEmpty() || cmpPartitionBy.compare(partition.get(partition.size() - 1), cells) == 0) {
+                    partition.add(cells);
+                } else {
+                    firstRowOfNextPartition = cells;
+                    results = computePartition();
+                }
+            } else if (source.allLoaded()) {
+                sourceExhausted = true;
+            } else {
+                return false;
+            }
+        }
+    }
+
+    private Iterator<Object[]> computePartition() {
+        if (cmpOrderBy != null) {
+            partition.sort(cmpOrderBy);
+        }
+        return computeWindowFunctions(
+            partition,
+            computeFrameStart,
+            computeFrameEnd,
+            null,
+            numCellsInSourceRow,
+            windowFunctions,
+            argsExpressions,
+            args
+        ).iterator();
+    }
+
+    private void startNextPartition() {
+        resetPartition();
+        if (firstRowOfNextPartition != null) {
+            rowAccounting.accountForAndMaybeBreak(new RowN(firstRowOfNextPartition));
+            partition.add(firstRowOfNextPartition);
+            firstRowOfNextPartition = null;
+        }
+    }
+
+    private void resetPartition() {
+        results = null;
+        partition = new ArrayList<>();
+        rowAccounting.release();
+    }
+
+    @Override
+    public void close() {
+        source.close();
+        partition = new ArrayList<>();
+        firstRowOfNextPartition = null;
+        results = null;
+    }
+
+    @Override
+    public CompletionStage<?> loadNextBatch() {
+        if (sourceExhausted) {
+            return CompletableFuture.failedFuture(new IllegalStateException("BatchIterator already fully loaded"));
+        }
+        return source.loadNextBatch();
+    }
+
+    @Override
+    public boolean allLoaded() {
+        return source.allLoaded();
+    }
+
+    @Override
+    public void kill(@Nonnull Throwable throwable) {
+        source.kill(throwable);
+    }
+
+    @Override
+    public boolean involvesIO() {
+        return source.involvesIO();
+    }
+}
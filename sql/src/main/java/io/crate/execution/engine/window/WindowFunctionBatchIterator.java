@@ -116,7 +116,7 @@ public final class WindowFunctionBatchIterator {
         );
     }
 
-    private static Object[] materializeWithSpare(Row row, int numWindowFunctions) {
+    static Object[] materializeWithSpare(Row row, int numWindowFunctions) {
         Object[] cells = new Object[row.numColumns() + numWindowFunctions];
         for (int i = 0; i < row.numColumns(); i++) {
             cells[i] = row.get(i);
@@ -157,14 +157,14 @@ public final class WindowFunctionBatchIterator {
         }
     }
 
-    private static Iterable<Object[]> computeWindowFunctions(List<Object[]> sortedRows,
-                                                             ComputeFrameBoundary<Object[]> computeFrameStart,
-                                                             ComputeFrameBoundary<Object[]> computeFrameEnd,
-                                                             @Nullable Comparator<Object[]> cmpPartitionBy,
-                                                             int numCellsInSourceRow,
-                                                             List<WindowFunction> windowFunctions,
-                                                             List<? extends CollectExpression<Row, ?>> argsExpressions,
-                                                             Input[]... args) {
+    static Iterable<Object[]> computeWindowFunctions(List<Object[]> sortedRows,
+                                                     ComputeFrameBoundary<Object[]> computeFrameStart,
+                                                     ComputeFrameBoundary<Object[]> computeFrameEnd,
+                                                     @Nullable Comparator<Object[]> cmpPartitionBy,
+                                                     int numCellsInSourceRow,
+                                                     List<WindowFunction> windowFunctions,
+                                                     List<? extends CollectExpression<Row, ?>> argsExpressions,
+                                                     Input[]... args) {
         return () -> new Iterator<>() {
 
             private boolean isTraceEnabled = LOGGER.isTraceEnabled();
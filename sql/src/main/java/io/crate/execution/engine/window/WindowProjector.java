@@ -24,14 +24,19 @@ package io.crate.execution.engine.window;
 
 import io.crate.analyze.OrderBy;
 import io.crate.analyze.WindowDefinition;
+import io.crate.breaker.ChildRamAccounting;
 import io.crate.breaker.RamAccounting;
 import io.crate.breaker.RowAccountingWithEstimators;
+import io.crate.breaker.RowCellsAccountingWithEstimators;
 import io.crate.data.Input;
 import io.crate.data.Projector;
 import io.crate.data.Row;
 import io.crate.execution.dsl.projection.WindowAggProjection;
 import io.crate.execution.engine.aggregation.AggregationFunction;
 import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.execution.engine.collect.InputCollectExpression;
+import io.crate.execution.engine.sort.SortingProjector;
+import io.crate.execution.engine.spill.SpillFileFactory;
 import io.crate.expression.ExpressionsInput;
 import io.crate.expression.InputFactory;
 import io.crate.expression.symbol.InputColumn;
@@ -44,6 +49,7 @@ import io.crate.metadata.Functions;
 import io.crate.metadata.TransactionContext;
 import io.crate.sql.tree.WindowFrame;
 import io.crate.types.DataType;
+import io.crate.types.DataTypes;
 import io.crate.types.IntervalType;
 import org.elasticsearch.Version;
 
@@ -70,7 +76,8 @@ public class WindowProjector {
                                            Version minNodeVersion,
                                            Version indexVersionCreated,
                                            IntSupplier numThreads,
-                                           Executor executor) {
+                                           Executor executor,
+                                           @Nullable SpillFileFactory spillFileFactory) {
         var windowFunctionContexts = projection.windowFunctionContexts();
         var numWindowFunctions = windowFunctionContexts.size();
 
@@ -121,6 +128,10 @@ public class WindowProjector {
         int arrayListElementOverHead = 32;
         RowAccountingWithEstimators accounting = new RowAccountingWithEstimators(
             Symbols.typeView(projection.standalone()), ramAccounting, arrayListElementOverHead);
+        // The streaming iterator releases its accounting after each partition,
+        // that must only release the rows of the partition buffer
+        RowAccountingWithEstimators partitionAccounting = new RowAccountingWithEstimators(
+            Symbols.typeView(projection.standalone()), new ChildRamAccounting(ramAccounting), arrayListElementOverHead);
         Comparator<Object[]> cmpPartitionBy = partitions.isEmpty()
             ? null
             : createComparator(createInputFactoryContext, new OrderBy(windowDefinition.partitions()));
@@ -140,6 +151,44 @@ public class WindowProjector {
             windowDefinition,
             cmpOrderBy
         );
+        if (cmpPartitionBy != null) {
+            if (projection.sourceSortedByPartitions()) {
+                return sourceRows -> new StreamingWindowFunctionBatchIterator(
+                    sourceRows,
+                    partitionAccounting,
+                    computeFrameStart,
+                    computeFrameEnd,
+                    cmpPartitionBy,
+                    cmpOrderBy,
+                    numCellsInSourceRow,
+                    windowFunctions,
+                    windowFuncArgsExpressions,
+                    windowFuncArgsInputs
+                );
+            }
+            if (spillFileFactory != null && spillFileFactory.isEnabled()) {
+                // Sort the rows by the partitions using an external sort, which can spill to disk,
+                // so that only the rows of one partition have to be kept in memory
+                SortingProjector sortByPartitions = createSortByPartitions(
+                    Symbols.typeView(projection.standalone()),
+                    cmpOrderBy == null ? cmpPartitionBy : cmpPartitionBy.thenComparing(cmpOrderBy),
+                    ramAccounting,
+                    spillFileFactory
+                );
+                return sourceRows -> new StreamingWindowFunctionBatchIterator(
+                    sortByPartitions.apply(sourceRows),
+                    partitionAccounting,
+                    computeFrameStart,
+                    computeFrameEnd,
+                    cmpPartitionBy,
+                    cmpOrderBy,
+                    numCellsInSourceRow,
+                    windowFunctions,
+                    windowFuncArgsExpressions,
+                    windowFuncArgsInputs
+                );
+            }
+        }
         return sourceRows -> WindowFunctionBatchIterator.of(
             sourceRows,
             accounting,
@@ -156,6 +205,29 @@ public class WindowProjector {
         );
     }
 
+    private static SortingProjector createSortByPartitions(List<DataType> rowTypes,
+                                                           Comparator<Object[]> cmpPartitionThenOrderBy,
+                                                           RamAccounting ramAccounting,
+                                                           SpillFileFactory spillFileFactory) {
+        int numColumns = rowTypes.size();
+        List<InputCollectExpression> inputs = new ArrayList<>(numColumns);
+        for (int i = 0; i < numColumns; i++) {
+            inputs.add(new InputCollectExpression(i));
+        }
+        int arrayListElementOverHead = 32;
+        return new SortingProjector(
+            new RowCellsAccountingWithEstimators(rowTypes, new ChildRamAccounting(ramAccounting), arrayListElementOverHead),
+            inputs,
+            inputs,
+            numColumns,
+            cmpPartitionThenOrderBy,
+            0,
+            DataTypes.getStreamers(rowTypes),
+            spillFileFactory,
+            ramAccounting
+        );
+    }
+
     static ComputeFrameBoundary<Object[]> createComputeEndFrameBoundary(int numCellsInSourceRow,
                                                                         Functions functions,
                                                                         TransactionContext txnCtx,
@@ -37,6 +37,7 @@ import com.carrotsearch.hppc.procedures.ObjectProcedure;
 import com.google.common.base.MoreObjects;
 import io.crate.Streamer;
 import io.crate.breaker.BlockBasedRamAccounting;
+import io.crate.breaker.ChildRamAccounting;
 import io.crate.breaker.ConcurrentRamAccounting;
 import io.crate.breaker.CrateCircuitBreakerService;
 import io.crate.breaker.RamAccounting;
@@ -81,6 +82,7 @@ import io.crate.execution.engine.join.NestedLoopOperation;
 import io.crate.execution.engine.pipeline.ProjectingRowConsumer;
 import io.crate.execution.engine.pipeline.ProjectionToProjectorVisitor;
 import io.crate.execution.engine.pipeline.ProjectorFactory;
+import io.crate.execution.engine.spill.SpillFileFactory;
 import io.crate.expression.InputFactory;
 import io.crate.expression.RowFilter;
 import io.crate.expression.eval.EvaluatingNormalizer;
@@ -133,6 +135,7 @@ public class JobSetup {
     private final CrateCircuitBreakerService circuitBreakerService;
     private final CountOperation countOperation;
     private final MemoryManagerFactory memoryManagerFactory;
+    private final SpillFileFactory spillFileFactory;
     private final DistributingConsumerFactory distributingConsumerFactory;
     private final InnerPreparer innerPreparer;
     private final InputFactory inputFactory;
@@ -156,13 +159,15 @@ public class JobSetup {
                     PageCacheRecycler pageCacheRecycler,
                     SystemCollectSource systemCollectSource,
                     ShardCollectSource shardCollectSource,
-                    MemoryManagerFactory memoryManagerFactory) {
+                    MemoryManagerFactory memoryManagerFactory,
+                    SpillFileFactory spillFileFactory) {
         this.nodeName = Node.NODE_NAME_SETTING.get(settings);
         this.collectOperation = collectOperation;
         this.clusterService = clusterService;
         this.circuitBreakerService = circuitBreakerService;
         this.countOperation = countOperation;
         this.memoryManagerFactory = memoryManagerFactory;
+        this.spillFileFactory = spillFileFactory;
         this.pkLookupOperation = new PKLookupOperation(indicesService, shardCollectSource);
         this.distributingConsumerFactory = distributingConsumerFactory;
         innerPreparer = new InnerPreparer();
@@ -181,7 +186,8 @@ public class JobSetup {
             normalizer,
             systemCollectSource::getRowUpdater,
             systemCollectSource::tableDefinition,
-            bigArrays
+            bigArrays,
+            spillFileFactory
         );
     }
 
@@ -916,6 +922,7 @@ public class JobSetup {
                 phase.numLeftOutputs(),
                 phase.numRightOutputs(),
                 firstConsumer,
+                phase.joinType(),
                 joinCondition,
                 phase.leftJoinConditionInputs(),
                 phase.rightJoinConditionInputs(),
@@ -923,12 +930,18 @@ public class JobSetup {
                 //    96 bytes for each ArrayList +
                 //    7 bytes per key for the IntHashObjectHashMap  (should be 4 but the map pre-allocates more)
                 //    7 bytes perv value (pointer from the map to the list) (should be 4 but the map pre-allocates more)
-                new RowAccountingWithEstimators(phase.leftOutputTypes(), ramAccountingContext, 110),
+                // The rows are released once per block, which must not release the other bytes of the phase
+                new RowAccountingWithEstimators(
+                    phase.leftOutputTypes(), new ChildRamAccounting(ramAccountingContext), 110),
+                ramAccountingContext,
                 context.transactionContext,
                 inputFactory,
                 breaker(),
                 phase.estimatedRowSizeForLeft(),
-                phase.numberOfRowsForLeft());
+                phase.numberOfRowsForLeft(),
+                phase.leftOutputTypes(),
+                phase.rightOutputTypes(),
+                spillFileFactory);
             DistResultRXTask left = pageDownstreamContextForNestedLoop(
                 phase.phaseId(),
                 context,
@@ -101,22 +101,18 @@ public class AndOperator extends Operator<Boolean> {
         // implement three valued logic.
         // don't touch anything unless you have a good reason for it! :)
         // http://en.wikipedia.org/wiki/Three-valued_logic
+        //
+        // The right side is only evaluated if the left side doesn't already decide the result;
+        // it may be an expensive expression (e.g. a regex match or a nested function call).
         Boolean left = args[0].value();
-        Boolean right = args[1].value();
-
-        if (left == null && right == null) {
-            return null;
-        }
-
         if (left == null) {
-            return (!right) ? false : null;
+            Boolean right = args[1].value();
+            return (right == null || right) ? null : false;
         }
-
-        if (right == null) {
-            return (!left) ? false : null;
+        if (!left) {
+            return false;
         }
-
-        return left && right;
+        return args[1].value();
     }
 
     public static Function of(Symbol first, Symbol second) {
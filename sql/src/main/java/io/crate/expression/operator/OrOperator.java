@@ -99,22 +99,17 @@ public class OrOperator extends Operator<Boolean> {
         // implement three valued logic.
         // don't touch anything unless you have a good reason for it! :)
         // http://en.wikipedia.org/wiki/Three-valued_logic
+        //
+        // The right side is only evaluated if the left side doesn't already decide the result.
         Boolean left = args[0].value();
-        Boolean right = args[1].value();
-
-        if (left == null && right == null) {
-            return null;
-        }
-
         if (left == null) {
-            return (right) ? true : null;
+            Boolean right = args[1].value();
+            return (right != null && right) ? true : null;
         }
-
-        if (right == null) {
-            return (left) ? true : null;
+        if (left) {
+            return true;
         }
-
-        return left || right;
+        return args[1].value();
     }
 
 }
@@ -92,6 +92,7 @@ public class DocCollectorExpression extends LuceneCollectorExpression<Map<String
         @Override
         public void startCollect(CollectorContext context) {
             sourceLookup = context.sourceLookup();
+            sourceLookup.registerPath(path);
         }
 
         @Override
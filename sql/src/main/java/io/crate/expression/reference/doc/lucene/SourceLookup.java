@@ -25,24 +25,44 @@ package io.crate.expression.reference.doc.lucene;
 
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.elasticsearch.ElasticsearchParseException;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.DeprecationHandler;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.XContentType;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.RandomAccess;
 
+/**
+ * Provides access to the {@code _source} of a document.
+ *
+ * <p>
+ * If the consumers of the source registered the paths they're going to read (see {@link #registerPath(List)}),
+ * the source is parsed in a streaming fashion and only the registered paths are materialized.
+ * Everything else is skipped on the token level. The full source is parsed if an unregistered path or the
+ * whole source is accessed.
+ * </p>
+ */
 public final class SourceLookup {
 
     private final SourceFieldVisitor fieldsVisitor = new SourceFieldVisitor();
     private LeafReader reader;
     private int doc;
     private Map<String, Object> source;
+    private boolean sourceIsPartial = false;
     private boolean docVisited = false;
 
+    @Nullable
+    private PathTree requestedPaths;
+
     SourceLookup() {
     }
 
@@ -54,17 +74,38 @@ public final class SourceLookup {
         fieldsVisitor.reset();
         this.docVisited = false;
         this.source = null;
+        this.sourceIsPartial = false;
         this.reader = context.reader();
         this.doc = doc;
     }
 
+    /**
+     * Register a path which will be read using {@link #get(List)}.
+     * If all accessed paths are registered upfront, only these paths are extracted from the source.
+     */
+    public void registerPath(List<String> path) {
+        if (requestedPaths == null) {
+            requestedPaths = new PathTree();
+        }
+        requestedPaths.add(path);
+    }
+
     public Object get(List<String> path) {
-        ensureSourceParsed();
+        if (source == null || sourceIsPartial) {
+            if (requestedPaths != null && requestedPaths.covers(path)) {
+                if (source == null) {
+                    source = loadPartialSource(requestedPaths);
+                    sourceIsPartial = true;
+                }
+            } else {
+                ensureFullSourceParsed();
+            }
+        }
         return extractValue(source, path, 0);
     }
 
     public Map<String, Object> sourceAsMap() {
-        ensureSourceParsed();
+        ensureFullSourceParsed();
         return source;
     }
 
@@ -78,9 +119,24 @@ public final class SourceLookup {
         return XContentHelper.convertToMap(fieldsVisitor.source(), false, XContentType.JSON).v2();
     }
 
-    private void ensureSourceParsed() {
-        if (source == null) {
+    private Map<String, Object> loadPartialSource(PathTree paths) {
+        ensureDocVisited();
+        // It is safe to use EMPTY here because this never uses namedObject
+        try (XContentParser parser = XContentHelper.createParser(
+            NamedXContentRegistry.EMPTY,
+            DeprecationHandler.THROW_UNSUPPORTED_OPERATION,
+            fieldsVisitor.source(),
+            XContentType.JSON)) {
+            return extractPaths(parser, paths);
+        } catch (IOException e) {
+            throw new ElasticsearchParseException("Failed to parse content to map", e);
+        }
+    }
+
+    private void ensureFullSourceParsed() {
+        if (source == null || sourceIsPartial) {
             source = loadSource();
+            sourceIsPartial = false;
         }
     }
 
@@ -125,4 +181,129 @@ public final class SourceLookup {
         }
         return tmp;
     }
+
+    /**
+     * Parses the source using the given parser, but only materializes the values of the given paths.
+     * The result has the same structure as the fully parsed source, restricted to the given paths,
+     * so that {@link #extractValue(Map, List, int)} can be used on it.
+     */
+    static Map<String, Object> extractPaths(XContentParser parser, PathTree paths) throws IOException {
+        XContentParser.Token token = parser.nextToken();
+        if (token != XContentParser.Token.START_OBJECT) {
+            return new HashMap<>();
+        }
+        if (paths.includeAll) {
+            return parser.map();
+        }
+        Map<String, Object> map = new HashMap<>();
+        for (token = parser.nextToken(); token == XContentParser.Token.FIELD_NAME; token = parser.nextToken()) {
+            String fieldName = parser.currentName();
+            PathTree child = paths.children.get(fieldName);
+            token = parser.nextToken();
+            if (child == null) {
+                parser.skipChildren();
+            } else {
+                map.put(fieldName, readFilteredValue(parser, token, child));
+                if (map.size() == paths.children.size()) {
+                    // All requested top-level columns found, no need to look at the rest of the document
+                    break;
+                }
+            }
+        }
+        return map;
+    }
+
+    private static Map<String, Object> readFilteredMap(XContentParser parser, PathTree paths) throws IOException {
+        Map<String, Object> map = new HashMap<>();
+        for (XContentParser.Token token = parser.nextToken();
+             token == XContentParser.Token.FIELD_NAME;
+             token = parser.nextToken()) {
+
+            String fieldName = parser.currentName();
+            PathTree child = paths.children.get(fieldName);
+            token = parser.nextToken();
+            if (child == null) {
+                parser.skipChildren();
+            } else {
+                map.put(fieldName, readFilteredValue(parser, token, child));
+            }
+        }
+        return map;
+    }
+
+    private static Object readFilteredValue(XContentParser parser,
+                                            XContentParser.Token token,
+                                            PathTree paths) throws IOException {
+        if (paths.includeAll) {
+            return readValue(parser, token);
+        }
+        if (token == XContentParser.Token.START_OBJECT) {
+            return readFilteredMap(parser, paths);
+        }
+        if (token == XContentParser.Token.START_ARRAY) {
+            ArrayList<Object> list = new ArrayList<>();
+            for (token = parser.nextToken();
+                 token != null && token != XContentParser.Token.END_ARRAY;
+                 token = parser.nextToken()) {
+                list.add(readFilteredValue(parser, token, paths));
+            }
+            return list;
+        }
+        return readValue(parser, token);
+    }
+
+    private static Object readValue(XContentParser parser, XContentParser.Token token) throws IOException {
+        switch (token) {
+            case VALUE_STRING:
+                return parser.text();
+            case VALUE_NUMBER:
+                return parser.numberValue();
+            case VALUE_BOOLEAN:
+                return parser.booleanValue();
+            case START_OBJECT:
+                return parser.map();
+            case START_ARRAY:
+                return parser.list();
+            case VALUE_EMBEDDED_OBJECT:
+                return parser.binaryValue();
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * A prefix tree of the paths requested from the source.
+     * A node with {@code includeAll} set includes the whole subtree below it.
+     */
+    static final class PathTree {
+
+        private final Map<String, PathTree> children = new HashMap<>();
+        private boolean includeAll = false;
+
+        void add(List<String> path) {
+            PathTree node = this;
+            for (int i = 0; i < path.size(); i++) {
+                if (node.includeAll) {
+                    return;
+                }
+                node = node.children.computeIfAbsent(path.get(i), k -> new PathTree());
+            }
+            node.includeAll = true;
+            node.children.clear();
+        }
+
+        boolean covers(List<String> path) {
+            PathTree node = this;
+            for (int i = 0; i < path.size(); i++) {
+                if (node.includeAll) {
+                    return true;
+                }
+                node = node.children.get(path.get(i));
+                if (node == null) {
+                    return false;
+                }
+            }
+            return node.includeAll;
+        }
+    }
 }
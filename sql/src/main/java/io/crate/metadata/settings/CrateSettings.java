@@ -27,8 +27,10 @@ import com.google.common.base.Joiner;
 import io.crate.breaker.CrateCircuitBreakerService;
 import io.crate.cluster.gracefulstop.DecommissioningService;
 import io.crate.execution.engine.collect.NestableCollectExpression;
+import io.crate.execution.engine.collect.sources.ShardCollectSource;
 import io.crate.execution.engine.collect.stats.JobsLogService;
 import io.crate.execution.engine.indexing.ShardingUpsertExecutor;
+import io.crate.execution.engine.spill.SpillFileFactory;
 import io.crate.expression.NestableInput;
 import io.crate.expression.reference.NestedObjectExpression;
 import io.crate.memory.MemoryManagerFactory;
@@ -105,7 +107,10 @@ public final class CrateSettings implements ClusterStateListener {
         UDCService.UDC_INITIAL_DELAY_SETTING,
         UDCService.UDC_INTERVAL_SETTING,
 
-        MemoryManagerFactory.MEMORY_ALLOCATION_TYPE
+        MemoryManagerFactory.MEMORY_ALLOCATION_TYPE,
+        SpillFileFactory.SPILL_ENABLED,
+
+        ShardCollectSource.PARALLEL_SEGMENTS_ENABLED
     );
 
     private static final List<CrateSetting> EXPOSED_ES_SETTINGS = List.of(
@@ -54,6 +54,7 @@ public class SysSchemaInfo implements SchemaInfo {
         tableInfos.put(SysJobsLogTableInfo.IDENT.name(), new SysJobsLogTableInfo(localNode));
         tableInfos.put(SysOperationsTableInfo.IDENT.name(), new SysOperationsTableInfo(localNode));
         tableInfos.put(SysOperationsLogTableInfo.IDENT.name(), new SysOperationsLogTableInfo());
+        tableInfos.put(SysCursorsTableInfo.IDENT.name(), new SysCursorsTableInfo(localNode));
         tableInfos.put(SysChecksTableInfo.IDENT.name(), new SysChecksTableInfo());
         tableInfos.put(SysNodeChecksTableInfo.IDENT.name(), new SysNodeChecksTableInfo());
         tableInfos.put(SysRepositoriesTableInfo.IDENT.name(), new SysRepositoriesTableInfo(clusterService.getClusterSettings().maskedSettings()));
@@ -22,6 +22,7 @@
 
 package io.crate.metadata.sys;
 
+import io.crate.action.sql.Cursors;
 import io.crate.analyze.user.Privilege;
 import io.crate.execution.engine.collect.files.SummitsIterable;
 import io.crate.execution.engine.collect.stats.JobsLogs;
@@ -52,6 +53,7 @@ public class SysTableDefinitions {
 
     @Inject
     public SysTableDefinitions(JobsLogs jobsLogs,
+                               Cursors cursors,
                                ClusterService clusterService,
                                SysSchemaInfo sysSchemaInfo,
                                Set<SysCheck> sysChecks,
@@ -87,6 +89,11 @@ public class SysTableDefinitions {
             () -> completedFuture(jobsLogs.operationsLog()),
             SysOperationsLogTableInfo.expressions(),
             false));
+        tableDefinitions.put(SysCursorsTableInfo.IDENT, new StaticTableDefinition<>(
+            () -> completedFuture(cursors.cursors()),
+            SysCursorsTableInfo.expressions(localNode),
+            (user, cursor) -> user.isSuperUser() || user.name().equals(cursor.username()),
+            false));
 
         SysChecker<SysCheck> sysChecker = new SysChecker<>(sysChecks);
         tableDefinitions.put(SysChecksTableInfo.IDENT, new StaticTableDefinition<>(
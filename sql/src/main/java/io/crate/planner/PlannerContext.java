@@ -30,6 +30,7 @@ import io.crate.metadata.Functions;
 import io.crate.metadata.Routing;
 import io.crate.metadata.RoutingProvider;
 import io.crate.metadata.table.TableInfo;
+import org.elasticsearch.Version;
 import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.routing.ShardRouting;
 
@@ -134,4 +135,8 @@ public class PlannerContext {
     public Functions functions() {
         return functions;
     }
+
+    public Version minNodeVersion() {
+        return clusterState.getNodes().getMinNodeVersion();
+    }
 }
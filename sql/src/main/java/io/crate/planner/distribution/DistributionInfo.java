@@ -21,11 +21,13 @@
 
 package io.crate.planner.distribution;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 public class DistributionInfo implements Writeable {
 
@@ -34,34 +36,69 @@ public class DistributionInfo implements Writeable {
     public static final DistributionInfo DEFAULT_MODULO = new DistributionInfo(DistributionType.MODULO);
 
     private DistributionType distributionType;
-    private int distributeByColumn;
+    private int[] distributeByColumns;
 
     public DistributionInfo(DistributionType distributionType, int distributeByColumn) {
+        this(distributionType, new int[] { distributeByColumn });
+    }
+
+    /**
+     * @param distributeByColumns the columns whose combined hash determines the target of a row
+     *                            in case of {@link DistributionType#MODULO} distribution.
+     */
+    public DistributionInfo(DistributionType distributionType, int[] distributeByColumns) {
+        assert distributeByColumns.length > 0 : "Must have at least one distributeByColumn";
         this.distributionType = distributionType;
-        this.distributeByColumn = distributeByColumn;
+        this.distributeByColumns = distributeByColumns;
     }
 
     public DistributionInfo(StreamInput in) throws IOException {
         distributionType = DistributionType.values()[in.readVInt()];
-        distributeByColumn = in.readVInt();
+        int distributeByColumn = in.readVInt();
+        if (in.getVersion().onOrAfter(Version.V_4_1_0)) {
+            distributeByColumns = in.readVIntArray();
+        } else {
+            distributeByColumns = new int[] { distributeByColumn };
+        }
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeVInt(distributionType.ordinal());
-        out.writeVInt(distributeByColumn);
+        out.writeVInt(distributeByColumns[0]);
+        if (out.getVersion().onOrAfter(Version.V_4_1_0)) {
+            out.writeVIntArray(distributeByColumns);
+        }
     }
 
     public DistributionInfo(DistributionType distributionType) {
         this(distributionType, 0);
     }
 
+    /**
+     * Creates a {@link DistributionType#MODULO} distribution by the combined hash of the given columns.
+     * <p>
+     * All upstream nodes must compute the same bucket for a row. Nodes before 4.1.0 only support to distribute
+     * by a single column, so only the first column is used as long as such nodes are part of the cluster.
+     * </p>
+     */
+    public static DistributionInfo modulo(Version minNodeVersion, int[] distributeByColumns) {
+        if (distributeByColumns.length > 1 && minNodeVersion.before(Version.V_4_1_0)) {
+            return new DistributionInfo(DistributionType.MODULO, distributeByColumns[0]);
+        }
+        return new DistributionInfo(DistributionType.MODULO, distributeByColumns);
+    }
+
     public DistributionType distributionType() {
         return distributionType;
     }
 
     public int distributeByColumn() {
-        return distributeByColumn;
+        return distributeByColumns[0];
+    }
+
+    public int[] distributeByColumns() {
+        return distributeByColumns;
     }
 
     @Override
@@ -71,13 +108,13 @@ public class DistributionInfo implements Writeable {
 
         DistributionInfo that = (DistributionInfo) o;
 
-        return distributeByColumn == that.distributeByColumn && distributionType == that.distributionType;
+        return Arrays.equals(distributeByColumns, that.distributeByColumns) && distributionType == that.distributionType;
     }
 
     @Override
     public int hashCode() {
         int result = distributionType.hashCode();
-        result = 31 * result + distributeByColumn;
+        result = 31 * result + Arrays.hashCode(distributeByColumns);
         return result;
     }
 
@@ -85,7 +122,7 @@ public class DistributionInfo implements Writeable {
     public String toString() {
         return "DistributionInfo{" +
                "distributionType=" + distributionType +
-               ", distributeByColumn=" + distributeByColumn +
+               ", distributeByColumns=" + Arrays.toString(distributeByColumns) +
                '}';
     }
 }
@@ -193,7 +193,7 @@ public class GroupHashAggregate extends ForwardingLogicalPlan {
             source.preferShardProjections() ? RowGranularity.SHARD : RowGranularity.NODE
         );
         executionPlan.addProjection(toPartial);
-        executionPlan.setDistributionInfo(DistributionInfo.DEFAULT_MODULO);
+        executionPlan.setDistributionInfo(distributeByGroupKeys(plannerContext));
 
         GroupProjection toFinal = projectionBuilder.groupProjection(
             this.outputs,
@@ -210,6 +210,19 @@ public class GroupHashAggregate extends ForwardingLogicalPlan {
         );
     }
 
+    /**
+     * The outputs of the partial group projection start with the group keys.
+     * Distributing by all of them instead of only the first avoids that a low cardinality first key
+     * ends up on few nodes.
+     */
+    private DistributionInfo distributeByGroupKeys(PlannerContext plannerContext) {
+        int[] groupKeyColumns = new int[groupKeys.size()];
+        for (int i = 0; i < groupKeyColumns.length; i++) {
+            groupKeyColumns[i] = i;
+        }
+        return DistributionInfo.modulo(plannerContext.minNodeVersion(), groupKeyColumns);
+    }
+
     @Override
     public List<Symbol> outputs() {
         return outputs;
@@ -43,9 +43,10 @@ import io.crate.planner.PlannerContext;
 import io.crate.planner.ResultDescription;
 import io.crate.statistics.TableStats;
 import io.crate.planner.distribution.DistributionInfo;
-import io.crate.planner.distribution.DistributionType;
 import io.crate.planner.node.dql.join.Join;
 import io.crate.planner.node.dql.join.JoinType;
+import io.crate.planner.selectivity.SelectivityFunctions;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.collect.Tuple;
 
 import javax.annotation.Nullable;
@@ -61,6 +62,7 @@ import static io.crate.planner.operators.LogicalPlanner.NO_LIMIT;
 
 public class HashJoin implements LogicalPlan {
 
+    private final JoinType joinType;
     private final Symbol joinCondition;
     private final TableStats tableStats;
     @VisibleForTesting
@@ -71,10 +73,16 @@ public class HashJoin implements LogicalPlan {
 
     public HashJoin(LogicalPlan lhs,
                     LogicalPlan rhs,
+                    JoinType joinType,
                     Symbol joinCondition,
                     AnalyzedRelation concreteRelation,
                     TableStats tableStats) {
-        this.outputs = Lists2.concat(lhs.outputs(), rhs.outputs());
+        if (joinType == JoinType.SEMI) {
+            this.outputs = lhs.outputs();
+        } else {
+            this.outputs = Lists2.concat(lhs.outputs(), rhs.outputs());
+        }
+        this.joinType = joinType;
         this.lhs = lhs;
         this.rhs = rhs;
         this.concreteRelation = concreteRelation;
@@ -83,7 +91,7 @@ public class HashJoin implements LogicalPlan {
     }
 
     public JoinType joinType() {
-        return JoinType.INNER;
+        return joinType;
     }
 
     public Symbol joinCondition() {
@@ -126,10 +134,15 @@ public class HashJoin implements LogicalPlan {
         LogicalPlan rightLogicalPlan = rhs;
 
         boolean tablesSwitched = false;
+        JoinType joinType = this.joinType;
         // We move smaller table to the right side since benchmarking
         // revealed that this improves performance in most cases.
-        if (lhs.numExpectedRows() < rhs.numExpectedRows()) {
+        // Other join types than INNER require the side whose rows must be tracked for matches on the left,
+        // so RIGHT joins are always switched and LEFT, SEMI and ANTI joins never.
+        if (joinType == JoinType.RIGHT
+            || (joinType == JoinType.INNER && lhs.numExpectedRows() < rhs.numExpectedRows())) {
             tablesSwitched = true;
+            joinType = joinType.invert();
             leftLogicalPlan = rhs;
             rightLogicalPlan = lhs;
 
@@ -168,8 +181,10 @@ public class HashJoin implements LogicalPlan {
         } else {
             if (isDistributed) {
                 // Run the join distributed by modulo distribution algorithm
-                leftOutputs = setModuloDistribution(hashSymbols.v1(), leftLogicalPlan.outputs(), leftExecutionPlan);
-                rightOutputs = setModuloDistribution(hashSymbols.v2(), rightLogicalPlan.outputs(), rightExecutionPlan);
+                leftOutputs = setModuloDistribution(
+                    hashSymbols.v1(), leftLogicalPlan.outputs(), leftExecutionPlan, plannerContext.minNodeVersion());
+                rightOutputs = setModuloDistribution(
+                    hashSymbols.v2(), rightLogicalPlan.outputs(), rightExecutionPlan, plannerContext.minNodeVersion());
             } else {
                 // Run the join non-distributed on the handler node
                 joinExecutionNodes = Collections.singletonList(plannerContext.handlerNode());
@@ -192,10 +207,12 @@ public class HashJoin implements LogicalPlan {
             leftOutputs.size(),
             rightOutputs.size(),
             joinExecutionNodes,
+            joinType,
             InputColumns.create(joinCondition, joinOutputs),
             InputColumns.create(hashSymbols.v1(), new InputColumns.SourceSymbols(leftOutputs)),
             InputColumns.create(hashSymbols.v2(), new InputColumns.SourceSymbols(rightOutputs)),
             Symbols.typeView(leftOutputs),
+            Symbols.typeView(rightOutputs),
             leftLogicalPlan.estimatedRowSize(),
             leftLogicalPlan.numExpectedRows());
         return new Join(
@@ -227,9 +244,17 @@ public class HashJoin implements LogicalPlan {
 
     @Override
     public LogicalPlan replaceSources(List<LogicalPlan> sources) {
+        return replaceSources(sources, joinType);
+    }
+
+    /**
+     * Like {@link #replaceSources(List)}, but also changes the join type. Used to turn outer joins into inner joins.
+     */
+    public HashJoin replaceSources(List<LogicalPlan> sources, JoinType joinType) {
         return new HashJoin(
             sources.get(0),
             sources.get(1),
+            joinType,
             joinCondition,
             concreteRelation,
             tableStats
@@ -255,7 +280,11 @@ public class HashJoin implements LogicalPlan {
 
     @Override
     public long numExpectedRows() {
-        // We don't have any cardinality estimates, so just take the bigger table
+        if (joinType == JoinType.INNER) {
+            return SelectivityFunctions.estimateJoinNumRows(
+                tableStats, joinCondition, lhs.numExpectedRows(), rhs.numExpectedRows());
+        }
+        // We don't have any cardinality estimates for outer joins, so just take the bigger table
         return Math.max(lhs.numExpectedRows(), rhs.numExpectedRows());
     }
 
@@ -271,25 +300,38 @@ public class HashJoin implements LogicalPlan {
 
     private List<Symbol> setModuloDistribution(List<Symbol> joinSymbols,
                                                List<Symbol> planOutputs,
-                                               ExecutionPlan executionPlan) {
+                                               ExecutionPlan executionPlan,
+                                               Version minNodeVersion) {
         List<Symbol> outputs = planOutputs;
-        Symbol firstJoinSymbol = joinSymbols.get(0);
-        int distributeBySymbolPos = planOutputs.indexOf(firstJoinSymbol);
-        if (distributeBySymbolPos < 0) {
-            // Looks like a function symbol, it must be evaluated BEFORE distribution
-            outputs = createEvalProjectionForDistributionJoinSymbol(firstJoinSymbol, planOutputs, executionPlan);
-            distributeBySymbolPos = planOutputs.size();
+        List<Symbol> symbolsToEvaluate = new ArrayList<>();
+        int[] distributeBySymbolPositions = new int[joinSymbols.size()];
+        for (int i = 0; i < distributeBySymbolPositions.length; i++) {
+            Symbol joinSymbol = joinSymbols.get(i);
+            int distributeBySymbolPos = planOutputs.indexOf(joinSymbol);
+            if (distributeBySymbolPos < 0) {
+                // Looks like a function symbol, it must be evaluated BEFORE distribution
+                int evalPos = symbolsToEvaluate.indexOf(joinSymbol);
+                if (evalPos < 0) {
+                    evalPos = symbolsToEvaluate.size();
+                    symbolsToEvaluate.add(joinSymbol);
+                }
+                distributeBySymbolPos = planOutputs.size() + evalPos;
+            }
+            distributeBySymbolPositions[i] = distributeBySymbolPos;
+        }
+        if (!symbolsToEvaluate.isEmpty()) {
+            outputs = createEvalProjectionForDistributionJoinSymbols(symbolsToEvaluate, planOutputs, executionPlan);
         }
-        executionPlan.setDistributionInfo(new DistributionInfo(DistributionType.MODULO, distributeBySymbolPos));
+        executionPlan.setDistributionInfo(DistributionInfo.modulo(minNodeVersion, distributeBySymbolPositions));
         return outputs;
     }
 
-    private List<Symbol> createEvalProjectionForDistributionJoinSymbol(Symbol firstJoinSymbol,
-                                                                       List<Symbol> outputs,
-                                                                       ExecutionPlan executionPlan) {
-        List<Symbol> projectionOutputs = new ArrayList<>(outputs.size() + 1);
+    private List<Symbol> createEvalProjectionForDistributionJoinSymbols(List<Symbol> joinSymbols,
+                                                                        List<Symbol> outputs,
+                                                                        ExecutionPlan executionPlan) {
+        List<Symbol> projectionOutputs = new ArrayList<>(outputs.size() + joinSymbols.size());
         projectionOutputs.addAll(outputs);
-        projectionOutputs.add(firstJoinSymbol);
+        projectionOutputs.addAll(joinSymbols);
         EvalProjection evalProjection = new EvalProjection(InputColumns.create(projectionOutputs, new InputColumns.SourceSymbols(outputs)));
         executionPlan.addProjection(evalProjection);
         return projectionOutputs;
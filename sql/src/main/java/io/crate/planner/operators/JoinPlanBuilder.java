@@ -200,6 +200,7 @@ public class JoinPlanBuilder implements LogicalPlan.Builder {
             return new HashJoin(
                 lhsPlan,
                 rhsPlan,
+                joinType,
                 joinCondition,
                 rhs,
                 tableStats);
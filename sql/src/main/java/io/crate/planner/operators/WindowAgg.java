@@ -40,6 +40,7 @@ import io.crate.planner.ExecutionPlan;
 import io.crate.planner.ExplainLeaf;
 import io.crate.planner.Merge;
 import io.crate.planner.PlannerContext;
+import io.crate.planner.PositionalOrderBy;
 import io.crate.planner.ResultDescription;
 import io.crate.planner.distribution.DistributionInfo;
 import io.crate.planner.distribution.DistributionType;
@@ -133,24 +134,31 @@ public class WindowAgg extends ForwardingLogicalPlan {
                 inputs,
                 filterInput));
         }
-        List<Projection> projections = new ArrayList<>();
-        WindowAggProjection windowAggProjection = new WindowAggProjection(
-            windowDefinition.map(binder.andThen(s -> InputColumns.create(s, sourceSymbols))),
-            windowFunctionContexts,
-            InputColumns.create(this.standalone, sourceSymbols)
-        );
-        projections.add(windowAggProjection);
+        // If the source can produce the rows sorted by the partitions (and the ORDER BY of the window),
+        // the window functions can be computed partition by partition instead of buffering all rows.
+        OrderBy sourceOrder = source instanceof Collect && !windowDefinition.partitions().isEmpty()
+            ? createOrderByInclPartitionBy(windowDefinition)
+            : null;
         ExecutionPlan sourcePlan = source.build(
             plannerContext,
             projectionBuilder,
             TopN.NO_LIMIT,
             TopN.NO_OFFSET,
-            null,
+            sourceOrder,
             pageSizeHint,
             params,
             subQueryResults
         );
         ResultDescription resultDescription = sourcePlan.resultDescription();
+        PositionalOrderBy sourceOrderBy = sourceOrder == null ? null : resultDescription.orderBy();
+        List<Projection> projections = new ArrayList<>();
+        WindowAggProjection windowAggProjection = new WindowAggProjection(
+            windowDefinition.map(binder.andThen(s -> InputColumns.create(s, sourceSymbols))),
+            windowFunctionContexts,
+            InputColumns.create(this.standalone, sourceSymbols),
+            sourceOrderBy != null
+        );
+        projections.add(windowAggProjection);
         boolean executesOnHandler = executesOnHandler(plannerContext.handlerNode(), resultDescription.nodeIds());
         boolean nonDistExecution = windowDefinition.partitions().isEmpty()
                                    || resultDescription.hasRemainingLimitOrOffset()
@@ -161,10 +169,7 @@ public class WindowAgg extends ForwardingLogicalPlan {
                 sourcePlan.addProjection(projection);
             }
         } else {
-            sourcePlan.setDistributionInfo(new DistributionInfo(
-                DistributionType.MODULO,
-                source.outputs().indexOf(windowDefinition.partitions().iterator().next()))
-            );
+            sourcePlan.setDistributionInfo(distributeByPartitions(plannerContext));
             MergePhase distWindowAgg = new MergePhase(
                 UUID.randomUUID(),
                 plannerContext.nextExecutionPhaseId(),
@@ -175,7 +180,7 @@ public class WindowAgg extends ForwardingLogicalPlan {
                 resultDescription.streamOutputs(),
                 projections,
                 DistributionInfo.DEFAULT_BROADCAST,
-                null
+                sourceOrderBy
             );
             return new Merge(
                 sourcePlan,
@@ -190,6 +195,21 @@ public class WindowAgg extends ForwardingLogicalPlan {
         return sourcePlan;
     }
 
+    private DistributionInfo distributeByPartitions(PlannerContext plannerContext) {
+        List<Symbol> partitions = windowDefinition.partitions();
+        List<Symbol> sourceOutputs = source.outputs();
+        int firstPartitionPos = sourceOutputs.indexOf(partitions.get(0));
+        int[] partitionPositions = new int[partitions.size()];
+        for (int i = 0; i < partitionPositions.length; i++) {
+            int partitionPos = sourceOutputs.indexOf(partitions.get(i));
+            if (partitionPos < 0) {
+                return new DistributionInfo(DistributionType.MODULO, firstPartitionPos);
+            }
+            partitionPositions[i] = partitionPos;
+        }
+        return DistributionInfo.modulo(plannerContext.minNodeVersion(), partitionPositions);
+    }
+
     @Nullable
     static OrderBy createOrderByInclPartitionBy(WindowDefinition windowDefinition) {
         var orderBy = windowDefinition.orderBy();
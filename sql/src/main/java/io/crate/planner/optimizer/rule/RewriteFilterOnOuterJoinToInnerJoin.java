@@ -34,6 +34,7 @@ import io.crate.metadata.TransactionContext;
 import io.crate.statistics.TableStats;
 import io.crate.planner.node.dql.join.JoinType;
 import io.crate.planner.operators.Filter;
+import io.crate.planner.operators.HashJoin;
 import io.crate.planner.operators.LogicalPlan;
 import io.crate.planner.operators.NestedLoopJoin;
 import io.crate.planner.optimizer.Rule;
@@ -43,6 +44,7 @@ import io.crate.planner.optimizer.matcher.Pattern;
 import io.crate.sql.tree.QualifiedName;
 
 import javax.annotation.Nullable;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -61,7 +63,7 @@ import static io.crate.planner.optimizer.rule.FilterOnJoinsUtil.getNewSource;
  * <pre>
  *     Filter (lhs.x = 1 AND rhs.x = 2)
  *       |
- *     NestedLoop (outerJoin)
+ *     NestedLoop / HashJoin (outerJoin)
  *       /  \
  *     LHS  RHS
  * </pre>
@@ -71,7 +73,7 @@ import static io.crate.planner.optimizer.rule.FilterOnJoinsUtil.getNewSource;
  * <pre>
  *     Filter
  *       |
- *     NestedLoop (innerJoin)
+ *     NestedLoop / HashJoin (innerJoin)
  *       /      \
  *   Filter      Filter
  * (lhs.x = 1)    (rhs.x = 2)
@@ -100,16 +102,19 @@ import static io.crate.planner.optimizer.rule.FilterOnJoinsUtil.getNewSource;
  */
 public final class RewriteFilterOnOuterJoinToInnerJoin implements Rule<Filter> {
 
-    private final Capture<NestedLoopJoin> nlCapture;
+    private final Capture<LogicalPlan> joinCapture;
     private final Pattern<Filter> pattern;
     private final EvaluatingNormalizer normalizer;
 
     public RewriteFilterOnOuterJoinToInnerJoin(Functions functions) {
         this.normalizer = EvaluatingNormalizer.functionOnlyNormalizer(functions);
-        this.nlCapture = new Capture<>();
+        this.joinCapture = new Capture<>();
         this.pattern = typeOf(Filter.class)
-                .with(source(), typeOf(NestedLoopJoin.class).capturedAs(nlCapture)
-                    .with(nl -> nl.joinType().isOuter())
+                .with(source(), typeOf(LogicalPlan.class).capturedAs(joinCapture)
+                    .with(join -> {
+                        JoinType joinType = joinType(join);
+                        return joinType != null && joinType.isOuter();
+                    })
                 );
     }
 
@@ -123,14 +128,16 @@ public final class RewriteFilterOnOuterJoinToInnerJoin implements Rule<Filter> {
                              Captures captures,
                              TableStats tableStats,
                              TransactionContext txnCtx) {
-        NestedLoopJoin nl = captures.get(nlCapture);
+        LogicalPlan join = captures.get(joinCapture);
+        JoinType joinType = joinType(join);
+        assert joinType != null : "Pattern must only match joins";
         Symbol query = filter.query();
         Map<Set<QualifiedName>, Symbol> splitQueries = QuerySplitter.split(query);
         if (splitQueries.size() == 1 && splitQueries.keySet().iterator().next().size() > 1) {
             return null;
         }
-        LogicalPlan lhs = nl.sources().get(0);
-        LogicalPlan rhs = nl.sources().get(1);
+        LogicalPlan lhs = join.sources().get(0);
+        LogicalPlan rhs = join.sources().get(1);
         Set<QualifiedName> leftName = lhs.getRelationNames();
         Set<QualifiedName> rightName = rhs.getRelationNames();
 
@@ -140,7 +147,7 @@ public final class RewriteFilterOnOuterJoinToInnerJoin implements Rule<Filter> {
         final LogicalPlan newLhs;
         final LogicalPlan newRhs;
         final boolean newJoinIsInnerJoin;
-        switch (nl.joinType()) {
+        switch (joinType) {
             case LEFT:
                 /* LEFT OUTER JOIN -> NULL rows are generated for the RHS if the join-condition doesn't match
                  *
@@ -245,24 +252,42 @@ public final class RewriteFilterOnOuterJoinToInnerJoin implements Rule<Filter> {
                 break;
             default:
                 throw new UnsupportedOperationException(
-                    "The Rule to rewrite filter+outer-joins to inner joins must not be run on joins of type=" + nl.joinType());
+                    "The Rule to rewrite filter+outer-joins to inner joins must not be run on joins of type=" + joinType);
         }
         if (newLhs == lhs && newRhs == rhs) {
             return null;
         }
-        NestedLoopJoin newJoin = new NestedLoopJoin(
-            newLhs,
-            newRhs,
-            newJoinIsInnerJoin ? JoinType.INNER : nl.joinType(),
-            nl.joinCondition(),
-            nl.isFiltered(),
-            nl.topMostLeftRelation(),
-            nl.orderByWasPushedDown()
-        );
-        assert newJoin.outputs().equals(nl.outputs()) : "Outputs after rewrite must be the same as before";
+        JoinType newJoinType = newJoinIsInnerJoin ? JoinType.INNER : joinType;
+        LogicalPlan newJoin;
+        if (join instanceof HashJoin) {
+            newJoin = ((HashJoin) join).replaceSources(List.of(newLhs, newRhs), newJoinType);
+        } else {
+            NestedLoopJoin nl = (NestedLoopJoin) join;
+            newJoin = new NestedLoopJoin(
+                newLhs,
+                newRhs,
+                newJoinType,
+                nl.joinCondition(),
+                nl.isFiltered(),
+                nl.topMostLeftRelation(),
+                nl.orderByWasPushedDown()
+            );
+        }
+        assert newJoin.outputs().equals(join.outputs()) : "Outputs after rewrite must be the same as before";
         return splitQueries.isEmpty() ? newJoin : new Filter(newJoin, AndOperator.join(splitQueries.values()));
     }
 
+    @Nullable
+    private static JoinType joinType(LogicalPlan plan) {
+        if (plan instanceof NestedLoopJoin) {
+            return ((NestedLoopJoin) plan).joinType();
+        }
+        if (plan instanceof HashJoin) {
+            return ((HashJoin) plan).joinType();
+        }
+        return null;
+    }
+
     private boolean couldMatchOnNull(@Nullable Symbol query) {
         if (query == null) {
             return false;
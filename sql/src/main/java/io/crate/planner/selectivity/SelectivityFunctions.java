@@ -25,7 +25,13 @@ package io.crate.planner.selectivity;
 import io.crate.data.Row;
 import io.crate.expression.operator.AndOperator;
 import io.crate.expression.operator.EqOperator;
+import io.crate.expression.operator.GtOperator;
+import io.crate.expression.operator.GteOperator;
+import io.crate.expression.operator.LikeOperators;
+import io.crate.expression.operator.LtOperator;
+import io.crate.expression.operator.LteOperator;
 import io.crate.expression.operator.OrOperator;
+import io.crate.expression.operator.any.AnyOperators;
 import io.crate.expression.predicate.IsNullPredicate;
 import io.crate.expression.predicate.NotPredicate;
 import io.crate.expression.symbol.Field;
@@ -37,11 +43,17 @@ import io.crate.expression.symbol.SymbolVisitor;
 import io.crate.metadata.ColumnIdent;
 import io.crate.metadata.Reference;
 import io.crate.statistics.ColumnStats;
+import io.crate.statistics.MostCommonValues;
 import io.crate.statistics.Stats;
+import io.crate.statistics.TableStats;
 
 import javax.annotation.Nullable;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Used to estimate the number of rows returned after applying a given query.
@@ -58,11 +70,64 @@ public class SelectivityFunctions {
      */
     private static final double MAGIC_SEL = 0.333;
 
+    /**
+     * Used for ranges (a lower and an upper bound on the same column) which are empty according to the statistics,
+     * but might be not due to estimation errors.
+     */
+    private static final double DEFAULT_RANGE_INEQ_SEL = 0.005;
+
     public static long estimateNumRows(Stats stats, Symbol query, @Nullable Row params) {
         var estimator = new SelectivityEstimator(stats, params);
         return (long) (stats.numDocs() * query.accept(estimator, null));
     }
 
+    /**
+     * Estimates the number of rows of an inner join.
+     *
+     * For each {@code a = b} in the join condition the selectivity is {@code 1 / max(distinct(a), distinct(b))}.
+     * If no statistics are available for any of the equi-join conditions, the number of rows of the larger side is used.
+     */
+    public static long estimateJoinNumRows(TableStats tableStats, Symbol joinCondition, long lhsRows, long rhsRows) {
+        if (lhsRows < 0 || rhsRows < 0) {
+            return Math.max(lhsRows, rhsRows);
+        }
+        double selectivity = 1.0;
+        boolean hasEstimate = false;
+        for (Symbol part : AndOperator.split(joinCondition)) {
+            if (!(part instanceof Function) || !((Function) part).info().ident().name().equals(EqOperator.NAME)) {
+                continue;
+            }
+            List<Symbol> arguments = ((Function) part).arguments();
+            ColumnStats<?> leftStats = columnStats(tableStats, arguments.get(0));
+            ColumnStats<?> rightStats = columnStats(tableStats, arguments.get(1));
+            if (leftStats == null || rightStats == null) {
+                continue;
+            }
+            double numDistinct = Math.max(leftStats.approxDistinct(), rightStats.approxDistinct());
+            if (numDistinct >= 1.0) {
+                selectivity *= 1.0 / numDistinct;
+                hasEstimate = true;
+            }
+        }
+        if (!hasEstimate) {
+            return Math.max(lhsRows, rhsRows);
+        }
+        double numRows = (double) lhsRows * (double) rhsRows * selectivity;
+        return (long) Math.min(Long.MAX_VALUE, Math.max(1.0, Math.ceil(numRows)));
+    }
+
+    @Nullable
+    private static ColumnStats<?> columnStats(TableStats tableStats, Symbol symbol) {
+        while (symbol instanceof Field) {
+            symbol = ((Field) symbol).pointer();
+        }
+        if (symbol instanceof Reference) {
+            Reference ref = (Reference) symbol;
+            return tableStats.getStats(ref.ident().tableIdent()).statsByColumn().get(ref.column());
+        }
+        return null;
+    }
+
     static class SelectivityEstimator extends SymbolVisitor<Void, Double> {
 
         private final Stats stats;
@@ -92,13 +157,8 @@ public class SelectivityFunctions {
         @Override
         public Double visitFunction(Function function, Void context) {
             switch (function.info().ident().name()) {
-                case AndOperator.NAME: {
-                    double selectivity = 1.0;
-                    for (Symbol argument : function.arguments()) {
-                        selectivity *= argument.accept(this, context);
-                    }
-                    return selectivity;
-                }
+                case AndOperator.NAME:
+                    return andSelectivity(function, context);
 
                 case OrOperator.NAME: {
                     double sel1 = 1.0;
@@ -123,11 +183,318 @@ public class SelectivityFunctions {
                     return isNullSelectivity(arguments.get(0), stats);
                 }
 
+                case LtOperator.NAME:
+                case LteOperator.NAME:
+                case GtOperator.NAME:
+                case GteOperator.NAME: {
+                    RangeClause rangeClause = RangeClause.of(function, stats, params);
+                    return rangeClause == null ? MAGIC_SEL : rangeClause.selectivity;
+                }
+
+                case LikeOperators.OP_LIKE: {
+                    var arguments = function.arguments();
+                    return likeSelectivity(arguments.get(0), arguments.get(1), stats, params);
+                }
+
+                case AnyOperators.Names.EQ: {
+                    var arguments = function.arguments();
+                    return inSelectivity(arguments.get(0), arguments.get(1), stats, params);
+                }
+
                 default:
                     return MAGIC_SEL;
             }
         }
 
+        /**
+         * Multiplies the selectivity of the conjunctions, assuming they're independent.
+         * An upper and a lower bound on the same column (like the result of {@code x BETWEEN a AND b}) are combined
+         * to a range, as they're clearly not independent.
+         */
+        private double andSelectivity(Function function, Void context) {
+            double selectivity = 1.0;
+            Map<ColumnIdent, RangeClause> lowerBounds = new HashMap<>();
+            Map<ColumnIdent, RangeClause> upperBounds = new HashMap<>();
+            for (Symbol argument : AndOperator.split(function)) {
+                RangeClause rangeClause = argument instanceof Function
+                    ? RangeClause.of((Function) argument, stats, params)
+                    : null;
+                if (rangeClause == null) {
+                    selectivity *= argument.accept(this, context);
+                    continue;
+                }
+                Map<ColumnIdent, RangeClause> bounds = rangeClause.isUpperBound ? upperBounds : lowerBounds;
+                RangeClause previous = bounds.put(rangeClause.column, rangeClause);
+                if (previous != null) {
+                    // Keep the more selective one
+                    bounds.put(rangeClause.column, previous.selectivity < rangeClause.selectivity ? previous : rangeClause);
+                }
+            }
+            for (RangeClause upperBound : upperBounds.values()) {
+                RangeClause lowerBound = lowerBounds.remove(upperBound.column);
+                if (lowerBound == null) {
+                    selectivity *= upperBound.selectivity;
+                } else {
+                    selectivity *= rangeSelectivity(lowerBound.selectivity, upperBound.selectivity, upperBound.nullFraction);
+                }
+            }
+            for (RangeClause lowerBound : lowerBounds.values()) {
+                selectivity *= lowerBound.selectivity;
+            }
+            return selectivity;
+        }
+    }
+
+    /**
+     * A {@code column <op> value} comparison where the column has statistics.
+     */
+    private static final class RangeClause {
+
+        private final ColumnIdent column;
+        private final boolean isUpperBound;
+        private final double selectivity;
+        private final double nullFraction;
+
+        private RangeClause(ColumnIdent column, boolean isUpperBound, double selectivity, double nullFraction) {
+            this.column = column;
+            this.isUpperBound = isUpperBound;
+            this.selectivity = selectivity;
+            this.nullFraction = nullFraction;
+        }
+
+        @Nullable
+        static RangeClause of(Function function, Stats stats, @Nullable Row params) {
+            boolean isUpperBound;
+            switch (function.info().ident().name()) {
+                case LtOperator.NAME:
+                case LteOperator.NAME:
+                    isUpperBound = true;
+                    break;
+
+                case GtOperator.NAME:
+                case GteOperator.NAME:
+                    isUpperBound = false;
+                    break;
+
+                default:
+                    return null;
+            }
+            List<Symbol> arguments = function.arguments();
+            Symbol columnArg = arguments.get(0);
+            Symbol valueArg = arguments.get(1);
+            ColumnIdent column = getColumn(columnArg);
+            if (column == null) {
+                // value < column -> column > value
+                columnArg = arguments.get(1);
+                valueArg = arguments.get(0);
+                column = getColumn(columnArg);
+                isUpperBound = !isUpperBound;
+            }
+            if (column == null) {
+                return null;
+            }
+            ColumnStats<?> columnStats = stats.statsByColumn().get(column);
+            if (columnStats == null || !hasValue(valueArg, params)) {
+                return null;
+            }
+            Object value = getValue(valueArg, params);
+            double selectivity = value == null
+                ? 0.0
+                : ineqSelectivityFromValueAndStats(value, isUpperBound, columnStats);
+            return new RangeClause(column, isUpperBound, selectivity, columnStats.nullFraction());
+        }
+    }
+
+    /**
+     * Selectivity of a range with both bounds on the same column.
+     * Both selectivities exclude null values, so they'd be subtracted twice.
+     */
+    private static double rangeSelectivity(double lowerBoundSel, double upperBoundSel, double nullFraction) {
+        double selectivity = upperBoundSel + lowerBoundSel - 1.0 + nullFraction;
+        if (selectivity <= 0.0) {
+            if (selectivity < -0.01) {
+                // Bounds contradict each other (e.g. x > 10 AND x < 5)
+                return 1.0e-10;
+            }
+            // Range is smaller than the estimation precision
+            return DEFAULT_RANGE_INEQ_SEL;
+        }
+        return selectivity;
+    }
+
+    /**
+     * Estimates the fraction of rows with {@code column < value} (upper bound) or {@code column > value}
+     * using the most common values and the histogram of the remaining values.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static double ineqSelectivityFromValueAndStats(Object value, boolean isUpperBound, ColumnStats columnStats) {
+        Comparable comparableValue;
+        try {
+            Object converted = columnStats.type().value(value);
+            if (!(converted instanceof Comparable)) {
+                return MAGIC_SEL;
+            }
+            comparableValue = (Comparable) converted;
+        } catch (ClassCastException | IllegalArgumentException e) {
+            return MAGIC_SEL;
+        }
+        MostCommonValues mcv = columnStats.mostCommonValues();
+        Object[] mcvValues = mcv.values();
+        double[] frequencies = mcv.frequencies();
+        double mcvSelectivity = 0.0;
+        double sumMcvFrequencies = 0.0;
+        for (int i = 0; i < mcvValues.length; i++) {
+            sumMcvFrequencies += frequencies[i];
+            int cmp = comparableValue.compareTo(mcvValues[i]);
+            if (isUpperBound ? cmp > 0 : cmp < 0) {
+                mcvSelectivity += frequencies[i];
+            }
+        }
+        List<?> histogram = columnStats.histogram();
+        double histogramSelectivity;
+        if (histogram.size() >= 2) {
+            double fractionBelow = histogramFractionBelow(histogram, comparableValue);
+            histogramSelectivity = isUpperBound ? fractionBelow : 1.0 - fractionBelow;
+        } else if (sumMcvFrequencies > 0.0) {
+            // All values are most common values
+            histogramSelectivity = mcvSelectivity / sumMcvFrequencies;
+        } else {
+            return MAGIC_SEL;
+        }
+        double otherFraction = Math.max(0.0, 1.0 - columnStats.nullFraction() - sumMcvFrequencies);
+        double selectivity = mcvSelectivity + histogramSelectivity * otherFraction;
+        return Math.max(0.0, Math.min(1.0, selectivity));
+    }
+
+    /**
+     * The histogram contains the bounds of buckets which each contain the same number of values.
+     * The position within a bucket is interpolated linearly for numeric values.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static double histogramFractionBelow(List<?> histogram, Comparable value) {
+        int numBuckets = histogram.size() - 1;
+        if (value.compareTo(histogram.get(0)) <= 0) {
+            return 0.0;
+        }
+        if (value.compareTo(histogram.get(numBuckets)) >= 0) {
+            return 1.0;
+        }
+        // binary search for the bucket: histogram[lo] < value <= histogram[hi]
+        int lo = 0;
+        int hi = numBuckets;
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            if (value.compareTo(histogram.get(mid)) <= 0) {
+                hi = mid;
+            } else {
+                lo = mid;
+            }
+        }
+        Object lowerBound = histogram.get(lo);
+        Object upperBound = histogram.get(hi);
+        double positionInBucket = 0.5;
+        if (value instanceof Number && lowerBound instanceof Number && upperBound instanceof Number) {
+            double lower = ((Number) lowerBound).doubleValue();
+            double upper = ((Number) upperBound).doubleValue();
+            if (upper > lower) {
+                positionInBucket = (((Number) value).doubleValue() - lower) / (upper - lower);
+            }
+        }
+        return (lo + positionInBucket) / numBuckets;
+    }
+
+    /**
+     * A LIKE pattern with a constant prefix ({@code 'abc%'}) is estimated as the range {@code ['abc', 'abd')}.
+     * A pattern without wildcards is estimated like an equality.
+     */
+    private static double likeSelectivity(Symbol leftArg, Symbol rightArg, Stats stats, @Nullable Row params) {
+        ColumnIdent column = getColumn(leftArg);
+        if (column == null || !hasValue(rightArg, params)) {
+            return MAGIC_SEL;
+        }
+        Object pattern = getValue(rightArg, params);
+        if (pattern == null) {
+            return 0.0;
+        }
+        if (!(pattern instanceof String)) {
+            return MAGIC_SEL;
+        }
+        String patternStr = (String) pattern;
+        StringBuilder prefix = new StringBuilder();
+        boolean hasWildcard = false;
+        for (int i = 0; i < patternStr.length(); i++) {
+            char c = patternStr.charAt(i);
+            if (c == LikeOperators.DEFAULT_ESCAPE && i + 1 < patternStr.length()) {
+                i++;
+                prefix.append(patternStr.charAt(i));
+            } else if (c == '%' || c == '_') {
+                hasWildcard = true;
+                break;
+            } else {
+                prefix.append(c);
+            }
+        }
+        if (!hasWildcard) {
+            return eqSelectivity(leftArg, Literal.of(prefix.toString()), stats, params);
+        }
+        var columnStats = stats.statsByColumn().get(column);
+        if (columnStats == null || prefix.length() == 0) {
+            return MAGIC_SEL;
+        }
+        String lowerBound = prefix.toString();
+        char lastChar = lowerBound.charAt(lowerBound.length() - 1);
+        if (lastChar == Character.MAX_VALUE) {
+            return MAGIC_SEL;
+        }
+        String upperBound = lowerBound.substring(0, lowerBound.length() - 1) + (char) (lastChar + 1);
+        double lowerBoundSel = ineqSelectivityFromValueAndStats(lowerBound, false, columnStats);
+        double upperBoundSel = ineqSelectivityFromValueAndStats(upperBound, true, columnStats);
+        return rangeSelectivity(lowerBoundSel, upperBoundSel, columnStats.nullFraction());
+    }
+
+    /**
+     * {@code column = ANY([v1, v2, ...])} (the result of {@code column IN (v1, v2, ...)}) is estimated as the
+     * sum of the equality selectivity of the distinct values.
+     */
+    private static double inSelectivity(Symbol leftArg, Symbol rightArg, Stats stats, @Nullable Row params) {
+        ColumnIdent column = getColumn(leftArg);
+        if (column == null || !hasValue(rightArg, params)) {
+            return MAGIC_SEL;
+        }
+        Object values = getValue(rightArg, params);
+        if (values == null) {
+            return 0.0;
+        }
+        Collection<?> distinctValues;
+        if (values instanceof Collection) {
+            distinctValues = new HashSet<>((Collection<?>) values);
+        } else if (values instanceof Object[]) {
+            distinctValues = new HashSet<>(Arrays.asList((Object[]) values));
+        } else {
+            return MAGIC_SEL;
+        }
+        var columnStats = stats.statsByColumn().get(column);
+        if (columnStats == null) {
+            return Math.min(1.0, DEFAULT_EQ_SEL * distinctValues.size());
+        }
+        double selectivity = 0.0;
+        for (Object value : distinctValues) {
+            selectivity += eqSelectivityFromValueAndStats(value, columnStats);
+        }
+        return Math.min(selectivity, 1.0 - columnStats.nullFraction());
+    }
+
+    private static boolean hasValue(Symbol symbol, @Nullable Row params) {
+        return symbol instanceof Literal || (symbol instanceof ParameterSymbol && params != null);
+    }
+
+    @Nullable
+    private static Object getValue(Symbol symbol, @Nullable Row params) {
+        if (symbol instanceof ParameterSymbol) {
+            assert params != null : "params must not be null if the symbol is a ParameterSymbol";
+            return params.get(((ParameterSymbol) symbol).index());
+        }
+        return ((Literal<?>) symbol).value();
     }
 
     private static double isNullSelectivity(Symbol arg, Stats stats) {
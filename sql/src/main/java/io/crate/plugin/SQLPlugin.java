@@ -22,6 +22,8 @@
 package io.crate.plugin;
 
 import com.google.common.collect.ImmutableList;
+import io.crate.action.sql.Cursors;
+import io.crate.action.sql.PlanCache;
 import io.crate.action.sql.SQLOperations;
 import io.crate.analyze.repositories.RepositorySettingsModule;
 import io.crate.auth.AuthSettings;
@@ -31,6 +33,7 @@ import io.crate.cluster.gracefulstop.DecommissioningService;
 import io.crate.execution.TransportExecutorModule;
 import io.crate.execution.engine.aggregation.impl.AggregationImplModule;
 import io.crate.execution.engine.collect.CollectOperationModule;
+import io.crate.execution.engine.collect.ShardAggregationCache;
 import io.crate.execution.engine.collect.files.FileCollectModule;
 import io.crate.execution.engine.collect.stats.JobsLogService;
 import io.crate.execution.engine.window.WindowFunctionModule;
@@ -122,6 +125,9 @@ public class SQLPlugin extends Plugin implements ActionPlugin, MapperPlugin, Clu
         List<Setting<?>> settings = new ArrayList<>();
         settings.add(AnalyzerSettings.CUSTOM_ANALYSIS_SETTING_GROUP);
         settings.add(SQLOperations.NODE_READ_ONLY_SETTING);
+        settings.add(PlanCache.PLAN_CACHE_SIZE_SETTING);
+        settings.add(Cursors.IDLE_TIMEOUT_SETTING);
+        settings.add(ShardAggregationCache.AGGREGATION_CACHE_SIZE_SETTING);
 
         // Postgres settings are node settings
         settings.add(PostgresNetty.PSQL_ENABLED_SETTING.setting());
@@ -0,0 +1,416 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.protocols.postgres;
+
+import io.crate.analyze.expressions.ExpressionToObjectVisitor;
+import io.crate.data.Row;
+import io.crate.protocols.postgres.types.PGType;
+import io.crate.sql.tree.Expression;
+import io.crate.sql.tree.GenericProperties;
+import io.netty.buffer.ByteBuf;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * The options and the text representation of records used by {@code COPY ... FROM STDIN} and
+ * {@code COPY ... TO STDOUT}.
+ *
+ * Supports the {@code text} and {@code csv} formats of PostgreSQL,
+ * see https://www.postgresql.org/docs/current/sql-copy.html
+ */
+final class CopyFormat {
+
+    enum Type {
+        TEXT,
+        CSV
+    }
+
+    private static final char QUOTE = '"';
+    private static final String END_OF_DATA = "\\.";
+
+    private final Type type;
+    private final char delimiter;
+    private final String nullString;
+    private final boolean header;
+
+    private CopyFormat(Type type, char delimiter, String nullString, boolean header) {
+        this.type = type;
+        this.delimiter = delimiter;
+        this.nullString = nullString;
+        this.header = header;
+    }
+
+    static CopyFormat of(GenericProperties<Expression> properties) {
+        Type type = Type.TEXT;
+        Character delimiter = null;
+        String nullString = null;
+        boolean header = false;
+        for (Map.Entry<String, Expression> entry : properties.properties().entrySet()) {
+            Object value = ExpressionToObjectVisitor.convert(entry.getValue(), Row.EMPTY);
+            switch (entry.getKey()) {
+                case "format":
+                    try {
+                        type = Type.valueOf(String.valueOf(value).toUpperCase(Locale.ENGLISH));
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("COPY format \"" + value + "\" not recognized");
+                    }
+                    break;
+
+                case "delimiter":
+                    String delimiterStr = String.valueOf(value);
+                    if (delimiterStr.length() != 1) {
+                        throw new IllegalArgumentException("COPY delimiter must be a single one-byte character");
+                    }
+                    delimiter = delimiterStr.charAt(0);
+                    break;
+
+                case "null":
+                    nullString = String.valueOf(value);
+                    break;
+
+                case "header":
+                    header = value instanceof Boolean ? (Boolean) value : Boolean.parseBoolean(String.valueOf(value));
+                    break;
+
+                default:
+                    throw new IllegalArgumentException("option \"" + entry.getKey() + "\" not recognized");
+            }
+        }
+        if (header && type != Type.CSV) {
+            throw new IllegalArgumentException("COPY HEADER available only in CSV mode");
+        }
+        if (delimiter == null) {
+            delimiter = type == Type.CSV ? ',' : '\t';
+        }
+        if (nullString == null) {
+            nullString = type == Type.CSV ? "" : "\\N";
+        }
+        return new CopyFormat(type, delimiter, nullString, header);
+    }
+
+    Type type() {
+        return type;
+    }
+
+    boolean header() {
+        return header;
+    }
+
+    Reader newReader() {
+        return new Reader();
+    }
+
+    /**
+     * Appends the header line with the given column names
+     */
+    void writeHeader(StringBuilder sb, List<String> columnNames) {
+        for (int i = 0; i < columnNames.size(); i++) {
+            if (i > 0) {
+                sb.append(delimiter);
+            }
+            writeValue(sb, columnNames.get(i));
+        }
+        sb.append('\n');
+    }
+
+    /**
+     * Appends the record (including the line terminator) using the text representation of the PGTypes
+     */
+    void writeRecord(StringBuilder sb, Row row, List<PGType> columnTypes) {
+        for (int i = 0; i < columnTypes.size(); i++) {
+            if (i > 0) {
+                sb.append(delimiter);
+            }
+            Object value = row.get(i);
+            if (value == null) {
+                sb.append(nullString);
+            } else {
+                writeValue(sb, new String(columnTypes.get(i).encodeAsText(value), StandardCharsets.UTF_8));
+            }
+        }
+        sb.append('\n');
+    }
+
+    private void writeValue(StringBuilder sb, String value) {
+        if (type == Type.CSV) {
+            boolean needsQuotes = value.equals(nullString)
+                                  || value.indexOf(delimiter) >= 0
+                                  || value.indexOf(QUOTE) >= 0
+                                  || value.indexOf('\n') >= 0
+                                  || value.indexOf('\r') >= 0;
+            if (needsQuotes) {
+                sb.append(QUOTE);
+                for (int i = 0; i < value.length(); i++) {
+                    char c = value.charAt(i);
+                    if (c == QUOTE) {
+                        sb.append(QUOTE);
+                    }
+                    sb.append(c);
+                }
+                sb.append(QUOTE);
+            } else {
+                sb.append(value);
+            }
+        } else {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '\\':
+                        sb.append("\\\\");
+                        break;
+                    case '\n':
+                        sb.append("\\n");
+                        break;
+                    case '\r':
+                        sb.append("\\r");
+                        break;
+                    case '\t':
+                        sb.append("\\t");
+                        break;
+                    default:
+                        if (c == delimiter) {
+                            sb.append('\\');
+                        }
+                        sb.append(c);
+                }
+            }
+        }
+    }
+
+    /**
+     * Splits the data of CopyData messages into records.
+     * The data can be split at arbitrary positions, incomplete lines are kept until the next call.
+     */
+    final class Reader {
+
+        private final ByteArrayOutputStream pendingLine = new ByteArrayOutputStream();
+        private final StringBuilder pendingCsvRecord = new StringBuilder();
+        private boolean headerSkipped = !header;
+        private boolean endOfData = false;
+
+        void feed(ByteBuf data, Consumer<String[]> onRecord) {
+            while (data.isReadable() && !endOfData) {
+                int lineLength = data.bytesBefore((byte) '\n');
+                int numBytes = lineLength < 0 ? data.readableBytes() : lineLength;
+                byte[] bytes = new byte[numBytes];
+                data.readBytes(bytes);
+                pendingLine.write(bytes, 0, numBytes);
+                if (lineLength < 0) {
+                    return;
+                }
+                data.skipBytes(1);
+                onLine(takeLine(), onRecord);
+            }
+        }
+
+        /**
+         * Must be called once all data has been received
+         */
+        void finish(Consumer<String[]> onRecord) {
+            if (pendingLine.size() > 0 && !endOfData) {
+                onLine(takeLine(), onRecord);
+            }
+            if (pendingCsvRecord.length() > 0) {
+                throw new IllegalArgumentException("unterminated CSV quoted field");
+            }
+        }
+
+        private String takeLine() {
+            String line = new String(pendingLine.toByteArray(), StandardCharsets.UTF_8);
+            pendingLine.reset();
+            if (line.endsWith("\r")) {
+                return line.substring(0, line.length() - 1);
+            }
+            return line;
+        }
+
+        private void onLine(String line, Consumer<String[]> onRecord) {
+            String[] record;
+            if (type == Type.CSV) {
+                if (pendingCsvRecord.length() > 0) {
+                    // A quoted value contained a line break
+                    pendingCsvRecord.append('\n');
+                } else if (line.equals(END_OF_DATA)) {
+                    endOfData = true;
+                    return;
+                }
+                pendingCsvRecord.append(line);
+                if (hasUnclosedQuote(pendingCsvRecord)) {
+                    return;
+                }
+                record = parseCsvRecord(pendingCsvRecord);
+                pendingCsvRecord.setLength(0);
+            } else {
+                if (line.equals(END_OF_DATA)) {
+                    endOfData = true;
+                    return;
+                }
+                record = parseTextRecord(line);
+            }
+            if (headerSkipped) {
+                onRecord.accept(record);
+            } else {
+                headerSkipped = true;
+            }
+        }
+    }
+
+    private static boolean hasUnclosedQuote(CharSequence record) {
+        boolean inQuotes = false;
+        for (int i = 0; i < record.length(); i++) {
+            if (record.charAt(i) == QUOTE) {
+                inQuotes = !inQuotes;
+            }
+        }
+        return inQuotes;
+    }
+
+    private String[] parseTextRecord(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        StringBuilder raw = new StringBuilder();
+        // Bytes of \NNN and \xHH escapes, decoded together so that escaped multi-byte characters stay intact
+        ByteArrayOutputStream escapedBytes = new ByteArrayOutputStream();
+        int i = 0;
+        while (i < line.length()) {
+            char c = line.charAt(i);
+            if (c == '\\' && i + 1 < line.length()) {
+                char escaped = line.charAt(i + 1);
+                int end = -1;
+                int byteValue = 0;
+                if (isOctalDigit(escaped)) {
+                    end = i + 1;
+                    while (end < line.length() && end < i + 4 && isOctalDigit(line.charAt(end))) {
+                        byteValue = byteValue * 8 + (line.charAt(end) - '0');
+                        end++;
+                    }
+                } else if (escaped == 'x' && i + 2 < line.length() && Character.digit(line.charAt(i + 2), 16) >= 0) {
+                    end = i + 2;
+                    while (end < line.length() && end < i + 4 && Character.digit(line.charAt(end), 16) >= 0) {
+                        byteValue = byteValue * 16 + Character.digit(line.charAt(end), 16);
+                        end++;
+                    }
+                }
+                if (end > 0) {
+                    raw.append(line, i, end);
+                    escapedBytes.write(byteValue & 0xFF);
+                    i = end;
+                    continue;
+                }
+                flushEscapedBytes(escapedBytes, value);
+                raw.append(c).append(escaped);
+                value.append(unescape(escaped));
+                i += 2;
+                continue;
+            }
+            flushEscapedBytes(escapedBytes, value);
+            if (c == delimiter) {
+                values.add(raw.toString().equals(nullString) ? null : value.toString());
+                value.setLength(0);
+                raw.setLength(0);
+            } else {
+                raw.append(c);
+                value.append(c);
+            }
+            i++;
+        }
+        flushEscapedBytes(escapedBytes, value);
+        values.add(raw.toString().equals(nullString) ? null : value.toString());
+        return values.toArray(new String[0]);
+    }
+
+    private static boolean isOctalDigit(char c) {
+        return c >= '0' && c <= '7';
+    }
+
+    private static void flushEscapedBytes(ByteArrayOutputStream escapedBytes, StringBuilder value) {
+        if (escapedBytes.size() > 0) {
+            value.append(new String(escapedBytes.toByteArray(), StandardCharsets.UTF_8));
+            escapedBytes.reset();
+        }
+    }
+
+    private static char unescape(char c) {
+        switch (c) {
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            case 'v':
+                return '\u000B';
+            default:
+                return c;
+        }
+    }
+
+    private String[] parseCsvRecord(CharSequence record) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean inQuotes = false;
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (inQuotes) {
+                if (c == QUOTE) {
+                    if (i + 1 < record.length() && record.charAt(i + 1) == QUOTE) {
+                        value.append(QUOTE);
+                        i++;
+                    } else {
+                        inQuotes = false;
+                    }
+                } else {
+                    value.append(c);
+                }
+            } else if (c == QUOTE) {
+                inQuotes = true;
+                quoted = true;
+            } else if (c == delimiter) {
+                values.add(csvValue(value, quoted));
+                value.setLength(0);
+                quoted = false;
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(csvValue(value, quoted));
+        return values.toArray(new String[0]);
+    }
+
+    private String csvValue(StringBuilder value, boolean quoted) {
+        String str = value.toString();
+        // Only an unquoted value matching the null string is NULL, a quoted one is a string
+        return !quoted && str.equals(nullString) ? null : str;
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.protocols.postgres;
+
+import io.crate.action.sql.BaseResultReceiver;
+import io.crate.action.sql.Session;
+import io.crate.common.collections.Lists2;
+import io.crate.data.Row;
+import io.crate.exceptions.SQLExceptions;
+import io.crate.expression.symbol.Field;
+import io.crate.protocols.postgres.types.PGType;
+import io.crate.protocols.postgres.types.PGTypes;
+import io.crate.sql.tree.AllColumns;
+import io.crate.sql.tree.CopyFromStdin;
+import io.crate.sql.tree.Expression;
+import io.crate.sql.tree.Insert;
+import io.crate.sql.tree.InsertFromValues;
+import io.crate.sql.tree.ParameterExpression;
+import io.crate.sql.tree.QualifiedName;
+import io.crate.sql.tree.QualifiedNameReference;
+import io.crate.sql.tree.Query;
+import io.crate.sql.tree.QuerySpecification;
+import io.crate.sql.tree.Select;
+import io.crate.sql.tree.SelectItem;
+import io.crate.sql.tree.SingleColumn;
+import io.crate.sql.tree.ValuesList;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Handles the CopyData, CopyDone and CopyFail messages of a {@code COPY ... FROM STDIN}.
+ *
+ * The received records are inserted in batches using a bulk {@code INSERT}.
+ * While a batch is executed the channel stops reading, which pushes back on the client.
+ *
+ * Like {@code COPY ... FROM} records which can't be inserted are skipped and not counted. This includes records
+ * with a wrong number of values or with values which can't be converted to the type of their column.
+ *
+ * If the COPY fails on the server side, the ErrorResponse is sent right away, but the copy-in mode is only left
+ * once the client sent CopyDone or CopyFail. CopyData messages received until then are dropped.
+ */
+final class CopyInHandler {
+
+    static final int BATCH_SIZE = 1_000;
+
+    private final Session session;
+    private final Channel channel;
+    private final Function<Throwable, Exception> wrapError;
+    private final CopyFormat.Reader reader;
+    private final List<PGType> columnTypes;
+    private final ArrayDeque<String[]> pendingRecords = new ArrayDeque<>();
+    private final CompletableFuture<Long> result = new CompletableFuture<>();
+
+    private boolean executing = false;
+    private boolean copyDone = false;
+    @Nullable
+    private Throwable failure;
+    private long rowCount = 0;
+
+    CopyInHandler(Session session,
+                  Channel channel,
+                  CopyFromStdin<Expression> copyFrom,
+                  String query,
+                  Function<Throwable, Exception> wrapError) {
+        this.session = session;
+        this.channel = channel;
+        this.wrapError = wrapError;
+        this.reader = CopyFormat.of(copyFrom.properties()).newReader();
+
+        // The SELECT is only described to resolve the target columns and their types, it is never executed
+        session.parse("", selectColumns(copyFrom), query, Collections.emptyList());
+        List<Field> fields = session.describe('S', "").getFields();
+        this.columnTypes = Lists2.map(fields, f -> PGTypes.get(f.valueType()));
+
+        List<String> targetColumns = copyFrom.columns().isEmpty()
+            ? Lists2.map(fields, f -> f.path().sqlFqn())
+            : copyFrom.columns();
+        List<Expression> parameters = new ArrayList<>(targetColumns.size());
+        for (int i = 0; i < targetColumns.size(); i++) {
+            parameters.add(new ParameterExpression(i + 1));
+        }
+        Insert<Expression> insert = new InsertFromValues<>(
+            copyFrom.table(),
+            List.of(new ValuesList(parameters)),
+            targetColumns,
+            Insert.DuplicateKeyContext.none()
+        );
+        session.parse("", insert, query, Collections.emptyList());
+    }
+
+    /**
+     * @return {@code SELECT <columns> FROM <table>}, or {@code SELECT * FROM <table>} if the COPY has no column list
+     */
+    private static Query selectColumns(CopyFromStdin<Expression> copyFrom) {
+        List<SelectItem> selectItems;
+        if (copyFrom.columns().isEmpty()) {
+            selectItems = List.of(new AllColumns());
+        } else {
+            selectItems = Lists2.map(
+                copyFrom.columns(), column -> new SingleColumn(new QualifiedNameReference(QualifiedName.of(column))));
+        }
+        return new Query(
+            new QuerySpecification(
+                new Select(false, selectItems),
+                List.of(copyFrom.table()),
+                Optional.empty(),
+                List.of(),
+                Optional.empty(),
+                Map.of(),
+                List.of(),
+                Optional.empty(),
+                Optional.empty()),
+            List.of(),
+            Optional.empty(),
+            Optional.empty());
+    }
+
+    /**
+     * Sends the CopyInResponse; the returned future completes once the COPY finished
+     * and the CommandComplete or ErrorResponse has been sent.
+     */
+    CompletableFuture<Long> start() {
+        Messages.sendCopyInResponse(channel, columnTypes.size());
+        return result;
+    }
+
+    void handleCopyData(ByteBuf data) {
+        if (failure != null || result.isDone()) {
+            return;
+        }
+        try {
+            reader.feed(data, pendingRecords::add);
+        } catch (Throwable t) {
+            fail(t);
+            return;
+        }
+        maybeExecuteBatch();
+    }
+
+    void handleCopyDone() {
+        if (result.isDone()) {
+            return;
+        }
+        copyDone = true;
+        if (failure != null) {
+            result.completeExceptionally(failure);
+            return;
+        }
+        try {
+            reader.finish(pendingRecords::add);
+        } catch (Throwable t) {
+            fail(t);
+            return;
+        }
+        maybeExecuteBatch();
+    }
+
+    void handleCopyFail(String message) {
+        if (result.isDone()) {
+            return;
+        }
+        copyDone = true;
+        if (failure != null) {
+            result.completeExceptionally(failure);
+            return;
+        }
+        fail(new IllegalStateException("COPY from stdin failed: " + message));
+    }
+
+    private void maybeExecuteBatch() {
+        if (executing || failure != null || result.isDone()) {
+            return;
+        }
+        if (pendingRecords.size() >= BATCH_SIZE || (copyDone && !pendingRecords.isEmpty())) {
+            executeBatch();
+        } else if (copyDone) {
+            Messages.sendCommandComplete(channel, "COPY", rowCount);
+            result.complete(rowCount);
+        }
+    }
+
+    private void executeBatch() {
+        executing = true;
+        channel.config().setAutoRead(false);
+        int batchSize = Math.min(BATCH_SIZE, pendingRecords.size());
+        long[] rowCounts = new long[batchSize];
+        CompletableFuture<?> batchFuture;
+        try {
+            for (int i = 0; i < batchSize; i++) {
+                List<Object> args;
+                try {
+                    args = toArgs(pendingRecords.poll());
+                } catch (RuntimeException e) {
+                    // skipped and not counted, like a record which fails to insert
+                    rowCounts[i] = -2L;
+                    continue;
+                }
+                session.bind("", "", args, null);
+                session.execute("", 0, new RowCountCollector(rowCounts, i));
+            }
+            batchFuture = session.sync();
+        } catch (Throwable t) {
+            session.resetDeferredExecutions();
+            batchFuture = CompletableFuture.failedFuture(t);
+        }
+        batchFuture.whenComplete((r, t) -> channel.eventLoop().execute(() -> {
+            executing = false;
+            channel.config().setAutoRead(true);
+            if (t == null) {
+                for (long count : rowCounts) {
+                    if (count > 0) {
+                        rowCount += count;
+                    }
+                }
+                maybeExecuteBatch();
+            } else {
+                fail(SQLExceptions.unwrap(t));
+            }
+        }));
+    }
+
+    private List<Object> toArgs(String[] record) {
+        if (record.length != columnTypes.size()) {
+            throw new IllegalArgumentException(
+                "Expected " + columnTypes.size() + " values per row, got " + record.length);
+        }
+        ArrayList<Object> args = new ArrayList<>(record.length);
+        for (int i = 0; i < record.length; i++) {
+            String value = record[i];
+            if (value == null) {
+                args.add(null);
+            } else {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                args.add(columnTypes.get(i).readTextValue(Unpooled.wrappedBuffer(bytes), bytes.length));
+            }
+        }
+        return args;
+    }
+
+    private void fail(Throwable t) {
+        if (failure != null || result.isDone()) {
+            return;
+        }
+        failure = t;
+        pendingRecords.clear();
+        channel.config().setAutoRead(true);
+        Messages.sendErrorResponse(channel, wrapError.apply(t));
+        if (copyDone) {
+            result.completeExceptionally(t);
+        }
+        // Otherwise the result (and with it ReadyForQuery) waits for the CopyDone or CopyFail of the client
+    }
+
+    private static class RowCountCollector extends BaseResultReceiver {
+
+        private final long[] rowCounts;
+        private final int idx;
+
+        RowCountCollector(long[] rowCounts, int idx) {
+            this.rowCounts = rowCounts;
+            this.idx = idx;
+        }
+
+        @Override
+        public void setNextRow(Row row) {
+            rowCounts[idx] = (Long) row.get(0);
+        }
+
+        @Override
+        public void fail(@Nonnull Throwable t) {
+            rowCounts[idx] = -2L;
+            super.fail(t);
+        }
+    }
+}
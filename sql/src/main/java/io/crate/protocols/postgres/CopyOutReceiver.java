@@ -0,0 +1,103 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.protocols.postgres;
+
+import io.crate.action.sql.BaseResultReceiver;
+import io.crate.data.Row;
+import io.crate.protocols.postgres.types.PGType;
+import io.netty.channel.Channel;
+
+import javax.annotation.Nonnull;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Sends the rows of a {@code COPY (query) TO STDOUT} as CopyData messages, one message per row.
+ *
+ * The result is consumed in pages of {@link #PAGE_SIZE} rows. After each page the channel is flushed and
+ * {@code fetchNextPage} is invoked on the event loop, which may defer the resume until the channel is writable again.
+ */
+final class CopyOutReceiver extends BaseResultReceiver {
+
+    static final int PAGE_SIZE = 1_000;
+
+    private final Channel channel;
+    private final CopyFormat format;
+    private final List<PGType> columnTypes;
+    private final Function<Throwable, Exception> wrapError;
+    private final Consumer<CopyOutReceiver> fetchNextPage;
+    private final StringBuilder record = new StringBuilder();
+
+    private long rowCount = 0;
+
+    CopyOutReceiver(Channel channel,
+                    CopyFormat format,
+                    List<PGType> columnTypes,
+                    Function<Throwable, Exception> wrapError,
+                    Consumer<CopyOutReceiver> fetchNextPage) {
+        this.channel = channel;
+        this.format = format;
+        this.columnTypes = columnTypes;
+        this.wrapError = wrapError;
+        this.fetchNextPage = fetchNextPage;
+    }
+
+    void sendHeader(List<String> columnNames) {
+        record.setLength(0);
+        format.writeHeader(record, columnNames);
+        Messages.sendCopyData(channel, record.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void setNextRow(Row row) {
+        rowCount++;
+        record.setLength(0);
+        format.writeRecord(record, row, columnTypes);
+        Messages.sendCopyData(channel, record.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void batchFinished() {
+        channel.flush();
+        // Resuming within batchFinished would grow the stack with each page
+        channel.eventLoop().execute(() -> fetchNextPage.accept(this));
+    }
+
+    @Override
+    public void allFinished(boolean interrupted) {
+        if (interrupted) {
+            super.allFinished(true);
+        } else {
+            Messages.sendCopyDone(channel);
+            Messages.sendCommandComplete(channel, "COPY", rowCount).addListener(f -> super.allFinished(false));
+        }
+    }
+
+    @Override
+    public void fail(@Nonnull Throwable throwable) {
+        final Exception e = wrapError.apply(throwable);
+        Messages.sendErrorResponse(channel, e).addListener(f -> super.fail(e));
+    }
+}
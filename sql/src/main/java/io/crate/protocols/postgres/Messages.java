@@ -94,6 +94,8 @@ public class Messages {
          */
         if ("BEGIN".equals(query)) {
             commandTag = "BEGIN";
+        } else if ("DECLARE".equals(query) || "CLOSE".equals(query)) {
+            commandTag = query + " CURSOR";
         } else if ("INSERT".equals(query)) {
             commandTag = "INSERT 0 " + rowCount;
         } else {
@@ -287,48 +289,61 @@ public class Messages {
      * The value of the column, in the format indicated by the associated format code. n is the above length.
      */
     static void sendDataRow(Channel channel, Row row, List<? extends DataType> columnTypes, @Nullable FormatCodes.FormatCode[] formatCodes) {
-        int length = 4 + 2;
-        assert columnTypes.size() == row.numColumns()
-            : "Number of columns in the row must match number of columnTypes. Row: " + row + " types: " + columnTypes;
-
+        PGType[] pgTypes = new PGType[columnTypes.size()];
+        for (int i = 0; i < pgTypes.length; i++) {
+            pgTypes[i] = PGTypes.get(columnTypes.get(i));
+        }
         ByteBuf buffer = channel.alloc().buffer();
-        buffer.writeByte('D');
-        buffer.writeInt(0); // will be set at the end
-        buffer.writeShort(row.numColumns());
-
-        for (int i = 0; i < row.numColumns(); i++) {
-            DataType dataType = columnTypes.get(i);
-            PGType pgType;
-            Object value;
-            try {
-                pgType = PGTypes.get(dataType);
-                value = row.get(i);
-            } catch (Exception e) {
-                buffer.release();
-                throw e;
-            }
-            if (value == null) {
-                buffer.writeInt(-1);
-                length += 4;
-            } else {
-                FormatCodes.FormatCode formatCode = FormatCodes.getFormatCode(formatCodes, i);
-                switch (formatCode) {
-                    case TEXT:
-                        length += pgType.writeAsText(buffer, value);
-                        break;
-                    case BINARY:
-                        length += pgType.writeAsBinary(buffer, value);
-                        break;
-
-                    default:
-                        buffer.release();
-                        throw new AssertionError("Unrecognized formatCode: " + formatCode);
+        try {
+            writeDataRow(buffer, row, pgTypes, formatCodes);
+        } catch (Throwable t) {
+            buffer.release();
+            throw t;
+        }
+        channel.write(buffer);
+    }
+
+    /**
+     * Encodes a DataRow message (see {@link #sendDataRow(Channel, Row, List, FormatCodes.FormatCode[])}) into
+     * {@code buffer}. This allows to encode many rows into the same buffer.
+     * If the encoding fails the writerIndex of the buffer is reset.
+     */
+    static void writeDataRow(ByteBuf buffer, Row row, PGType[] pgTypes, @Nullable FormatCodes.FormatCode[] formatCodes) {
+        assert pgTypes.length == row.numColumns()
+            : "Number of columns in the row must match number of columnTypes. Row: " + row + " types: " + pgTypes.length;
+
+        int startIdx = buffer.writerIndex();
+        int length = 4 + 2;
+        try {
+            buffer.writeByte('D');
+            buffer.writeInt(0); // will be set at the end
+            buffer.writeShort(pgTypes.length);
+
+            for (int i = 0; i < pgTypes.length; i++) {
+                Object value = row.get(i);
+                if (value == null) {
+                    buffer.writeInt(-1);
+                    length += 4;
+                } else {
+                    FormatCodes.FormatCode formatCode = FormatCodes.getFormatCode(formatCodes, i);
+                    switch (formatCode) {
+                        case TEXT:
+                            length += pgTypes[i].writeAsText(buffer, value);
+                            break;
+                        case BINARY:
+                            length += pgTypes[i].writeAsBinary(buffer, value);
+                            break;
+
+                        default:
+                            throw new AssertionError("Unrecognized formatCode: " + formatCode);
+                    }
                 }
             }
+        } catch (Throwable t) {
+            buffer.writerIndex(startIdx);
+            throw t;
         }
-
-        buffer.setInt(1, length);
-        channel.write(buffer);
+        buffer.setInt(startIdx + 1, length);
     }
 
     static void writeCString(ByteBuf buffer, byte[] valBytes) {
@@ -472,6 +487,61 @@ public class Messages {
         sendShortMsg(channel, 's', "sentPortalSuspended");
     }
 
+    /**
+     * CopyInResponse
+     * | 'G' | int32 len | int8 format | int16 numColumns | int16 format per column |
+     *
+     * Only the text format (0) is supported.
+     */
+    static ChannelFuture sendCopyInResponse(Channel channel, int numColumns) {
+        return sendCopyResponse(channel, 'G', numColumns, "sentCopyInResponse");
+    }
+
+    /**
+     * CopyOutResponse
+     * | 'H' | int32 len | int8 format | int16 numColumns | int16 format per column |
+     */
+    static ChannelFuture sendCopyOutResponse(Channel channel, int numColumns) {
+        return sendCopyResponse(channel, 'H', numColumns, "sentCopyOutResponse");
+    }
+
+    private static ChannelFuture sendCopyResponse(Channel channel, char msgType, int numColumns, String traceLogMsg) {
+        int length = 4 + 1 + 2 + numColumns * 2;
+        ByteBuf buffer = channel.alloc().buffer(length + 1);
+        buffer.writeByte(msgType);
+        buffer.writeInt(length);
+        buffer.writeByte(0);
+        buffer.writeShort(numColumns);
+        for (int i = 0; i < numColumns; i++) {
+            buffer.writeShort(0);
+        }
+        ChannelFuture channelFuture = channel.writeAndFlush(buffer);
+        if (LOGGER.isTraceEnabled()) {
+            channelFuture.addListener((ChannelFutureListener) future -> LOGGER.trace(traceLogMsg));
+        }
+        return channelFuture;
+    }
+
+    /**
+     * CopyData
+     * | 'd' | int32 len | byte[] data |
+     */
+    static void sendCopyData(Channel channel, byte[] data) {
+        ByteBuf buffer = channel.alloc().buffer(5 + data.length);
+        buffer.writeByte('d');
+        buffer.writeInt(4 + data.length);
+        buffer.writeBytes(data);
+        channel.write(buffer);
+    }
+
+    /**
+     * CopyDone
+     * | 'c' | int32 len |
+     */
+    static void sendCopyDone(Channel channel) {
+        sendShortMsg(channel, 'c', "sentCopyDone");
+    }
+
     /**
      * CloseComplete
      * | '3' | int32 len |
@@ -40,6 +40,10 @@ import io.crate.protocols.http.CrateNettyHttpServerTransport;
 import io.crate.protocols.postgres.types.PGType;
 import io.crate.protocols.postgres.types.PGTypes;
 import io.crate.protocols.ssl.SslContextProvider;
+import io.crate.sql.tree.CopyFromStdin;
+import io.crate.sql.tree.CopyToStdout;
+import io.crate.sql.tree.Expression;
+import io.crate.sql.tree.Statement;
 import io.crate.types.DataType;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
@@ -199,6 +203,18 @@ class PostgresWireProtocol {
     private AuthenticationContext authContext;
     private Properties properties;
 
+    /**
+     * Set while a {@code COPY ... FROM STDIN} is receiving CopyData messages
+     */
+    @Nullable
+    private CopyInHandler copyIn;
+
+    /**
+     * Set if a {@code COPY ... TO STDOUT} waits for the channel to become writable before fetching the next page
+     */
+    @Nullable
+    private Runnable pendingCopyOutFetch;
+
     enum State {
         PRE_STARTUP,
         STARTUP_HEADER,
@@ -362,6 +378,11 @@ class PostgresWireProtocol {
                 case 'C':
                     handleClose(buffer, channel);
                     return;
+                case 'd': // CopyData
+                case 'c': // CopyDone
+                case 'f': // CopyFail
+                    handleCopyInMessage(buffer);
+                    return;
                 case 'X': // Terminate (called when jdbc connection is closed)
                     closeSession();
                     channel.close();
@@ -384,6 +405,16 @@ class PostgresWireProtocol {
             LOGGER.error("Uncaught exception: ", cause);
         }
 
+        @Override
+        public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+            Runnable fetch = pendingCopyOutFetch;
+            if (fetch != null && ctx.channel().isWritable()) {
+                pendingCopyOutFetch = null;
+                fetch.run();
+            }
+            super.channelWritabilityChanged(ctx);
+        }
+
         @Override
         public void channelUnregistered(ChannelHandlerContext ctx) throws Exception {
             LOGGER.trace("channelDisconnected");
@@ -698,13 +729,18 @@ class PostgresWireProtocol {
         }
 
         try {
+            Function<Throwable, Exception> wrapError = SQLExceptions.forWireTransmission(
+                getAccessControl.apply(session.sessionContext()));
             session.parse("", query, Collections.emptyList());
+            CompletableFuture<?> copyResult = maybeHandleCopyStdio(
+                session.getParsedStatement(""), query, channel, wrapError);
+            if (copyResult != null) {
+                return copyResult;
+            }
             session.bind("", "", Collections.emptyList(), null);
             DescribeResult describeResult = session.describe('P', "");
             List<Field> fields = describeResult.getFields();
 
-            Function<Throwable, Exception> wrapError = SQLExceptions.forWireTransmission(
-                getAccessControl.apply(session.sessionContext()));
             if (fields == null) {
                 RowCountReceiver rowCountReceiver = new RowCountReceiver(query, channel, wrapError);
                 session.execute("", 0, rowCountReceiver);
@@ -727,6 +763,89 @@ class PostgresWireProtocol {
         }
     }
 
+    /**
+     * {@code COPY ... FROM STDIN} and {@code COPY (query) TO STDOUT} switch into the COPY sub-protocol
+     * instead of sending a regular result.
+     *
+     * @return the future of the COPY or null if the query isn't a COPY from/to the client.
+     */
+    @Nullable
+    private CompletableFuture<?> maybeHandleCopyStdio(Statement statement,
+                                                      String query,
+                                                      Channel channel,
+                                                      Function<Throwable, Exception> wrapError) {
+        if (statement instanceof CopyFromStdin) {
+            @SuppressWarnings("unchecked")
+            CopyInHandler handler = new CopyInHandler(
+                session, channel, (CopyFromStdin<Expression>) statement, query, wrapError);
+            copyIn = handler;
+            return handler.start().whenComplete((rowCount, t) -> copyIn = null);
+        }
+        if (statement instanceof CopyToStdout) {
+            @SuppressWarnings("unchecked")
+            CopyToStdout<Expression> copyTo = (CopyToStdout<Expression>) statement;
+            CopyFormat format = CopyFormat.of(copyTo.properties());
+            session.parse("", copyTo.query(), query, Collections.emptyList());
+            session.bind("", "", Collections.emptyList(), null);
+            List<Field> fields = session.describe('P', "").getFields();
+            if (fields == null) {
+                throw new IllegalArgumentException("COPY TO STDOUT requires a query which returns a result set");
+            }
+            CopyOutReceiver receiver = new CopyOutReceiver(
+                channel,
+                format,
+                Lists2.map(fields, f -> PGTypes.get(f.valueType())),
+                wrapError,
+                r -> fetchNextCopyOutPage(channel, r)
+            );
+            Messages.sendCopyOutResponse(channel, fields.size());
+            if (format.header()) {
+                receiver.sendHeader(Lists2.map(fields, f -> f.path().sqlFqn()));
+            }
+            session.execute("", CopyOutReceiver.PAGE_SIZE, receiver);
+            return session.sync();
+        }
+        return null;
+    }
+
+    private void fetchNextCopyOutPage(Channel channel, CopyOutReceiver receiver) {
+        if (session == null) {
+            return;
+        }
+        if (!channel.isActive()) {
+            session.close((byte) 'P', "");
+            return;
+        }
+        if (!channel.isWritable()) {
+            pendingCopyOutFetch = () -> fetchNextCopyOutPage(channel, receiver);
+            return;
+        }
+        try {
+            session.execute("", CopyOutReceiver.PAGE_SIZE, receiver);
+            session.sync();
+        } catch (Throwable t) {
+            receiver.fail(t);
+        }
+    }
+
+    private void handleCopyInMessage(ByteBuf buffer) {
+        CopyInHandler handler = copyIn;
+        if (handler == null) {
+            // Not (or no longer) in COPY IN mode, e.g. after the COPY failed. The protocol requires to drop the messages
+            buffer.skipBytes(msgLength);
+            return;
+        }
+        switch (msgType) {
+            case 'd':
+                handler.handleCopyData(buffer);
+                return;
+            case 'c':
+                handler.handleCopyDone();
+                return;
+            default:
+                handler.handleCopyFail(readCString(buffer));
+        }
+    }
 
     /**
      * FrameDecoder that makes sure that a full message is in the buffer before delegating work to the MessageHandler
@@ -24,7 +24,10 @@ package io.crate.protocols.postgres;
 
 import io.crate.action.sql.BaseResultReceiver;
 import io.crate.data.Row;
+import io.crate.protocols.postgres.types.PGType;
+import io.crate.protocols.postgres.types.PGTypes;
 import io.crate.types.DataType;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 
 import javax.annotation.Nonnull;
@@ -34,14 +37,23 @@ import java.util.function.Function;
 
 class ResultSetReceiver extends BaseResultReceiver {
 
+    /**
+     * DataRow messages are encoded into a shared buffer which is written to the channel once it exceeds this size.
+     * Writing each row as individual message causes too much overhead for result sets with many small rows.
+     */
+    static final int CHUNK_SIZE = 32 * 1024;
+
     private final String query;
     private final Channel channel;
     private final Function<Throwable, Exception> wrapError;
-    private final List<? extends DataType> columnTypes;
+    private final PGType[] pgTypes;
 
     @Nullable
     private final FormatCodes.FormatCode[] formatCodes;
 
+    @Nullable
+    private ByteBuf chunk;
+
     private long rowCount = 0;
 
     ResultSetReceiver(String query,
@@ -52,27 +64,52 @@ class ResultSetReceiver extends BaseResultReceiver {
         this.query = query;
         this.channel = channel;
         this.wrapError = wrapError;
-        this.columnTypes = columnTypes;
+        this.pgTypes = new PGType[columnTypes.size()];
+        for (int i = 0; i < pgTypes.length; i++) {
+            pgTypes[i] = PGTypes.get(columnTypes.get(i));
+        }
         this.formatCodes = formatCodes;
     }
 
     @Override
     public void setNextRow(Row row) {
         rowCount++;
-        Messages.sendDataRow(channel, row, columnTypes, formatCodes);
-        if (rowCount % 1000 == 0) {
-            channel.flush();
+        if (chunk == null) {
+            chunk = channel.alloc().buffer(CHUNK_SIZE);
+        }
+        Messages.writeDataRow(chunk, row, pgTypes, formatCodes);
+        if (chunk.readableBytes() >= CHUNK_SIZE) {
+            writeChunk();
+            // Pending writes count towards the write buffer high water mark of the channel,
+            // once it is reached the data is flushed to avoid consuming too much memory.
+            if (!channel.isWritable()) {
+                channel.flush();
+            }
+        }
+    }
+
+    private void writeChunk() {
+        ByteBuf buffer = chunk;
+        if (buffer != null) {
+            chunk = null;
+            if (buffer.isReadable()) {
+                channel.write(buffer);
+            } else {
+                buffer.release();
+            }
         }
     }
 
     @Override
     public void batchFinished() {
+        writeChunk();
         Messages.sendPortalSuspended(channel);
         Messages.sendReadyForQuery(channel);
     }
 
     @Override
     public void allFinished(boolean interrupted) {
+        writeChunk();
         if (interrupted) {
             super.allFinished(true);
         } else {
@@ -82,6 +119,7 @@ class ResultSetReceiver extends BaseResultReceiver {
 
     @Override
     public void fail(@Nonnull Throwable throwable) {
+        writeChunk();
         final Exception e = wrapError.apply(throwable);
         Messages.sendErrorResponse(channel, e).addListener(f -> super.fail(e));
     }
@@ -22,9 +22,10 @@
 
 package io.crate.protocols.postgres.types;
 
-import com.google.common.primitives.Bytes;
 import io.crate.protocols.postgres.parser.PgArrayParser;
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
 
 import javax.annotation.Nonnull;
 import java.util.ArrayList;
@@ -128,55 +129,69 @@ class PGArray extends PGType {
         return values;
     }
 
+    @Override
+    public int writeAsText(ByteBuf buffer, @Nonnull Object value) {
+        int lenIndex = buffer.writerIndex();
+        buffer.writeInt(0);
+        int length = writeArrayAsText(buffer, (List<Object>) value);
+        buffer.setInt(lenIndex, length);
+        return INT32_BYTE_SIZE + length;
+    }
+
     @Override
     byte[] encodeAsUTF8Text(@Nonnull Object array) {
+        ByteBuf buffer = Unpooled.buffer();
+        try {
+            writeArrayAsText(buffer, (List<Object>) array);
+            return ByteBufUtil.getBytes(buffer);
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * Writes the text representation of the array into the buffer
+     *
+     * @return the number of bytes written
+     */
+    private int writeArrayAsText(ByteBuf buffer, List<Object> values) {
+        int startIdx = buffer.writerIndex();
         boolean isJson = JsonType.OID == innerType.oid();
-        List<Object> values = (List<Object>) array;
-        List<Byte> encodedValues = new ArrayList<>();
-        encodedValues.add((byte) '{');
+        buffer.writeByte('{');
         for (int i = 0; i < values.size(); i++) {
             Object o = values.get(i);
             if (o instanceof List) { // Nested Array -> recursive call
-                byte[] bytes = encodeAsUTF8Text(o);
-                for (byte b : bytes) {
-                    encodedValues.add(b);
-                }
+                writeArrayAsText(buffer, (List<Object>) o);
                 if (i == 0) {
-                    encodedValues.add((byte) ',');
+                    buffer.writeByte(',');
                 }
             } else {
                 if (i > 0) {
-                    encodedValues.add((byte) ',');
+                    buffer.writeByte(',');
                 }
-                byte[] bytes;
                 if (o == null) {
-                    bytes = NULL_BYTES;
-                    for (byte aByte : bytes) {
-                        encodedValues.add(aByte);
-                    }
+                    buffer.writeBytes(NULL_BYTES);
                 } else {
-                    bytes = innerType.encodeAsUTF8Text(o);
+                    byte[] bytes = innerType.encodeAsUTF8Text(o);
 
-                    encodedValues.add((byte) '"');
+                    buffer.writeByte('"');
                     if (isJson) {
                         for (byte aByte : bytes) {
                             // Escape double quotes with backslash for json
                             if ((char) aByte == '"') {
-                                encodedValues.add((byte) '\\');
+                                buffer.writeByte('\\');
                             }
-                            encodedValues.add(aByte);
+                            buffer.writeByte(aByte);
                         }
                     } else {
-                        for (byte aByte : bytes) {
-                            encodedValues.add(aByte);
-                        }
+                        buffer.writeBytes(bytes);
                     }
-                    encodedValues.add((byte) '"');
+                    buffer.writeByte('"');
                 }
             }
         }
-        encodedValues.add((byte) '}');
-        return Bytes.toArray(encodedValues);
+        buffer.writeByte('}');
+        return buffer.writerIndex() - startIdx;
     }
 
     @Override
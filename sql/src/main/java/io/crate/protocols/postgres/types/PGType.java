@@ -89,6 +89,13 @@ public abstract class PGType {
         return INT32_BYTE_SIZE + bytes.length;
     }
 
+    /**
+     * Return the UTF8 encoded text representation of the value, without length prefix.
+     */
+    public byte[] encodeAsText(@Nonnull Object value) {
+        return encodeAsUTF8Text(value);
+    }
+
     public Object readTextValue(ByteBuf buffer, int valueLength) {
         byte[] bytes = new byte[valueLength];
         buffer.readBytes(bytes);
@@ -23,6 +23,7 @@
 package io.crate.protocols.postgres.types;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 
 import javax.annotation.Nonnull;
 import java.nio.charset.StandardCharsets;
@@ -56,10 +57,12 @@ class VarCharType extends PGType {
     @Override
     public int writeAsBinary(ByteBuf buffer, @Nonnull Object value) {
         assert value instanceof String : "value must be a string, got: " + value;
-        byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
-        buffer.writeInt(bytes.length);
-        buffer.writeBytes(bytes);
-        return INT32_BYTE_SIZE + bytes.length;
+        // Encode directly into the buffer instead of creating an intermediate byte[]
+        int lenIndex = buffer.writerIndex();
+        buffer.writeInt(0);
+        int length = ByteBufUtil.writeUtf8(buffer, (String) value);
+        buffer.setInt(lenIndex, length);
+        return INT32_BYTE_SIZE + length;
     }
 
     @Override
@@ -0,0 +1,226 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.rest.action;
+
+import io.crate.action.sql.ResultReceiver;
+import io.crate.action.sql.SQLActionException;
+import io.crate.breaker.RowAccounting;
+import io.crate.data.Row;
+import io.crate.expression.symbol.Field;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.HttpResponse;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * ResultReceiver which writes the result as chunked HTTP response.
+ *
+ * The response header and the columns are sent with the first page of rows. Each following page is sent as
+ * a separate chunk, so that only a single page has to be held in memory.
+ *
+ * After a page has been written, {@code fetchNextPage} is invoked on the event loop of the channel. It's responsible
+ * to resume the execution (once the channel is writable again).
+ *
+ * The {@link #completionFuture()} only completes exceptionally if nothing has been sent yet.
+ * Failures after the response header has been sent are written as "error" to the response body and the connection
+ * is closed.
+ */
+class RestStreamingResultSetReceiver implements ResultReceiver<Void> {
+
+    /**
+     * Number of rows which are fetched and written as one HTTP chunk
+     */
+    static final int PAGE_SIZE = 1_000;
+
+    private final Channel channel;
+    private final HttpResponse response;
+    private final boolean closeConnection;
+    private final List<Field> outputFields;
+    private final long startTimeNs;
+    private final RowAccounting<Row> rowAccounting;
+    private final Function<Throwable, SQLActionException> toSQLActionException;
+    private final Consumer<RestStreamingResultSetReceiver> fetchNextPage;
+    private final ChunkOutputStream out = new ChunkOutputStream();
+    private final XContentBuilder xContentBuilder;
+    private final ResultToXContentBuilder builder;
+    private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+    private boolean headerSent = false;
+    private long rowCount;
+
+    RestStreamingResultSetReceiver(Channel channel,
+                                   HttpResponse response,
+                                   boolean closeConnection,
+                                   List<Field> outputFields,
+                                   long startTimeNs,
+                                   RowAccounting<Row> rowAccounting,
+                                   boolean includeTypesOnResponse,
+                                   Function<Throwable, SQLActionException> toSQLActionException,
+                                   Consumer<RestStreamingResultSetReceiver> fetchNextPage) throws IOException {
+        this.channel = channel;
+        this.response = response;
+        this.closeConnection = closeConnection;
+        this.outputFields = outputFields;
+        this.startTimeNs = startTimeNs;
+        this.rowAccounting = rowAccounting;
+        this.toSQLActionException = toSQLActionException;
+        this.fetchNextPage = fetchNextPage;
+        this.xContentBuilder = new XContentBuilder(JsonXContent.jsonXContent, out);
+        this.builder = ResultToXContentBuilder.builder(xContentBuilder);
+        this.builder.cols(outputFields);
+        if (includeTypesOnResponse) {
+            this.builder.colTypes(outputFields);
+        }
+        this.builder.startRows();
+    }
+
+    @Override
+    public void setNextRow(Row row) {
+        try {
+            rowAccounting.accountForAndMaybeBreak(row);
+            builder.addRow(row, outputFields.size());
+            rowCount++;
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void batchFinished() {
+        try {
+            writeChunk(false);
+        } catch (IOException e) {
+            fail(e);
+            return;
+        }
+        // Fetching the next page is forked to the event loop to not grow the stack with every page
+        channel.eventLoop().execute(() -> fetchNextPage.accept(this));
+    }
+
+    @Override
+    public void allFinished(boolean interrupted) {
+        if (interrupted) {
+            rowAccounting.release();
+            if (headerSent) {
+                // The response is incomplete, closing the connection is the only way to tell the client
+                channel.close();
+                result.complete(null);
+            } else {
+                result.completeExceptionally(new IllegalStateException("Result streaming was interrupted"));
+            }
+            return;
+        }
+        try {
+            builder
+                .finishRows()
+                .rowCount(rowCount)
+                .duration(startTimeNs)
+                .build();
+            writeChunk(true);
+            result.complete(null);
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void fail(@Nonnull Throwable t) {
+        rowAccounting.release();
+        if (!headerSent) {
+            result.completeExceptionally(t);
+            return;
+        }
+        try {
+            builder
+                .finishRows()
+                .error(toSQLActionException.apply(t))
+                .build();
+            xContentBuilder.flush();
+            channel.writeAndFlush(new DefaultLastHttpContent(out.takeChunk())).addListener(ChannelFutureListener.CLOSE);
+        } catch (Throwable e) {
+            channel.close();
+        }
+        result.complete(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> completionFuture() {
+        return result;
+    }
+
+    private void writeChunk(boolean last) throws IOException {
+        xContentBuilder.flush();
+        ByteBuf content = out.takeChunk();
+        rowAccounting.release();
+        if (!headerSent) {
+            channel.write(response);
+            headerSent = true;
+        }
+        if (last) {
+            ChannelFuture future = channel.writeAndFlush(new DefaultLastHttpContent(content));
+            if (closeConnection) {
+                future.addListener(ChannelFutureListener.CLOSE);
+            }
+        } else {
+            channel.writeAndFlush(new DefaultHttpContent(content));
+        }
+    }
+
+    /**
+     * Collects the output of the XContentBuilder into a ByteBuf which is handed over to netty for each chunk
+     */
+    private static class ChunkOutputStream extends OutputStream {
+
+        private ByteBuf buffer = Unpooled.buffer();
+
+        @Override
+        public void write(int b) {
+            buffer.writeByte(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            buffer.writeBytes(b, off, len);
+        }
+
+        ByteBuf takeChunk() {
+            ByteBuf chunk = buffer;
+            buffer = Unpooled.buffer();
+            return chunk;
+        }
+    }
+}
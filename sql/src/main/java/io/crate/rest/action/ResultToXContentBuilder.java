@@ -22,6 +22,7 @@
 
 package io.crate.rest.action;
 
+import io.crate.action.sql.SQLActionException;
 import io.crate.data.Row;
 import io.crate.expression.symbol.Field;
 import io.crate.types.ArrayType;
@@ -31,6 +32,8 @@ import org.elasticsearch.common.xcontent.XContentBuilder;
 import java.io.IOException;
 import java.util.List;
 
+import static io.crate.exceptions.Exceptions.userFriendlyMessageInclNested;
+
 class ResultToXContentBuilder {
 
 
@@ -42,6 +45,7 @@ class ResultToXContentBuilder {
         static final String ROW_COUNT = "rowcount";
         static final String DURATION = "duration";
         static final String ERROR_MESSAGE = "error_message";
+        static final String ERROR = "error";
     }
 
     private final XContentBuilder builder;
@@ -143,6 +147,17 @@ class ResultToXContentBuilder {
         return this;
     }
 
+    /**
+     * error() is used to report a failure which happened after parts of the result have already been sent
+     */
+    ResultToXContentBuilder error(SQLActionException e) throws IOException {
+        builder.startObject(FIELDS.ERROR)
+            .field("message", userFriendlyMessageInclNested(e))
+            .field("code", e.errorCode())
+            .endObject();
+        return this;
+    }
+
     XContentBuilder build() throws IOException {
         builder.endObject();
         return builder;
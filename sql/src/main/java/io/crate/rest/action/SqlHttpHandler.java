@@ -48,9 +48,11 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpResponse;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.HttpVersion;
 import io.netty.handler.codec.http.QueryStringDecoder;
 import org.apache.logging.log4j.LogManager;
@@ -87,6 +89,11 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest>
     private static final String REQUEST_HEADER_USER = "User";
     private static final String REQUEST_HEADER_SCHEMA = "Default-Schema";
 
+    /**
+     * Number of bulk args which are executed as one bulk operation
+     */
+    static final int BULK_BATCH_SIZE = 10_000;
+
     private final Settings settings;
     private final SQLOperations sqlOperations;
     private final Function<String, CircuitBreaker> circuitBreakerProvider;
@@ -96,6 +103,12 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest>
 
     private Session session;
 
+    /**
+     * Set if a streamed result is waiting for the channel to become writable again
+     */
+    @Nullable
+    private Runnable pendingFetch;
+
     SqlHttpHandler(Settings settings,
                    SQLOperations sqlOperations,
                    Function<String, CircuitBreaker> circuitBreakerProvider,
@@ -117,10 +130,15 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest>
             Session session = ensureSession(request);
             Map<String, List<String>> parameters = new QueryStringDecoder(request.uri()).parameters();
             ByteBuf content = request.content();
-            handleSQLRequest(session, content, paramContainFlag(parameters, "types"))
+            boolean includeTypes = paramContainFlag(parameters, "types");
+            boolean stream = paramContainFlag(parameters, "stream");
+            handleSQLRequest(session, ctx, request, content, includeTypes, stream)
                 .whenComplete((result, t) -> {
                     try {
-                        sendResponse(session, ctx, request, parameters, result, t);
+                        // A streamed result has already been written by the RestStreamingResultSetReceiver
+                        if (result != null || t != null) {
+                            sendResponse(session, ctx, request, parameters, result, t);
+                        }
                     } catch (Throwable ex) {
                         LOGGER.error("Error sending response", ex);
                         throw ex;
@@ -141,8 +159,19 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest>
         return values != null && (values.equals(singletonList("")) || values.equals(singletonList("true")));
     }
 
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        Runnable fetch = pendingFetch;
+        if (fetch != null && ctx.channel().isWritable()) {
+            pendingFetch = null;
+            fetch.run();
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
     @Override
     public void channelUnregistered(ChannelHandlerContext ctx) throws Exception {
+        pendingFetch = null;
         if (session != null) {
             session.close();
             session = null;
@@ -189,7 +218,12 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest>
         ctx.writeAndFlush(resp, promise);
     }
 
-    private CompletableFuture<XContentBuilder> handleSQLRequest(Session session, ByteBuf content, boolean includeTypes) {
+    private CompletableFuture<XContentBuilder> handleSQLRequest(Session session,
+                                                                ChannelHandlerContext ctx,
+                                                                FullHttpRequest request,
+                                                                ByteBuf content,
+                                                                boolean includeTypes,
+                                                                boolean stream) {
         SQLRequestParseContext parseContext;
         try {
             parseContext = SQLRequestParser.parseSource(Netty4Utils.toBytesReference(content));
@@ -204,7 +238,7 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest>
         }
         try {
             if (args != null || bulkArgs == null) {
-                return executeSimpleRequest(session, parseContext.stmt(), args, includeTypes);
+                return executeSimpleRequest(session, ctx, request, parseContext.stmt(), args, includeTypes, stream);
             } else {
                 return executeBulkRequest(session, parseContext.stmt(), bulkArgs);
             }
@@ -241,9 +275,12 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest>
     }
 
     private CompletableFuture<XContentBuilder> executeSimpleRequest(Session session,
+                                                                    ChannelHandlerContext ctx,
+                                                                    FullHttpRequest request,
                                                                     String stmt,
                                                                     Object[] args,
-                                                                    boolean includeTypes) throws IOException {
+                                                                    boolean includeTypes,
+                                                                    boolean stream) throws IOException {
         long startTimeInNs = System.nanoTime();
         session.parse(UNNAMED, stmt, emptyList());
         session.bind(UNNAMED, UNNAMED, args == null ? emptyList() : asList(args), null);
@@ -252,6 +289,8 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest>
         ResultReceiver<XContentBuilder> resultReceiver;
         if (resultFields == null) {
             resultReceiver = new RestRowCountReceiver(JsonXContent.contentBuilder(), startTimeInNs, includeTypes);
+        } else if (stream) {
+            return executeStreamingRequest(session, ctx, request, resultFields, startTimeInNs, includeTypes);
         } else {
             RamAccountingContext ramAccounting = new RamAccountingContext(
                 "http-result",
@@ -273,25 +312,80 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest>
             .thenCompose(ignored -> resultReceiver.completionFuture());
     }
 
+    /**
+     * Executes the statement with a fetch size of {@link RestStreamingResultSetReceiver#PAGE_SIZE} and writes each
+     * page as HTTP chunk. The next page is only fetched if the channel is writable.
+     *
+     * @return a future which completes with null once the response has been written,
+     *         or exceptionally if the execution failed before anything has been written.
+     */
+    private CompletableFuture<XContentBuilder> executeStreamingRequest(Session session,
+                                                                       ChannelHandlerContext ctx,
+                                                                       FullHttpRequest request,
+                                                                       List<Field> resultFields,
+                                                                       long startTimeInNs,
+                                                                       boolean includeTypes) throws IOException {
+        final HttpVersion httpVersion = request.protocolVersion();
+        DefaultHttpResponse resp = new DefaultHttpResponse(httpVersion, HttpResponseStatus.OK);
+        resp.headers().add(HttpHeaderNames.CONTENT_TYPE, JsonXContent.jsonXContent.type().mediaType());
+        HttpUtil.setTransferEncodingChunked(resp, true);
+        Netty4CorsHandler.setCorsResponseHeaders(request, resp, corsConfig);
+        boolean closeConnection = isCloseConnection(request);
+        if (!closeConnection) {
+            Headers.setKeepAlive(httpVersion, resp);
+        }
+        RamAccountingContext ramAccounting = new RamAccountingContext(
+            "http-result",
+            circuitBreakerProvider.apply(CrateCircuitBreakerService.QUERY));
+        RestStreamingResultSetReceiver resultReceiver = new RestStreamingResultSetReceiver(
+            ctx.channel(),
+            resp,
+            closeConnection,
+            resultFields,
+            startTimeInNs,
+            new RowAccountingWithEstimators(
+                Symbols.typeView(resultFields),
+                ramAccounting
+            ),
+            includeTypes,
+            t -> SQLExceptions.forWireTransmission(getAccessControl.apply(session.sessionContext()), t),
+            receiver -> fetchNextPage(session, ctx, receiver)
+        );
+        resultReceiver.completionFuture().whenComplete((result, error) -> ramAccounting.close());
+        session.execute(UNNAMED, RestStreamingResultSetReceiver.PAGE_SIZE, resultReceiver);
+        return session.sync()
+            .thenCompose(ignored -> resultReceiver.completionFuture())
+            .thenApply(ignored -> null);
+    }
+
+    /**
+     * Resumes the suspended portal of a streamed result. Must be called on the event loop.
+     */
+    private void fetchNextPage(Session session, ChannelHandlerContext ctx, RestStreamingResultSetReceiver receiver) {
+        if (!ctx.channel().isActive()) {
+            // Client went away, finishes the receiver with interrupted=true
+            session.close((byte) 'P', UNNAMED);
+            return;
+        }
+        if (!ctx.channel().isWritable()) {
+            pendingFetch = () -> fetchNextPage(session, ctx, receiver);
+            return;
+        }
+        try {
+            session.execute(UNNAMED, RestStreamingResultSetReceiver.PAGE_SIZE, receiver);
+            session.sync();
+        } catch (Throwable t) {
+            receiver.fail(t);
+        }
+    }
+
     private CompletableFuture<XContentBuilder> executeBulkRequest(Session session,
                                                                   String stmt,
                                                                   Object[][] bulkArgs) {
         final long startTimeInNs = System.nanoTime();
         session.parse(UNNAMED, stmt, emptyList());
         final RestBulkRowCountReceiver.Result[] results = new RestBulkRowCountReceiver.Result[bulkArgs.length];
-        for (int i = 0; i < bulkArgs.length; i++) {
-            session.bind(UNNAMED, UNNAMED, Arrays.asList(bulkArgs[i]), null);
-            ResultReceiver resultReceiver = new RestBulkRowCountReceiver(results, i);
-            session.execute(UNNAMED, 0, resultReceiver);
-        }
-        if (results.length > 0) {
-            DescribeResult describeResult = session.describe('P', UNNAMED);
-            if (describeResult.getFields() != null) {
-                return CompletableFuture.failedFuture(new UnsupportedOperationException(
-                            "Bulk operations for statements that return result sets is not supported"));
-            }
-        }
-        return session.sync()
+        return executeBulkBatches(session, bulkArgs, 0, results)
             .thenApply(ignored -> {
                 try {
                     return ResultToXContentBuilder.builder(JsonXContent.contentBuilder())
@@ -305,6 +399,49 @@ public class SqlHttpHandler extends SimpleChannelInboundHandler<FullHttpRequest>
             });
     }
 
+    /**
+     * Executes the bulk args in batches of {@link #BULK_BATCH_SIZE}, so that only the deferred executions of a
+     * single batch have to be held in memory. The bulk args themselves are fully parsed before the first batch runs.
+     * <p>
+     * If binding an entry fails in the first batch the whole request fails, as nothing has been executed yet.
+     * Once a batch has been executed, entries which can't be bound are reported as failed rows instead.
+     */
+    private CompletableFuture<?> executeBulkBatches(Session session,
+                                                    Object[][] bulkArgs,
+                                                    int from,
+                                                    RestBulkRowCountReceiver.Result[] results) {
+        if (from >= bulkArgs.length) {
+            return CompletableFuture.completedFuture(null);
+        }
+        int to = Math.min(from + BULK_BATCH_SIZE, bulkArgs.length);
+        int numExecutions = 0;
+        for (int i = from; i < to; i++) {
+            try {
+                session.bind(UNNAMED, UNNAMED, Arrays.asList(bulkArgs[i]), null);
+            } catch (Throwable t) {
+                if (from == 0) {
+                    throw t;
+                }
+                results[i] = new RestBulkRowCountReceiver.Result(SQLExceptions.messageOf(t), -2L);
+                continue;
+            }
+            if (from == 0 && i == 0) {
+                DescribeResult describeResult = session.describe('P', UNNAMED);
+                if (describeResult.getFields() != null) {
+                    return CompletableFuture.failedFuture(new UnsupportedOperationException(
+                        "Bulk operations for statements that return result sets is not supported"));
+                }
+            }
+            ResultReceiver resultReceiver = new RestBulkRowCountReceiver(results, i);
+            session.execute(UNNAMED, 0, resultReceiver);
+            numExecutions++;
+        }
+        CompletableFuture<?> batchExecuted = numExecutions > 0
+            ? session.sync()
+            : CompletableFuture.completedFuture(null);
+        return batchExecuted.thenCompose(ignored -> executeBulkBatches(session, bulkArgs, to, results));
+    }
+
     private static Set<Option> optionsFromUserHeader(String user) {
         if (user != null && !user.isEmpty() && user.toLowerCase(Locale.ENGLISH).contains("odbc")) {
             return EnumSet.of(Option.ALLOW_QUOTED_SUBSCRIPT);
@@ -108,6 +108,10 @@ public final class ColumnStats<T> implements Writeable {
         return mostCommonValues;
     }
 
+    public DataType<T> type() {
+        return type;
+    }
+
     public List<T> histogram() {
         return histogram;
     }
@@ -0,0 +1,160 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.action.sql;
+
+import io.crate.data.Row;
+import io.crate.data.RowConsumer;
+import io.crate.sql.tree.FetchFromCursor;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.testing.BatchSimulatingIterator;
+import io.crate.testing.TestingBatchIterators;
+import org.elasticsearch.common.unit.TimeValue;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class CursorTest extends CrateUnitTest {
+
+    private final AtomicInteger executions = new AtomicInteger(0);
+    private final AtomicReference<Throwable> completion = new AtomicReference<>();
+    private boolean completed = false;
+
+    private Cursor newCursor(boolean hold) {
+        return new Cursor(
+            "c1",
+            UUID.randomUUID(),
+            "crate",
+            "declare c1 cursor for select x from t",
+            hold,
+            List.of(),
+            consumer -> {
+                executions.incrementAndGet();
+                consumer.accept(new BatchSimulatingIterator<>(TestingBatchIterators.range(0, 10), 3, 4, null), null);
+            },
+            t -> {
+                completed = true;
+                completion.set(t);
+            }
+        );
+    }
+
+    private static List<Integer> fetch(Cursor cursor, long count) throws Exception {
+        List<Integer> rows = new ArrayList<>();
+        BaseResultReceiver resultReceiver = new BaseResultReceiver() {
+            @Override
+            public void setNextRow(Row row) {
+                rows.add((Integer) row.get(0));
+            }
+        };
+        cursor.fetch(count, resultReceiver);
+        resultReceiver.completionFuture().get(5, TimeUnit.SECONDS);
+        return rows;
+    }
+
+    @Test
+    public void testFetchResumesTheSuspendedExecution() throws Exception {
+        Cursor cursor = newCursor(false);
+        assertThat(fetch(cursor, 4), contains(0, 1, 2, 3));
+        assertThat(fetch(cursor, 1), contains(4));
+        assertThat(fetch(cursor, FetchFromCursor.ALL), contains(5, 6, 7, 8, 9));
+        assertThat(fetch(cursor, 2), empty());
+
+        assertThat(executions.get(), is(1));
+        assertThat(cursor.fetchedRows(), is(10L));
+        assertThat(completed, is(true));
+        assertThat(completion.get(), nullValue());
+    }
+
+    @Test
+    public void testFetchOfZeroRowsDoesNotStartTheExecution() throws Exception {
+        Cursor cursor = newCursor(false);
+        assertThat(fetch(cursor, 0), empty());
+        assertThat(executions.get(), is(0));
+    }
+
+    @Test
+    public void testCloseReleasesSuspendedExecution() throws Exception {
+        Cursor cursor = newCursor(true);
+        assertThat(fetch(cursor, 2), contains(0, 1));
+        assertThat(completed, is(false));
+
+        cursor.close();
+        assertThat(completed, is(true));
+
+        expectedException.expect(IllegalStateException.class);
+        expectedException.expectMessage("Cursor `c1` is closed");
+        fetch(cursor, 1);
+    }
+
+    @Test
+    public void testCloseWhileFetchingReleasesExecutionOnceTheFetchFinished() throws Exception {
+        AtomicReference<RowConsumer> consumerRef = new AtomicReference<>();
+        Cursor cursor = new Cursor(
+            "c1",
+            UUID.randomUUID(),
+            "crate",
+            "declare c1 cursor for select x from t",
+            false,
+            List.of(),
+            consumerRef::set,
+            t -> completed = true
+        );
+        BaseResultReceiver resultReceiver = new BaseResultReceiver();
+        cursor.fetch(2, resultReceiver);
+
+        cursor.close();
+        assertThat(completed, is(false));
+        assertThat(cursor.closeIfIdle(Long.MAX_VALUE, 0), is(false));
+
+        consumerRef.get().accept(TestingBatchIterators.range(0, 10), null);
+        resultReceiver.completionFuture().get(5, TimeUnit.SECONDS);
+        assertThat(cursor.fetchedRows(), is(2L));
+        assertThat(completed, is(true));
+    }
+
+    @Test
+    public void testIdleCursorsAreClosed() throws Exception {
+        Cursors cursors = new Cursors(TimeValue.timeValueMinutes(1));
+        Cursor cursor = newCursor(false);
+        cursors.add(cursor);
+        fetch(cursor, 2);
+
+        cursors.closeIdleCursors(cursor.lastUsed() + TimeValue.timeValueSeconds(30).millis());
+        assertThat(cursor.isClosed(), is(false));
+
+        cursors.closeIdleCursors(cursor.lastUsed() + TimeValue.timeValueMinutes(2).millis());
+        assertThat(cursor.isClosed(), is(true));
+        assertThat(completed, is(true));
+        assertThat(cursors.cursors().iterator().hasNext(), is(false));
+    }
+}
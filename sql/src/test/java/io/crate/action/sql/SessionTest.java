@@ -28,7 +28,9 @@ import io.crate.analyze.Relations;
 import io.crate.analyze.TableDefinitions;
 import io.crate.auth.user.AccessControl;
 import io.crate.data.Row;
+import io.crate.data.InMemoryBatchIterator;
 import io.crate.data.RowConsumer;
+import io.crate.exceptions.MissingPrivilegeException;
 import io.crate.execution.engine.collect.stats.JobsLogs;
 import io.crate.expression.symbol.Literal;
 import io.crate.expression.symbol.ParameterSymbol;
@@ -39,6 +41,7 @@ import io.crate.planner.Planner;
 import io.crate.planner.PlannerContext;
 import io.crate.planner.operators.SubQueryResults;
 import io.crate.sql.parser.SqlParser;
+import io.crate.statistics.TableStats;
 import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
 import io.crate.testing.SQLExecutor;
 import io.crate.types.DataType;
@@ -52,6 +55,7 @@ import org.mockito.ArgumentMatchers;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
@@ -62,6 +66,8 @@ import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class SessionTest extends CrateDummyClusterServiceUnitTest {
@@ -437,4 +443,187 @@ public class SessionTest extends CrateDummyClusterServiceUnitTest {
         session.sync().get(5, TimeUnit.SECONDS);
         assertThat(jobsLogs.metrics().iterator().next().totalCount(), is(1L));
     }
+
+    @Test
+    public void test_quick_exec_re_uses_cached_plan_of_select_statement() {
+        Planner planner = mockPlanner(Plan.StatementType.SELECT);
+        Session session = createSession(planner, new PlanCache(10, new TableStats()));
+
+        session.quickExec("select name from sys.cluster", new BaseResultReceiver(), Row.EMPTY);
+        session.quickExec("select name from sys.cluster", new BaseResultReceiver(), Row.EMPTY);
+
+        verify(planner, times(1))
+            .plan(ArgumentMatchers.any(AnalyzedStatement.class), ArgumentMatchers.any(PlannerContext.class));
+    }
+
+    @Test
+    public void test_cached_plan_is_invalidated_by_updated_table_stats() {
+        Planner planner = mockPlanner(Plan.StatementType.SELECT);
+        TableStats tableStats = new TableStats();
+        Session session = createSession(planner, new PlanCache(10, tableStats));
+
+        session.quickExec("select name from sys.cluster", new BaseResultReceiver(), Row.EMPTY);
+        tableStats.updateTableStats(Map.of());
+        session.quickExec("select name from sys.cluster", new BaseResultReceiver(), Row.EMPTY);
+        session.quickExec("select name from sys.cluster", new BaseResultReceiver(), Row.EMPTY);
+
+        verify(planner, times(2))
+            .plan(ArgumentMatchers.any(AnalyzedStatement.class), ArgumentMatchers.any(PlannerContext.class));
+    }
+
+    @Test
+    public void test_statements_with_non_deterministic_functions_are_not_cached() {
+        Planner planner = mockPlanner(Plan.StatementType.SELECT);
+        Session session = createSession(planner, new PlanCache(10, new TableStats()));
+
+        session.quickExec("select current_timestamp from sys.cluster", new BaseResultReceiver(), Row.EMPTY);
+        session.quickExec("select current_timestamp from sys.cluster", new BaseResultReceiver(), Row.EMPTY);
+
+        verify(planner, times(2))
+            .plan(ArgumentMatchers.any(AnalyzedStatement.class), ArgumentMatchers.any(PlannerContext.class));
+    }
+
+    @Test
+    public void test_described_prepared_statement_re_uses_cached_plan_for_different_parameters() throws Exception {
+        Planner planner = mockPlanner(Plan.StatementType.SELECT);
+        Session session = createSession(planner, new PlanCache(10, new TableStats()));
+
+        session.parse("S_1", "select name from sys.cluster where name = ?", List.of(DataTypes.STRING));
+        session.describe('S', "S_1");
+        session.bind("P_1", "S_1", List.of("n1"), null);
+        session.execute("P_1", 0, new BaseResultReceiver());
+        session.sync().get(5, TimeUnit.SECONDS);
+
+        session.parse("S_2", "select name from sys.cluster where name = ?", List.of(DataTypes.STRING));
+        session.describe('S', "S_2");
+        session.bind("P_2", "S_2", List.of("n2"), null);
+        session.execute("P_2", 0, new BaseResultReceiver());
+        session.sync().get(5, TimeUnit.SECONDS);
+
+        verify(planner, times(1))
+            .plan(ArgumentMatchers.any(AnalyzedStatement.class), ArgumentMatchers.any(PlannerContext.class));
+    }
+
+    @Test
+    public void test_prepared_statement_with_declared_parameter_types_re_uses_generic_plan() throws Exception {
+        Planner planner = mockPlanner(Plan.StatementType.SELECT);
+        Session session = createSession(planner, PlanCache.DISABLED);
+
+        session.parse("S_1", "select name from sys.cluster where name = ?", List.of(DataTypes.STRING));
+        for (String name : List.of("n1", "n2", "n3")) {
+            session.bind("P_1", "S_1", List.of(name), null);
+            session.execute("P_1", 0, new BaseResultReceiver());
+            session.sync().get(5, TimeUnit.SECONDS);
+        }
+
+        verify(planner, times(1))
+            .plan(ArgumentMatchers.any(AnalyzedStatement.class), ArgumentMatchers.any(PlannerContext.class));
+        assertThat(session.preparedStatements.get("S_1").genericPlan(), Matchers.notNullValue());
+    }
+
+    @Test
+    public void test_prepared_statement_without_parameter_types_is_planned_per_execution() throws Exception {
+        Planner planner = mockPlanner(Plan.StatementType.SELECT);
+        Session session = createSession(planner, PlanCache.DISABLED);
+
+        session.parse("S_1", "select name from sys.cluster where name = ?", List.of());
+        for (String name : List.of("n1", "n2")) {
+            session.bind("P_1", "S_1", List.of(name), null);
+            session.execute("P_1", 0, new BaseResultReceiver());
+            session.sync().get(5, TimeUnit.SECONDS);
+        }
+
+        verify(planner, times(2))
+            .plan(ArgumentMatchers.any(AnalyzedStatement.class), ArgumentMatchers.any(PlannerContext.class));
+    }
+
+    @Test
+    public void test_bind_without_parameters_checks_privileges_of_unbound_statement() throws Exception {
+        Planner planner = mockPlanner(Plan.StatementType.SELECT);
+        PlanCache planCache = new PlanCache(10, new TableStats());
+        Session session = createSession(planner, planCache);
+        session.parse("", "select name from sys.cluster", List.of());
+        session.bind("", "", List.of(), null);
+        session.execute("", 0, new BaseResultReceiver());
+        session.sync().get(5, TimeUnit.SECONDS);
+
+        // the second session hits the plan cache, the privileges must be checked nevertheless
+        Session deniedSession = createSession(planner, planCache, DENY_ALL);
+        deniedSession.parse("", "select name from sys.cluster", List.of());
+        expectedException.expect(MissingPrivilegeException.class);
+        deniedSession.bind("", "", List.of(), null);
+    }
+
+    @Test
+    public void test_bind_with_declared_parameter_types_checks_privileges_of_generic_statement() {
+        Planner planner = mockPlanner(Plan.StatementType.SELECT);
+        Session session = createSession(planner, PlanCache.DISABLED, DENY_ALL);
+
+        session.parse("S_1", "select name from sys.cluster where name = ?", List.of(DataTypes.STRING));
+        expectedException.expect(MissingPrivilegeException.class);
+        session.bind("P_1", "S_1", List.of("n1"), null);
+    }
+
+    @Test
+    public void test_bind_of_described_statement_checks_privileges_of_unbound_statement() {
+        Planner planner = mockPlanner(Plan.StatementType.SELECT);
+        Session session = createSession(planner, PlanCache.DISABLED, DENY_ALL);
+
+        session.parse("S_1", "select name from sys.cluster where name = ?", List.of());
+        session.describe('S', "S_1");
+        expectedException.expect(MissingPrivilegeException.class);
+        session.bind("P_1", "S_1", List.of("n1"), null);
+    }
+
+    private Planner mockPlanner(Plan.StatementType statementType) {
+        Planner planner = mock(Planner.class);
+        when(planner.currentClusterState()).thenReturn(clusterService.state());
+        when(planner.plan(ArgumentMatchers.any(AnalyzedStatement.class), ArgumentMatchers.any(PlannerContext.class)))
+            .thenReturn(new Plan() {
+                @Override
+                public StatementType type() {
+                    return statementType;
+                }
+
+                @Override
+                public void executeOrFail(DependencyCarrier dependencies,
+                                          PlannerContext plannerContext,
+                                          RowConsumer consumer,
+                                          Row params,
+                                          SubQueryResults subQueryResults) {
+                    consumer.accept(InMemoryBatchIterator.empty(null), null);
+                }
+            });
+        return planner;
+    }
+
+    private static final AccessControl DENY_ALL = new AccessControl() {
+        @Override
+        public void ensureMayExecute(AnalyzedStatement statement) {
+            throw new MissingPrivilegeException("normal");
+        }
+
+        @Override
+        public void ensureMaySee(Throwable t) throws MissingPrivilegeException {
+        }
+    };
+
+    private Session createSession(Planner planner, PlanCache planCache) {
+        return createSession(planner, planCache, AccessControl.DISABLED);
+    }
+
+    private Session createSession(Planner planner, PlanCache planCache, AccessControl accessControl) {
+        SQLExecutor sqlExecutor = SQLExecutor.builder(clusterService).build();
+        DependencyCarrier executor = mock(DependencyCarrier.class, Answers.RETURNS_MOCKS);
+        when(executor.clusterService()).thenReturn(clusterService);
+        return new Session(
+            sqlExecutor.analyzer,
+            planner,
+            new JobsLogs(() -> false),
+            false,
+            executor,
+            accessControl,
+            SessionContext.systemSessionContext(),
+            planCache);
+    }
 }
@@ -0,0 +1,130 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.aggregation;
+
+import io.crate.data.Input;
+import io.crate.data.RowN;
+import io.crate.expression.symbol.Literal;
+import io.crate.memory.OnHeapMemoryManager;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataType;
+import io.crate.types.DataTypes;
+import io.crate.types.ObjectType;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class BinaryKeyGroupMapTest extends CrateUnitTest {
+
+    private static final List<DataType> KEY_TYPES = List.of(DataTypes.STRING, DataTypes.LONG, DataTypes.INTEGER);
+
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    private final BinaryKeyGroupMap.Encoder encoder = new BinaryKeyGroupMap.Encoder(KEY_TYPES);
+    private final BinaryKeyGroupMap map = new BinaryKeyGroupMap(new OnHeapMemoryManager(allocatedBytes::addAndGet));
+
+    private BinaryKeyGroupMap.Key key(Object... values) {
+        return encoder.encode(new RowN(values));
+    }
+
+    @Test
+    public void testPutAndGetManyEntries() {
+        int numEntries = 10_000;
+        for (int i = 0; i < numEntries; i++) {
+            Object[] states = new Object[] { i };
+            assertThat(map.put(key("k" + i, (long) i, i % 7), states), nullValue());
+        }
+        assertThat(map.size(), is(numEntries));
+        assertThat(allocatedBytes.get() > 0, is(true));
+        for (int i = 0; i < numEntries; i++) {
+            assertThat(map.get(key("k" + i, (long) i, i % 7))[0], is(i));
+        }
+        assertThat(map.get(key("k1", 1L, 2)), nullValue());
+        assertThat(map.get(key("k1", 1L, null)), nullValue());
+    }
+
+    @Test
+    public void testPutReplacesStatesOfExistingKey() {
+        Object[] first = new Object[] { 1 };
+        Object[] second = new Object[] { 2 };
+        map.put(key("a", 1L, 1), first);
+
+        assertThat(map.put(key("a", 1L, 1), second), sameInstance(first));
+        assertThat(map.size(), is(1));
+        assertThat(map.get(key("a", 1L, 1)), sameInstance(second));
+    }
+
+    @Test
+    public void testEntryKeysCanBeDecodedAndNullsAreSupported() {
+        map.put(key(null, 10L, null), new Object[] { 1 });
+        map.put(key("b", null, 20), new Object[] { 2 });
+
+        Map<List<Object>, Object> decoded = new HashMap<>();
+        for (Map.Entry<BinaryKeyGroupMap.Key, Object[]> entry : map.entrySet()) {
+            Object[] cells = new Object[KEY_TYPES.size()];
+            encoder.decode(entry.getKey(), cells);
+            decoded.put(Arrays.asList(cells), entry.getValue()[0]);
+        }
+        assertThat(decoded.get(Arrays.asList(null, 10L, null)), is(1));
+        assertThat(decoded.get(Arrays.asList("b", null, 20)), is(2));
+    }
+
+    @Test
+    public void testClearReusesPages() {
+        for (int i = 0; i < 1000; i++) {
+            map.put(key("k" + i, (long) i, i), new Object[] { i });
+        }
+        long bytesBeforeClear = allocatedBytes.get();
+        map.clear();
+        assertThat(map.size(), is(0));
+        assertThat(map.get(key("k1", 1L, 1)), nullValue());
+
+        for (int i = 0; i < 1000; i++) {
+            map.put(key("x" + i, (long) i, i), new Object[] { i });
+        }
+        assertThat(map.size(), is(1000));
+        assertThat(allocatedBytes.get(), is(bytesBeforeClear));
+        assertThat(map.get(key("x999", 999L, 999))[0], is(999));
+    }
+
+    @Test
+    public void testEncodedKeysOfEqualValuesAreEqual() {
+        BinaryKeyGroupMap.Encoder otherEncoder = new BinaryKeyGroupMap.Encoder(KEY_TYPES);
+        List<Input<?>> inputs = List.of(Literal.of("a"), Literal.of(1L), Literal.of(2));
+        assertThat(otherEncoder.encode(inputs), is(key("a", 1L, 2)));
+        assertThat(otherEncoder.encode(inputs).hashCode(), is(key("a", 1L, 2).hashCode()));
+    }
+
+    @Test
+    public void testSupportsOnlyPrimitiveTypes() {
+        assertThat(BinaryKeyGroupMap.supportsTypes(KEY_TYPES), is(true));
+        assertThat(BinaryKeyGroupMap.supportsTypes(List.of(DataTypes.STRING, ObjectType.untyped())), is(false));
+    }
+}
@@ -0,0 +1,272 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.aggregation;
+
+import com.carrotsearch.hppc.BitMixer;
+import io.crate.breaker.RamAccounting;
+import io.crate.data.BatchIterators;
+import io.crate.data.CollectionBucket;
+import io.crate.data.InMemoryBatchIterator;
+import io.crate.data.Input;
+import io.crate.data.Row;
+import io.crate.execution.engine.aggregation.impl.SumAggregation;
+import io.crate.execution.engine.collect.CollectExpression;
+import io.crate.execution.engine.collect.InputCollectExpression;
+import io.crate.execution.engine.spill.SpillFileFactory;
+import io.crate.expression.symbol.AggregateMode;
+import io.crate.expression.symbol.Literal;
+import io.crate.memory.MemoryManager;
+import io.crate.memory.OnHeapMemoryManager;
+import io.crate.metadata.FunctionIdent;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataTypes;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static io.crate.data.SentinelRow.SENTINEL;
+import static io.crate.testing.TestingHelpers.getFunctions;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+
+public class GroupingCollectorTest extends CrateUnitTest {
+
+    private AggregationFunction sumAgg;
+    private Path spillDirectory;
+
+    @Before
+    public void setupFunctions() throws Exception {
+        sumAgg = (AggregationFunction) getFunctions().getQualified(
+            new FunctionIdent(SumAggregation.NAME, List.of(DataTypes.LONG)));
+        spillDirectory = createTempDir();
+    }
+
+    private GroupingCollector<Object> sumByKeyCollector(RamAccounting ramAccounting, SpillFileFactory spillFileFactory) {
+        InputCollectExpression keyInput = new InputCollectExpression(0);
+        InputCollectExpression valueInput = new InputCollectExpression(1);
+        return GroupingCollector.singleKey(
+            new CollectExpression[] { keyInput, valueInput },
+            AggregateMode.ITER_FINAL,
+            new AggregationFunction[] { sumAgg },
+            new Input[][] { new Input[] { valueInput } },
+            new Input[] { Literal.BOOLEAN_TRUE },
+            ramAccounting,
+            new OnHeapMemoryManager(bytes -> {}),
+            Version.CURRENT,
+            keyInput,
+            DataTypes.STRING,
+            Version.CURRENT,
+            spillFileFactory
+        );
+    }
+
+    /**
+     * Uses the {@link BinaryKeyGroupMap}, which allocates the pages for the keys via the memoryManager
+     */
+    @SuppressWarnings("unchecked")
+    private GroupingCollector<Object> binaryKeySumCollector(RamAccounting ramAccounting,
+                                                            MemoryManager memoryManager,
+                                                            SpillFileFactory spillFileFactory) {
+        InputCollectExpression keyInput = new InputCollectExpression(0);
+        InputCollectExpression valueInput = new InputCollectExpression(1);
+        return (GroupingCollector<Object>) GroupingCollector.manyKeys(
+            new CollectExpression[] { keyInput, valueInput },
+            AggregateMode.ITER_FINAL,
+            new AggregationFunction[] { sumAgg },
+            new Input[][] { new Input[] { valueInput } },
+            new Input[] { Literal.BOOLEAN_TRUE },
+            ramAccounting,
+            memoryManager,
+            Version.CURRENT,
+            List.of(keyInput),
+            List.of(DataTypes.STRING),
+            Version.CURRENT,
+            spillFileFactory
+        );
+    }
+
+    /**
+     * Uses small buffers, as the buffers of the spill files count towards the limit of a {@link LimitedRamAccounting}
+     */
+    private SpillFileFactory spillFileFactory() {
+        return new SpillFileFactory(spillDirectory, true, 8);
+    }
+
+    private static List<Object[]> rows(int numRows, int numKeys) {
+        List<Object[]> rows = new ArrayList<>(numRows);
+        for (int i = 0; i < numRows; i++) {
+            rows.add(new Object[] { "k" + (i % numKeys), 1L });
+        }
+        return rows;
+    }
+
+    private static Map<Object, Object> collect(GroupingCollector<Object> collector, List<Object[]> rows) throws Exception {
+        Iterable<Row> result = BatchIterators.collect(
+            InMemoryBatchIterator.of(new CollectionBucket(rows), SENTINEL, false), collector).get();
+        Map<Object, Object> sumByKey = new HashMap<>();
+        for (Row row : result) {
+            Object previous = sumByKey.put(row.get(0), row.get(1));
+            assertThat("Every key must be emitted exactly once", previous, is((Object) null));
+        }
+        return sumByKey;
+    }
+
+    @Test
+    public void testGroupsAreSpilledAndMergedIfBreakerTrips() throws Exception {
+        SpillFileFactory spillFileFactory = spillFileFactory();
+        GroupingCollector<Object> collector = sumByKeyCollector(new LimitedRamAccounting(1024), spillFileFactory);
+
+        Map<Object, Object> sumByKey = collect(collector, rows(1000, 100));
+
+        assertThat(sumByKey.size(), is(100));
+        for (int i = 0; i < 100; i++) {
+            assertThat(sumByKey.get("k" + i), is(10L));
+        }
+        assertThat(numFiles() > 0, is(true));
+
+        collector.close();
+        assertThat(numFiles(), is(0L));
+    }
+
+    @Test
+    public void testSpillingOnlyReleasesBytesOfTheCollector() throws Exception {
+        SpillFileFactory spillFileFactory = spillFileFactory();
+        LimitedRamAccounting sharedRamAccounting = new LimitedRamAccounting(1024);
+        // bytes accounted by another operator of the same phase
+        sharedRamAccounting.addBytes(100);
+        GroupingCollector<Object> collector = sumByKeyCollector(sharedRamAccounting, spillFileFactory);
+
+        Map<Object, Object> sumByKey = collect(collector, rows(1000, 100));
+
+        assertThat(sumByKey.size(), is(100));
+        assertThat(numFiles() > 0, is(true));
+        assertThat(sharedRamAccounting.numReleaseCalls, is(0));
+        assertThat(sharedRamAccounting.totalBytes() >= 100L, is(true));
+        collector.close();
+    }
+
+    @Test
+    public void testMergingSpilledPartitionsReusesTheMemoryOfTheMap() throws Exception {
+        SpillFileFactory spillFileFactory = spillFileFactory();
+        AtomicLong bytesWithoutSpilling = new AtomicLong();
+        collect(
+            binaryKeySumCollector(
+                RamAccounting.NO_ACCOUNTING, new OnHeapMemoryManager(bytesWithoutSpilling::addAndGet), spillFileFactory),
+            rows(1000, 100));
+
+        AtomicLong bytesWithSpilling = new AtomicLong();
+        GroupingCollector<Object> collector = binaryKeySumCollector(
+            new LimitedRamAccounting(1024), new OnHeapMemoryManager(bytesWithSpilling::addAndGet), spillFileFactory);
+        Map<Object, Object> sumByKey = collect(collector, rows(1000, 100));
+
+        assertThat(sumByKey.size(), is(100));
+        assertThat(numFiles() > 0, is(true));
+        assertThat(bytesWithoutSpilling.get() > 0, is(true));
+        assertThat(bytesWithSpilling.get(), is(bytesWithoutSpilling.get()));
+        collector.close();
+    }
+
+    @Test
+    public void testKeysOfASpillPartitionAreSpreadOverTheSlotsOfTheMap() {
+        int numSlots = GroupingCollector.NUM_SPILL_PARTITIONS;
+        long numUsedSlots = Stream.iterate(0, i -> i + 1)
+            .map(i -> "k" + i)
+            .filter(key -> GroupingCollector.spillPartitionIdx(key) == 0)
+            .limit(1000)
+            .map(key -> BitMixer.mix32(key.hashCode()) & (numSlots - 1))
+            .distinct()
+            .count();
+        assertThat(numUsedSlots, is((long) numSlots));
+    }
+
+    @Test
+    public void testBreakerExceptionIsPropagatedIfSpillingIsDisabled() throws Exception {
+        SpillFileFactory spillFileFactory = new SpillFileFactory(spillDirectory, false);
+        GroupingCollector<Object> collector = sumByKeyCollector(new LimitedRamAccounting(1024), spillFileFactory);
+
+        expectedException.expectCause(instanceOf(CircuitBreakingException.class));
+        collect(collector, rows(1000, 100));
+    }
+
+    @Test
+    public void testNothingIsSpilledIfGroupsFitIntoMemory() throws Exception {
+        SpillFileFactory spillFileFactory = spillFileFactory();
+        GroupingCollector<Object> collector = sumByKeyCollector(RamAccounting.NO_ACCOUNTING, spillFileFactory);
+
+        Map<Object, Object> sumByKey = collect(collector, rows(1000, 100));
+
+        assertThat(sumByKey.size(), is(100));
+        assertThat(sumByKey.get("k42"), is(10L));
+        assertThat(numFiles(), is(0L));
+    }
+
+    private long numFiles() throws Exception {
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            return files.count();
+        }
+    }
+
+    private static class LimitedRamAccounting implements RamAccounting {
+
+        private final long limit;
+        private long totalBytes = 0;
+        private int numReleaseCalls = 0;
+
+        LimitedRamAccounting(long limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public void addBytes(long bytes) {
+            if (totalBytes + bytes > limit) {
+                throw new CircuitBreakingException("Limit of " + limit + " bytes exceeded");
+            }
+            totalBytes += bytes;
+        }
+
+        @Override
+        public long totalBytes() {
+            return totalBytes;
+        }
+
+        @Override
+        public void release() {
+            numReleaseCalls++;
+            totalBytes = 0;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -34,9 +34,11 @@ import io.crate.memory.OnHeapMemoryManager;
 import io.crate.metadata.FunctionIdent;
 import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
 import io.crate.testing.BatchIteratorTester;
+import io.crate.types.DataTypes;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedNumericDocValuesField;
 import org.apache.lucene.document.SortedSetDocValuesField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.DocValues;
@@ -55,6 +57,7 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
@@ -162,6 +165,59 @@ public class GroupByOptimizedIteratorTest extends CrateDummyClusterServiceUnitTe
         );
     }
 
+    @Test
+    public void test_multi_key_iterator_groups_by_string_and_numeric_keys_across_segments() throws Exception {
+        IndexWriter iw = new IndexWriter(new ByteBuffersDirectory(), new IndexWriterConfig(new StandardAnalyzer()));
+        for (int segment = 0; segment < 2; segment++) {
+            for (long i = 0; i < 6; i++) {
+                Document doc = new Document();
+                doc.add(new SortedSetDocValuesField("x", new BytesRef("val_" + (i % 2))));
+                if (i % 3 != 0) {
+                    doc.add(new SortedNumericDocValuesField("y", i % 3));
+                }
+                iw.addDocument(doc);
+            }
+            iw.commit();
+        }
+        IndexSearcher indexSearcher = new IndexSearcher(DirectoryReader.open(iw));
+        assertThat(indexSearcher.getTopReaderContext().leaves().size(), is(2));
+
+        List<GroupByOptimizedIterator.KeyColumn> keyColumns = Arrays.asList(
+            new GroupByOptimizedIterator.OrdinalsKeyColumn("x", leaf -> {
+                try {
+                    return DocValues.getSortedSet(leaf.reader(), "x");
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }),
+            new GroupByOptimizedIterator.NumericKeyColumn("y", DataTypes.LONG)
+        );
+        Supplier<BatchIterator<Row>> batchIterator = () -> GroupByOptimizedIterator.getMultiKeyIterator(
+            indexSearcher,
+            keyColumns,
+            aggregationContexts,
+            Collections.emptyList(),
+            Collections.singletonList(inExpr),
+            new RamAccountingContext("group", new NoopCircuitBreaker("test")),
+            new OnHeapMemoryManager(usedBytes -> {}),
+            Version.CURRENT,
+            new InputRow(Collections.singletonList(inExpr)),
+            new MatchAllDocsQuery(),
+            new CollectorContext(mappedFieldType -> null),
+            AggregateMode.ITER_FINAL
+        );
+        List<Object[]> expectedResult = Arrays.asList(
+            new Object[] { "val_0", null, 2L },
+            new Object[] { "val_1", 1L, 2L },
+            new Object[] { "val_0", 2L, 2L },
+            new Object[] { "val_1", null, 2L },
+            new Object[] { "val_0", 1L, 2L },
+            new Object[] { "val_1", 2L, 2L }
+        );
+        BatchIteratorTester tester = new BatchIteratorTester(batchIterator);
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+    }
+
     @Test
     public void test_optimized_iterator_behaviour() throws Exception {
         BatchIteratorTester tester = new BatchIteratorTester(createBatchIterator(() -> {}));
@@ -0,0 +1,143 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.collect;
+
+import io.crate.analyze.WhereClause;
+import io.crate.data.BatchIterator;
+import io.crate.data.InMemoryBatchIterator;
+import io.crate.data.Row;
+import io.crate.data.Row1;
+import io.crate.data.SentinelRow;
+import io.crate.execution.dsl.phases.RoutedCollectPhase;
+import io.crate.execution.dsl.projection.AggregationProjection;
+import io.crate.execution.dsl.projection.Projection;
+import io.crate.execution.engine.aggregation.impl.CountAggregation;
+import io.crate.expression.symbol.AggregateMode;
+import io.crate.expression.symbol.Aggregation;
+import io.crate.expression.symbol.Literal;
+import io.crate.metadata.Routing;
+import io.crate.metadata.RowGranularity;
+import io.crate.planner.distribution.DistributionInfo;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.testing.TestingRowConsumer;
+import io.crate.types.DataTypes;
+import org.elasticsearch.Version;
+import org.elasticsearch.index.shard.ShardId;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class ShardAggregationCacheTest extends CrateUnitTest {
+
+    private static final AggregationProjection COUNT_PROJECTION = new AggregationProjection(
+        Collections.singletonList(new Aggregation(CountAggregation.COUNT_STAR_FUNCTION, DataTypes.LONG, List.of())),
+        RowGranularity.SHARD,
+        AggregateMode.ITER_FINAL
+    );
+
+    private final ShardId shardId = new ShardId("t", "_na_", 0);
+    private final Object readerKey = new Object();
+
+    private static RoutedCollectPhase collectPhase(List<Projection> projections) {
+        return new RoutedCollectPhase(
+            UUID.randomUUID(),
+            1,
+            "collect",
+            new Routing(Collections.emptyMap()),
+            RowGranularity.DOC,
+            Collections.singletonList(Literal.of(1L)),
+            projections,
+            WhereClause.MATCH_ALL.queryOrFallback(),
+            DistributionInfo.DEFAULT_BROADCAST
+        );
+    }
+
+    private static List<Object[]> consume(BatchIterator<Row> iterator) throws Exception {
+        TestingRowConsumer consumer = new TestingRowConsumer();
+        consumer.accept(iterator, null);
+        return consumer.getResult();
+    }
+
+    @Test
+    public void testOnlyAggregationsAreCacheable() {
+        assertThat(ShardAggregationCache.isCacheable(collectPhase(List.of(COUNT_PROJECTION))), is(true));
+        assertThat(ShardAggregationCache.isCacheable(collectPhase(List.of())), is(false));
+    }
+
+    @Test
+    public void testKeysOfDifferentJobsAreEqual() {
+        ShardAggregationCache.Key key1 = ShardAggregationCache.key(
+            shardId, readerKey, collectPhase(List.of(COUNT_PROJECTION)), Version.CURRENT);
+        ShardAggregationCache.Key key2 = ShardAggregationCache.key(
+            shardId, readerKey, collectPhase(List.of(COUNT_PROJECTION)), Version.CURRENT);
+        assertThat(key1, is(key2));
+        assertThat(key1.hashCode(), is(key2.hashCode()));
+
+        ShardAggregationCache.Key otherReader = ShardAggregationCache.key(
+            shardId, new Object(), collectPhase(List.of(COUNT_PROJECTION)), Version.CURRENT);
+        assertThat(key1.equals(otherReader), is(false));
+    }
+
+    @Test
+    public void testResultsAreCachedOnceConsumed() throws Exception {
+        ShardAggregationCache cache = new ShardAggregationCache(1024 * 1024);
+        RoutedCollectPhase phase = collectPhase(List.of(COUNT_PROJECTION));
+        ShardAggregationCache.Key key = ShardAggregationCache.key(shardId, readerKey, phase, Version.CURRENT);
+        assertThat(cache.get(key), nullValue());
+
+        List<BatchIterator<Row>> iterators = cache.cacheResults(
+            key,
+            () -> readerKey,
+            phase,
+            List.of(InMemoryBatchIterator.of(new Row1(10L), SentinelRow.SENTINEL))
+        );
+        List<Object[]> result = consume(iterators.get(0));
+        assertThat(result.size(), is(1));
+        assertThat(result.get(0)[0], is(10L));
+
+        List<Object[]> cachedResult = consume(cache.get(key));
+        assertThat(cachedResult.size(), is(1));
+        assertThat(cachedResult.get(0)[0], is(10L));
+    }
+
+    @Test
+    public void testResultsAreNotCachedIfReaderChangedDuringCollect() throws Exception {
+        ShardAggregationCache cache = new ShardAggregationCache(1024 * 1024);
+        RoutedCollectPhase phase = collectPhase(List.of(COUNT_PROJECTION));
+        ShardAggregationCache.Key key = ShardAggregationCache.key(shardId, readerKey, phase, Version.CURRENT);
+
+        List<BatchIterator<Row>> iterators = cache.cacheResults(
+            key,
+            Object::new,
+            phase,
+            List.of(InMemoryBatchIterator.of(new Row1(10L), SentinelRow.SENTINEL))
+        );
+        consume(iterators.get(0));
+        assertThat(cache.get(key), nullValue());
+    }
+}
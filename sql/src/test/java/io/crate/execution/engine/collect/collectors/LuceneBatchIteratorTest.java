@@ -22,6 +22,9 @@
 
 package io.crate.execution.engine.collect.collectors;
 
+import io.crate.common.collections.Lists2;
+import io.crate.data.BatchIterators;
+import io.crate.data.Row;
 import io.crate.expression.reference.doc.lucene.CollectorContext;
 import io.crate.expression.reference.doc.lucene.LongColumnReference;
 import io.crate.test.integration.CrateUnitTest;
@@ -32,6 +35,8 @@ import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.store.ByteBuffersDirectory;
@@ -41,6 +46,11 @@ import org.junit.Test;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
 
 public class LuceneBatchIteratorTest extends CrateUnitTest {
 
@@ -80,4 +90,57 @@ public class LuceneBatchIteratorTest extends CrateUnitTest {
         );
         tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
     }
+
+    @Test
+    public void testSlicesOfSegmentsContainAllDocuments() throws Exception {
+        IndexWriterConfig config = new IndexWriterConfig(new StandardAnalyzer()).setMergePolicy(NoMergePolicy.INSTANCE);
+        IndexWriter iw = new IndexWriter(new ByteBuffersDirectory(), config);
+        List<Object[]> expected = new ArrayList<>();
+        int[] segmentSizes = new int[] { 10, 1, 7, 3, 3, 2 };
+        long value = 0;
+        for (int segmentSize : segmentSizes) {
+            for (int i = 0; i < segmentSize; i++) {
+                Document doc = new Document();
+                doc.add(new NumericDocValuesField("x", value));
+                iw.addDocument(doc);
+                expected.add(new Object[] { value });
+                value++;
+            }
+            iw.commit();
+        }
+        IndexSearcher searcher = new IndexSearcher(DirectoryReader.open(iw));
+        List<LeafReaderContext> leaves = searcher.getTopReaderContext().leaves();
+        assertThat(leaves.size(), is(segmentSizes.length));
+
+        List<List<LeafReaderContext>> slices = LuceneBatchIterator.slices(leaves, 3);
+        assertThat(slices.size(), is(3));
+        assertThat(
+            Lists2.map(slices, slice -> slice.stream().mapToInt(leaf -> leaf.reader().maxDoc()).sum()),
+            containsInAnyOrder(10, 8, 8)
+        );
+
+        List<Object[]> rows = new ArrayList<>();
+        for (List<LeafReaderContext> slice : slices) {
+            LongColumnReference columnRef = new LongColumnReference("x");
+            LuceneBatchIterator it = new LuceneBatchIterator(
+                searcher,
+                new MatchAllDocsQuery(),
+                null,
+                false,
+                new CollectorContext(mappedFieldType -> null),
+                List.of(columnRef),
+                List.of(columnRef),
+                slice
+            );
+            rows.addAll(BatchIterators.collect(it, Collectors.mapping(Row::materialize, Collectors.toList())).get());
+        }
+        assertThat(rows, containsInAnyOrder(expected.toArray()));
+    }
+
+    @Test
+    public void testSlicesAreLimitedByNumberOfSegments() {
+        List<LeafReaderContext> leaves = indexSearcher.getTopReaderContext().leaves();
+        assertThat(LuceneBatchIterator.slices(leaves, 8).size(), is(leaves.size()));
+        assertThat(LuceneBatchIterator.slices(leaves, 0), contains(leaves));
+    }
 }
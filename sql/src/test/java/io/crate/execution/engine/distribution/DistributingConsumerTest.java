@@ -48,17 +48,21 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.invocation.InvocationOnMock;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -141,6 +145,53 @@ public class DistributingConsumerTest extends CrateUnitTest {
         collectingConsumer.getResult();
     }
 
+    @Test
+    public void testSlowDownstreamOnlyBlocksConsumptionOnceItsCreditsAreUsedUp() throws Exception {
+        Streamer<?>[] streamers = { DataTypes.INTEGER.streamer() };
+        BlockingQueue<ActionListener<DistributedResultResponse>> slowDownstreamListeners = new LinkedBlockingQueue<>();
+        TransportDistributedResultAction distributedResultAction = mock(TransportDistributedResultAction.class);
+        doAnswer((InvocationOnMock invocationOnMock) -> {
+            ActionListener<DistributedResultResponse> listener = invocationOnMock.getArgument(2);
+            if (invocationOnMock.getArgument(0).equals("n1")) {
+                listener.onResponse(new DistributedResultResponse(true));
+            } else {
+                slowDownstreamListeners.add(listener);
+            }
+            return null;
+        }).when(distributedResultAction).pushResult(anyString(), any(), any());
+
+        DistributingConsumer distributingConsumer = new DistributingConsumer(
+            logger,
+            executorService,
+            UUID.randomUUID(),
+            new ModuloBucketBuilder(streamers, 2, 0, RamAccounting.NO_ACCOUNTING),
+            1,
+            (byte) 0,
+            0,
+            Arrays.asList("n1", "n2"),
+            distributedResultAction,
+            2 // pageSize
+        );
+        distributingConsumer.accept(TestingBatchIterators.range(0, 10), null);
+
+        // n2 has one page in flight and one pending, which uses up its credits
+        verify(distributedResultAction, times(DistributingConsumer.PAGE_CREDITS_PER_DOWNSTREAM))
+            .pushResult(eq("n1"), any(), any());
+        verify(distributedResultAction, times(1)).pushResult(eq("n2"), any(), any());
+        assertThat(distributingConsumer.completionFuture().isDone(), is(false));
+
+        while (distributingConsumer.completionFuture().isDone() == false) {
+            ActionListener<DistributedResultResponse> listener = slowDownstreamListeners.poll(5, TimeUnit.SECONDS);
+            assertThat(listener, Matchers.notNullValue());
+            listener.onResponse(new DistributedResultResponse(true));
+        }
+        distributingConsumer.completionFuture().get(5, TimeUnit.SECONDS);
+
+        // 10 rows with pageSize=2 results in 5 pages and the final (empty) isLast page
+        verify(distributedResultAction, times(6)).pushResult(eq("n1"), any(), any());
+        verify(distributedResultAction, times(6)).pushResult(eq("n2"), any(), any());
+    }
+
     private DistributingConsumer createDistributingConsumer(Streamer<?>[] streamers, TransportDistributedResultAction distributedResultAction) {
         return new DistributingConsumer(
             logger,
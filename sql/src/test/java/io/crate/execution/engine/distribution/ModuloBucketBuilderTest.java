@@ -26,6 +26,7 @@ import io.crate.Streamer;
 import io.crate.breaker.RamAccounting;
 import io.crate.data.Bucket;
 import io.crate.data.Row1;
+import io.crate.data.RowN;
 import io.crate.test.integration.CrateUnitTest;
 import io.crate.testing.TestingHelpers;
 import io.crate.types.DataTypes;
@@ -56,4 +57,24 @@ public class ModuloBucketBuilderTest extends CrateUnitTest {
         assertThat(rowsD2.size(), is(2));
         assertThat(TestingHelpers.printedTable(rowsD2), is("1\n3\n"));
     }
+
+    @Test
+    public void testRowsAreDistributedByTheHashOfAllDistributedByColumns() throws Exception {
+        final ModuloBucketBuilder builder = new ModuloBucketBuilder(
+            new Streamer[]{DataTypes.INTEGER.streamer(), DataTypes.INTEGER.streamer()},
+            2,
+            new int[] { 0, 1 },
+            RamAccounting.NO_ACCOUNTING);
+
+        // the first column alone would put all rows into the same bucket
+        for (int i = 0; i < 4; i++) {
+            builder.add(new RowN(new Object[] { 1, i }));
+        }
+
+        StreamBucket[] buckets = new StreamBucket[2];
+        builder.build(buckets);
+
+        assertThat(TestingHelpers.printedTable(buckets[0]), is("1| 1\n1| 3\n"));
+        assertThat(TestingHelpers.printedTable(buckets[1]), is("1| 0\n1| 2\n"));
+    }
 }
@@ -0,0 +1,135 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.distribution;
+
+import io.crate.Streamer;
+import io.crate.breaker.RamAccounting;
+import io.crate.data.Row;
+import io.crate.data.RowN;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataTypes;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+public class StreamBucketTest extends CrateUnitTest {
+
+    private static final Streamer<?>[] STREAMERS = new Streamer[]{
+        DataTypes.STRING.streamer(),
+        DataTypes.LONG.streamer(),
+        DataTypes.TIMESTAMPZ.streamer(),
+        DataTypes.INTEGER.streamer()
+    };
+
+    private static List<Object[]> rows(int numRows) {
+        ArrayList<Object[]> rows = new ArrayList<>(numRows);
+        for (int i = 0; i < numRows; i++) {
+            rows.add(new Object[]{
+                i % 7 == 0 ? null : "key-" + (i % 5),
+                i % 11 == 0 ? null : (i % 2 == 0 ? Long.MIN_VALUE : Long.MAX_VALUE),
+                1574000000000L + i * 1000L,
+                i
+            });
+        }
+        return rows;
+    }
+
+    private static StreamBucket build(List<Object[]> rows, boolean columnar) {
+        StreamBucket.Builder builder = new StreamBucket.Builder(STREAMERS, RamAccounting.NO_ACCOUNTING, columnar);
+        for (Object[] row : rows) {
+            builder.add(new RowN(row));
+        }
+        return builder.build();
+    }
+
+    private static List<Object[]> materialize(StreamBucket bucket) {
+        ArrayList<Object[]> result = new ArrayList<>();
+        for (Row row : bucket) {
+            result.add(row.materialize());
+        }
+        return result;
+    }
+
+    private static StreamBucket streamed(StreamBucket bucket, Version version) throws Exception {
+        BytesStreamOutput out = new BytesStreamOutput();
+        out.setVersion(version);
+        bucket.writeTo(out);
+        StreamInput in = out.bytes().streamInput();
+        in.setVersion(version);
+        return new StreamBucket(in, STREAMERS);
+    }
+
+    @Test
+    public void testColumnarBucketRoundTrip() throws Exception {
+        List<Object[]> rows = rows(100);
+        StreamBucket bucket = streamed(build(rows, true), Version.CURRENT);
+
+        assertThat(bucket.size(), is(100));
+        assertThat(materialize(bucket), contains(rows.toArray()));
+    }
+
+    @Test
+    public void testColumnarBucketIsSmallerThanRowMajorBucket() throws Exception {
+        List<Object[]> rows = rows(1000);
+        BytesStreamOutput rowMajor = new BytesStreamOutput();
+        build(rows, false).writeTo(rowMajor);
+        BytesStreamOutput columnar = new BytesStreamOutput();
+        build(rows, true).writeTo(columnar);
+
+        assertThat(columnar.size(), lessThan(rowMajor.size()));
+    }
+
+    @Test
+    public void testColumnarBucketIsStreamedRowByRowToOldNodes() throws Exception {
+        List<Object[]> rows = rows(100);
+        StreamBucket bucket = streamed(build(rows, true), Version.V_4_0_0);
+
+        assertThat(materialize(bucket), contains(rows.toArray()));
+    }
+
+    @Test
+    public void testBuilderCanBeReusedAfterReset() throws Exception {
+        List<Object[]> rows = rows(20);
+        StreamBucket.Builder builder = new StreamBucket.Builder(STREAMERS, RamAccounting.NO_ACCOUNTING, true);
+        for (Object[] row : rows.subList(0, 10)) {
+            builder.add(new RowN(row));
+        }
+        StreamBucket first = streamed(builder.build(), Version.CURRENT);
+        builder.reset();
+        for (Object[] row : rows.subList(10, 20)) {
+            builder.add(new RowN(row));
+        }
+        StreamBucket second = streamed(builder.build(), Version.CURRENT);
+
+        assertThat(materialize(first), contains(rows.subList(0, 10).toArray()));
+        assertThat(materialize(second), contains(rows.subList(10, 20).toArray()));
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.join;
+
+import io.crate.Streamer;
+import io.crate.breaker.ChildRamAccounting;
+import io.crate.breaker.ConcurrentRamAccounting;
+import io.crate.breaker.RamAccounting;
+import io.crate.breaker.RamAccountingContext;
+import io.crate.breaker.RowAccounting;
+import io.crate.breaker.RowAccountingWithEstimators;
+import io.crate.data.BatchIterator;
+import io.crate.data.Row;
+import io.crate.data.join.CombinedRow;
+import io.crate.execution.engine.spill.SpillFile;
+import io.crate.execution.engine.spill.SpillFileFactory;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.testing.BatchIteratorTester;
+import io.crate.testing.BatchSimulatingIterator;
+import io.crate.testing.TestingRowConsumer;
+import io.crate.testing.TestingBatchIterators;
+import io.crate.types.DataTypes;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+
+public class GraceHashInnerJoinBatchIteratorTest extends CrateUnitTest {
+
+    private static final Streamer<?>[] STREAMERS = new Streamer[] { DataTypes.INTEGER.streamer() };
+
+    private final List<Object[]> resultForDuplicateValues = Arrays.asList(
+        new Object[] { 1, 1 }, new Object[] { 1, 1 },
+        new Object[] { 2, 2 }, new Object[] { 2, 2 },
+        new Object[] { 3, 3 },
+        new Object[] { 4, 4 }, new Object[] { 4, 4 }, new Object[] { 4, 4 }, new Object[] { 4, 4 }
+    );
+
+    private Path spillDirectory;
+    private SpillFileFactory spillFileFactory;
+
+    @Before
+    public void setUpSpillFiles() {
+        spillDirectory = createTempDir().resolve("spill");
+        spillFileFactory = new SpillFileFactory(spillDirectory, true);
+    }
+
+    private static Function<Row, Integer> hashOfFirstColumn() {
+        return row -> Objects.hash(row.get(0));
+    }
+
+    private static Function<Row, Integer> hashWithCollisions() {
+        return row -> (Integer) row.get(0) % 3;
+    }
+
+    private BatchIterator<Row> createIterator(Function<Row, Integer> hashBuilder, int blockSize) {
+        return createIterator(hashBuilder, blockSize, RamAccounting.NO_ACCOUNTING);
+    }
+
+    private BatchIterator<Row> createIterator(Function<Row, Integer> hashBuilder,
+                                              int blockSize,
+                                              RamAccounting ramAccounting) {
+        return createIterator(hashBuilder, blockSize, mock(RowAccounting.class), ramAccounting);
+    }
+
+    private BatchIterator<Row> createIterator(Function<Row, Integer> hashBuilder,
+                                              int blockSize,
+                                              RowAccounting<Row> rowAccounting,
+                                              RamAccounting ramAccounting) {
+        return createIterator(hashBuilder, blockSize, rowAccounting, ramAccounting, RamAccounting.NO_ACCOUNTING);
+    }
+
+    private BatchIterator<Row> createIterator(Function<Row, Integer> hashBuilder,
+                                              int blockSize,
+                                              RowAccounting<Row> rowAccounting,
+                                              RamAccounting ramAccounting,
+                                              RamAccounting spillRamAccounting) {
+        Supplier<SpillFile> spillFiles = () -> spillFileFactory.create("test", STREAMERS, spillRamAccounting);
+        return new GraceHashInnerJoinBatchIterator(
+            new RamAccountingBatchIterator<>(
+                new BatchSimulatingIterator<>(
+                    TestingBatchIterators.ofValues(Arrays.asList(0, 0, 1, 2, 2, 3, 4, 4)), 2, 4, null),
+                rowAccounting),
+            new BatchSimulatingIterator<>(
+                TestingBatchIterators.ofValues(Arrays.asList(1, 1, 2, 3, 4, 4, 5, 5, 6)), 2, 4, null),
+            new CombinedRow(1, 1),
+            row -> Objects.equals(row.get(0), row.get(1)),
+            hashBuilder,
+            hashBuilder,
+            () -> blockSize,
+            rowAccounting,
+            ramAccounting,
+            spillFiles,
+            spillFiles
+        );
+    }
+
+    @Test
+    public void testJoinWithLeftSideFittingIntoMemory() throws Exception {
+        BatchIteratorTester tester = new BatchIteratorTester(() -> createIterator(hashOfFirstColumn(), 10));
+        tester.verifyResultAndEdgeCaseBehaviour(resultForDuplicateValues);
+    }
+
+    @Test
+    public void testJoinWithBlockSizeSmallerThanLeftSideSpillsToDisk() throws Exception {
+        BatchIteratorTester tester = new BatchIteratorTester(() -> createIterator(hashOfFirstColumn(), 2));
+        tester.verifyResultAndEdgeCaseBehaviour(resultForDuplicateValues);
+    }
+
+    @Test
+    public void testJoinWithHashCollisionsRepartitionsUpToMaxDepth() throws Exception {
+        BatchIteratorTester tester = new BatchIteratorTester(() -> createIterator(hashWithCollisions(), 1));
+        tester.verifyResultAndEdgeCaseBehaviour(resultForDuplicateValues);
+    }
+
+    @Test
+    public void testSpillFilesAreDeletedOnClose() throws Exception {
+        BatchIterator<Row> iterator = createIterator(hashOfFirstColumn(), 1);
+        TestingRowConsumer consumer = new TestingRowConsumer();
+        consumer.accept(iterator, null);
+        assertThat(consumer.getResult().size(), is(resultForDuplicateValues.size()));
+        iterator.close();
+        assertThat(listFiles(spillDirectory), is(0L));
+    }
+
+    @Test
+    public void testBloomFilterIsAccountedWhilePartitioning() throws Exception {
+        AtomicLong accountedBytes = new AtomicLong(0L);
+        AtomicLong maxAccountedBytes = new AtomicLong(0L);
+        RamAccounting ramAccounting = new ConcurrentRamAccounting(
+            bytes -> maxAccountedBytes.accumulateAndGet(accountedBytes.addAndGet(bytes), Math::max),
+            bytes -> accountedBytes.addAndGet(- bytes)
+        );
+        BatchIterator<Row> iterator = createIterator(hashOfFirstColumn(), 1, ramAccounting);
+        TestingRowConsumer consumer = new TestingRowConsumer();
+        consumer.accept(iterator, null);
+
+        assertThat(consumer.getResult().size(), is(resultForDuplicateValues.size()));
+        assertThat(
+            maxAccountedBytes.get(),
+            is(JoinKeyBloomFilter.ramBytesRequired(GraceHashInnerJoinBatchIterator.NUM_PARTITIONS)));
+        assertThat(accountedBytes.get(), is(0L));
+    }
+
+    @Test
+    public void testReleasingRowsDoesNotReleaseTheBloomFilterOfTheSharedContext() throws Exception {
+        RamAccountingContext ramAccountingContext = new RamAccountingContext("test", new NoopCircuitBreaker("test"));
+        // wired like in JobSetup
+        RamAccounting rowRamAccounting = new ChildRamAccounting(ramAccountingContext);
+        RowAccounting<Row> rowAccounting = new RowAccountingWithEstimators(List.of(DataTypes.INTEGER), rowRamAccounting, 110);
+        BatchIterator<Row> iterator = createIterator(hashOfFirstColumn(), 1, rowAccounting, ramAccountingContext);
+
+        // the first row is returned while joining the partitions, after the left and right side have been partitioned
+        while (iterator.moveNext() == false) {
+            iterator.loadNextBatch().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        }
+        assertThat(rowRamAccounting.totalBytes(), greaterThan(0L));
+        assertThat(ramAccountingContext.totalBytes(), is(rowRamAccounting.totalBytes()));
+
+        iterator.close();
+        assertThat(ramAccountingContext.totalBytes(), is(0L));
+    }
+
+    @Test
+    public void testBuffersOfTheOpenSpillFilesAreAccountedUntilClose() throws Exception {
+        RamAccountingContext spillRamAccounting = new RamAccountingContext("test", new NoopCircuitBreaker("test"));
+        BatchIterator<Row> iterator = createIterator(
+            hashOfFirstColumn(), 1, mock(RowAccounting.class), RamAccounting.NO_ACCOUNTING, spillRamAccounting);
+
+        while (iterator.moveNext() == false) {
+            iterator.loadNextBatch().toCompletableFuture().get(5, TimeUnit.SECONDS);
+        }
+        assertThat(spillRamAccounting.totalBytes(), greaterThan(0L));
+
+        iterator.close();
+        assertThat(spillRamAccounting.totalBytes(), is(0L));
+    }
+
+    @Test
+    public void testRowsOfASplitPartitionEndUpInDifferentSubPartitions() {
+        int partition = GraceHashInnerJoinBatchIterator.partitionIdx(42, 0);
+        long numSubPartitions = Stream.iterate(0, i -> i + 1)
+            .filter(i -> GraceHashInnerJoinBatchIterator.partitionIdx(i, 0) == partition)
+            .limit(100)
+            .map(i -> GraceHashInnerJoinBatchIterator.partitionIdx(i, 1))
+            .distinct()
+            .count();
+        assertThat(numSubPartitions > 1, is(true));
+    }
+
+    private static long listFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
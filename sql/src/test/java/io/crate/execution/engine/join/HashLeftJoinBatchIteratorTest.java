@@ -0,0 +1,128 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.join;
+
+import io.crate.breaker.RowAccounting;
+import io.crate.data.BatchIterator;
+import io.crate.data.Paging;
+import io.crate.data.Row;
+import io.crate.data.join.CombinedRow;
+import io.crate.planner.node.dql.join.JoinType;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.testing.BatchIteratorTester;
+import io.crate.testing.BatchSimulatingIterator;
+import io.crate.testing.TestingBatchIterators;
+import io.crate.testing.TestingRowConsumer;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+
+public class HashLeftJoinBatchIteratorTest extends CrateUnitTest {
+
+    private static Function<Row, Integer> hashOfFirstColumn() {
+        return row -> Objects.hash(row.get(0));
+    }
+
+    private static Function<Row, Integer> hashWithCollisions() {
+        return row -> (Integer) row.get(0) % 3;
+    }
+
+    private static BatchIterator<Row> createIterator(JoinType joinType,
+                                                     Function<Row, Integer> hashBuilder,
+                                                     int blockSize) {
+        RowAccounting<Row> rowAccounting = mock(RowAccounting.class);
+        return new HashLeftJoinBatchIterator(
+            new RamAccountingBatchIterator<>(
+                new BatchSimulatingIterator<>(
+                    TestingBatchIterators.ofValues(Arrays.asList(0, 0, 1, 2, 2, 3, 4, 4, 7)), 2, 5, null),
+                rowAccounting),
+            new BatchSimulatingIterator<>(
+                TestingBatchIterators.ofValues(Arrays.asList(1, 1, 2, 3, 4, 4, 5, 5, 6)), 2, 5, null),
+            new CombinedRow(1, 1),
+            joinType,
+            row -> Objects.equals(row.get(0), row.get(1)),
+            hashBuilder,
+            hashBuilder,
+            () -> blockSize
+        );
+    }
+
+    private static void assertJoinResult(JoinType joinType, List<Object[]> expectedResult) throws Exception {
+        for (int blockSize : new int[] { 1, 2, 3, 100 }) {
+            for (Function<Row, Integer> hashBuilder : List.of(hashOfFirstColumn(), hashWithCollisions())) {
+                BatchIteratorTester tester = new BatchIteratorTester(
+                    () -> createIterator(joinType, hashBuilder, blockSize));
+                tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+            }
+        }
+    }
+
+    @Test
+    public void testLeftJoin() throws Exception {
+        assertJoinResult(JoinType.LEFT, Arrays.asList(
+            new Object[] { 0, null }, new Object[] { 0, null },
+            new Object[] { 1, 1 }, new Object[] { 1, 1 },
+            new Object[] { 2, 2 }, new Object[] { 2, 2 },
+            new Object[] { 3, 3 },
+            new Object[] { 4, 4 }, new Object[] { 4, 4 }, new Object[] { 4, 4 }, new Object[] { 4, 4 },
+            new Object[] { 7, null }
+        ));
+    }
+
+    @Test
+    public void testSemiJoin() throws Exception {
+        assertJoinResult(JoinType.SEMI, Arrays.asList(
+            new Object[] { 1, null },
+            new Object[] { 2, null }, new Object[] { 2, null },
+            new Object[] { 3, null },
+            new Object[] { 4, null }, new Object[] { 4, null }
+        ));
+    }
+
+    @Test
+    public void testAntiJoin() throws Exception {
+        assertJoinResult(JoinType.ANTI, Arrays.asList(
+            new Object[] { 0, null }, new Object[] { 0, null },
+            new Object[] { 7, null }
+        ));
+    }
+
+    @Test
+    public void testBlockIsCompleteOnceTheExpectedNumberOfLeftBatchesIsLoaded() throws Exception {
+        // the block size expects a single batch, the left side delivers batches of 2 rows
+        TestingRowConsumer consumer = new TestingRowConsumer();
+        consumer.accept(createIterator(JoinType.LEFT, hashOfFirstColumn(), Paging.PAGE_SIZE), null);
+        List<Object[]> result = consumer.getResult();
+
+        // the first block only contains the rows of the first batch: 0, 0
+        assertThat(result.get(0), is(new Object[] { 0, null }));
+        assertThat(result.get(1), is(new Object[] { 0, null }));
+        assertThat(result.size(), is(12));
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.join;
+
+import io.crate.test.integration.CrateUnitTest;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+public class JoinKeyBloomFilterTest extends CrateUnitTest {
+
+    @Test
+    public void testAddedHashesAreAlwaysContained() {
+        JoinKeyBloomFilter filter = new JoinKeyBloomFilter(1000);
+        for (int i = 0; i < 1000; i++) {
+            filter.add(i * 31);
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertThat(filter.mightContain(i * 31), is(true));
+        }
+    }
+
+    @Test
+    public void testFalsePositiveRateIsLow() {
+        JoinKeyBloomFilter filter = new JoinKeyBloomFilter(1000);
+        for (int i = 0; i < 1000; i++) {
+            filter.add(i);
+        }
+        int falsePositives = 0;
+        for (int i = 1000; i < 101_000; i++) {
+            if (filter.mightContain(i)) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives, lessThan(3_000));
+    }
+
+    @Test
+    public void testSizeIsCapped() {
+        JoinKeyBloomFilter filter = new JoinKeyBloomFilter(Integer.MAX_VALUE * 32L);
+        assertThat(filter.ramBytesUsed(), is((long) JoinKeyBloomFilter.MAX_NUM_BITS / Byte.SIZE));
+    }
+
+    @Test
+    public void testRamBytesRequiredMatchesRamBytesUsed() {
+        for (long expectedNumKeys : new long[] { 0, 1, 1000, 12345, Integer.MAX_VALUE * 32L }) {
+            JoinKeyBloomFilter filter = new JoinKeyBloomFilter(expectedNumKeys);
+            assertThat(JoinKeyBloomFilter.ramBytesRequired(expectedNumKeys), is(filter.ramBytesUsed()));
+        }
+    }
+}
@@ -110,7 +110,8 @@ public class ProjectingRowConsumerTest extends CrateDummyClusterServiceUnitTest
             t -> null,
             Version.CURRENT,
             BigArrays.NON_RECYCLING_INSTANCE,
-            new ShardId("dummy", UUID.randomUUID().toString(), 0)
+            new ShardId("dummy", UUID.randomUUID().toString(), 0),
+            null
         );
     }
 
@@ -122,7 +122,8 @@ public class ProjectionToProjectorVisitorTest extends CrateDummyClusterServiceUn
             EvaluatingNormalizer.functionOnlyNormalizer(functions),
             t -> null,
             t -> null,
-            BigArrays.NON_RECYCLING_INSTANCE
+            BigArrays.NON_RECYCLING_INSTANCE,
+            null
         );
         memoryManager = new OnHeapMemoryManager(usedBytes -> {});
 
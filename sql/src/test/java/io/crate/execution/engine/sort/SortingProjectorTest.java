@@ -23,6 +23,8 @@
 package io.crate.execution.engine.sort;
 
 import com.google.common.collect.ImmutableList;
+import io.crate.breaker.ChildRamAccounting;
+import io.crate.breaker.RamAccounting;
 import io.crate.breaker.RamAccountingContext;
 import io.crate.breaker.RowAccounting;
 import io.crate.breaker.RowCellsAccountingWithEstimators;
@@ -32,6 +34,7 @@ import io.crate.data.Projector;
 import io.crate.data.Row;
 import io.crate.execution.engine.collect.CollectExpression;
 import io.crate.execution.engine.collect.InputCollectExpression;
+import io.crate.execution.engine.spill.SpillFileFactory;
 import io.crate.expression.symbol.Literal;
 import io.crate.test.integration.CrateUnitTest;
 import io.crate.testing.TestingBatchIterators;
@@ -46,7 +49,10 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static io.crate.testing.TestingHelpers.isRow;
 import static org.hamcrest.core.Is.is;
@@ -79,6 +85,33 @@ public class SortingProjectorTest extends CrateUnitTest {
         );
     }
 
+    private SortingProjector createSpillingProjector(RowAccounting<Object[]> rowAccounting,
+                                                     SpillFileFactory spillFileFactory,
+                                                     int offset) {
+        InputCollectExpression input = new InputCollectExpression(0);
+        return new SortingProjector(
+            rowAccounting,
+            ImmutableList.of(input, Literal.of(true)),
+            ImmutableList.<CollectExpression<Row, ?>>of(input),
+            2,
+            OrderingByPosition.arrayOrdering(0, true, false),
+            offset,
+            DataTypes.getStreamers(List.of(DataTypes.INTEGER, DataTypes.BOOLEAN)),
+            spillFileFactory,
+            RamAccounting.NO_ACCOUNTING
+        );
+    }
+
+    private static RowCellsAccountingWithEstimators limitedRowAccounting(long limitInBytes) {
+        MemoryCircuitBreaker circuitBreaker = new MemoryCircuitBreaker(new ByteSizeValue(limitInBytes, ByteSizeUnit.BYTES),
+                                                                       1,
+                                                                       LogManager.getLogger(SortingProjectorTest.class)
+        );
+        return new RowCellsAccountingWithEstimators(List.of(DataTypes.INTEGER, DataTypes.BOOLEAN),
+                                                    new RamAccountingContext("testContext", circuitBreaker),
+                                                    0);
+    }
+
     private SortingProjector createProjector(int numOutputs, int offset) {
         return createProjector(new IgnoreRowCellsAccounting(), numOutputs, offset);
     }
@@ -137,4 +170,64 @@ public class SortingProjectorTest extends CrateUnitTest {
         expectedException.expect(CircuitBreakingException.class);
         consumer.getResult();
     }
+
+    @Test
+    public void testRowsAreSortedExternallyIfMemoryIsExhausted() throws Exception {
+        Path spillDirectory = createTempDir().resolve("spill");
+        SpillFileFactory spillFileFactory = new SpillFileFactory(spillDirectory, true);
+        Projector projector = createSpillingProjector(limitedRowAccounting(200), spillFileFactory, 10);
+
+        consumer.accept(projector.apply(TestingBatchIterators.range(0, 100)), null);
+        Bucket rows = consumer.getBucket();
+
+        assertThat(rows.size(), is(90));
+        int expected = 89;
+        for (Row row : rows) {
+            assertThat(row, isRow(expected--, true));
+        }
+        assertThat("spill files must be deleted once the iterator is closed", numFiles(spillDirectory), is(0L));
+    }
+
+    @Test
+    public void testSpillingOnlyReleasesBytesOfTheSortedRows() throws Exception {
+        MemoryCircuitBreaker circuitBreaker = new MemoryCircuitBreaker(new ByteSizeValue(300, ByteSizeUnit.BYTES),
+                                                                       1,
+                                                                       LogManager.getLogger(SortingProjectorTest.class)
+        );
+        RamAccountingContext sharedRamAccounting = new RamAccountingContext("testContext", circuitBreaker);
+        // bytes accounted by another projector of the same phase
+        sharedRamAccounting.addBytes(100);
+        RowCellsAccountingWithEstimators rowAccounting = new RowCellsAccountingWithEstimators(
+            List.of(DataTypes.INTEGER, DataTypes.BOOLEAN),
+            new ChildRamAccounting(sharedRamAccounting),
+            0
+        );
+        SpillFileFactory spillFileFactory = new SpillFileFactory(createTempDir().resolve("spill"), true);
+        Projector projector = createSpillingProjector(rowAccounting, spillFileFactory, 0);
+
+        consumer.accept(projector.apply(TestingBatchIterators.range(0, 100)), null);
+
+        assertThat(consumer.getBucket().size(), is(100));
+        assertThat(sharedRamAccounting.totalBytes() >= 100L, is(true));
+    }
+
+    @Test
+    public void testBreakerExceptionIsPropagatedIfSpillingIsDisabled() throws Exception {
+        SpillFileFactory spillFileFactory = new SpillFileFactory(createTempDir().resolve("spill"), false);
+        Projector projector = createSpillingProjector(limitedRowAccounting(200), spillFileFactory, 0);
+
+        consumer.accept(projector.apply(TestingBatchIterators.range(0, 100)), null);
+
+        expectedException.expect(CircuitBreakingException.class);
+        consumer.getResult();
+    }
+
+    private static long numFiles(Path directory) throws Exception {
+        if (Files.notExists(directory)) {
+            return 0L;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
 }
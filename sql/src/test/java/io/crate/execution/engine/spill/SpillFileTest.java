@@ -0,0 +1,77 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.spill;
+
+import io.crate.Streamer;
+import io.crate.breaker.RamAccountingContext;
+import io.crate.data.Row;
+import io.crate.data.Row1;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataTypes;
+import org.elasticsearch.common.breaker.NoopCircuitBreaker;
+import org.junit.Test;
+
+import java.util.Iterator;
+
+import static org.hamcrest.Matchers.is;
+
+public class SpillFileTest extends CrateUnitTest {
+
+    private static final Streamer<?>[] STREAMERS = new Streamer[] { DataTypes.INTEGER.streamer() };
+
+    @Test
+    public void testBuffersOfOpenStreamsAreAccountedUntilTheyAreClosed() throws Exception {
+        SpillFileFactory spillFileFactory = new SpillFileFactory(createTempDir(), true, 1024);
+        RamAccountingContext ramAccountingContext = new RamAccountingContext("test", new NoopCircuitBreaker("test"));
+        SpillFile spillFile = spillFileFactory.create("test", STREAMERS, ramAccountingContext);
+        assertThat(ramAccountingContext.totalBytes(), is(0L));
+
+        spillFile.add(new Row1(1));
+        spillFile.add(new Row1(2));
+        assertThat(ramAccountingContext.totalBytes(), is(1024L));
+
+        Iterator<Row> rows = spillFile.iterator();
+        assertThat(ramAccountingContext.totalBytes(), is(2048L));
+        assertThat(rows.next().get(0), is((Object) 1));
+        assertThat(rows.next().get(0), is((Object) 2));
+        // the reader is closed once all rows have been read
+        assertThat(ramAccountingContext.totalBytes(), is(1024L));
+
+        spillFile.iterator();
+        assertThat(ramAccountingContext.totalBytes(), is(2048L));
+
+        spillFile.close();
+        assertThat(ramAccountingContext.totalBytes(), is(0L));
+    }
+
+    @Test
+    public void testEmptySpillFileDoesNotAccountBuffers() throws Exception {
+        SpillFileFactory spillFileFactory = new SpillFileFactory(createTempDir(), true, 1024);
+        RamAccountingContext ramAccountingContext = new RamAccountingContext("test", new NoopCircuitBreaker("test"));
+        SpillFile spillFile = spillFileFactory.create("test", STREAMERS, ramAccountingContext);
+
+        assertThat(spillFile.iterator().hasNext(), is(false));
+        assertThat(ramAccountingContext.totalBytes(), is(0L));
+        spillFile.close();
+    }
+}
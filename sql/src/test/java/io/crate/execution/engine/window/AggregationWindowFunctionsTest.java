@@ -333,4 +333,36 @@ public class AggregationWindowFunctionsTest extends AbstractWindowFunctionTest {
             rows
         );
     }
+
+    @Test
+    public void test_max_over_sliding_rows_frame() throws Throwable {
+        Object[] expected = new Object[]{5.0, 5.0, 4.0, 4.0, 3.0};
+        assertEvaluate(
+            "max(d) over (order by x rows between 1 preceding and 1 following)",
+            contains(expected),
+            List.of(new ColumnIdent("x"), new ColumnIdent("d")),
+            $(1, 5.0),
+            $(2, 1.0),
+            $(3, 4.0),
+            $(4, 2.0),
+            $(5, 3.0)
+        );
+    }
+
+    @Test
+    public void test_min_over_shrinking_frame_including_partitions() throws Throwable {
+        Object[] expected = new Object[]{1.0, 1.0, 2.0, 2.0, 3.0, 7.0, 8.0};
+        assertEvaluate(
+            "min(d) over (partition by z order by x rows between current row and unbounded following)",
+            contains(expected),
+            List.of(new ColumnIdent("z"), new ColumnIdent("x"), new ColumnIdent("d")),
+            $("a", 1, 5.0),
+            $("a", 2, 1.0),
+            $("a", 3, 4.0),
+            $("a", 4, 2.0),
+            $("a", 5, 3.0),
+            $("b", 1, 7.0),
+            $("b", 2, 8.0)
+        );
+    }
 }
@@ -0,0 +1,76 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.execution.engine.window;
+
+import io.crate.test.integration.CrateUnitTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class SegmentTreeTest extends CrateUnitTest {
+
+    private static SegmentTree concatTree(int numLeaves) {
+        Object[] leaves = new Object[numLeaves];
+        for (int i = 0; i < numLeaves; i++) {
+            leaves[i] = List.of(i);
+        }
+        // concatenation is not commutative, so it also verifies that the states are reduced in order
+        return new SegmentTree(leaves, SegmentTreeTest::concat, null);
+    }
+
+    private static Object concat(Object state1, Object state2) {
+        ArrayList<Object> result = new ArrayList<>((List<?>) state1);
+        result.addAll((List<?>) state2);
+        return result;
+    }
+
+    private static List<Integer> range(int from, int toExclusive) {
+        ArrayList<Integer> result = new ArrayList<>();
+        for (int i = from; i < toExclusive; i++) {
+            result.add(i);
+        }
+        return result;
+    }
+
+    @Test
+    public void testQueryReducesStatesOfAllRowsInRangeInOrder() {
+        int numLeaves = randomIntBetween(1, 50);
+        SegmentTree tree = concatTree(numLeaves);
+        for (int from = 0; from < numLeaves; from++) {
+            for (int to = from + 1; to <= numLeaves; to++) {
+                assertThat(tree.query(from, to), is(range(from, to)));
+            }
+        }
+    }
+
+    @Test
+    public void testQueryOnEmptyRangeReturnsEmptyState() {
+        SegmentTree tree = concatTree(5);
+        assertThat(tree.query(3, 3), is(nullValue()));
+        assertThat(concatTree(0).query(0, 0), is(nullValue()));
+    }
+}
@@ -23,10 +23,14 @@
 package io.crate.execution.engine.window;
 
 import com.google.common.collect.Lists;
+import io.crate.breaker.ChildRamAccounting;
 import io.crate.breaker.RamAccountingContext;
+import io.crate.breaker.RowAccounting;
 import io.crate.breaker.RowAccountingWithEstimators;
 import io.crate.common.collections.Lists2;
 import io.crate.data.BatchIterator;
+import io.crate.data.CollectionBucket;
+import io.crate.data.InMemoryBatchIterator;
 import io.crate.data.Input;
 import io.crate.data.Row;
 import io.crate.execution.engine.collect.CollectExpression;
@@ -54,6 +58,7 @@ import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static com.carrotsearch.randomizedtesting.RandomizedTest.$;
+import static io.crate.data.SentinelRow.SENTINEL;
 import static io.crate.execution.engine.window.WindowFunctionBatchIterator.sortAndComputeWindowFunctions;
 import static org.elasticsearch.common.collect.Tuple.tuple;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -119,6 +124,92 @@ public class WindowBatchIteratorTest {
         tester.verifyResultAndEdgeCaseBehaviour(expectedRowNumberResult);
     }
 
+    @Test
+    public void testStreamingWindowBatchIteratorComputesWindowFunctionsPerPartition() throws Exception {
+        // rows are sorted by partition (IC0), but not by the ORDER BY (IC1) within a partition
+        List<Object[]> rows = IntStream.range(0, 10)
+            .mapToObj(i -> new Object[]{i / 3, 2 - i % 3})
+            .collect(Collectors.toList());
+        List<Object[]> expectedResult = List.of(
+            $(0, 0, 1), $(0, 1, 2), $(0, 2, 3),
+            $(1, 0, 1), $(1, 1, 2), $(1, 2, 3),
+            $(2, 0, 1), $(2, 1, 2), $(2, 2, 3),
+            $(3, 2, 1)
+        );
+        BatchIteratorTester tester = new BatchIteratorTester(
+            () -> {
+                Comparator<Object[]> cmpOrderBy = OrderingByPosition.arrayOrdering(1, false, false);
+                return new StreamingWindowFunctionBatchIterator(
+                    new BatchSimulatingIterator<>(
+                        InMemoryBatchIterator.of(new CollectionBucket(rows), SENTINEL, true), 4, 3, null),
+                    new IgnoreRowAccounting(),
+                    getComputeFrameStart(cmpOrderBy, FrameBound.Type.UNBOUNDED_PRECEDING),
+                    getComputeFrameEnd(cmpOrderBy, FrameBound.Type.CURRENT_ROW),
+                    OrderingByPosition.arrayOrdering(0, false, false),
+                    cmpOrderBy,
+                    2,
+                    Collections.singletonList(rowNumberWindowFunction()),
+                    Collections.emptyList(),
+                    new Input[0]);
+            }
+        );
+        tester.verifyResultAndEdgeCaseBehaviour(expectedResult);
+    }
+
+    @Test
+    public void testStreamingWindowBatchIteratorOnlyKeepsCurrentPartitionInMemory() throws Exception {
+        List<Object[]> rows = IntStream.range(0, 100)
+            .mapToObj(i -> new Object[]{i / 10, i})
+            .collect(Collectors.toList());
+        CountingRowAccounting rowAccounting = new CountingRowAccounting();
+        BatchIterator<Row> iterator = new StreamingWindowFunctionBatchIterator(
+            InMemoryBatchIterator.of(new CollectionBucket(rows), SENTINEL, true),
+            rowAccounting,
+            getComputeFrameStart(null, FrameBound.Type.UNBOUNDED_PRECEDING),
+            getComputeFrameEnd(null, FrameBound.Type.CURRENT_ROW),
+            OrderingByPosition.arrayOrdering(0, false, false),
+            null,
+            2,
+            Collections.singletonList(rowNumberWindowFunction()),
+            Collections.emptyList(),
+            new Input[0]);
+        TestingRowConsumer consumer = new TestingRowConsumer();
+        consumer.accept(iterator, null);
+
+        List<Object[]> result = consumer.getResult();
+        assertThat(result.size(), is(100));
+        assertThat(result.get(99), is(new Object[]{9, 99, 10}));
+        // the first row of the next partition is read before the current partition is emitted
+        assertThat(rowAccounting.maxAccountedRows, is(11));
+    }
+
+    @Test
+    public void testStreamingWindowBatchIteratorOnlyReleasesBytesOfThePartitionBuffer() throws Exception {
+        List<Object[]> rows = IntStream.range(0, 100)
+            .mapToObj(i -> new Object[]{i / 10, i})
+            .collect(Collectors.toList());
+        // bytes accounted by another operator of the same phase
+        ramAccountingContext.addBytes(100);
+        BatchIterator<Row> iterator = new StreamingWindowFunctionBatchIterator(
+            InMemoryBatchIterator.of(new CollectionBucket(rows), SENTINEL, true),
+            new RowAccountingWithEstimators(
+                List.of(DataTypes.INTEGER, DataTypes.INTEGER),
+                new ChildRamAccounting(ramAccountingContext)),
+            getComputeFrameStart(null, FrameBound.Type.UNBOUNDED_PRECEDING),
+            getComputeFrameEnd(null, FrameBound.Type.CURRENT_ROW),
+            OrderingByPosition.arrayOrdering(0, false, false),
+            null,
+            2,
+            Collections.singletonList(rowNumberWindowFunction()),
+            Collections.emptyList(),
+            new Input[0]);
+        TestingRowConsumer consumer = new TestingRowConsumer();
+        consumer.accept(iterator, null);
+
+        assertThat(consumer.getResult().size(), is(100));
+        assertThat(ramAccountingContext.totalBytes() >= 100L, is(true));
+    }
+
     @Test
     public void testFrameBoundsEmptyWindow() throws Exception {
         var rows = IntStream.range(0, 10).mapToObj(i -> new Object[]{i, null}).collect(Collectors.toList());
@@ -435,4 +526,21 @@ public class WindowBatchIteratorTest {
             }
         };
     }
+
+    private static class CountingRowAccounting implements RowAccounting<Row> {
+
+        private int accountedRows = 0;
+        private int maxAccountedRows = 0;
+
+        @Override
+        public void accountForAndMaybeBreak(Row row) {
+            accountedRows++;
+            maxAccountedRows = Math.max(maxAccountedRows, accountedRows);
+        }
+
+        @Override
+        public void release() {
+            accountedRows = 0;
+        }
+    }
 }
@@ -1,7 +1,10 @@
 package io.crate.expression.operator;
 
+import io.crate.data.Input;
 import io.crate.expression.scalar.AbstractScalarFunctionsTest;
+import io.crate.expression.symbol.Literal;
 import io.crate.expression.symbol.Symbol;
+import io.crate.metadata.CoordinatorTxnCtx;
 import org.hamcrest.Matchers;
 import org.junit.Test;
 
@@ -11,6 +14,7 @@ import static io.crate.testing.SymbolMatchers.isField;
 import static io.crate.testing.SymbolMatchers.isLiteral;
 import static io.crate.testing.TestingHelpers.isSQL;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
 
 public class AndOperatorTest extends AbstractScalarFunctionsTest {
 
@@ -66,4 +70,13 @@ public class AndOperatorTest extends AbstractScalarFunctionsTest {
             isSQL("(doc.users.a = 1)")
         ));
     }
+
+    @Test
+    public void test_right_side_is_not_evaluated_if_left_side_is_false() {
+        Input<Boolean> right = () -> {
+            throw new AssertionError("right side must not be evaluated");
+        };
+        Boolean result = new AndOperator().evaluate(CoordinatorTxnCtx.systemTransactionContext(), Literal.of(false), right);
+        assertThat(result, is(false));
+    }
 }
@@ -2,6 +2,7 @@ package io.crate.expression.operator;
 
 import io.crate.expression.symbol.Literal;
 import io.crate.expression.scalar.AbstractScalarFunctionsTest;
+import io.crate.types.DataTypes;
 import org.junit.Test;
 
 import static io.crate.testing.SymbolMatchers.isFunction;
@@ -70,4 +71,16 @@ public class CmpOperatorTest extends AbstractScalarFunctionsTest {
         assertEvaluate("null between null and 10", null);
         assertEvaluate("null between null and null", null);
     }
+
+    @Test
+    public void test_numeric_comparisons() {
+        assertEvaluate("x < 10", true, Literal.of(5L));
+        assertEvaluate("x >= 10", false, Literal.of(5L));
+        assertEvaluate("x > 10", null, Literal.of(DataTypes.LONG, null));
+        assertEvaluate("id <= 5", true, Literal.of(5));
+        assertEvaluate("id > 5", false, Literal.of(5));
+        assertEvaluate("double_val > 1.5", true, Literal.of(2.0));
+        assertEvaluate("double_val < 1.5", null, Literal.of(DataTypes.DOUBLE, null));
+        assertEvaluate("timestamp_tz < '2020-01-01'::timestamp with time zone", true, Literal.of(DataTypes.TIMESTAMPZ, 0L));
+    }
 }
@@ -1,11 +1,15 @@
 package io.crate.expression.operator;
 
+import io.crate.data.Input;
 import io.crate.expression.scalar.AbstractScalarFunctionsTest;
+import io.crate.expression.symbol.Literal;
+import io.crate.metadata.CoordinatorTxnCtx;
 import org.junit.Test;
 
 import static io.crate.testing.SymbolMatchers.isField;
 import static io.crate.testing.SymbolMatchers.isFunction;
 import static io.crate.testing.SymbolMatchers.isLiteral;
+import static org.hamcrest.Matchers.is;
 
 public class OrOperatorTest extends AbstractScalarFunctionsTest {
 
@@ -33,4 +37,13 @@ public class OrOperatorTest extends AbstractScalarFunctionsTest {
         assertEvaluate("null or false", null);
         assertEvaluate("null or null", null);
     }
+
+    @Test
+    public void test_right_side_is_not_evaluated_if_left_side_is_true() {
+        Input<Boolean> right = () -> {
+            throw new AssertionError("right side must not be evaluated");
+        };
+        Boolean result = new OrOperator().evaluate(CoordinatorTxnCtx.systemTransactionContext(), Literal.of(true), right);
+        assertThat(result, is(true));
+    }
 }
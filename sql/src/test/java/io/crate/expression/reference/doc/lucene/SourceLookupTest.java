@@ -22,8 +22,13 @@
 
 package io.crate.expression.reference.doc.lucene;
 
+import org.elasticsearch.common.xcontent.DeprecationHandler;
+import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.json.JsonXContent;
 import org.junit.Test;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -32,7 +37,10 @@ import java.util.Map;
 import static java.util.Collections.singletonList;
 import static java.util.Collections.singletonMap;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasKey;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertThat;
 
 public class SourceLookupTest {
@@ -60,4 +68,59 @@ public class SourceLookupTest {
         Object o = SourceLookup.extractValue(m, singletonList("x"), 0);
         assertThat((Collection<Integer>) o, contains(is(10), is(20)));
     }
+
+    private static Map<String, Object> extractPaths(String json, List<String>... paths) throws IOException {
+        SourceLookup.PathTree tree = new SourceLookup.PathTree();
+        for (List<String> path : paths) {
+            tree.add(path);
+        }
+        try (XContentParser parser = JsonXContent.jsonXContent.createParser(
+            NamedXContentRegistry.EMPTY, DeprecationHandler.THROW_UNSUPPORTED_OPERATION, json)) {
+            return SourceLookup.extractPaths(parser, tree);
+        }
+    }
+
+    @Test
+    public void testExtractPathsOnlyContainsRequestedPaths() throws Exception {
+        Map<String, Object> source = extractPaths(
+            "{\"a\": 1, \"o\": {\"x\": {\"y\": 10}, \"z\": [1, 2]}, \"b\": {\"c\": 2}, \"d\": \"foo\"}",
+            Arrays.asList("o", "x", "y"),
+            singletonList("d")
+        );
+        assertThat(source.keySet(), containsInAnyOrder("o", "d"));
+        assertThat(((Map) source.get("o")), not(hasKey("z")));
+        assertThat(SourceLookup.extractValue(source, Arrays.asList("o", "x", "y"), 0), is(10));
+        assertThat(SourceLookup.extractValue(source, singletonList("d"), 0), is("foo"));
+    }
+
+    @Test
+    public void testExtractPathsFromObjectsWithinArray() throws Exception {
+        Map<String, Object> source = extractPaths(
+            "{\"x\": [{\"y\": 10, \"z\": 1}, {\"y\": 20, \"z\": 2}]}",
+            Arrays.asList("x", "y")
+        );
+        Object o = SourceLookup.extractValue(source, Arrays.asList("x", "y"), 0);
+        assertThat((Collection<Integer>) o, contains(is(10), is(20)));
+    }
+
+    @Test
+    public void testExtractPathsIncludesWholeSubtreeOfRequestedObject() throws Exception {
+        Map<String, Object> source = extractPaths(
+            "{\"o\": {\"x\": {\"y\": 10}, \"z\": [1, 2]}}",
+            singletonList("o"),
+            Arrays.asList("o", "x")
+        );
+        Map<String, Object> o = (Map<String, Object>) source.get("o");
+        assertThat(o.keySet(), containsInAnyOrder("x", "z"));
+    }
+
+    @Test
+    public void testPathTreeCovers() {
+        SourceLookup.PathTree tree = new SourceLookup.PathTree();
+        tree.add(Arrays.asList("o", "x"));
+        assertThat(tree.covers(Arrays.asList("o", "x")), is(true));
+        assertThat(tree.covers(Arrays.asList("o", "x", "y")), is(true));
+        assertThat(tree.covers(singletonList("o")), is(false));
+        assertThat(tree.covers(Arrays.asList("o", "z")), is(false));
+    }
 }
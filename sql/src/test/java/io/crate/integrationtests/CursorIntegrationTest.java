@@ -0,0 +1,112 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.integrationtests;
+
+import io.crate.action.sql.Option;
+import io.crate.action.sql.SQLActionException;
+import io.crate.action.sql.Session;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static io.crate.testing.TestingHelpers.printedTable;
+import static org.hamcrest.core.Is.is;
+
+public class CursorIntegrationTest extends SQLTransportIntegrationTest {
+
+    private Session session;
+
+    @Before
+    public void setUpTableAndSession() {
+        execute("create table t (x int) with (number_of_replicas = 0)");
+        execute("insert into t (x) values (1), (2), (3), (4), (5)");
+        execute("refresh table t");
+        session = createSession(sqlExecutor.getCurrentSchema(), Option.NONE);
+    }
+
+    @After
+    public void closeSession() {
+        session.close();
+    }
+
+    private void executeInSession(String stmt) {
+        execute(stmt, null, session);
+    }
+
+    @Test
+    public void testFetchResumesTheDeclaredQuery() {
+        executeInSession("declare c1 cursor for select x from t order by x");
+        executeInSession("fetch 2 from c1");
+        assertThat(printedTable(response.rows()), is("1\n2\n"));
+        executeInSession("fetch next from c1");
+        assertThat(printedTable(response.rows()), is("3\n"));
+        executeInSession("fetch all from c1");
+        assertThat(printedTable(response.rows()), is("4\n5\n"));
+        executeInSession("fetch all from c1");
+        assertThat(response.rowCount(), is(0L));
+    }
+
+    @Test
+    public void testOpenCursorsAreListedInSysCursorsUntilClosed() {
+        executeInSession("declare c1 cursor with hold for select x from t order by x");
+        executeInSession("fetch 3 from c1");
+
+        executeInSession("select name, hold, fetched_rows, stmt from sys.cursors");
+        assertThat(printedTable(response.rows()),
+            is("c1| true| 3| declare c1 cursor with hold for select x from t order by x\n"));
+
+        executeInSession("close c1");
+        executeInSession("select name from sys.cursors");
+        assertThat(response.rowCount(), is(0L));
+    }
+
+    @Test
+    public void testCommitClosesCursorsWithoutHold() {
+        executeInSession("declare c1 cursor without hold for select x from t order by x");
+        executeInSession("declare c2 cursor with hold for select x from t order by x");
+        executeInSession("fetch 1 from c2");
+
+        executeInSession("commit");
+
+        executeInSession("select name from sys.cursors");
+        assertThat(printedTable(response.rows()), is("c2\n"));
+        executeInSession("fetch 1 from c2");
+        assertThat(printedTable(response.rows()), is("2\n"));
+
+        expectedException.expect(SQLActionException.class);
+        expectedException.expectMessage("Cursor `c1` does not exist");
+        executeInSession("fetch 1 from c1");
+    }
+
+    @Test
+    public void testCloseAllClosesCursorsWithHold() {
+        executeInSession("declare c1 cursor with hold for select x from t");
+        executeInSession("declare c2 cursor for select x from t");
+        executeInSession("fetch 1 from c1");
+
+        executeInSession("close all");
+
+        executeInSession("select name from sys.cursors");
+        assertThat(response.rowCount(), is(0L));
+    }
+}
@@ -26,6 +26,8 @@ import io.crate.action.sql.SQLOperations;
 import io.crate.execution.engine.collect.stats.JobsLogService;
 import io.crate.protocols.postgres.PostgresNetty;
 import io.crate.shade.org.postgresql.PGProperty;
+import io.crate.shade.org.postgresql.copy.CopyManager;
+import io.crate.shade.org.postgresql.core.BaseConnection;
 import io.crate.shade.org.postgresql.geometric.PGpoint;
 import io.crate.shade.org.postgresql.jdbc.PreferQueryMode;
 import io.crate.shade.org.postgresql.util.PGobject;
@@ -39,6 +41,7 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.io.StringReader;
 import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.DriverManager;
@@ -826,6 +829,27 @@ public class PostgresITest extends SQLTransportIntegrationTest {
         }
     }
 
+    @Test
+    public void test_copy_from_stdin_skips_records_with_invalid_values() throws Exception {
+        try (Connection conn = DriverManager.getConnection(url(RW), properties)) {
+            conn.createStatement().executeUpdate("create table t (x int) with (number_of_replicas = 0)");
+            ensureYellow();
+
+            CopyManager copyManager = new CopyManager(conn.unwrap(BaseConnection.class));
+            // "foo" isn't an integer and "3\t4" has too many values; both are skipped, the other records are inserted
+            long rowCount = copyManager.copyIn("copy t from stdin", new StringReader("1\nfoo\n3\t4\n5\n"));
+            assertThat(rowCount, is(2L));
+
+            conn.createStatement().executeUpdate("refresh table t");
+            ResultSet resultSet = conn.createStatement().executeQuery("select x from t order by x");
+            assertThat(resultSet.next(), is(true));
+            assertThat(resultSet.getInt(1), is(1));
+            assertThat(resultSet.next(), is(true));
+            assertThat(resultSet.getInt(1), is(5));
+            assertThat(resultSet.next(), is(false));
+        }
+    }
+
     @Test
     @UseJdbc(0) // Simulate explicit call by a user through HTTP iface
     public void test_proper_termination_of_deallocate_through_http_call() throws Exception {
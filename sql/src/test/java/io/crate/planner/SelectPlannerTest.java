@@ -846,6 +846,17 @@ public class SelectPlannerTest extends CrateDummyClusterServiceUnitTest {
         assertThat(collect.nodeIds().size(), is(2));
     }
 
+    @Test
+    public void testWindowFunctionsWithPartitionByUseSortedCollectAndMerge() {
+        Merge localMerge = e.plan("select sum(ints) OVER (partition by awesome order by id) from users");
+        Merge distMerge = (Merge) localMerge.subPlan();
+        assertThat(distMerge.mergePhase().orderByPositions(), notNullValue());
+        WindowAggProjection windowAggProjection = (WindowAggProjection) distMerge.mergePhase().projections().get(0);
+        assertThat(windowAggProjection.sourceSortedByPartitions(), is(true));
+        Collect collect = (Collect) distMerge.subPlan();
+        assertThat(((RoutedCollectPhase) collect.collectPhase()).orderBy(), notNullValue());
+    }
+
     @Test
     public void testSeqNoAndPrimaryTermFilteringRequirePrimaryKey() {
         expectedException.expect(VersioninigValidationException.class);
@@ -48,6 +48,7 @@ import io.crate.metadata.RowGranularity;
 import io.crate.planner.ExecutionPlan;
 import io.crate.planner.Merge;
 import io.crate.planner.PositionalOrderBy;
+import io.crate.planner.distribution.DistributionType;
 import io.crate.planner.node.dql.Collect;
 import io.crate.planner.node.dql.join.Join;
 import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
@@ -111,6 +112,15 @@ public class GroupByPlannerTest extends CrateDummyClusterServiceUnitTest {
         assertThat(groupProjection.values().get(0), isAggregation("count"));
     }
 
+    @Test
+    public void testDistributedGroupByOnMultipleKeysIsDistributedByAllKeys() throws Exception {
+        Merge distributedGroupByMerge = e.plan("select count(*), name, other_id from users group by name, other_id");
+        RoutedCollectPhase collectPhase =
+            ((RoutedCollectPhase) ((Collect) ((Merge) distributedGroupByMerge.subPlan()).subPlan()).collectPhase());
+        assertThat(collectPhase.distributionInfo().distributionType(), is(DistributionType.MODULO));
+        assertThat(collectPhase.distributionInfo().distributeByColumns(), is(new int[] { 0, 1 }));
+    }
+
     @Test
     public void testGroupByWithAggregationPlan() throws Exception {
         Merge distributedGroupByMerge = e.plan(
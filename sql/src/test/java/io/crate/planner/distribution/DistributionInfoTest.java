@@ -22,6 +22,7 @@
 package io.crate.planner.distribution;
 
 import io.crate.test.integration.CrateUnitTest;
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.junit.Test;
@@ -55,4 +56,46 @@ public class DistributionInfoTest extends CrateUnitTest {
 
         assertThat(streamed, equalTo(distributionInfo));
     }
+
+    @Test
+    public void testStreamingMultipleDistributeByColumns() throws Exception {
+        DistributionInfo distributionInfo = new DistributionInfo(DistributionType.MODULO, new int[] { 1, 3 });
+
+        BytesStreamOutput out = new BytesStreamOutput(10);
+        distributionInfo.writeTo(out);
+
+        StreamInput in = out.bytes().streamInput();
+        DistributionInfo streamed = new DistributionInfo(in);
+
+        assertThat(streamed, equalTo(distributionInfo));
+    }
+
+    @Test
+    public void testStreamingMultipleDistributeByColumnsToNodeBefore4_1_0KeepsFirstColumn() throws Exception {
+        DistributionInfo distributionInfo = new DistributionInfo(DistributionType.MODULO, new int[] { 1, 3 });
+
+        BytesStreamOutput out = new BytesStreamOutput(10);
+        out.setVersion(Version.V_4_0_0);
+        distributionInfo.writeTo(out);
+
+        StreamInput in = out.bytes().streamInput();
+        in.setVersion(Version.V_4_0_0);
+        DistributionInfo streamed = new DistributionInfo(in);
+
+        assertThat(streamed, equalTo(new DistributionInfo(DistributionType.MODULO, 1)));
+    }
+
+    @Test
+    public void testModuloDistributesByAllColumnsIfAllNodesSupportIt() throws Exception {
+        DistributionInfo distributionInfo = DistributionInfo.modulo(Version.V_4_1_0, new int[] { 1, 3 });
+
+        assertThat(distributionInfo, equalTo(new DistributionInfo(DistributionType.MODULO, new int[] { 1, 3 })));
+    }
+
+    @Test
+    public void testModuloDistributesByFirstColumnIfANodeBefore4_1_0IsPartOfTheCluster() throws Exception {
+        DistributionInfo distributionInfo = DistributionInfo.modulo(Version.V_4_0_0, new int[] { 1, 3 });
+
+        assertThat(distributionInfo, equalTo(new DistributionInfo(DistributionType.MODULO, 1)));
+    }
 }
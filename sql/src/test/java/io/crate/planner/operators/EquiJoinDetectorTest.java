@@ -78,15 +78,20 @@ public class EquiJoinDetectorTest extends CrateDummyClusterServiceUnitTest {
     }
 
     @Test
-    public void testNotPossibleIfNotAnInnerJoin() {
+    public void testNotPossibleOnCrossAndFullOuterJoins() {
         assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.CROSS, null), is(false));
 
         Symbol joinCondition = sqlExpressions.asSymbol("t1.x = t2.y");
-        assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.LEFT, joinCondition), is(false));
-        assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.RIGHT, joinCondition), is(false));
         assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.FULL, joinCondition), is(false));
-        assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.ANTI, joinCondition), is(false));
-        assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.SEMI, joinCondition), is(false));
+    }
+
+    @Test
+    public void testPossibleOnLeftRightSemiAndAntiJoins() {
+        Symbol joinCondition = sqlExpressions.asSymbol("t1.x = t2.y");
+        assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.LEFT, joinCondition), is(true));
+        assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.RIGHT, joinCondition), is(true));
+        assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.ANTI, joinCondition), is(true));
+        assertThat(EquiJoinDetector.isHashJoinPossible(JoinType.SEMI, joinCondition), is(true));
     }
 
     @Test
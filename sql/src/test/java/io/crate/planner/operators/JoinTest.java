@@ -144,6 +144,7 @@ public class JoinTest extends CrateDummyClusterServiceUnitTest {
 
     @Test
     public void testNestedLoop_TablesAreSwitchedIfBlockJoinAndRightIsSmallerThanLeft() throws IOException {
+        txnCtx.sessionContext().setHashJoinEnabled(false);
         // blockNL is only possible on single node clusters
         e = SQLExecutor.builder(clusterService)
             .addTable("create table j.left_table (id int)")
@@ -291,11 +292,31 @@ public class JoinTest extends CrateDummyClusterServiceUnitTest {
         assertThat(((Join)join.left()).joinPhase(), instanceOf(HashJoinPhase.class));
     }
 
+    @Test
+    public void testLeftAndRightJoinUseHashJoin() {
+        MultiSourceSelect mss = e.normalize("select * " +
+                                            "from t1 left join t2 on t1.a = t2.b " +
+                                            "right join t3 on t3.c = t2.b");
+
+        LogicalPlan operator = createLogicalPlan(mss, new TableStats());
+        assertThat(operator, instanceOf(HashJoin.class));
+        assertThat(((HashJoin) operator).joinType(), is(JoinType.RIGHT));
+        LogicalPlan leftPlan = ((HashJoin) operator).lhs;
+        assertThat(leftPlan, instanceOf(HashJoin.class));
+        assertThat(((HashJoin) leftPlan).joinType(), is(JoinType.LEFT));
+
+        Join join = buildJoin(operator);
+        // the side of which unmatched rows are emitted must be the left side
+        assertThat(join.joinPhase().joinType(), is(JoinType.LEFT));
+        assertThat(join.right(), instanceOf(Join.class));
+        assertThat(((Join) join.right()).joinPhase().joinType(), is(JoinType.LEFT));
+    }
+
     @Test
     public void testMixedHashJoinNestedLoop() {
         MultiSourceSelect mss = e.normalize("select * " +
                                             "from t1 inner join t2 on t1.a = t2.b " +
-                                            "left join t3 on t3.c = t2.b");
+                                            "full join t3 on t3.c = t2.b");
 
         LogicalPlan operator = createLogicalPlan(mss, new TableStats());
         assertThat(operator, instanceOf(NestedLoopJoin.class));
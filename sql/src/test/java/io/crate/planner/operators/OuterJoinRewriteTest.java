@@ -51,7 +51,7 @@ public class OuterJoinRewriteTest extends CrateDummyClusterServiceUnitTest {
         );
         var expectedPlan =
             "RootBoundary[x, x]\n" +
-            "NestedLoopJoin[\n" +
+            "HashJoin[\n" +
             "    Boundary[x]\n" +
             "    Collect[doc.t1 | [x] | All]\n" +
             "    --- INNER ---\n" +
@@ -70,7 +70,7 @@ public class OuterJoinRewriteTest extends CrateDummyClusterServiceUnitTest {
         var expectedPlan =
             "RootBoundary[x, x]\n" +
             "Filter[(coalesce(x, 10) = 10)]\n" +
-            "NestedLoopJoin[\n" +
+            "HashJoin[\n" +
             "    Boundary[x]\n" +
             "    Collect[doc.t1 | [x] | All]\n" +
             "    --- LEFT ---\n" +
@@ -89,7 +89,7 @@ public class OuterJoinRewriteTest extends CrateDummyClusterServiceUnitTest {
         var expectedPlan =
             "RootBoundary[x, x]\n" +
             "Filter[(coalesce(x, 10) = 10)]\n" +
-            "NestedLoopJoin[\n" +
+            "HashJoin[\n" +
             "    Boundary[x]\n" +
             "    Collect[doc.t1 | [x] | (x > 5)]\n" +
             "    --- LEFT ---\n" +
@@ -108,7 +108,7 @@ public class OuterJoinRewriteTest extends CrateDummyClusterServiceUnitTest {
         var expectedPlan =
             "RootBoundary[x, x]\n" +
             "Filter[(coalesce(x, 10) = 10)]\n" +
-            "NestedLoopJoin[\n" +
+            "HashJoin[\n" +
             "    Boundary[x]\n" +
             "    Collect[doc.t1 | [x] | All]\n" +
             "    --- RIGHT ---\n" +
@@ -9,6 +9,7 @@ import io.crate.expression.symbol.Symbol;
 import io.crate.metadata.ColumnIdent;
 import io.crate.statistics.ColumnStats;
 import io.crate.statistics.Stats;
+import io.crate.statistics.TableStats;
 import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
 import io.crate.testing.SqlExpressions;
 import io.crate.testing.T3;
@@ -104,4 +105,105 @@ public class SelectivityFunctionsTest extends CrateDummyClusterServiceUnitTest {
         Stats stats = new Stats(100, 16, Map.of(new ColumnIdent("x"), columnStats));
         assertThat(SelectivityFunctions.estimateNumRows(stats, query, null), Matchers.is(50L));
     }
+
+    @Test
+    public void test_range_query_uses_histogram_to_estimate_selectivity() {
+        SqlExpressions expressions = new SqlExpressions(T3.sources(clusterService));
+        Symbol query = expressions.asSymbol("x > 15000");
+        var numbers = IntStream.range(1, 20_001)
+            .boxed()
+            .collect(Collectors.toList());
+        var columnStats = ColumnStats.fromSortedValues(numbers, DataTypes.INTEGER, 0, 20_000L);
+        Stats stats = new Stats(20_000, 16, Map.of(new ColumnIdent("x"), columnStats));
+        assertThat(
+            SelectivityFunctions.estimateNumRows(stats, query, null),
+            Matchers.allOf(Matchers.greaterThan(4900L), Matchers.lessThan(5100L)));
+    }
+
+    @Test
+    public void test_range_query_with_column_on_the_right_side_is_flipped() {
+        SqlExpressions expressions = new SqlExpressions(T3.sources(clusterService));
+        Symbol query = expressions.asSymbol("15000 > x");
+        var numbers = IntStream.range(1, 20_001)
+            .boxed()
+            .collect(Collectors.toList());
+        var columnStats = ColumnStats.fromSortedValues(numbers, DataTypes.INTEGER, 0, 20_000L);
+        Stats stats = new Stats(20_000, 16, Map.of(new ColumnIdent("x"), columnStats));
+        assertThat(
+            SelectivityFunctions.estimateNumRows(stats, query, null),
+            Matchers.allOf(Matchers.greaterThan(14900L), Matchers.lessThan(15100L)));
+    }
+
+    @Test
+    public void test_between_combines_lower_and_upper_bound_to_a_range() {
+        SqlExpressions expressions = new SqlExpressions(T3.sources(clusterService));
+        Symbol query = expressions.asSymbol("x between 5000 and 6000");
+        var numbers = IntStream.range(1, 20_001)
+            .boxed()
+            .collect(Collectors.toList());
+        var columnStats = ColumnStats.fromSortedValues(numbers, DataTypes.INTEGER, 0, 20_000L);
+        Stats stats = new Stats(20_000, 16, Map.of(new ColumnIdent("x"), columnStats));
+        assertThat(
+            SelectivityFunctions.estimateNumRows(stats, query, null),
+            Matchers.allOf(Matchers.greaterThan(900L), Matchers.lessThan(1100L)));
+    }
+
+    @Test
+    public void test_contradicting_range_has_close_to_0_selectivity() {
+        SqlExpressions expressions = new SqlExpressions(T3.sources(clusterService));
+        Symbol query = expressions.asSymbol("x > 15000 and x < 5000");
+        var numbers = IntStream.range(1, 20_001)
+            .boxed()
+            .collect(Collectors.toList());
+        var columnStats = ColumnStats.fromSortedValues(numbers, DataTypes.INTEGER, 0, 20_000L);
+        Stats stats = new Stats(20_000, 16, Map.of(new ColumnIdent("x"), columnStats));
+        assertThat(SelectivityFunctions.estimateNumRows(stats, query, null), Matchers.is(0L));
+    }
+
+    @Test
+    public void test_in_list_sums_selectivity_of_the_values() {
+        SqlExpressions expressions = new SqlExpressions(T3.sources(clusterService));
+        Symbol query = expressions.asSymbol("x in (1, 2, 3, 3)");
+        var numbers = IntStream.range(1, 20_001)
+            .boxed()
+            .collect(Collectors.toList());
+        var columnStats = ColumnStats.fromSortedValues(numbers, DataTypes.INTEGER, 0, 20_000L);
+        Stats stats = new Stats(20_000, 16, Map.of(new ColumnIdent("x"), columnStats));
+        assertThat(SelectivityFunctions.estimateNumRows(stats, query, null), Matchers.is(3L));
+    }
+
+    @Test
+    public void test_like_with_prefix_is_estimated_as_range() {
+        SqlExpressions expressions = new SqlExpressions(T3.sources(clusterService));
+        Symbol query = expressions.asSymbol("a like 'b%'");
+        var values = List.of("a1", "a2", "a3", "a4", "b1", "b2", "c1", "c2", "c3", "c4");
+        var columnStats = ColumnStats.fromSortedValues(values, DataTypes.STRING, 0, values.size());
+        Stats stats = new Stats(1000, 16, Map.of(new ColumnIdent("a"), columnStats));
+        assertThat(
+            SelectivityFunctions.estimateNumRows(stats, query, null),
+            Matchers.allOf(Matchers.greaterThan(0L), Matchers.lessThan(333L)));
+    }
+
+    @Test
+    public void test_inner_join_estimate_uses_approx_distinct_of_join_columns() {
+        SqlExpressions expressions = new SqlExpressions(T3.sources(clusterService));
+        Symbol joinCondition = expressions.asSymbol("t1.x = t2.y");
+        var numbers = IntStream.range(1, 1001)
+            .boxed()
+            .collect(Collectors.toList());
+        var columnStats = ColumnStats.fromSortedValues(numbers, DataTypes.INTEGER, 0, 1000L);
+        TableStats tableStats = new TableStats();
+        tableStats.updateTableStats(Map.of(
+            T3.T1_RN, new Stats(1000, 16, Map.of(new ColumnIdent("x"), columnStats)),
+            T3.T2_RN, new Stats(1000, 16, Map.of(new ColumnIdent("y"), columnStats))
+        ));
+        assertThat(SelectivityFunctions.estimateJoinNumRows(tableStats, joinCondition, 1000, 1000), Matchers.is(1000L));
+    }
+
+    @Test
+    public void test_inner_join_estimate_without_stats_uses_larger_side() {
+        SqlExpressions expressions = new SqlExpressions(T3.sources(clusterService));
+        Symbol joinCondition = expressions.asSymbol("t1.x = t2.y");
+        assertThat(SelectivityFunctions.estimateJoinNumRows(new TableStats(), joinCondition, 10, 200), Matchers.is(200L));
+    }
 }
@@ -0,0 +1,143 @@
+/*
+ * Licensed to Crate under one or more contributor license agreements.
+ * See the NOTICE file distributed with this work for additional
+ * information regarding copyright ownership.  Crate licenses this file
+ * to you under the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.  You may
+ * obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied.  See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * However, if you have executed another commercial license agreement
+ * with Crate these terms will supersede the license and you may use the
+ * software solely pursuant to the terms of the relevant commercial
+ * agreement.
+ */
+
+package io.crate.protocols.postgres;
+
+import io.crate.data.RowN;
+import io.crate.protocols.postgres.types.PGType;
+import io.crate.protocols.postgres.types.PGTypes;
+import io.crate.sql.parser.SqlParser;
+import io.crate.sql.tree.CopyFromStdin;
+import io.crate.sql.tree.Expression;
+import io.crate.test.integration.CrateUnitTest;
+import io.crate.types.DataTypes;
+import io.netty.buffer.Unpooled;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.arrayContaining;
+import static org.hamcrest.Matchers.is;
+
+public class CopyFormatTest extends CrateUnitTest {
+
+    private static final List<PGType> COLUMN_TYPES = List.of(
+        PGTypes.get(DataTypes.INTEGER),
+        PGTypes.get(DataTypes.STRING)
+    );
+
+    @SuppressWarnings("unchecked")
+    private static CopyFormat format(String withClause) {
+        CopyFromStdin<Expression> copyFrom =
+            (CopyFromStdin<Expression>) SqlParser.createStatement("COPY t FROM STDIN " + withClause);
+        return CopyFormat.of(copyFrom.properties());
+    }
+
+    private static List<String[]> read(CopyFormat format, String... chunks) {
+        List<String[]> records = new ArrayList<>();
+        CopyFormat.Reader reader = format.newReader();
+        for (String chunk : chunks) {
+            reader.feed(Unpooled.wrappedBuffer(chunk.getBytes(StandardCharsets.UTF_8)), records::add);
+        }
+        reader.finish(records::add);
+        return records;
+    }
+
+    private static String write(CopyFormat format, Object... values) {
+        StringBuilder sb = new StringBuilder();
+        format.writeRecord(sb, new RowN(values), COLUMN_TYPES);
+        return sb.toString();
+    }
+
+    @Test
+    public void testTextRecordsSplitAcrossChunks() {
+        List<String[]> records = read(format(""), "1\tfo", "o\n2\t\\N\n3\ta\\tb\\\\c\n\\.\n", "ignored\n");
+        assertThat(records.size(), is(3));
+        assertThat(records.get(0), arrayContaining("1", "foo"));
+        assertThat(records.get(1), arrayContaining("2", null));
+        assertThat(records.get(2), arrayContaining("3", "a\tb\\c"));
+    }
+
+    @Test
+    public void testTextRecordsWithOctalAndHexEscapes() {
+        List<String[]> records = read(format(""), "\\101\\x42\\x4\t\\303\\244\\xC3\\xA4\t\\xZ\t\\0\n");
+        assertThat(records.size(), is(1));
+        assertThat(records.get(0), arrayContaining("AB\u0004", "\u00e4\u00e4", "xZ", "\u0000"));
+    }
+
+    @Test
+    public void testCsvWithHeaderQuotesAndMultiLineValues() {
+        List<String[]> records = read(
+            format("WITH (format = 'csv', header = true)"),
+            "id,name\r\n1,\"a,\"\"b\"\"\"\n2,\n3,\"\"\n4,\"line1\n", "line2\"");
+        assertThat(records.size(), is(4));
+        assertThat(records.get(0), arrayContaining("1", "a,\"b\""));
+        assertThat(records.get(1), arrayContaining("2", null));
+        assertThat(records.get(2), arrayContaining("3", ""));
+        assertThat(records.get(3), arrayContaining("4", "line1\nline2"));
+    }
+
+    @Test
+    public void testCustomDelimiterAndNullString() {
+        List<String[]> records = read(format("WITH (delimiter = '|', \"null\" = 'NULL')"), "1|NULL\n2|\\N");
+        assertThat(records.get(0), arrayContaining("1", null));
+        assertThat(records.get(1), arrayContaining("2", "N"));
+    }
+
+    @Test
+    public void testUnterminatedCsvQuoteFails() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("unterminated CSV quoted field");
+        read(format("WITH (format = 'csv')"), "1,\"foo\n");
+    }
+
+    @Test
+    public void testHeaderIsOnlyAllowedForCsv() {
+        expectedException.expect(IllegalArgumentException.class);
+        expectedException.expectMessage("COPY HEADER available only in CSV mode");
+        format("WITH (header = true)");
+    }
+
+    @Test
+    public void testWriteTextRecordEscapesSpecialCharacters() {
+        assertThat(write(format(""), 1, "a\tb\nc\\"), is("1\ta\\tb\\nc\\\\\n"));
+        assertThat(write(format(""), null, "x"), is("\\N\tx\n"));
+    }
+
+    @Test
+    public void testWriteCsvRecordQuotesIfNeeded() {
+        CopyFormat csv = format("WITH (format = 'csv')");
+        assertThat(write(csv, 1, "a,\"b\""), is("1,\"a,\"\"b\"\"\"\n"));
+        assertThat(write(csv, 2, ""), is("2,\"\"\n"));
+        assertThat(write(csv, null, "x"), is(",x\n"));
+    }
+
+    @Test
+    public void testWrittenRecordsCanBeReadBack() {
+        CopyFormat csv = format("WITH (format = 'csv')");
+        List<String[]> records = read(csv, write(csv, 1, "multi\nline, \"quoted\""), write(csv, null, ""));
+        assertThat(records.get(0), arrayContaining("1", "multi\nline, \"quoted\""));
+        assertThat(records.get(1), arrayContaining(null, ""));
+    }
+}
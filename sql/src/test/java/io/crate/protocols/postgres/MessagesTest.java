@@ -24,6 +24,8 @@ package io.crate.protocols.postgres;
 
 import io.crate.data.Row;
 import io.crate.data.RowN;
+import io.crate.protocols.postgres.types.PGType;
+import io.crate.protocols.postgres.types.PGTypes;
 import io.crate.test.integration.CrateUnitTest;
 import io.crate.types.DataTypes;
 import io.netty.buffer.ByteBuf;
@@ -74,6 +76,28 @@ public class MessagesTest extends CrateUnitTest {
         assertThat(buf.refCnt(), is(0));
     }
 
+    @Test
+    public void testWriteDataRowResetsWriterIndexIfEncodingFails() {
+        ByteBuf buffer = Unpooled.buffer();
+        PGType[] pgTypes = new PGType[] { PGTypes.get(DataTypes.INTEGER), PGTypes.get(DataTypes.INTEGER) };
+        try {
+            Messages.writeDataRow(buffer, new RowN($(1, 2)), pgTypes, null);
+            int rowLength = buffer.writerIndex();
+            try {
+                Messages.writeDataRow(buffer, new RowN($(3, "not an int")), pgTypes, null);
+                fail("writeDataRow should raise an exception");
+            } catch (ClassCastException ignored) {
+            }
+            assertThat(buffer.writerIndex(), is(rowLength));
+
+            Messages.writeDataRow(buffer, new RowN($(4, null)), pgTypes, null);
+            assertThat((char) buffer.getByte(rowLength), is('D'));
+            assertThat(buffer.getInt(rowLength + 1), is(buffer.writerIndex() - rowLength - 1));
+        } finally {
+            buffer.release();
+        }
+    }
+
     @Test
     public void testNullValuesAddToLength() throws Exception {
         EmbeddedChannel channel = new EmbeddedChannel();
@@ -117,13 +141,28 @@ public class MessagesTest extends CrateUnitTest {
         }
     }
 
+    @Test
+    public void testCommandCompleteOfCursorStatements() throws Exception {
+        final EmbeddedChannel channel = new EmbeddedChannel();
+        try {
+            Messages.sendCommandComplete(channel, "declare c1 cursor for select 1", 0);
+            verifyResponse(channel, "DECLARE CURSOR");
+            Messages.sendCommandComplete(channel, "fetch 10 from c1", 3);
+            verifyResponse(channel, "FETCH 3");
+            Messages.sendCommandComplete(channel, "close c1", 0);
+            verifyResponse(channel, "CLOSE CURSOR");
+        } finally {
+            channel.finishAndReleaseAll();
+        }
+    }
+
     private static void verifyResponse(EmbeddedChannel channel, String response) {
         byte[] responseBytes = response.getBytes(StandardCharsets.UTF_8);
         ByteBuf buffer = (ByteBuf) channel.outboundMessages().poll();
         try {
             assertThat(buffer.readByte(), is((byte) 'C'));
             assertThat(buffer.readInt(), is(responseBytes.length + 4 + 1));
-            byte[] string = new byte[9];
+            byte[] string = new byte[responseBytes.length];
             buffer.readBytes(string);
             assertThat(string, is(responseBytes));
         } finally {
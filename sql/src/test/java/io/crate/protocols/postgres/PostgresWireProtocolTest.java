@@ -22,6 +22,7 @@
 
 package io.crate.protocols.postgres;
 
+import io.crate.action.sql.Cursors;
 import io.crate.action.sql.DescribeResult;
 import io.crate.action.sql.SQLOperations;
 import io.crate.action.sql.Session;
@@ -36,6 +37,7 @@ import io.crate.exceptions.JobKilledException;
 import io.crate.execution.engine.collect.stats.JobsLogs;
 import io.crate.planner.DependencyCarrier;
 import io.crate.protocols.postgres.types.PGTypes;
+import io.crate.statistics.TableStats;
 import io.crate.test.integration.CrateDummyClusterServiceUnitTest;
 import io.crate.testing.SQLExecutor;
 import io.crate.types.DataTypes;
@@ -94,7 +96,9 @@ public class PostgresWireProtocolTest extends CrateDummyClusterServiceUnitTest {
             new JobsLogs(() -> true),
             Settings.EMPTY,
             clusterService,
-            USER_MANAGER_PROVIDER
+            USER_MANAGER_PROVIDER,
+            new Cursors(Settings.EMPTY, THREAD_POOL),
+            new TableStats()
         ) {
             @Override
             public Session createSession(@Nullable String defaultSchema, @Nullable User user) {
@@ -24,21 +24,45 @@ package io.crate.protocols.postgres;
 
 import io.crate.data.Row1;
 import io.crate.types.DataTypes;
-import io.netty.channel.Channel;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.embedded.EmbeddedChannel;
 import org.junit.Test;
-import org.mockito.Answers;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.times;
-import static org.mockito.Mockito.verify;
+import static io.crate.protocols.postgres.ResultSetReceiver.CHUNK_SIZE;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
 
 public class ResultSetReceiverTest {
 
+    /**
+     * Reads all flushed messages and returns their types
+     */
+    private static List<Character> readMessageTypes(EmbeddedChannel channel) {
+        List<Character> types = new ArrayList<>();
+        ByteBuf buffer;
+        while ((buffer = channel.readOutbound()) != null) {
+            try {
+                while (buffer.isReadable()) {
+                    types.add((char) buffer.readByte());
+                    buffer.skipBytes(buffer.readInt() - 4);
+                }
+            } finally {
+                buffer.release();
+            }
+        }
+        return types;
+    }
+
     @Test
-    public void testChannelIsPeriodicallyFlushedToAvoidConsumingTooMuchMemory() {
-        Channel channel = mock(Channel.class, Answers.RETURNS_DEEP_STUBS);
+    public void testRowsAreWrittenInChunksAndFlushedOnceTheChannelIsNotWritable() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        channel.config().setWriteBufferWaterMark(new WriteBufferWaterMark(CHUNK_SIZE, 2 * CHUNK_SIZE));
         ResultSetReceiver resultSetReceiver = new ResultSetReceiver(
             "select * from t",
             channel,
@@ -47,9 +71,41 @@ public class ResultSetReceiverTest {
             null
         );
         Row1 row1 = new Row1(1);
-        for (int i = 0; i < 1500; i++) {
+        int numRows = 0;
+        while (channel.outboundMessages().isEmpty()) {
             resultSetReceiver.setNextRow(row1);
+            numRows++;
         }
-        verify(channel, times(1)).flush();
+        // 'D' | int32 len | int16 numColumns | int32 valueLen | '1'
+        int rowSize = 1 + 4 + 2 + 4 + 1;
+        int rowsPerChunk = (CHUNK_SIZE + rowSize - 1) / rowSize;
+        assertThat(numRows, is(2 * rowsPerChunk));
+        assertThat(channel.outboundMessages().size(), is(2));
+
+        resultSetReceiver.setNextRow(row1);
+        resultSetReceiver.allFinished(false);
+        List<Character> messageTypes = readMessageTypes(channel);
+        assertThat(messageTypes.size(), is(numRows + 2));
+        assertThat(messageTypes.get(numRows), is('D'));
+        assertThat(messageTypes.get(numRows + 1), is('C'));
+        channel.finishAndReleaseAll();
+    }
+
+    @Test
+    public void testPendingRowsAreSentBeforeTheErrorResponse() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        ResultSetReceiver resultSetReceiver = new ResultSetReceiver(
+            "select * from t",
+            channel,
+            RuntimeException::new,
+            Collections.singletonList(DataTypes.INTEGER),
+            null
+        );
+        resultSetReceiver.setNextRow(new Row1(1));
+        resultSetReceiver.setNextRow(new Row1(2));
+        resultSetReceiver.fail(new IllegalStateException("dummy"));
+
+        assertThat(readMessageTypes(channel), contains('D', 'D', 'E'));
+        channel.finishAndReleaseAll();
     }
 }
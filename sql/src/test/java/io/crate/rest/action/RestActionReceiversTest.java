@@ -23,6 +23,7 @@
 package io.crate.rest.action;
 
 import com.google.common.collect.ImmutableList;
+import io.crate.action.sql.SQLActionException;
 import io.crate.breaker.RamAccountingContext;
 import io.crate.breaker.RowAccountingWithEstimators;
 import io.crate.data.Row;
@@ -35,6 +36,13 @@ import io.crate.metadata.ColumnIdent;
 import io.crate.test.integration.CrateUnitTest;
 import io.crate.testing.DummyRelation;
 import io.crate.types.DataTypes;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.breaker.NoopCircuitBreaker;
 import org.elasticsearch.common.xcontent.XContentBuilder;
@@ -42,8 +50,15 @@ import org.elasticsearch.common.xcontent.json.JsonXContent;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
 
 public class RestActionReceiversTest extends CrateUnitTest {
 
@@ -126,4 +141,97 @@ public class RestActionReceiversTest extends CrateUnitTest {
         String s = Strings.toString(builder.build());
         assertEquals(s, "{\"results\":[{\"rowcount\":1},{\"rowcount\":2},{\"rowcount\":3}]}");
     }
+
+    @Test
+    public void testRestStreamingResultSetReceiverWritesEachPageAsChunk() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        AtomicInteger fetches = new AtomicInteger(0);
+        RestStreamingResultSetReceiver receiver = new RestStreamingResultSetReceiver(
+            channel,
+            new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK),
+            false,
+            fields,
+            0L,
+            new RowAccountingWithEstimators(Symbols.typeView(fields), new RamAccountingContext("dummy", new NoopCircuitBreaker("dummy"))),
+            true,
+            t -> new SQLActionException(t.getMessage(), 5000, HttpResponseStatus.INTERNAL_SERVER_ERROR),
+            r -> fetches.incrementAndGet()
+        );
+        receiver.setNextRow(rows.get(0));
+        receiver.setNextRow(rows.get(1));
+        receiver.batchFinished();
+        channel.runPendingTasks();
+        assertThat(fetches.get(), is(1));
+        receiver.setNextRow(rows.get(2));
+        receiver.allFinished(false);
+        assertThat(receiver.completionFuture().isDone(), is(true));
+
+        assertThat(channel.readOutbound(), instanceOf(HttpResponse.class));
+        HttpContent firstChunk = channel.readOutbound();
+        assertThat(firstChunk, not(instanceOf(LastHttpContent.class)));
+        HttpContent lastChunk = channel.readOutbound();
+        assertThat(lastChunk, instanceOf(LastHttpContent.class));
+        String body = firstChunk.content().toString(StandardCharsets.UTF_8) + lastChunk.content().toString(StandardCharsets.UTF_8);
+
+        ResultToXContentBuilder builder = ResultToXContentBuilder.builder(JsonXContent.contentBuilder());
+        builder.cols(fields);
+        builder.colTypes(fields);
+        builder.startRows();
+        for (Row row : rows) {
+            builder.addRow(row, 3);
+        }
+        builder.finishRows();
+        builder.rowCount(rows.size());
+        assertEquals(stripDuration(Strings.toString(builder.build())), stripDuration(body));
+    }
+
+    @Test
+    public void testRestStreamingResultSetReceiverFailureBeforeFirstChunkFailsFuture() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        RestStreamingResultSetReceiver receiver = new RestStreamingResultSetReceiver(
+            channel,
+            new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK),
+            false,
+            fields,
+            0L,
+            new RowAccountingWithEstimators(Symbols.typeView(fields), new RamAccountingContext("dummy", new NoopCircuitBreaker("dummy"))),
+            false,
+            t -> new SQLActionException(t.getMessage(), 5000, HttpResponseStatus.INTERNAL_SERVER_ERROR),
+            r -> { }
+        );
+        receiver.setNextRow(rows.get(0));
+        receiver.fail(new IllegalStateException("dummy"));
+        assertThat(receiver.completionFuture().isCompletedExceptionally(), is(true));
+        assertThat(channel.readOutbound(), nullValue());
+    }
+
+    @Test
+    public void testRestStreamingResultSetReceiverFailureAfterFirstChunkIsWrittenAsError() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        RestStreamingResultSetReceiver receiver = new RestStreamingResultSetReceiver(
+            channel,
+            new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK),
+            false,
+            fields,
+            0L,
+            new RowAccountingWithEstimators(Symbols.typeView(fields), new RamAccountingContext("dummy", new NoopCircuitBreaker("dummy"))),
+            false,
+            t -> new SQLActionException(t.getMessage(), 5000, HttpResponseStatus.INTERNAL_SERVER_ERROR),
+            r -> { }
+        );
+        receiver.setNextRow(rows.get(0));
+        receiver.batchFinished();
+        receiver.fail(new IllegalStateException("dummy"));
+        assertThat(receiver.completionFuture().isCompletedExceptionally(), is(false));
+
+        assertThat(channel.readOutbound(), instanceOf(HttpResponse.class));
+        HttpContent firstChunk = channel.readOutbound();
+        HttpContent lastChunk = channel.readOutbound();
+        assertThat(lastChunk, instanceOf(LastHttpContent.class));
+        String body = firstChunk.content().toString(StandardCharsets.UTF_8) + lastChunk.content().toString(StandardCharsets.UTF_8);
+        assertThat(body, is(
+            "{\"cols\":[\"doc.col_a\",\"doc.col_b\",\"doc.col_c\"],\"rows\":[[\"foo\",1,true]]," +
+            "\"error\":{\"message\":\"SQLActionException[dummy]\",\"code\":5000}}"));
+        assertThat(channel.isOpen(), is(false));
+    }
 }